@@ -0,0 +1,62 @@
+package com.banksimulation.benchmark;
+
+import com.banksimulation.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户登录的基准测试
+ * Throughput of {@code AuthenticationService.loginUser} with correct and wrong passwords.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    private BenchmarkFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture(accounts, 0, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Optional<User> loginSuccess() {
+        return fixture.authenticationService.loginUser(randomUsername(), BenchmarkFixture.PASSWORD);
+    }
+
+    @Benchmark
+    public Optional<User> loginWrongPassword() {
+        return fixture.authenticationService.loginUser(randomUsername(), "wrong-password");
+    }
+
+    private String randomUsername() {
+        return fixture.usernames[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+}
@@ -0,0 +1,103 @@
+package com.banksimulation.benchmark;
+
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.entity.User;
+import com.banksimulation.service.AsyncLogWriter;
+import com.banksimulation.service.AuthenticationService;
+import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.LoginRateLimiter;
+import com.banksimulation.service.PasswordVerificationPool;
+import com.banksimulation.service.SessionManager;
+import com.banksimulation.service.SessionToken;
+import com.banksimulation.service.UserService;
+import com.banksimulation.util.AccountLockManager;
+import com.banksimulation.util.DiagnosticLogger;
+import com.banksimulation.util.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试的数据与服务装配
+ * Builds a populated in-memory store and the services on top of it, wired the same way as
+ * {@code App.init} (asynchronous logging with the default buffer).
+ */
+final class BenchmarkFixture {
+
+    static final String PASSWORD = "benchpass";
+    static final double INITIAL_BALANCE = 1_000_000_000.0; // 足够大，取款和转账不会因余额不足失败
+
+    final InMemoryDAO dao;
+    final LoggingService loggingService;
+    final AuthenticationService authenticationService;
+    final UserService userService;
+    final String[] usernames;
+    final SessionToken[] sessions; // 每个账户一个已登录会话
+    final String[] accountNumbers;
+
+    /**
+     * @param accounts Number of user accounts to create.
+     * @param transactions Number of transaction records to pre-load, spread evenly over the accounts.
+     * @param logs Number of operation logs to pre-load.
+     */
+    BenchmarkFixture(int accounts, int transactions, int logs) {
+        silenceConsole();
+        dao = new InMemoryDAO();
+        loggingService = new LoggingService(dao);
+        loggingService.enableAsync(LoggingService.DEFAULT_ASYNC_CAPACITY, AsyncLogWriter.BackpressurePolicy.BLOCK);
+        SessionManager sessionManager = new SessionManager();
+        // 不限流：登录基准测试测量的是密码校验本身
+        authenticationService = new AuthenticationService(dao, loggingService, new PasswordVerificationPool(), sessionManager,
+                LoginRateLimiter.unlimited());
+        userService = new UserService(dao, loggingService, new AccountLockManager(), sessionManager);
+
+        // 所有账户共用同一个密码哈希，只计算一次
+        String passwordHash = PasswordHasher.hashPassword(PASSWORD);
+        usernames = new String[accounts];
+        accountNumbers = new String[accounts];
+        sessions = new SessionToken[accounts];
+        String[] userIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            usernames[i] = "bench" + i;
+            accountNumbers[i] = String.valueOf(200_000 + i);
+            User user = new User(usernames[i], passwordHash, "Bench", "User" + i, accountNumbers[i]);
+            user.setBalance(INITIAL_BALANCE);
+            dao.saveUser(user);
+            userIds[i] = user.getUserId();
+            sessions[i] = sessionManager.openUserSession(user); // 直接开启会话，不为每个账户计算一次 bcrypt
+        }
+        for (int i = 0; i < transactions; i++) {
+            int account = i % accounts;
+            dao.saveTransaction(new TransactionRecord(userIds[account], accountNumbers[account],
+                    TransactionType.DEPOSIT, 1.0, INITIAL_BALANCE, "Benchmark seed"));
+        }
+        List<OperationLog> batch = new ArrayList<>(1024);
+        for (int i = 0; i < logs; i++) {
+            batch.add(new OperationLog(usernames[i % accounts], ActorType.USER, "Deposit successful",
+                    "Deposited 1.0. New balance: " + INITIAL_BALANCE));
+            if (batch.size() == 1024) {
+                dao.saveLogs(batch);
+                batch.clear();
+            }
+        }
+        dao.saveLogs(batch);
+    }
+
+    void close() {
+        authenticationService.shutdown();
+        loggingService.shutdown();
+    }
+
+    /**
+     * 只保留警告及以上的诊断输出：逐次操作的跟踪在格式化之前即被丢弃
+     * Raises the diagnostic level to WARN, as in production, so the services' per-operation traces
+     * are discarded before they are formatted and the measurements include only the level check.
+     */
+    static void silenceConsole() {
+        DiagnosticLogger.setLevel(DiagnosticLogger.Level.WARN);
+    }
+}
@@ -0,0 +1,87 @@
+package com.banksimulation.benchmark;
+
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryDAO 查询的基准测试
+ * Latency of the {@code InMemoryDAO} lookups used on every request: user by username and by
+ * account number, an account's full history, and the newest page of a user's history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoLookupBenchmark {
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"100000"})
+    public int transactions;
+
+    private BenchmarkFixture fixture;
+    private String[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture(accounts, transactions, 0);
+        userIds = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            userIds[i] = fixture.dao.getUserByUsername(fixture.usernames[i]).orElseThrow().getUserId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Optional<User> userByUsername() {
+        return fixture.dao.getUserByUsername(fixture.usernames[randomAccount()]);
+    }
+
+    @Benchmark
+    public Optional<User> userByAccountNumber() {
+        return fixture.dao.getUserByAccountNumber(fixture.accountNumbers[randomAccount()]);
+    }
+
+    @Benchmark
+    public List<TransactionRecord> transactionsByAccountNumber() {
+        return fixture.dao.getTransactionsByAccountNumber(fixture.accountNumbers[randomAccount()]);
+    }
+
+    @Benchmark
+    public TransactionPage newestTransactionPage() {
+        return fixture.dao.queryTransactions(new TransactionQuery()
+                .setUserId(userIds[randomAccount()])
+                .setDescending(true));
+    }
+
+    private int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(accounts);
+    }
+}
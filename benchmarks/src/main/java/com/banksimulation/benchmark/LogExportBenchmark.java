@@ -0,0 +1,65 @@
+package com.banksimulation.benchmark;
+
+import com.banksimulation.service.LogExportOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志导出的基准测试
+ * Time to export the whole operation log with {@code LoggingService.exportLogs}, sequentially
+ * and with parallel chunk formatting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LogExportBenchmark {
+
+    @Param({"100000"})
+    public int logs;
+
+    @Param({"CSV", "TXT", "CSV.GZ", "BIN"})
+    public String format;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private BenchmarkFixture fixture;
+    private Path exportFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new BenchmarkFixture(100, 0, logs);
+        exportFile = Files.createTempFile("bank-logs-", "." + format.toLowerCase());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+        Files.deleteIfExists(exportFile);
+    }
+
+    @Benchmark
+    public boolean exportLogs() {
+        return fixture.loggingService.exportLogs(exportFile.toString(), format,
+                new LogExportOptions().setParallelism(parallelism));
+    }
+}
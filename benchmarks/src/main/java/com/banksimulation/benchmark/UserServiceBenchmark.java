@@ -0,0 +1,82 @@
+package com.banksimulation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存款、取款、转账的基准测试
+ * Throughput of {@code UserService.deposit}, {@code withdraw} and {@code transfer} on uniformly
+ * random accounts. Run with {@code -t N} to measure contention across N threads; fewer accounts
+ * means more threads hitting the same balances and lock stripes. {@code depositWithSession} names
+ * the account by session token instead of username.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10000"})
+    public int transactions;
+
+    private BenchmarkFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture(accounts, transactions, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public boolean deposit() {
+        return fixture.userService.deposit(randomUsername(), 1.0);
+    }
+
+    @Benchmark
+    public boolean depositWithSession() {
+        return fixture.userService.deposit(fixture.sessions[ThreadLocalRandom.current().nextInt(accounts)], 1.0);
+    }
+
+    @Benchmark
+    public boolean withdraw() {
+        return fixture.userService.withdraw(randomUsername(), 1.0);
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = random.nextInt(accounts - 1);
+        if (to >= from) {
+            to++; // 不向自己转账
+        }
+        return fixture.userService.transfer(fixture.usernames[from], fixture.accountNumbers[to], 0.01);
+    }
+
+    private String randomUsername() {
+        return fixture.usernames[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+}
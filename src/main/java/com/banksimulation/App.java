@@ -1,14 +1,30 @@
 package com.banksimulation;
 
+import com.banksimulation.dao.DataAccessObject;
 import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.dao.InstrumentedDAO;
+import com.banksimulation.dao.JournalingDAO;
 import com.banksimulation.entity.User; // 引入User实体
+import com.banksimulation.metrics.MetricsDumper;
+import com.banksimulation.metrics.MetricsRegistry;
 import com.banksimulation.service.AdminService;
+import com.banksimulation.service.AsyncLogWriter;
 import com.banksimulation.service.AuthenticationService;
+import com.banksimulation.service.InstrumentedAdminService;
+import com.banksimulation.service.InstrumentedAuthenticationService;
+import com.banksimulation.service.InstrumentedUserService;
 import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.LoginRateLimiter;
+import com.banksimulation.service.MetricsSampler;
+import com.banksimulation.service.PasswordVerificationPool;
+import com.banksimulation.service.SessionManager;
 import com.banksimulation.service.UserService;
+import com.banksimulation.util.AccountLockManager;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.view.LoginController;
 import com.banksimulation.view.UserDashboardController; // 引入UserDashboardController
 import com.banksimulation.view.AdminDashboardController; // 引入AdminDashboardController
+import com.banksimulation.view.UiTaskExecutor;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -16,6 +32,8 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * JavaFX 银行模拟系统主应用程序类
@@ -24,23 +42,82 @@ import java.io.IOException;
  */
 public class App extends Application {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(App.class);
+
     // 声明服务实例
     private InMemoryDAO dao;
     private LoggingService loggingService;
     private AuthenticationService authenticationService;
     private UserService userService;
     private AdminService adminService;
+    private UiTaskExecutor uiTaskExecutor; // 在虚拟线程上执行界面发起的服务调用
+    private MetricsRegistry metricsRegistry; // 服务与DAO各操作的耗时和失败次数
+    private MetricsDumper metricsDumper; // 设置了 bank.metrics.file 时定期写出指标
+    private MetricsSampler metricsSampler; // 为管理员监控面板定期采样
 
     @Override
     public void init() throws Exception {
         // 在这里初始化所有服务
-        dao = new InMemoryDAO(); // 使用内存DAO
-        loggingService = new LoggingService(dao);
-        authenticationService = new AuthenticationService(dao, loggingService);
-        userService = new UserService(dao, loggingService);
-        adminService = new AdminService(dao, loggingService);
+        // 指定了数据目录时使用带预写日志的持久化DAO，否则使用内存DAO
+        String dataDir = System.getProperty("bank.data.dir");
+        // 持久化DAO在后台定期生成快照并清理旧日志段，缩短下次启动的重放时间；
+        // 超过归档年龄的交易记录随快照移入内存映射的列式归档段
+        dao = dataDir != null
+                ? new JournalingDAO(Path.of(dataDir),
+                        Duration.ofSeconds(Long.getLong("bank.snapshot.interval.seconds", 300)),
+                        Duration.ofDays(Long.getLong("bank.archive.age.days", 30)))
+                : new InMemoryDAO();
+        // 服务通过带耗时统计的包装访问DAO；dao 字段保留原对象以便退出时关闭
+        metricsRegistry = new MetricsRegistry();
+        DataAccessObject serviceDao = new InstrumentedDAO(dao, metricsRegistry);
+        loggingService = new LoggingService(serviceDao);
+        // 日志异步批量写入，避免阻塞存取款、转账和登录的关键路径
+        loggingService.enableAsync(
+                Integer.getInteger("bank.log.capacity", LoggingService.DEFAULT_ASYNC_CAPACITY),
+                AsyncLogWriter.BackpressurePolicy.valueOf(System.getProperty("bank.log.backpressure", "BLOCK"))
+        );
+        // 三个服务共用一个会话管理器：登录签发的令牌可用于用户操作，删除用户时结束其会话
+        SessionManager sessionManager = new SessionManager();
+        authenticationService = new InstrumentedAuthenticationService(serviceDao, loggingService,
+                new PasswordVerificationPool(), sessionManager, new LoginRateLimiter(), metricsRegistry);
+        AccountLockManager lockManager = new AccountLockManager(); // 采样器读取其锁竞争计数
+        userService = new InstrumentedUserService(serviceDao, loggingService, lockManager, sessionManager, metricsRegistry);
+        adminService = new InstrumentedAdminService(serviceDao, loggingService, sessionManager, metricsRegistry);
+        uiTaskExecutor = new UiTaskExecutor();
+        metricsSampler = new MetricsSampler(metricsRegistry, loggingService, lockManager);
+        String metricsFile = System.getProperty("bank.metrics.file");
+        if (metricsFile != null) {
+            // 每个记录只包含上一次写出之后的调用
+            metricsDumper = new MetricsDumper(metricsRegistry, Path.of(metricsFile),
+                    Duration.ofSeconds(Long.getLong("bank.metrics.interval.seconds", 60)), true);
+        }
 
-        System.out.println("Services initialized successfully.");
+        LOG.info("Services initialized successfully.");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        // 先等待界面发起的服务调用完成，它们可能还会写日志和交易记录
+        if (uiTaskExecutor != null) {
+            uiTaskExecutor.close();
+        }
+        if (metricsSampler != null) {
+            metricsSampler.close();
+        }
+        if (authenticationService != null) {
+            authenticationService.shutdown();
+        }
+        // 应用退出前写出所有待写入的异步日志
+        if (loggingService != null) {
+            loggingService.shutdown();
+        }
+        if (dao instanceof JournalingDAO) {
+            ((JournalingDAO) dao).close(); // 生成最终快照并持久化所有未同步的日志记录
+        }
+        if (metricsDumper != null) {
+            metricsDumper.close(); // 写出最后一段时间的指标
+        }
+        LOG.info("Services shut down.");
     }
 
     @Override
@@ -58,6 +135,7 @@ public class App extends Application {
                         userService,
                         adminService,
                         loggingService,
+                        uiTaskExecutor,
                         stage // 传递主舞台
                 );
             } else if (controllerClass == UserDashboardController.class) {
@@ -102,4 +180,16 @@ public class App extends Application {
     public LoggingService getLoggingService() {
         return loggingService;
     }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public MetricsSampler getMetricsSampler() {
+        return metricsSampler;
+    }
+
+    public UiTaskExecutor getUiTaskExecutor() {
+        return uiTaskExecutor;
+    }
 }
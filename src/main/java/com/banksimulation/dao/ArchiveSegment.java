@@ -0,0 +1,628 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.util.TimeUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 只读的列式交易归档段（内存映射）
+ * Read-only, memory-mapped columnar segment of archived transactions.
+ * Every column is a fixed-width array in the file: timestamp (epoch nanoseconds), amount,
+ * balance-after, transaction ID (as two longs), type, and dictionary codes for account number,
+ * related account, user ID and description. Rows are sorted by account and then by time, with a
+ * per-account directory of row ranges, so one account's history is a contiguous, binary-searchable
+ * slice. A separate permutation column lists the rows in time order for global scans.
+ * Only the (small) dictionaries are decoded onto the heap; rows are materialized on access.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x42415243; // "BARC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int NONE = -1;
+    private static final int ID_IN_DICTIONARY = 0x80; // 类型字节最高位：交易ID不是UUID，存放在字符串字典中
+
+    static final int MAX_ROWS = 4_000_000; // 保证单个段可整体映射（< 2GB）
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path file;
+    private final int segmentId;
+    private final long cutoffNanos;
+    private final int rowCount;
+    private final ByteBuffer data;
+    private final String[] accounts; // 已排序的账号字典，编码即下标
+    private final String[] strings;  // 用户ID、描述等其他字符串的字典
+    private final Map<String, int[]> accountsByUserId;
+
+    // 各列的起始偏移
+    private final int nanosAt;
+    private final int amountAt;
+    private final int balanceAt;
+    private final int idHighAt;
+    private final int idLowAt;
+    private final int accountAt;
+    private final int relatedAt;
+    private final int userAt;
+    private final int descriptionAt;
+    private final int timeOrderAt;
+    private final int typeAt;
+    private final int directoryAt;
+
+    private ArchiveSegment(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not an archive segment: " + file);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported archive segment version " + data.getInt(4) + ": " + file);
+        }
+        this.segmentId = data.getInt(8);
+        this.rowCount = data.getInt(12);
+        this.cutoffNanos = data.getLong(16);
+        int accountCount = data.getInt(24);
+        int stringCount = data.getInt(28);
+
+        int n = rowCount;
+        nanosAt = HEADER_BYTES;
+        amountAt = nanosAt + 8 * n;
+        balanceAt = amountAt + 8 * n;
+        idHighAt = balanceAt + 8 * n;
+        idLowAt = idHighAt + 8 * n;
+        accountAt = idLowAt + 8 * n;
+        relatedAt = accountAt + 4 * n;
+        userAt = relatedAt + 4 * n;
+        descriptionAt = userAt + 4 * n;
+        timeOrderAt = descriptionAt + 4 * n;
+        typeAt = timeOrderAt + 4 * n;
+        directoryAt = typeAt + n;
+
+        int position = directoryAt + 4 * (accountCount + 1);
+        accounts = new String[accountCount];
+        position = readDictionary(data, position, accounts);
+        strings = new String[stringCount];
+        readDictionary(data, position, strings);
+
+        // 用户 -> 其记录所在账号（通常只有一个）
+        Map<String, List<Integer>> byUser = new HashMap<>();
+        for (int account = 0; account < accountCount; account++) {
+            int start = directory(account);
+            int end = directory(account + 1);
+            String previous = null;
+            for (int row = start; row < end; row++) {
+                String userId = strings[data.getInt(userAt + 4 * row)];
+                if (!userId.equals(previous)) {
+                    List<Integer> userAccounts = byUser.computeIfAbsent(userId, k -> new ArrayList<>());
+                    if (userAccounts.isEmpty() || userAccounts.get(userAccounts.size() - 1) != account) {
+                        userAccounts.add(account);
+                    }
+                    previous = userId;
+                }
+            }
+        }
+        accountsByUserId = new HashMap<>();
+        byUser.forEach((userId, list) -> accountsByUserId.put(userId, list.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * 以只读方式映射归档段文件
+     * Maps an archive segment file read-only.
+     */
+    static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ArchiveSegment(file, data);
+        }
+    }
+
+    /**
+     * 将交易记录写成列式归档段文件
+     * Writes records as a columnar archive segment file and syncs it.
+     * @param file The file to write.
+     * @param segmentId The segment's ID; determines the sequence part of its rows' keys.
+     * @param cutoffNanos Every record is older than this timestamp (epoch nanoseconds, UTC).
+     * @param records At most {@link #MAX_ROWS} records, in any order.
+     */
+    static void write(Path file, int segmentId, long cutoffNanos, List<TransactionRecord> records) throws IOException {
+        int n = records.size();
+        if (n > MAX_ROWS) {
+            throw new IllegalArgumentException("Too many rows for one archive segment: " + n);
+        }
+        // 账号字典按字典序编码，使账号目录与账号查找都可以用下标/二分完成
+        TreeMap<String, Integer> accountCodes = new TreeMap<>();
+        Map<String, Integer> stringCodes = new HashMap<>();
+        List<String> stringList = new ArrayList<>();
+        for (TransactionRecord record : records) {
+            accountCodes.put(record.getAccountNumber(), 0);
+            if (record.getRelatedAccountNumber() != null) {
+                accountCodes.put(record.getRelatedAccountNumber(), 0);
+            }
+        }
+        int code = 0;
+        for (Map.Entry<String, Integer> entry : accountCodes.entrySet()) {
+            entry.setValue(code++);
+        }
+
+        // 行按 (账号, 时间) 排序；保持输入中同一时间戳记录的相对顺序
+        Integer[] order = new Integer[n];
+        long[] inputNanos = new long[n];
+        int[] inputAccount = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            inputNanos[i] = TimeUtil.toEpochNanos(records.get(i).getTimestamp());
+            inputAccount[i] = accountCodes.get(records.get(i).getAccountNumber());
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> inputAccount[i])
+                .thenComparingLong(i -> inputNanos[i]).thenComparingInt(i -> i));
+
+        int accountCount = accountCodes.size();
+        int[] directory = new int[accountCount + 1];
+        for (int i = 0; i < n; i++) {
+            directory[inputAccount[order[i]] + 1]++;
+        }
+        for (int a = 0; a < accountCount; a++) {
+            directory[a + 1] += directory[a];
+        }
+
+        // 时间顺序排列
+        Integer[] timeOrder = new Integer[n];
+        for (int row = 0; row < n; row++) {
+            timeOrder[row] = row;
+        }
+        Arrays.sort(timeOrder, Comparator.<Integer>comparingLong(row -> inputNanos[order[row]]).thenComparingInt(row -> row));
+
+        byte[][] encodedAccounts = new byte[accountCount][];
+        int i = 0;
+        for (String account : accountCodes.keySet()) {
+            encodedAccounts[i++] = account.getBytes(StandardCharsets.UTF_8);
+        }
+        // 字符串字典需先完成编码才能确定文件大小
+        int[] userCodes = new int[n];
+        int[] descriptionCodes = new int[n];
+        long[] idHigh = new long[n];
+        long[] idLow = new long[n];
+        byte[] types = new byte[n];
+        for (int row = 0; row < n; row++) {
+            TransactionRecord record = records.get(order[row]);
+            userCodes[row] = intern(record.getUserId(), stringCodes, stringList);
+            descriptionCodes[row] = record.getDescription() == null ? NONE : intern(record.getDescription(), stringCodes, stringList);
+            int type = record.getType().ordinal();
+            UUID uuid = parseUuid(record.getTransactionId());
+            if (uuid != null) {
+                idHigh[row] = uuid.getMostSignificantBits();
+                idLow[row] = uuid.getLeastSignificantBits();
+            } else {
+                idLow[row] = intern(record.getTransactionId(), stringCodes, stringList);
+                type |= ID_IN_DICTIONARY;
+            }
+            types[row] = (byte) type;
+        }
+        byte[][] encodedStrings = new byte[stringList.size()][];
+        for (int s = 0; s < encodedStrings.length; s++) {
+            encodedStrings[s] = stringList.get(s).getBytes(StandardCharsets.UTF_8);
+        }
+
+        long size = HEADER_BYTES + 61L * n // 5 个 long/double 列、5 个 int 列、1 个 byte 列
+                + 4L * (accountCount + 1)
+                + dictionaryBytes(encodedAccounts) + dictionaryBytes(encodedStrings);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Archive segment too large: " + size + " bytes");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(segmentId).putInt(n).putLong(cutoffNanos)
+                .putInt(accountCount).putInt(encodedStrings.length);
+        for (int row = 0; row < n; row++) {
+            out.putLong(inputNanos[order[row]]);
+        }
+        for (int row = 0; row < n; row++) {
+            out.putDouble(records.get(order[row]).getAmount());
+        }
+        for (int row = 0; row < n; row++) {
+            out.putDouble(records.get(order[row]).getBalanceAfterTransaction());
+        }
+        for (int row = 0; row < n; row++) {
+            out.putLong(idHigh[row]);
+        }
+        for (int row = 0; row < n; row++) {
+            out.putLong(idLow[row]);
+        }
+        for (int row = 0; row < n; row++) {
+            out.putInt(inputAccount[order[row]]);
+        }
+        for (int row = 0; row < n; row++) {
+            String related = records.get(order[row]).getRelatedAccountNumber();
+            out.putInt(related == null ? NONE : accountCodes.get(related));
+        }
+        for (int row = 0; row < n; row++) {
+            out.putInt(userCodes[row]);
+        }
+        for (int row = 0; row < n; row++) {
+            out.putInt(descriptionCodes[row]);
+        }
+        for (int row = 0; row < n; row++) {
+            out.putInt(timeOrder[row]);
+        }
+        out.put(types);
+        for (int entry : directory) {
+            out.putInt(entry);
+        }
+        writeDictionary(out, encodedAccounts);
+        writeDictionary(out, encodedStrings);
+        out.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int getSegmentId() {
+        return segmentId;
+    }
+
+    long getCutoffNanos() {
+        return cutoffNanos;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    boolean containsUser(String userId) {
+        return accountsByUserId.containsKey(userId);
+    }
+
+    /** @return The smallest row key in the segment. */
+    TransactionStore.Key firstKey() {
+        return key(data.getInt(timeOrderAt));
+    }
+
+    /** @return The largest row key in the segment. */
+    TransactionStore.Key lastKey() {
+        return key(data.getInt(timeOrderAt + 4 * (rowCount - 1)));
+    }
+
+    /**
+     * 读取全部记录（按时间顺序），用于重写归档段
+     * Materializes every row in time order; used when rewriting a segment.
+     */
+    List<TransactionRecord> readAll() {
+        List<TransactionRecord> records = new ArrayList<>(rowCount);
+        for (int p = 0; p < rowCount; p++) {
+            records.add(record(data.getInt(timeOrderAt + 4 * p)));
+        }
+        return records;
+    }
+
+    /**
+     * 为查询添加按键有序的扫描
+     * Adds ordered scans of the rows matching the criteria to {@code sources}: a user's rows (one scan
+     * per account they appear under), an account's rows, or, with neither given, all rows.
+     * @param low Inclusive lower key bound, or {@code null}.
+     * @param high Exclusive upper key bound, or {@code null}.
+     */
+    void scan(String userId, String accountNumber, TransactionStore.Key low, TransactionStore.Key high,
+              boolean descending, List<Iterator<Map.Entry<TransactionStore.Key, TransactionRecord>>> sources) {
+        if (userId != null) {
+            int[] userAccounts = accountsByUserId.get(userId);
+            if (userAccounts != null) {
+                for (int account : userAccounts) {
+                    int start = directory(account);
+                    addScan(row -> row, start, directory(account + 1), userId, low, high, descending, sources);
+                }
+            }
+        } else {
+            Slice slice = slice(accountNumber, low, high);
+            if (slice != null) {
+                sources.add(new RowIterator(slice.rowAt, slice.from, slice.to, null, descending));
+            }
+        }
+    }
+
+    /**
+     * 统计键区间内满足类型与金额过滤条件的行数（只读取所需的列，不解码记录）
+     * Counts an account's rows, or all rows, within [low, high) that pass the query's type and
+     * amount filters. Without those filters this is the width of the binary-searched position
+     * range; with them only the type and amount columns are read.
+     */
+    int count(String accountNumber, TransactionStore.Key low, TransactionStore.Key high, TransactionQuery filter) {
+        Slice slice = slice(accountNumber, low, high);
+        if (slice == null) {
+            return 0;
+        }
+        if (!filter.hasValueFilters()) {
+            return slice.to - slice.from;
+        }
+        int count = 0;
+        for (int p = slice.from; p < slice.to; p++) {
+            if (matchesValues(slice.rowAt.applyAsInt(p), filter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 定位键区间内第 n 个满足过滤条件的行（只读取所需的列，不解码记录）
+     * Returns the key of the row n places (counting from 0) into an account's rows, or all rows,
+     * within [low, high) that pass the query's type and amount filters, in key order or reverse.
+     * Without those filters this is a direct position lookup.
+     * @return The key, or {@code null} if fewer rows match.
+     */
+    TransactionStore.Key keyAt(String accountNumber, TransactionStore.Key low, TransactionStore.Key high,
+                               boolean descending, TransactionQuery filter, int n) {
+        Slice slice = slice(accountNumber, low, high);
+        if (slice == null) {
+            return null;
+        }
+        int size = slice.to - slice.from;
+        if (!filter.hasValueFilters()) {
+            return n < size ? key(slice.rowAt.applyAsInt(descending ? slice.to - 1 - n : slice.from + n)) : null;
+        }
+        int remaining = n;
+        for (int i = 0; i < size; i++) {
+            int row = slice.rowAt.applyAsInt(descending ? slice.to - 1 - i : slice.from + i);
+            if (matchesValues(row, filter)) {
+                if (remaining == 0) {
+                    return key(row);
+                }
+                remaining--;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 某账户（或全部行）在键区间内的位置范围
+     * Returns the position range of an account's rows, or of all rows in time order, within
+     * [low, high), or {@code null} if it is empty.
+     */
+    private Slice slice(String accountNumber, TransactionStore.Key low, TransactionStore.Key high) {
+        IntUnaryOperator rowAt;
+        int start;
+        int end;
+        if (accountNumber != null) {
+            int account = Arrays.binarySearch(accounts, accountNumber);
+            if (account < 0) {
+                return null;
+            }
+            rowAt = row -> row;
+            start = directory(account);
+            end = directory(account + 1);
+        } else {
+            rowAt = p -> data.getInt(timeOrderAt + 4 * p);
+            start = 0;
+            end = rowCount;
+        }
+        int from = low == null ? start : lowerBound(rowAt, start, end, low);
+        int to = high == null ? end : lowerBound(rowAt, from, end, high);
+        return from < to ? new Slice(rowAt, from, to) : null;
+    }
+
+    private boolean matchesValues(int row, TransactionQuery filter) {
+        TransactionType type = TYPES[(data.get(typeAt + row) & 0xFF) & ~ID_IN_DICTIONARY];
+        return filter.matchesValues(type, data.getDouble(amountAt + 8 * row));
+    }
+
+    private void addScan(IntUnaryOperator rowAt, int start, int end, String userId,
+                         TransactionStore.Key low, TransactionStore.Key high, boolean descending,
+                         List<Iterator<Map.Entry<TransactionStore.Key, TransactionRecord>>> sources) {
+        int from = low == null ? start : lowerBound(rowAt, start, end, low);
+        int to = high == null ? end : lowerBound(rowAt, from, end, high);
+        if (from < to) {
+            sources.add(new RowIterator(rowAt, from, to, userId, descending));
+        }
+    }
+
+    /**
+     * 二分查找第一个键不小于 bound 的位置
+     * Returns the first position in [start, end) whose row key is not less than {@code bound}.
+     */
+    private int lowerBound(IntUnaryOperator rowAt, int start, int end, TransactionStore.Key bound) {
+        int lo = start;
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(rowAt.applyAsInt(mid)).compareTo(bound) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private TransactionStore.Key key(int row) {
+        // 序列号取负值区间，保证与内存中记录的序列号不冲突，且同一段内随行号递增
+        long seq = Long.MIN_VALUE + 1 + (((long) segmentId << 32) | row);
+        return new TransactionStore.Key(data.getLong(nanosAt + 8 * row), seq);
+    }
+
+    private int directory(int account) {
+        return data.getInt(directoryAt + 4 * account);
+    }
+
+    private TransactionRecord record(int row) {
+        int type = data.get(typeAt + row) & 0xFF;
+        String transactionId = (type & ID_IN_DICTIONARY) != 0
+                ? strings[(int) data.getLong(idLowAt + 8 * row)]
+                : new UUID(data.getLong(idHighAt + 8 * row), data.getLong(idLowAt + 8 * row)).toString();
+        LocalDateTime timestamp = TimeUtil.fromEpochNanos(data.getLong(nanosAt + 8 * row));
+        int related = data.getInt(relatedAt + 4 * row);
+        int description = data.getInt(descriptionAt + 4 * row);
+        return new TransactionRecord(transactionId,
+                strings[data.getInt(userAt + 4 * row)],
+                accounts[data.getInt(accountAt + 4 * row)],
+                TYPES[type & ~ID_IN_DICTIONARY],
+                data.getDouble(amountAt + 8 * row),
+                data.getDouble(balanceAt + 8 * row),
+                timestamp,
+                description == NONE ? null : strings[description],
+                related == NONE ? null : accounts[related]);
+    }
+
+    private static int intern(String value, Map<String, Integer> codes, List<String> values) {
+        return codes.computeIfAbsent(value, k -> {
+            values.add(k);
+            return values.size() - 1;
+        });
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null; // 只接受规范格式，保证还原后字符串一致
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long dictionaryBytes(byte[][] entries) {
+        long bytes = 0;
+        for (byte[] entry : entries) {
+            bytes += 4 + entry.length;
+        }
+        return bytes;
+    }
+
+    private static void writeDictionary(ByteBuffer out, byte[][] entries) {
+        for (byte[] entry : entries) {
+            out.putInt(entry.length);
+            out.put(entry);
+        }
+    }
+
+    private static int readDictionary(ByteBuffer data, int position, String[] into) {
+        for (int i = 0; i < into.length; i++) {
+            int length = data.getInt(position);
+            byte[] bytes = new byte[length];
+            data.get(position + 4, bytes);
+            into[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        return position;
+    }
+
+    /**
+     * 按位置区间顺序（或逆序）读取行的迭代器
+     * Iterates rows of a position range in key order (or reverse), optionally only one user's.
+     */
+    private final class RowIterator implements Iterator<Map.Entry<TransactionStore.Key, TransactionRecord>> {
+        private final IntUnaryOperator rowAt;
+        private final int from;
+        private final int to;
+        private final String userId;
+        private final boolean descending;
+        private int next;
+        private int nextRow = NONE;
+
+        RowIterator(IntUnaryOperator rowAt, int from, int to, String userId, boolean descending) {
+            this.rowAt = rowAt;
+            this.from = from;
+            this.to = to;
+            this.userId = userId;
+            this.descending = descending;
+            this.next = descending ? to - 1 : from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextRow == NONE && next >= from && next < to) {
+                int row = rowAt.applyAsInt(next);
+                next += descending ? -1 : 1;
+                if (userId == null || userId.equals(strings[data.getInt(userAt + 4 * row)])) {
+                    nextRow = row;
+                }
+            }
+            return nextRow != NONE;
+        }
+
+        @Override
+        public Map.Entry<TransactionStore.Key, TransactionRecord> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = nextRow;
+            nextRow = NONE;
+            return new RowEntry(row);
+        }
+    }
+
+    /**
+     * 归档行的映射项：键立即构造（用于归并），记录在首次读取时才解码
+     * Entry for an archived row; the key is built up front for merging, the record is decoded on
+     * first access so that walks which only compare keys never materialize it.
+     */
+    private final class RowEntry implements Map.Entry<TransactionStore.Key, TransactionRecord> {
+        private final int row;
+        private final TransactionStore.Key key;
+        private TransactionRecord record;
+
+        RowEntry(int row) {
+            this.row = row;
+            this.key = key(row);
+        }
+
+        @Override
+        public TransactionStore.Key getKey() {
+            return key;
+        }
+
+        @Override
+        public TransactionRecord getValue() {
+            if (record == null) {
+                record = record(row);
+            }
+            return record;
+        }
+
+        @Override
+        public TransactionRecord setValue(TransactionRecord value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 按位置表示的行区间
+     * A position range [from, to) over rows ordered by {@code rowAt}.
+     */
+    private static final class Slice {
+        final IntUnaryOperator rowAt;
+        final int from;
+        final int to;
+
+        Slice(IntUnaryOperator rowAt, int from, int to) {
+            this.rowAt = rowAt;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.banksimulation.dao;
+
+import java.util.List;
+
+/**
+ * 变更流的一批新增记录
+ * The records appended after a reader's last seen sequence number, from
+ * {@link DataAccessObject#getLogChanges(long)} or {@link DataAccessObject#getTransactionChanges(long)}.
+ * Readers pass {@link #getLastSequence()} to the next call, so each call costs time proportional
+ * to the records appended since the previous one.
+ */
+public class ChangeBatch<T> {
+    private final List<T> records;     // 按追加顺序排列的新增记录
+    private final long lastSequence;   // 本批之后读取方所处的序列号
+    private final boolean reset;       // 读取方错过了变更，需要丢弃已有数据
+
+    public ChangeBatch(List<T> records, long lastSequence, boolean reset) {
+        this.records = records;
+        this.lastSequence = lastSequence;
+        this.reset = reset;
+    }
+
+    /**
+     * @return The new records in append order; empty after a reset.
+     */
+    public List<T> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return The sequence number to pass to the next call.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * 读取方的数据已过期：期间有记录被删除，或错过的变更已不再保留
+     * Whether the records do not follow on from the reader's sequence, because records were removed
+     * or the changes it missed are no longer retained. The reader must then discard what it built
+     * from earlier batches, reload, and continue from {@link #getLastSequence()}.
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
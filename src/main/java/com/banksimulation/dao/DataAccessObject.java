@@ -7,6 +7,7 @@ import com.banksimulation.entity.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * 数据访问对象接口
@@ -31,11 +32,24 @@ public interface DataAccessObject {
 
     // TransactionRecord operations
     void saveTransaction(TransactionRecord transaction);
+    void saveTransactions(List<TransactionRecord> transactions); // 批量写入交易记录
+    void saveBalanceChanges(List<User> users, long[] changes, List<TransactionRecord> transactions); // 将已在User对象上应用的余额变动（changes[i] 属于 users[i]，最小货币单位）与其交易记录一起持久化，之后交易记录才可见；失败时抛出异常，由调用方撤销余额变动
+    int importTransactions(List<TransactionRecord> transactions); // 写入外部导入的记录，跳过重复、时间超出范围和早于归档截止时间的记录，返回写入条数
     List<TransactionRecord> getTransactionsByUserId(String userId);
     List<TransactionRecord> getTransactionsByAccountNumber(String accountNumber);
     List<TransactionRecord> getAllTransactions();
+    TransactionPage queryTransactions(TransactionQuery query); // 按时间范围、类型、金额过滤的游标分页查询
+    int countTransactions(TransactionQuery query); // 满足过滤条件的交易数（忽略游标、偏移和每页条数）
+    ChangeBatch<TransactionRecord> getTransactionChanges(long afterSequence); // 指定序列号之后新增的交易（仅保留最近的变更）
+    long getTransactionSequence(); // 已全部可查询的最大交易序列号，查询前获取，之后从它开始跟随变更
 
     // OperationLog operations
     void saveLog(OperationLog log);
+    void saveLogs(List<OperationLog> logs); // 批量写入日志
     List<OperationLog> getAllLogs();
+    void forEachLog(Consumer<OperationLog> action); // 按写入顺序流式遍历日志，不复制整个列表
+    LogView getLogView(); // 日志的一致只读视图（不复制），可按下标分段并行读取
+    ChangeBatch<OperationLog> getLogChanges(long afterSequence); // 指定序列号之后新增的日志
+    LogPage queryLogs(LogQuery query); // 按操作者过滤的游标分页查询，无过滤时按下标直接定位
+    int countLogs(LogQuery query); // 满足过滤条件的日志数（忽略游标、偏移和每页条数）
 }
@@ -4,6 +4,7 @@ import com.banksimulation.entity.Admin;
 import com.banksimulation.entity.OperationLog;
 import com.banksimulation.entity.TransactionRecord;
 import com.banksimulation.entity.User;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.util.PasswordHasher; // 引入密码哈希工具类
 
 import java.util.ArrayList;
@@ -12,7 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * 内存数据访问对象实现
@@ -21,60 +22,157 @@ import java.util.stream.Collectors;
  */
 public class InMemoryDAO implements DataAccessObject {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(InMemoryDAO.class);
+
     // 使用 ConcurrentHashMap 保证多线程安全，尽管在这个单机模拟中可能不是严格必需，但良好的实践。
     private final Map<String, User> users = new ConcurrentHashMap<>(); // Key: userId
     private final Map<String, User> usersByAccountNumber = new ConcurrentHashMap<>(); // Key: accountNumber
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>(); // Key: username
     private final Map<String, Admin> admins = new ConcurrentHashMap<>(); // Key: adminId
-    private final List<TransactionRecord> transactions = new ArrayList<>(); // 简单列表
-    private final List<OperationLog> logs = new ArrayList<>(); // 简单列表
+    private final Map<String, Admin> adminsByUsername = new ConcurrentHashMap<>(); // Key: username
+    // 记录每个ID当前被索引的用户名/账号，以便在改名或改账号时移除旧的索引项
+    private final Map<String, String> indexedUsernames = new ConcurrentHashMap<>(); // Key: userId
+    private final Map<String, String> indexedAccountNumbers = new ConcurrentHashMap<>(); // Key: userId
+    private final Map<String, String> indexedAdminUsernames = new ConcurrentHashMap<>(); // Key: adminId
+    private final TransactionStore transactions = new TransactionStore(); // 线程安全、按用户/账号索引的交易存储
+    private final LogStore logs = new LogStore(); // 线程安全的追加式日志存储
 
     // 为了方便测试，可以预设一些数据
     public InMemoryDAO() {
+        this(true);
+    }
+
+    /**
+     * @param seedDefaultAccounts 是否预设默认账户；子类在恢复持久化数据时传入 false，
+     *                            并在确认没有已存数据后自行调用 {@link #seedDefaultAccounts()}
+     */
+    protected InMemoryDAO(boolean seedDefaultAccounts) {
+        if (seedDefaultAccounts) {
+            // 直接写入存储：构造期间不能调用子类可能覆盖的 save 方法（子类此时尚未初始化）
+            createDefaultAccounts(this::putAdmin, this::putUser);
+        }
+    }
+
+    /**
+     * 预设默认的管理员和用户账户
+     * Creates the default admin and user accounts through {@link #saveAdmin(Admin)} and
+     * {@link #saveUser(User)}, so a subclass that persists accounts stores them too. Subclasses call
+     * this once they are fully initialized.
+     */
+    protected final void seedDefaultAccounts() {
+        createDefaultAccounts(this::saveAdmin, this::saveUser);
+    }
+
+    private static void createDefaultAccounts(Consumer<Admin> saveAdmin, Consumer<User> saveUser) {
         // 预设一个顶级管理员账户
         String adminPasswordPlain = "admin"; // 默认管理员明文密码
         String adminPasswordHashed = PasswordHasher.hashPassword(adminPasswordPlain);
         Admin defaultAdmin = new Admin("admin", adminPasswordHashed, true); // 设为顶级管理员
-        admins.put(defaultAdmin.getAdminId(), defaultAdmin);
-        System.out.println("InMemoryDAO: Default top-level admin created: " + defaultAdmin.getUsername() + " with password: " + adminPasswordPlain);
+        saveAdmin.accept(defaultAdmin);
+        LOG.info("Default top-level admin created: {} with password: {}", defaultAdmin.getUsername(), adminPasswordPlain);
 
         // 预设一个普通用户账户
         String userPasswordPlain = "userpass"; // 默认用户明文密码
         String userPasswordHashed = PasswordHasher.hashPassword(userPasswordPlain);
         User defaultUser = new User("user1", userPasswordHashed, "John", "Doe", "100001");
-        users.put(defaultUser.getUserId(), defaultUser);
-        usersByAccountNumber.put(defaultUser.getAccountNumber(), defaultUser);
-        System.out.println("InMemoryDAO: Default user created: " + defaultUser.getUsername() + " with password: " + userPasswordPlain);
+        saveUser.accept(defaultUser);
+        LOG.info("Default user created: {} with password: {}", defaultUser.getUsername(), userPasswordPlain);
 
         // 预设一个非顶级管理员账户 (用于测试权限限制)
         String subAdminPasswordPlain = "subadmin";
         String subAdminPasswordHashed = PasswordHasher.hashPassword(subAdminPasswordPlain);
         Admin subAdmin = new Admin("subadmin", subAdminPasswordHashed, false); // 非顶级管理员
-        admins.put(subAdmin.getAdminId(), subAdmin);
-        System.out.println("InMemoryDAO: Sub-admin created: " + subAdmin.getUsername() + " with password: " + subAdminPasswordPlain);
+        saveAdmin.accept(subAdmin);
+        LOG.info("Sub-admin created: {} with password: {}", subAdmin.getUsername(), subAdminPasswordPlain);
 
         // 预设另一个普通用户账户用于转账测试
         String user2PasswordPlain = "user2pass";
         String user2PasswordHashed = PasswordHasher.hashPassword(user2PasswordPlain);
         User user2 = new User("user2", user2PasswordHashed, "Jane", "Smith", "100002");
         user2.setBalance(500.0); // 给user2一些初始余额
-        users.put(user2.getUserId(), user2);
-        usersByAccountNumber.put(user2.getAccountNumber(), user2);
-        System.out.println("InMemoryDAO: Default user2 created: " + user2.getUsername() + " with password: " + user2PasswordPlain + ", balance: " + user2.getBalance());
+        saveUser.accept(user2);
+        LOG.info("Default user2 created: {} with password: {}, balance: {}", user2.getUsername(), user2PasswordPlain, user2.getBalance());
+    }
+
+    // --- Index maintenance ---
+
+    /**
+     * 写入用户并维护用户名/账号二级索引
+     * Stores a user and keeps the username and account-number indexes consistent,
+     * dropping stale entries if the username or account number changed since the last put.
+     */
+    private void putUser(User user) {
+        String userId = user.getUserId();
+        users.put(userId, user);
+
+        String newUsername = user.getUsername();
+        String oldUsername = indexedUsernames.put(userId, newUsername);
+        if (oldUsername != null && !oldUsername.equals(newUsername)) {
+            removeIndexEntry(usersByUsername, oldUsername, userId);
+        }
+        usersByUsername.put(newUsername, user);
+
+        String newAccountNumber = user.getAccountNumber();
+        String oldAccountNumber = indexedAccountNumbers.put(userId, newAccountNumber);
+        if (oldAccountNumber != null && !oldAccountNumber.equals(newAccountNumber)) {
+            removeIndexEntry(usersByAccountNumber, oldAccountNumber, userId);
+        }
+        usersByAccountNumber.put(newAccountNumber, user);
+    }
+
+    /**
+     * 移除用户及其索引项
+     * Removes a user together with its username and account-number index entries.
+     */
+    private User removeUser(String userId) {
+        User removed = users.remove(userId);
+        if (removed != null) {
+            String indexedUsername = indexedUsernames.remove(userId);
+            if (indexedUsername != null) {
+                removeIndexEntry(usersByUsername, indexedUsername, userId);
+            }
+            String indexedAccountNumber = indexedAccountNumbers.remove(userId);
+            if (indexedAccountNumber != null) {
+                removeIndexEntry(usersByAccountNumber, indexedAccountNumber, userId);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 仅当索引项仍指向该用户时才移除（可能已被同名的其他用户占用）
+     * Removes an index entry only if it still points at the given user.
+     */
+    private static void removeIndexEntry(Map<String, User> index, String key, String userId) {
+        index.computeIfPresent(key, (k, v) -> v.getUserId().equals(userId) ? null : v);
+    }
+
+    /**
+     * 写入管理员并维护用户名索引
+     * Stores an admin and keeps the username index consistent.
+     */
+    private void putAdmin(Admin admin) {
+        String adminId = admin.getAdminId();
+        admins.put(adminId, admin);
+
+        String newUsername = admin.getUsername();
+        String oldUsername = indexedAdminUsernames.put(adminId, newUsername);
+        if (oldUsername != null && !oldUsername.equals(newUsername)) {
+            adminsByUsername.computeIfPresent(oldUsername, (k, v) -> v.getAdminId().equals(adminId) ? null : v);
+        }
+        adminsByUsername.put(newUsername, admin);
     }
 
     // --- User operations ---
     @Override
     public void saveUser(User user) {
-        users.put(user.getUserId(), user);
-        usersByAccountNumber.put(user.getAccountNumber(), user); // 维护按账号查找的Map
-        System.out.println("User saved: " + user.getUsername());
+        putUser(user); // 同时维护按用户名和账号查找的Map
+        LOG.debug("User saved: {}", user.getUsername());
     }
 
     @Override
     public Optional<User> getUserByUsername(String username) {
-        return users.values().stream()
-                .filter(user -> user.getUsername().equals(username))
-                .findFirst();
+        return Optional.ofNullable(usersByUsername.get(username));
     }
 
     @Override
@@ -94,47 +192,37 @@ public class InMemoryDAO implements DataAccessObject {
 
     @Override
     public void updateUser(User user) {
-        // 假设用户已存在，直接覆盖
-        users.put(user.getUserId(), user);
-        usersByAccountNumber.put(user.getAccountNumber(), user); // 更新按账号查找的Map
-        System.out.println("User updated: " + user.getUsername());
+        // 假设用户已存在，直接覆盖；若用户名或账号发生变化，旧索引项会被移除
+        putUser(user);
+        LOG.debug("User updated: {}", user.getUsername());
     }
 
     @Override
     public void deleteUser(String userId) {
         // 获取被删除用户的用户名和账号，以便在日志中正确记录并从usersByAccountNumber中移除
-        Optional<User> userToDeleteOptional = users.values().stream()
-                .filter(user -> user.getUserId().equals(userId))
-                .findFirst();
-        if (userToDeleteOptional.isPresent()) {
-            User userToDelete = userToDeleteOptional.get();
+        User userToDelete = removeUser(userId); // 同时从按用户名和账号查找的Map中移除
+        if (userToDelete != null) {
             String username = userToDelete.getUsername();
-            String accountNumber = userToDelete.getAccountNumber();
-
-            users.remove(userId);
-            usersByAccountNumber.remove(accountNumber); // 从按账号查找的Map中移除
 
             // 同时删除相关交易记录和日志
-            transactions.removeIf(t -> t.getUserId().equals(userId));
+            transactions.removeByUserId(userId);
             logs.removeIf(l -> l.getActorUsername().equals(username) && l.getActorType() == com.banksimulation.entity.ActorType.USER);
-            System.out.println("User deleted: " + username + " (ID: " + userId + ")");
+            LOG.debug("User deleted: {} (ID: {})", username, userId);
         } else {
-            System.out.println("Attempted to delete non-existent user with ID: " + userId);
+            LOG.debug("Attempted to delete non-existent user with ID: {}", userId);
         }
     }
 
     // --- Admin operations ---
     @Override
     public void saveAdmin(Admin admin) {
-        admins.put(admin.getAdminId(), admin);
-        System.out.println("Admin saved: " + admin.getUsername());
+        putAdmin(admin);
+        LOG.debug("Admin saved: {}", admin.getUsername());
     }
 
     @Override
     public Optional<Admin> getAdminByUsername(String username) {
-        return admins.values().stream()
-                .filter(admin -> admin.getUsername().equals(username))
-                .findFirst();
+        return Optional.ofNullable(adminsByUsername.get(username));
     }
 
     @Override
@@ -144,45 +232,128 @@ public class InMemoryDAO implements DataAccessObject {
 
     @Override
     public void updateAdmin(Admin admin) {
-        admins.put(admin.getAdminId(), admin);
-        System.out.println("Admin updated: " + admin.getUsername());
+        putAdmin(admin);
+        LOG.debug("Admin updated: {}", admin.getUsername());
     }
 
     // --- TransactionRecord operations ---
     @Override
     public void saveTransaction(TransactionRecord transaction) {
         transactions.add(transaction);
-        System.out.println("Transaction saved: " + transaction.getTransactionId());
+        LOG.debug("Transaction saved: {}", transaction.getTransactionId());
+    }
+
+    @Override
+    public void saveTransactions(List<TransactionRecord> batch) {
+        for (TransactionRecord transaction : batch) {
+            transactions.add(transaction);
+        }
+        LOG.debug("Transactions saved: {}", batch.size());
+    }
+
+    @Override
+    public void saveBalanceChanges(List<User> changedUsers, long[] changes, List<TransactionRecord> batch) {
+        // 余额已通过CAS直接更新在User对象上，内存存储中无需重新索引
+        for (TransactionRecord transaction : batch) {
+            transactions.add(transaction);
+        }
+        LOG.debug("Balance changes saved: {} users, {} transactions", changedUsers.size(), batch.size());
+    }
+
+    @Override
+    public int importTransactions(List<TransactionRecord> batch) {
+        int imported = transactions.addAllNew(batch).size();
+        LOG.debug("Transactions imported: {} of {}", imported, batch.size());
+        return imported;
     }
 
     @Override
     public List<TransactionRecord> getTransactionsByUserId(String userId) {
-        return transactions.stream()
-                .filter(t -> t.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        return transactions.getByUserId(userId);
     }
 
     @Override
     public List<TransactionRecord> getTransactionsByAccountNumber(String accountNumber) {
-        return transactions.stream()
-                .filter(t -> t.getAccountNumber().equals(accountNumber))
-                .collect(Collectors.toList());
+        return transactions.getByAccountNumber(accountNumber);
     }
 
     @Override
     public List<TransactionRecord> getAllTransactions() {
-        return new ArrayList<>(transactions);
+        return transactions.getAll();
+    }
+
+    @Override
+    public TransactionPage queryTransactions(TransactionQuery query) {
+        return transactions.query(query);
+    }
+
+    @Override
+    public int countTransactions(TransactionQuery query) {
+        return transactions.count(query);
+    }
+
+    @Override
+    public ChangeBatch<TransactionRecord> getTransactionChanges(long afterSequence) {
+        return transactions.changesSince(afterSequence);
+    }
+
+    @Override
+    public long getTransactionSequence() {
+        return transactions.getPublishedSequence();
+    }
+
+    /**
+     * 按时间顺序遍历内存中的交易记录（不复制），供快照等批量读取使用
+     * Visits the in-memory (not archived) transactions in time order without copying the store;
+     * weakly consistent.
+     */
+    protected void forEachTransaction(Consumer<TransactionRecord> action) {
+        transactions.forEach(action);
+    }
+
+    protected TransactionStore getTransactionStore() {
+        return transactions;
     }
 
     // --- OperationLog operations ---
     @Override
     public void saveLog(OperationLog log) {
         logs.add(log);
-        System.out.println("Log saved: " + log.getAction());
+        LOG.debug("Log saved: {}", log.getAction());
+    }
+
+    @Override
+    public void saveLogs(List<OperationLog> batch) {
+        logs.addAll(batch);
     }
 
     @Override
     public List<OperationLog> getAllLogs() {
-        return new ArrayList<>(logs);
+        return logs.snapshot();
+    }
+
+    @Override
+    public void forEachLog(Consumer<OperationLog> action) {
+        logs.view().forEach(action);
+    }
+
+    @Override
+    public LogView getLogView() {
+        return logs.view();
+    }
+
+    @Override
+    public ChangeBatch<OperationLog> getLogChanges(long afterSequence) {
+        return logs.changesSince(afterSequence);
+    }
+
+    @Override
+    public LogPage queryLogs(LogQuery query) {
+        return logs.query(query);
+    }
+
+    @Override
+    public int countLogs(LogQuery query) {
+        return logs.count(query);
     }
 }
@@ -0,0 +1,396 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.User;
+import com.banksimulation.metrics.LatencyRecorder;
+import com.banksimulation.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 带耗时统计的数据访问对象
+ * Decorator that records the latency of every call to another {@link DataAccessObject} under
+ * {@code dao.<method>} in a {@link MetricsRegistry}. The recorders are looked up once, so the
+ * overhead per call is two {@link System#nanoTime()} reads and a few atomic additions.
+ * {@link #forEachLog} is timed including the caller's action.
+ */
+public class InstrumentedDAO implements DataAccessObject {
+
+    private final DataAccessObject delegate;
+    private final LatencyRecorder saveUserLatency;
+    private final LatencyRecorder getUserByUsernameLatency;
+    private final LatencyRecorder getUserByAccountNumberLatency;
+    private final LatencyRecorder getUserByUserIdLatency;
+    private final LatencyRecorder getAllUsersLatency;
+    private final LatencyRecorder updateUserLatency;
+    private final LatencyRecorder deleteUserLatency;
+    private final LatencyRecorder saveAdminLatency;
+    private final LatencyRecorder getAdminByUsernameLatency;
+    private final LatencyRecorder getAllAdminsLatency;
+    private final LatencyRecorder updateAdminLatency;
+    private final LatencyRecorder saveTransactionLatency;
+    private final LatencyRecorder saveTransactionsLatency;
+    private final LatencyRecorder saveBalanceChangesLatency;
+    private final LatencyRecorder importTransactionsLatency;
+    private final LatencyRecorder getTransactionsByUserIdLatency;
+    private final LatencyRecorder getTransactionsByAccountNumberLatency;
+    private final LatencyRecorder getAllTransactionsLatency;
+    private final LatencyRecorder queryTransactionsLatency;
+    private final LatencyRecorder countTransactionsLatency;
+    private final LatencyRecorder getTransactionChangesLatency;
+    private final LatencyRecorder getTransactionSequenceLatency;
+    private final LatencyRecorder saveLogLatency;
+    private final LatencyRecorder saveLogsLatency;
+    private final LatencyRecorder getAllLogsLatency;
+    private final LatencyRecorder forEachLogLatency;
+    private final LatencyRecorder getLogViewLatency;
+    private final LatencyRecorder getLogChangesLatency;
+    private final LatencyRecorder queryLogsLatency;
+    private final LatencyRecorder countLogsLatency;
+
+    public InstrumentedDAO(DataAccessObject delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.saveUserLatency = registry.latency("dao.saveUser");
+        this.getUserByUsernameLatency = registry.latency("dao.getUserByUsername");
+        this.getUserByAccountNumberLatency = registry.latency("dao.getUserByAccountNumber");
+        this.getUserByUserIdLatency = registry.latency("dao.getUserByUserId");
+        this.getAllUsersLatency = registry.latency("dao.getAllUsers");
+        this.updateUserLatency = registry.latency("dao.updateUser");
+        this.deleteUserLatency = registry.latency("dao.deleteUser");
+        this.saveAdminLatency = registry.latency("dao.saveAdmin");
+        this.getAdminByUsernameLatency = registry.latency("dao.getAdminByUsername");
+        this.getAllAdminsLatency = registry.latency("dao.getAllAdmins");
+        this.updateAdminLatency = registry.latency("dao.updateAdmin");
+        this.saveTransactionLatency = registry.latency("dao.saveTransaction");
+        this.saveTransactionsLatency = registry.latency("dao.saveTransactions");
+        this.saveBalanceChangesLatency = registry.latency("dao.saveBalanceChanges");
+        this.importTransactionsLatency = registry.latency("dao.importTransactions");
+        this.getTransactionsByUserIdLatency = registry.latency("dao.getTransactionsByUserId");
+        this.getTransactionsByAccountNumberLatency = registry.latency("dao.getTransactionsByAccountNumber");
+        this.getAllTransactionsLatency = registry.latency("dao.getAllTransactions");
+        this.queryTransactionsLatency = registry.latency("dao.queryTransactions");
+        this.countTransactionsLatency = registry.latency("dao.countTransactions");
+        this.getTransactionChangesLatency = registry.latency("dao.getTransactionChanges");
+        this.getTransactionSequenceLatency = registry.latency("dao.getTransactionSequence");
+        this.saveLogLatency = registry.latency("dao.saveLog");
+        this.saveLogsLatency = registry.latency("dao.saveLogs");
+        this.getAllLogsLatency = registry.latency("dao.getAllLogs");
+        this.forEachLogLatency = registry.latency("dao.forEachLog");
+        this.getLogViewLatency = registry.latency("dao.getLogView");
+        this.getLogChangesLatency = registry.latency("dao.getLogChanges");
+        this.queryLogsLatency = registry.latency("dao.queryLogs");
+        this.countLogsLatency = registry.latency("dao.countLogs");
+    }
+
+    /**
+     * 被包装的数据访问对象
+     * The wrapped data access object.
+     */
+    public DataAccessObject getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void saveUser(User user) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveUser(user);
+        } finally {
+            saveUserLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserByUsername(String username) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUserByUsername(username);
+        } finally {
+            getUserByUsernameLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserByAccountNumber(String accountNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUserByAccountNumber(accountNumber);
+        } finally {
+            getUserByAccountNumberLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserByUserId(String userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getUserByUserId(userId);
+        } finally {
+            getUserByUserIdLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllUsers();
+        } finally {
+            getAllUsersLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateUser(User user) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateUser(user);
+        } finally {
+            updateUserLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void deleteUser(String userId) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteUser(userId);
+        } finally {
+            deleteUserLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveAdmin(Admin admin) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveAdmin(admin);
+        } finally {
+            saveAdminLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<Admin> getAdminByUsername(String username) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAdminByUsername(username);
+        } finally {
+            getAdminByUsernameLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Admin> getAllAdmins() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllAdmins();
+        } finally {
+            getAllAdminsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateAdmin(Admin admin) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateAdmin(admin);
+        } finally {
+            updateAdminLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveTransaction(TransactionRecord transaction) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveTransaction(transaction);
+        } finally {
+            saveTransactionLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveTransactions(List<TransactionRecord> transactions) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveTransactions(transactions);
+        } finally {
+            saveTransactionsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveBalanceChanges(List<User> users, long[] changes, List<TransactionRecord> transactions) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveBalanceChanges(users, changes, transactions);
+        } finally {
+            saveBalanceChangesLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public int importTransactions(List<TransactionRecord> transactions) {
+        long start = System.nanoTime();
+        try {
+            return delegate.importTransactions(transactions);
+        } finally {
+            importTransactionsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionsByUserId(String userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTransactionsByUserId(userId);
+        } finally {
+            getTransactionsByUserIdLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionsByAccountNumber(String accountNumber) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTransactionsByAccountNumber(accountNumber);
+        } finally {
+            getTransactionsByAccountNumberLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllTransactions();
+        } finally {
+            getAllTransactionsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public TransactionPage queryTransactions(TransactionQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.queryTransactions(query);
+        } finally {
+            queryTransactionsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public int countTransactions(TransactionQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countTransactions(query);
+        } finally {
+            countTransactionsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public ChangeBatch<TransactionRecord> getTransactionChanges(long afterSequence) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTransactionChanges(afterSequence);
+        } finally {
+            getTransactionChangesLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public long getTransactionSequence() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTransactionSequence();
+        } finally {
+            getTransactionSequenceLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveLog(OperationLog log) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveLog(log);
+        } finally {
+            saveLogLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void saveLogs(List<OperationLog> logs) {
+        long start = System.nanoTime();
+        try {
+            delegate.saveLogs(logs);
+        } finally {
+            saveLogsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<OperationLog> getAllLogs() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllLogs();
+        } finally {
+            getAllLogsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void forEachLog(Consumer<OperationLog> action) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachLog(action);
+        } finally {
+            forEachLogLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public LogView getLogView() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getLogView();
+        } finally {
+            getLogViewLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public ChangeBatch<OperationLog> getLogChanges(long afterSequence) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getLogChanges(afterSequence);
+        } finally {
+            getLogChangesLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public LogPage queryLogs(LogQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.queryLogs(query);
+        } finally {
+            queryLogsLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public int countLogs(LogQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countLogs(query);
+        } finally {
+            countLogsLatency.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.entity.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 实体的二进制编解码
+ * Binary encoding of entities for the journal and snapshot files.
+ */
+final class JournalCodec {
+
+    private JournalCodec() {
+    }
+
+    /**
+     * @param balanceMinorUnits The balance to record, which the caller chooses: the user's live
+     *                          balance may include changes not journaled yet.
+     */
+    static void writeUser(DataOutput out, User user, long balanceMinorUnits) throws IOException {
+        out.writeUTF(user.getUserId());
+        out.writeUTF(user.getUsername());
+        writeNullableString(out, user.getPasswordHash());
+        writeNullableString(out, user.getFirstName());
+        writeNullableString(out, user.getLastName());
+        out.writeUTF(user.getAccountNumber());
+        out.writeLong(balanceMinorUnits);
+        out.writeBoolean(user.isActive());
+        out.writeBoolean(user.canDeposit());
+        out.writeBoolean(user.canWithdraw());
+        writeTimestamp(out, user.getCreatedAt());
+        writeTimestamp(out, user.getUpdatedAt());
+    }
+
+    static User readUser(DataInput in) throws IOException {
+        String userId = in.readUTF();
+        String username = in.readUTF();
+        String passwordHash = readNullableString(in);
+        String firstName = readNullableString(in);
+        String lastName = readNullableString(in);
+        String accountNumber = in.readUTF();
+        long balanceMinorUnits = in.readLong();
+        boolean isActive = in.readBoolean();
+        boolean canDeposit = in.readBoolean();
+        boolean canWithdraw = in.readBoolean();
+        LocalDateTime createdAt = readTimestamp(in);
+        LocalDateTime updatedAt = readTimestamp(in);
+        User user = new User(userId, username, passwordHash, firstName, lastName, accountNumber,
+                0, isActive, canDeposit, canWithdraw, createdAt, updatedAt);
+        // 余额直接以最小货币单位写入：经 double 转换会使超过 2^53 的余额失真
+        user.setBalanceMinorUnits(balanceMinorUnits);
+        user.setUpdatedAt(updatedAt);
+        return user;
+    }
+
+    static void writeAdmin(DataOutput out, Admin admin) throws IOException {
+        out.writeUTF(admin.getAdminId());
+        out.writeUTF(admin.getUsername());
+        writeNullableString(out, admin.getPasswordHash());
+        out.writeBoolean(admin.isTopLevelAdmin());
+        writeTimestamp(out, admin.getCreatedAt());
+        writeTimestamp(out, admin.getUpdatedAt());
+    }
+
+    static Admin readAdmin(DataInput in) throws IOException {
+        return new Admin(in.readUTF(), in.readUTF(), readNullableString(in), in.readBoolean(),
+                readTimestamp(in), readTimestamp(in));
+    }
+
+    static void writeTransaction(DataOutput out, TransactionRecord record) throws IOException {
+        out.writeUTF(record.getTransactionId());
+        out.writeUTF(record.getUserId());
+        out.writeUTF(record.getAccountNumber());
+        out.writeByte(record.getType().ordinal());
+        out.writeDouble(record.getAmount());
+        out.writeDouble(record.getBalanceAfterTransaction());
+        writeTimestamp(out, record.getTimestamp());
+        writeNullableString(out, record.getDescription());
+        writeNullableString(out, record.getRelatedAccountNumber());
+    }
+
+    static TransactionRecord readTransaction(DataInput in) throws IOException {
+        String transactionId = in.readUTF();
+        String userId = in.readUTF();
+        String accountNumber = in.readUTF();
+        TransactionType type = TransactionType.values()[in.readUnsignedByte()];
+        double amount = in.readDouble();
+        double balanceAfter = in.readDouble();
+        LocalDateTime timestamp = readTimestamp(in);
+        String description = readNullableString(in);
+        String relatedAccountNumber = readNullableString(in);
+        return new TransactionRecord(transactionId, userId, accountNumber, type, amount, balanceAfter,
+                timestamp, description, relatedAccountNumber);
+    }
+
+    static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeTimestamp(DataOutput out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    static LocalDateTime readTimestamp(DataInput in) throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,784 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.User;
+import com.banksimulation.util.DiagnosticLogger;
+import com.banksimulation.util.TimeUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 持久化数据访问对象实现
+ * Persistent DataAccessObject that records every user, admin, balance and transaction mutation in
+ * a {@link WriteAheadJournal} and rebuilds the in-memory state from the latest snapshot plus the
+ * journal written after it on startup.
+ * Mutations are applied to the in-memory store first and then wait for their journal record to be
+ * durable; concurrent callers share one fsync through the journal's group commit.
+ * {@link #saveBalanceChanges(List, long[], List)} is the exception: the balance changes (already
+ * applied to the {@link User} objects) and their transactions are written as one record, and the
+ * transactions are stored only once that record is durable. If writing fails the caller reverses
+ * the balances. New users are likewise journaled before they become visible.
+ * Operation logs are not journaled.
+ * <p>
+ * Balances are changed by lock-free CAS before they are journaled, so a user's live balance may
+ * include another caller's change whose record is not written yet. The journal therefore never
+ * records a live balance: it keeps each user's journaled balance, the sum of the changes it has
+ * recorded, and writes that (with the change) in balance records, user upserts and snapshots.
+ * A change that never reached the journal is then absent after recovery.
+ * <p>
+ * The journal is split into numbered segments ({@code journal-N.log}). {@link #snapshot()} rotates
+ * to a new segment N, writes users, admins (with balances) and transactions to
+ * {@code snapshot-N.bin} while mutations continue, and then deletes the older segments and
+ * snapshots. Because a mutation is applied before it is journaled, and balance changes and new
+ * users hold off the rotation from their append until they are applied, everything recorded in the
+ * old segments is already visible to the snapshot; records in segment N may also be contained in it,
+ * so replaying them has to be idempotent (upserts and journaled balances are absolute values,
+ * transactions already in the snapshot are skipped). The snapshot syncs the journal before it
+ * takes effect, so it never holds a journaled balance whose record could still be lost.
+ * <p>
+ * If an archive age is configured, each snapshot first moves transactions older than that age out
+ * of the heap into a memory-mapped columnar {@link ArchiveSegment} ({@code archive-N.col}). Archived
+ * transactions are no longer written to snapshots, and journal records older than the archive
+ * cutoff are skipped on replay because the archive already holds them.
+ */
+public final class JournalingDAO extends InMemoryDAO implements Closeable {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(JournalingDAO.class);
+
+    private static final String LEGACY_JOURNAL_FILE = "journal.log";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final Pattern ARCHIVE_FILE = Pattern.compile("archive-(\\d+)\\.col");
+
+    // 日志记录类型
+    private static final byte USER_UPSERT = 1;
+    private static final byte USER_DELETE = 2;
+    private static final byte ADMIN_UPSERT = 3;
+    private static final byte BALANCE = 4;          // 旧版本单独写入的余额记录，仅重放
+    private static final byte TRANSACTION = 5;
+    private static final byte BALANCE_CHANGE = 6;   // 旧版本写入的当前余额及其交易记录，仅重放
+    private static final byte BALANCE_DELTA = 7;    // 余额变动、变动后的已记录余额及其交易记录
+
+    // 快照文件格式
+    private static final int SNAPSHOT_MAGIC = 0x42534E50; // "BSNP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte SNAPSHOT_END = 0;
+
+    // 轮转前创建、轮转后才写入日志的交易记录可能同时出现在快照和新日志段中；
+    // 重放时只需对快照中时间戳落在轮转时刻附近的交易去重
+    private static final Duration REPLAY_DEDUPE_WINDOW = Duration.ofMinutes(1);
+
+    // 冷数据不足此行数时暂不归档，避免产生大量很小的归档段
+    private static final int MIN_ARCHIVE_ROWS = 4096;
+
+    private final Path dataDirectory;
+    private final Duration archiveAge;
+    private final WriteAheadJournal journal;
+    private final Object snapshotLock = new Object();   // 同一时刻只允许一个快照；归档段的写入与重写也受其保护
+    // 先写日志后写内存的变更从追加到写入内存期间持有读锁；轮转持有写锁，使旧日志段中的记录都已对快照可见
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService snapshotScheduler;
+    // 每个用户在日志中已记录的余额；按日志顺序在 balanceLock 内计算并追加，之后才更新
+    private final Map<String, Long> journaledBalances = new ConcurrentHashMap<>();
+    private final Object balanceLock = new Object();
+    private long currentSegment;                         // 受 snapshotLock 保护
+    private Set<String> replayDedupe = Collections.emptySet(); // 仅在启动重放期间使用
+
+    /**
+     * 打开数据目录并恢复状态（不定期生成快照，不归档）
+     * Opens the data directory without periodic snapshots or archiving; see
+     * {@link #JournalingDAO(Path, Duration, Duration)}.
+     */
+    public JournalingDAO(Path dataDirectory) throws IOException {
+        this(dataDirectory, null);
+    }
+
+    /**
+     * 打开数据目录并恢复状态（不归档交易记录）
+     * Opens the data directory without archiving; see {@link #JournalingDAO(Path, Duration, Duration)}.
+     */
+    public JournalingDAO(Path dataDirectory, Duration snapshotInterval) throws IOException {
+        this(dataDirectory, snapshotInterval, null);
+    }
+
+    /**
+     * 打开数据目录：挂载归档段，加载最新快照并重放其后的日志段；目录为空时创建默认账户
+     * Opens the data directory and restores state from its archive segments, the latest snapshot and
+     * the journal segments written after it. If nothing was stored yet, the default accounts are
+     * created (and journaled).
+     * @param dataDirectory The directory holding snapshots, journal and archive segments; created if missing.
+     * @param snapshotInterval How often to snapshot in the background; {@code null} or zero disables it.
+     * @param archiveAge Transactions older than this are archived at each snapshot; {@code null} disables archiving.
+     */
+    public JournalingDAO(Path dataDirectory, Duration snapshotInterval, Duration archiveAge) throws IOException {
+        super(false);
+        this.dataDirectory = dataDirectory;
+        this.archiveAge = archiveAge;
+        Files.createDirectories(dataDirectory);
+        migrateLegacyJournal();
+        openArchive();
+
+        long snapshotSegment = latestIndex(SNAPSHOT_FILE);
+        if (snapshotSegment >= 0) {
+            loadSnapshot(snapshotFile(snapshotSegment));
+        }
+        List<Long> segments = new ArrayList<>();
+        for (long segment : listIndexes(SEGMENT_FILE)) {
+            if (segment >= snapshotSegment) {
+                segments.add(segment); // 早于快照的日志段已被快照覆盖（正常情况下已删除）
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(Math.max(snapshotSegment, 0));
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            WriteAheadJournal.replay(segmentFile(segments.get(i)), this::applyRecord);
+        }
+        this.currentSegment = segments.get(segments.size() - 1);
+        this.journal = WriteAheadJournal.open(segmentFile(currentSegment), this::applyRecord);
+        replayDedupe = Collections.emptySet();
+        for (User user : getAllUsers()) {
+            journaledBalances.put(user.getUserId(), user.getBalanceMinorUnits()); // 重放后两者一致
+        }
+
+        if (getAllUsers().isEmpty() && getAllAdmins().isEmpty()) {
+            seedDefaultAccounts();
+        }
+        if (snapshotSegment >= 0) {
+            LOG.info("Restored {} users, {} admins and {} transactions from {} (snapshot {} + {} journal segment(s))",
+                    getAllUsers().size(), getAllAdmins().size(), getTransactionStore().size(), dataDirectory,
+                    snapshotSegment, segments.size());
+        } else {
+            LOG.info("Restored {} users, {} admins and {} transactions from {}",
+                    getAllUsers().size(), getAllAdmins().size(), getTransactionStore().size(), dataDirectory);
+        }
+
+        if (snapshotInterval != null && !snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            long periodMillis = snapshotInterval.toMillis();
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotInBackground, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+    }
+
+    // --- User operations ---
+    @Override
+    public void saveUser(User user) {
+        // 先写日志后写内存：用户可见前不会有余额变动，记录中的余额就是其初始余额
+        rotationLock.readLock().lock();
+        try {
+            long lsn;
+            synchronized (balanceLock) {
+                long balance = user.getBalanceMinorUnits();
+                lsn = journal.append(out -> {
+                    out.writeByte(USER_UPSERT);
+                    JournalCodec.writeUser(out, user, balance);
+                });
+                journaledBalances.put(user.getUserId(), balance);
+            }
+            journal.sync(lsn);
+            super.saveUser(user);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateUser(User user) {
+        super.updateUser(user);
+        long lsn;
+        synchronized (balanceLock) {
+            // 写入已记录的余额：对象上的余额可能包含尚未写入日志的变动
+            long balance = journaledBalances.computeIfAbsent(user.getUserId(), id -> user.getBalanceMinorUnits());
+            lsn = journal.append(out -> {
+                out.writeByte(USER_UPSERT);
+                JournalCodec.writeUser(out, user, balance);
+            });
+        }
+        journal.sync(lsn);
+    }
+
+    @Override
+    public void deleteUser(String userId) {
+        super.deleteUser(userId);
+        journaledBalances.remove(userId);
+        journal.appendAndSync(out -> {
+            out.writeByte(USER_DELETE);
+            out.writeUTF(userId);
+        });
+        // 删除记录已持久化；若重写归档段前崩溃，重放该记录时会再次清理
+        purgeArchivedTransactions(userId);
+    }
+
+    // --- Admin operations ---
+    @Override
+    public void saveAdmin(Admin admin) {
+        super.saveAdmin(admin);
+        journal.appendAndSync(out -> {
+            out.writeByte(ADMIN_UPSERT);
+            JournalCodec.writeAdmin(out, admin);
+        });
+    }
+
+    @Override
+    public void updateAdmin(Admin admin) {
+        super.updateAdmin(admin);
+        journal.appendAndSync(out -> {
+            out.writeByte(ADMIN_UPSERT);
+            JournalCodec.writeAdmin(out, admin);
+        });
+    }
+
+    // --- TransactionRecord operations ---
+    @Override
+    public void saveTransaction(TransactionRecord transaction) {
+        super.saveTransaction(transaction);
+        journal.appendAndSync(out -> {
+            out.writeByte(TRANSACTION);
+            JournalCodec.writeTransaction(out, transaction);
+        });
+    }
+
+    @Override
+    public void saveTransactions(List<TransactionRecord> transactions) {
+        super.saveTransactions(transactions);
+        // 逐条追加，最后一次同步覆盖整批记录
+        long lsn = 0;
+        for (TransactionRecord transaction : transactions) {
+            lsn = journal.append(out -> {
+                out.writeByte(TRANSACTION);
+                JournalCodec.writeTransaction(out, transaction);
+            });
+        }
+        journal.sync(lsn);
+    }
+
+    @Override
+    public void saveBalanceChanges(List<User> users, long[] changes, List<TransactionRecord> transactions) {
+        rotationLock.readLock().lock();
+        try {
+            long lsn;
+            synchronized (balanceLock) {
+                // 在已记录的余额上累加本次变动，不读取对象上的余额（可能含其他调用方尚未写入日志的变动）
+                long[] balances = new long[users.size()];
+                for (int i = 0; i < balances.length; i++) {
+                    User user = users.get(i);
+                    Long journaled = journaledBalances.get(user.getUserId());
+                    balances[i] = journaled != null ? journaled + changes[i] : user.getBalanceMinorUnits();
+                }
+                lsn = journal.append(out -> {
+                    out.writeByte(BALANCE_DELTA);
+                    out.writeInt(users.size());
+                    for (int i = 0; i < balances.length; i++) {
+                        out.writeUTF(users.get(i).getUserId());
+                        out.writeLong(changes[i]);
+                        out.writeLong(balances[i]);
+                    }
+                    out.writeInt(transactions.size());
+                    for (TransactionRecord transaction : transactions) {
+                        JournalCodec.writeTransaction(out, transaction);
+                    }
+                });
+                for (int i = 0; i < balances.length; i++) {
+                    journaledBalances.put(users.get(i).getUserId(), balances[i]);
+                }
+            }
+            journal.sync(lsn);
+            // 记录已持久化，交易记录此时才对查询可见
+            super.saveBalanceChanges(users, changes, transactions);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int importTransactions(List<TransactionRecord> transactions) {
+        List<TransactionRecord> imported;
+        long lsn = 0;
+        // 与快照（含归档）互斥：归档会前移截止时间，导入的记录不会在取出待归档记录后落到新截止时间之下；
+        // 记录也在轮转前追加到日志，不会既写入快照又出现在快照之后的日志段中
+        synchronized (snapshotLock) {
+            imported = getTransactionStore().addAllNew(transactions);
+            for (TransactionRecord transaction : imported) {
+                lsn = journal.append(out -> {
+                    out.writeByte(TRANSACTION);
+                    JournalCodec.writeTransaction(out, transaction);
+                });
+            }
+        }
+        if (!imported.isEmpty()) {
+            journal.sync(lsn);
+        }
+        return imported.size();
+    }
+
+    /**
+     * 生成快照并删除已被覆盖的日志段
+     * Writes a snapshot of users, admins (including balances) and transactions, then deletes the
+     * journal segments and snapshots it supersedes. Mutations continue while the snapshot is written;
+     * only the switch to a new journal segment briefly waits for the pending group commit.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long segment = currentSegment + 1;
+            LocalDateTime rotatedAt = LocalDateTime.now();
+            rotationLock.writeLock().lock();
+            try {
+                journal.rotate(segmentFile(segment));
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            currentSegment = segment;
+            syncDirectory();
+            archiveColdTransactions();
+
+            Path target = snapshotFile(segment);
+            Path temp = dataDirectory.resolve(target.getFileName() + ".tmp");
+            int[] counts = writeSnapshot(temp, segment, rotatedAt);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+
+            // 新快照已持久化，删除被其覆盖的旧日志段和旧快照
+            for (long old : listIndexes(SEGMENT_FILE)) {
+                if (old < segment) {
+                    Files.deleteIfExists(segmentFile(old));
+                }
+            }
+            for (long old : listIndexes(SNAPSHOT_FILE)) {
+                if (old < segment) {
+                    Files.deleteIfExists(snapshotFile(old));
+                }
+            }
+            LOG.info("Snapshot {} written with {} users, {} admins and {} transactions.", segment, counts[0], counts[1], counts[2]);
+        }
+    }
+
+    /**
+     * 生成快照（如启用定期快照则先停止），持久化所有记录并关闭日志
+     * Stops periodic snapshots, writes a final snapshot so the next startup has no journal to
+     * replay, and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            snapshot();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            // 快照失败不影响正常运行，旧快照和日志段保持不变，下次再试
+            LOG.error("Snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将早于归档年龄的内存交易记录写入新的归档段
+     * Moves in-memory transactions older than the archive age into new archive segments. The
+     * segments are durable before they are published, and the snapshot written afterwards no longer
+     * contains their rows.
+     */
+    private void archiveColdTransactions() throws IOException {
+        if (archiveAge == null) {
+            return;
+        }
+        TransactionStore store = getTransactionStore();
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAge);
+        List<TransactionRecord> cold = store.getInMemoryBefore(cutoff);
+        if (cold.size() < MIN_ARCHIVE_ROWS) {
+            return;
+        }
+        long cutoffNanos = TimeUtil.toEpochNanosClamped(cutoff);
+        int nextId = (int) latestIndex(ARCHIVE_FILE) + 1;
+        List<ArchiveSegment> segments = new ArrayList<>();
+        for (int from = 0; from < cold.size(); from += ArchiveSegment.MAX_ROWS) {
+            List<TransactionRecord> rows = cold.subList(from, Math.min(cold.size(), from + ArchiveSegment.MAX_ROWS));
+            segments.add(writeArchiveSegment(nextId++, cutoffNanos, rows));
+        }
+        syncDirectory();
+        store.archive(segments);
+        LOG.info("Archived {} transactions older than {}.", cold.size(), cutoff);
+    }
+
+    /**
+     * 从归档段中清除已删除用户的交易记录（重写受影响的段）
+     * Rewrites the archive segments holding transactions of a deleted user without them. Runs under
+     * the snapshot lock: a snapshot that collected the user's cold transactions before they were
+     * deleted finishes archiving them first, so the purge sees (and rewrites) the new segment.
+     */
+    private void purgeArchivedTransactions(String userId) {
+        TransactionStore store = getTransactionStore();
+        synchronized (snapshotLock) {
+            try {
+                for (ArchiveSegment segment : store.getArchiveSegments()) {
+                    if (!segment.containsUser(userId)) {
+                        continue;
+                    }
+                    List<TransactionRecord> rows = new ArrayList<>();
+                    for (TransactionRecord transaction : segment.readAll()) {
+                        if (!userId.equals(transaction.getUserId())) {
+                            rows.add(transaction);
+                        }
+                    }
+                    ArchiveSegment replacement = rows.isEmpty() ? null
+                            : writeArchiveSegment(segment.getSegmentId(), segment.getCutoffNanos(), rows);
+                    store.replaceArchiveSegment(segment, replacement);
+                    if (replacement == null) {
+                        Files.deleteIfExists(segment.getFile());
+                    }
+                }
+                syncDirectory();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to purge archived transactions of user " + userId, e);
+            }
+        }
+    }
+
+    private ArchiveSegment writeArchiveSegment(int segmentId, long cutoffNanos, List<TransactionRecord> rows) throws IOException {
+        Path target = archiveFile(segmentId);
+        Path temp = dataDirectory.resolve(target.getFileName() + ".tmp");
+        ArchiveSegment.write(temp, segmentId, cutoffNanos, rows);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return ArchiveSegment.open(target);
+    }
+
+    /**
+     * 启动时挂载全部归档段
+     * Maps every archive segment in the data directory and attaches it to the transaction store.
+     */
+    private void openArchive() throws IOException {
+        List<ArchiveSegment> segments = new ArrayList<>();
+        for (long id : listIndexes(ARCHIVE_FILE)) {
+            segments.add(ArchiveSegment.open(archiveFile(id)));
+        }
+        if (!segments.isEmpty()) {
+            getTransactionStore().attachArchive(segments);
+        }
+    }
+
+    /**
+     * 写出快照文件（写入临时文件并fsync，由调用方原子重命名）
+     * Writes and fsyncs a snapshot file. Entries are tagged with their record type and the file
+     * ends with a CRC32 of everything before it.
+     * @return The number of users, admins and transactions written.
+     */
+    private int[] writeSnapshot(Path file, long segment, LocalDateTime rotatedAt) throws IOException {
+        int[] counts = new int[3];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 checksum = new CRC32();
+            OutputStream raw = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(raw, checksum), 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(segment);
+            JournalCodec.writeTimestamp(out, rotatedAt);
+            for (Admin admin : getAllAdmins()) {
+                out.writeByte(ADMIN_UPSERT);
+                JournalCodec.writeAdmin(out, admin);
+                counts[1]++;
+            }
+            for (User user : getAllUsers()) {
+                out.writeByte(USER_UPSERT);
+                Long journaled = journaledBalances.get(user.getUserId());
+                JournalCodec.writeUser(out, user, journaled != null ? journaled : user.getBalanceMinorUnits());
+                counts[0]++;
+            }
+            // 已记录的余额可能来自尚未同步的日志记录；快照生效前先使它们持久化
+            journal.syncAll();
+            try {
+                forEachTransaction(transaction -> {
+                    try {
+                        out.writeByte(TRANSACTION);
+                        JournalCodec.writeTransaction(out, transaction);
+                        counts[2]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(SNAPSHOT_END);
+            out.flush();
+            // 校验和本身不计入校验范围，直接写入底层通道
+            new DataOutputStream(raw).writeInt((int) checksum.getValue());
+            channel.force(true);
+        }
+        return counts;
+    }
+
+    /**
+     * 加载快照文件，并记录轮转时刻附近的交易ID供重放去重
+     * Loads a snapshot, verifying its checksum, and remembers the IDs of transactions recorded around
+     * the rotation so records repeated in the following journal segment are skipped during replay.
+     */
+    private void loadSnapshot(Path file) throws IOException {
+        Set<String> recentTransactionIds = new HashSet<>();
+        long length = Files.size(file);
+        CRC32 checksum = new CRC32();
+        try (InputStream raw = Files.newInputStream(file)) {
+            // 最后4字节为校验和，只对其前面的内容计算
+            InputStream body = new BoundedInputStream(raw, length - Integer.BYTES);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new CheckedInputStream(body, checksum), 64 * 1024));
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            in.readLong(); // 快照对应的日志段编号（与文件名一致）
+            LocalDateTime dedupeFrom = JournalCodec.readTimestamp(in).minus(REPLAY_DEDUPE_WINDOW);
+            while (true) {
+                byte type = in.readByte();
+                if (type == SNAPSHOT_END) {
+                    break;
+                }
+                switch (type) {
+                    case ADMIN_UPSERT:
+                        super.updateAdmin(JournalCodec.readAdmin(in));
+                        break;
+                    case USER_UPSERT:
+                        super.updateUser(JournalCodec.readUser(in));
+                        break;
+                    case TRANSACTION: {
+                        TransactionRecord transaction = JournalCodec.readTransaction(in);
+                        if (getTransactionStore().isArchived(transaction)) {
+                            break; // 已归档（归档段写出后、新快照完成前崩溃时，旧快照仍包含这些记录）
+                        }
+                        super.saveTransaction(transaction);
+                        if (!transaction.getTimestamp().isBefore(dedupeFrom)) {
+                            recentTransactionIds.add(transaction.getTransactionId());
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown snapshot entry type " + type + ": " + file);
+                }
+            }
+            int expected = new DataInputStream(raw).readInt();
+            if (in.read() != -1 || (int) checksum.getValue() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+        }
+        replayDedupe = recentTransactionIds;
+    }
+
+    /**
+     * 将旧版本的单文件日志作为第0个日志段
+     * Adopts the single journal file written by earlier versions as segment 0.
+     */
+    private void migrateLegacyJournal() throws IOException {
+        Path legacy = dataDirectory.resolve(LEGACY_JOURNAL_FILE);
+        if (Files.exists(legacy) && listIndexes(SEGMENT_FILE).isEmpty()) {
+            Files.move(legacy, segmentFile(0), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private Path segmentFile(long segment) {
+        return dataDirectory.resolve(String.format("journal-%08d.log", segment));
+    }
+
+    private Path snapshotFile(long segment) {
+        return dataDirectory.resolve(String.format("snapshot-%08d.bin", segment));
+    }
+
+    private Path archiveFile(long segment) {
+        return dataDirectory.resolve(String.format("archive-%08d.col", segment));
+    }
+
+    private long latestIndex(Pattern pattern) throws IOException {
+        List<Long> indexes = listIndexes(pattern);
+        return indexes.isEmpty() ? -1 : indexes.get(indexes.size() - 1);
+    }
+
+    /**
+     * 列出数据目录中符合命名规则的文件编号（升序）
+     * Lists the numbers of the data directory's files matching the pattern, ascending.
+     */
+    private List<Long> listIndexes(Pattern pattern) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDirectory)) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    indexes.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * 持久化目录项（新建和重命名的文件）
+     * Makes file creations and renames in the data directory durable. Not every platform allows
+     * opening a directory, in which case this is a no-op.
+     */
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(dataDirectory, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // 部分平台（如Windows）不支持对目录fsync
+        }
+    }
+
+    /**
+     * 重放单条日志记录（直接作用于内存存储，不再写日志）
+     * Applies one replayed record directly to the in-memory store.
+     */
+    private void applyRecord(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case USER_UPSERT:
+                super.updateUser(JournalCodec.readUser(in));
+                break;
+            case USER_DELETE: {
+                String userId = in.readUTF();
+                super.deleteUser(userId);
+                purgeArchivedTransactions(userId);
+                break;
+            }
+            case ADMIN_UPSERT:
+                super.updateAdmin(JournalCodec.readAdmin(in));
+                break;
+            case BALANCE:
+                replayBalance(in);
+                break;
+            case TRANSACTION:
+                replayTransaction(JournalCodec.readTransaction(in));
+                break;
+            case BALANCE_CHANGE:
+            case BALANCE_DELTA: {
+                int users = in.readInt();
+                for (int i = 0; i < users; i++) {
+                    String userId = in.readUTF();
+                    if (type == BALANCE_DELTA) {
+                        in.readLong(); // 变动金额；恢复时直接采用变动后的已记录余额，重放已包含在快照中的记录也不会重复累加
+                    }
+                    long balanceMinorUnits = in.readLong();
+                    getUserByUserId(userId).ifPresent(user -> user.setBalanceMinorUnits(balanceMinorUnits));
+                }
+                int transactions = in.readInt();
+                for (int i = 0; i < transactions; i++) {
+                    replayTransaction(JournalCodec.readTransaction(in));
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    private void replayBalance(DataInput in) throws IOException {
+        String userId = in.readUTF();
+        long balanceMinorUnits = in.readLong();
+        getUserByUserId(userId).ifPresent(user -> user.setBalanceMinorUnits(balanceMinorUnits));
+    }
+
+    private void replayTransaction(TransactionRecord transaction) {
+        // 跳过已包含在快照或归档段中的交易
+        if (!replayDedupe.remove(transaction.getTransactionId()) && !getTransactionStore().isArchived(transaction)) {
+            super.saveTransaction(transaction);
+        }
+    }
+
+    /**
+     * 只读取前 limit 个字节的输入流
+     * Input stream exposing only the first {@code limit} bytes of another stream.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // 不关闭底层流，校验和仍需从中读取
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.OperationLog;
+
+import java.util.List;
+
+/**
+ * 操作日志分页结果
+ * One page of results from {@link DataAccessObject#queryLogs(LogQuery)}.
+ */
+public class LogPage {
+    private final List<OperationLog> records; // 本页记录
+    private final String nextCursor;          // 下一页游标，没有更多数据时为 null
+
+    public LogPage(List<OperationLog> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<OperationLog> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return The cursor to pass to {@link LogQuery#setCursor(String)} for the next page, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
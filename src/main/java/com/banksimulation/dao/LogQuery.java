@@ -0,0 +1,145 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+
+/**
+ * 操作日志分页查询条件
+ * Filter and paging criteria for {@link DataAccessObject#queryLogs(LogQuery)}.
+ * All filters are optional; an empty query returns the first page of all logs in append order.
+ * Setters return {@code this} so a query can be built in one expression.
+ * <p>
+ * A query can be pinned to a sequence number from {@link LogView#getLastSequence()} or
+ * {@link ChangeBatch#getLastSequence()}: logs appended after it are then ignored, so counts and
+ * offsets stay stable while new logs arrive.
+ */
+public class LogQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private String actorUsername;       // 按操作者过滤
+    private ActorType actorType;        // 按操作者类型过滤
+    private String cursor;              // 上一页返回的游标
+    private int offset;                 // 游标之后跳过的匹配日志数
+    private int limit = DEFAULT_PAGE_SIZE; // 每页条数
+    private boolean descending;         // 是否倒序（最新的在前）
+    private long throughSequence = Long.MAX_VALUE; // 只包含序列号不大于此值的日志
+
+    public LogQuery() {
+    }
+
+    // Getters
+    public String getActorUsername() {
+        return actorUsername;
+    }
+
+    public ActorType getActorType() {
+        return actorType;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public long getThroughSequence() {
+        return throughSequence;
+    }
+
+    // Setters
+    public LogQuery setActorUsername(String actorUsername) {
+        this.actorUsername = actorUsername;
+        return this;
+    }
+
+    public LogQuery setActorType(ActorType actorType) {
+        this.actorType = actorType;
+        return this;
+    }
+
+    /**
+     * 设置游标，通常取自上一页的 {@link LogPage#getNextCursor()}
+     * Sets the cursor, normally taken from the previous page's {@link LogPage#getNextCursor()}.
+     */
+    public LogQuery setCursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    /**
+     * 设置在游标之后跳过的匹配日志数；没有过滤条件时直接按下标定位
+     * Sets how many matching logs after the cursor to skip before the page starts. Without filters
+     * the store jumps there by index.
+     */
+    public LogQuery setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Page offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    public LogQuery setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public LogQuery setDescending(boolean descending) {
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * 固定查询的快照：忽略序列号大于此值的日志
+     * Pins the query to the logs with sequence numbers up to this one.
+     */
+    public LogQuery setThroughSequence(long throughSequence) {
+        this.throughSequence = throughSequence;
+        return this;
+    }
+
+    /**
+     * 复制查询条件（不含游标和偏移）
+     * Returns a copy of the filters, order, limit and pin, without the cursor and offset.
+     */
+    public LogQuery copy() {
+        return new LogQuery()
+                .setActorUsername(actorUsername)
+                .setActorType(actorType)
+                .setLimit(limit)
+                .setDescending(descending)
+                .setThroughSequence(throughSequence);
+    }
+
+    /**
+     * @return true if the query filters by actor, i.e. pages cannot be located by index.
+     */
+    public boolean hasFilters() {
+        return actorUsername != null || actorType != null;
+    }
+
+    /**
+     * 判断一条日志是否满足过滤条件（不含快照序列号）
+     * Checks the filters against a log entry; the pin is not checked.
+     */
+    public boolean matches(OperationLog log) {
+        if (actorUsername != null && !actorUsername.equals(log.getActorUsername())) {
+            return false;
+        }
+        return actorType == null || actorType == log.getActorType();
+    }
+}
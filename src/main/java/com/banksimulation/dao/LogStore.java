@@ -0,0 +1,288 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.OperationLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 线程安全的操作日志存储
+ * Thread-safe append-only store for operation logs.
+ * Logs live in fixed-size chunks so appends never copy existing entries. Writers are serialized;
+ * readers take the current immutable {@link View} and read it without locking, so a reader never
+ * blocks the background log writer and vice versa.
+ * <p>
+ * Every entry has a sequence number, increasing in append order, so readers can fetch only the
+ * entries appended since they last looked with {@link #changesSince(long)}. Removing entries skips
+ * the sequence past all earlier numbers, which tells such readers to start over.
+ */
+public class LogStore {
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile View view = new View(new OperationLog[0][], 0, 0);
+
+    /**
+     * 追加一条日志
+     * Appends a single log entry.
+     * @param log The entry to append.
+     */
+    public synchronized void add(OperationLog log) {
+        OperationLog[][] chunks = ensureCapacity(view.chunks, view.size + 1);
+        int index = view.size;
+        chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = log;
+        view = new View(chunks, index + 1, view.baseSequence);
+    }
+
+    /**
+     * 批量追加日志
+     * Appends a batch of log entries and publishes them to readers at once.
+     * @param logs The entries to append.
+     */
+    public synchronized void addAll(List<OperationLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        int index = view.size;
+        OperationLog[][] chunks = ensureCapacity(view.chunks, index + logs.size());
+        for (OperationLog log : logs) {
+            chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK] = log;
+            index++;
+        }
+        view = new View(chunks, index, view.baseSequence);
+    }
+
+    /**
+     * 删除满足条件的日志
+     * Removes all entries matching the predicate. The surviving entries are copied into new
+     * chunks and published as one view, so readers see either all entries or only the survivors.
+     * @param filter The removal condition.
+     */
+    public synchronized void removeIf(Predicate<OperationLog> filter) {
+        View current = view;
+        List<OperationLog> kept = new ArrayList<>(current.size);
+        for (int i = 0; i < current.size; i++) {
+            OperationLog log = current.get(i);
+            if (!filter.test(log)) {
+                kept.add(log);
+            }
+        }
+        if (kept.size() == current.size) {
+            return;
+        }
+        OperationLog[][] chunks = ensureCapacity(new OperationLog[0][], kept.size());
+        for (int i = 0; i < kept.size(); i++) {
+            chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = kept.get(i);
+        }
+        // 一次性发布新视图；跳过一个序列号，使此前读到任何位置的读取方都会收到重置
+        view = new View(chunks, kept.size(), current.getLastSequence() + 1);
+    }
+
+    /**
+     * @return A consistent read-only view of the entries stored so far.
+     */
+    public View view() {
+        return view;
+    }
+
+    public int size() {
+        return view.size;
+    }
+
+    /**
+     * 获取指定序列号之后追加的日志
+     * Returns the entries appended after the given sequence number. If entries were removed since,
+     * or the number is not one this store handed out, the batch is an empty reset: the reader
+     * reloads and continues from its last sequence number.
+     * @param afterSequence The last sequence number the reader has seen; 0 for none.
+     * @return The new entries in append order.
+     */
+    public ChangeBatch<OperationLog> changesSince(long afterSequence) {
+        View current = view;
+        long last = current.getLastSequence();
+        if (afterSequence < current.baseSequence || afterSequence > last) {
+            return new ChangeBatch<>(List.of(), last, true);
+        }
+        int from = (int) (afterSequence - current.baseSequence);
+        List<OperationLog> records = new ArrayList<>(current.size - from);
+        current.forEach(from, current.size, records::add);
+        return new ChangeBatch<>(records, last, false);
+    }
+
+    /**
+     * 分页查询日志
+     * Returns one page of entries matching the query, in append order or reversed. Without filters
+     * the page is located by index, so any offset costs the same; with filters the view is walked
+     * from the cursor and the offset is skipped without collecting entries.
+     * @param query The query criteria.
+     * @return The page of matching entries and the cursor for the next page.
+     * @throws IllegalArgumentException If the cursor is malformed or predates removed entries.
+     */
+    public LogPage query(LogQuery query) {
+        View current = view;
+        int end = pinnedSize(current, query);
+        int start = startIndex(current, query, end); // 第一条候选日志的下标（倒序时向下遍历）
+        int step = query.isDescending() ? -1 : 1;
+        int limit = query.getLimit();
+        List<OperationLog> records = new ArrayList<>(Math.min(limit, 256));
+        if (!query.hasFilters()) {
+            int first = start + step * query.getOffset();
+            int index = first;
+            while (index >= 0 && index < end && records.size() < limit) {
+                records.add(current.get(index));
+                index += step;
+            }
+            boolean more = index >= 0 && index < end;
+            return new LogPage(records, more ? Long.toString(current.sequenceAt(index - step)) : null);
+        }
+        int skip = query.getOffset();
+        int lastIndex = -1;
+        for (int index = start; index >= 0 && index < end; index += step) {
+            OperationLog log = current.get(index);
+            if (!query.matches(log)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (records.size() == limit) {
+                // 还有至少一条满足条件的日志，返回下一页游标
+                return new LogPage(records, Long.toString(current.sequenceAt(lastIndex)));
+            }
+            records.add(log);
+            lastIndex = index;
+        }
+        return new LogPage(records, null);
+    }
+
+    /**
+     * 统计满足条件的日志数
+     * Counts the entries matching the query's filters and pin, ignoring its cursor, offset and
+     * limit; without filters this takes constant time.
+     */
+    public int count(LogQuery query) {
+        View current = view;
+        int end = pinnedSize(current, query);
+        if (!query.hasFilters()) {
+            return end;
+        }
+        int[] count = new int[1];
+        current.forEach(0, end, log -> {
+            if (query.matches(log)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    private static int pinnedSize(View current, LogQuery query) {
+        long pinned = query.getThroughSequence() - current.baseSequence;
+        return (int) Math.max(0, Math.min(current.size, pinned));
+    }
+
+    private static int startIndex(View current, LogQuery query, int end) {
+        String cursor = query.getCursor();
+        if (cursor == null) {
+            return query.isDescending() ? end - 1 : 0;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed log cursor: " + cursor, e);
+        }
+        if (sequence <= current.baseSequence) {
+            throw new IllegalArgumentException("Log cursor predates removed entries: " + cursor);
+        }
+        int index = (int) Math.min(Integer.MAX_VALUE, sequence - current.baseSequence - 1); // 游标所指日志的下标
+        return query.isDescending() ? Math.min(index, end) - 1 : index + 1;
+    }
+
+    /**
+     * @return A new list containing all entries.
+     */
+    public List<OperationLog> snapshot() {
+        View current = view;
+        List<OperationLog> copy = new ArrayList<>(current.size);
+        for (int i = 0; i < current.size; i++) {
+            copy.add(current.get(i));
+        }
+        return copy;
+    }
+
+    private static OperationLog[][] ensureCapacity(OperationLog[][] chunks, int required) {
+        int neededChunks = (required + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        if (neededChunks <= chunks.length) {
+            return chunks;
+        }
+        OperationLog[][] grown = Arrays.copyOf(chunks, Math.max(neededChunks, chunks.length * 2));
+        for (int i = chunks.length; i < grown.length; i++) {
+            grown[i] = new OperationLog[CHUNK_SIZE];
+        }
+        return grown;
+    }
+
+    /**
+     * 日志存储的只读视图
+     * Immutable view of the store: entries at indexes below {@link #size()} never change.
+     */
+    static final class View implements LogView {
+        private final OperationLog[][] chunks;
+        private final int size;
+        private final long baseSequence; // 下标 0 之前的序列号
+
+        private View(OperationLog[][] chunks, int size, long baseSequence) {
+            this.chunks = chunks;
+            this.size = size;
+            this.baseSequence = baseSequence;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getLastSequence() {
+            return baseSequence + size;
+        }
+
+        private long sequenceAt(int index) {
+            return baseSequence + index + 1;
+        }
+
+        public OperationLog get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        /**
+         * 按写入顺序遍历下标区间内的日志（逐块读取，不复制）
+         * Passes the entries with indexes in [fromIndex, toIndex) to the action in append order,
+         * chunk by chunk.
+         */
+        @Override
+        public void forEach(int fromIndex, int toIndex, Consumer<? super OperationLog> action) {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") out of bounds for size " + size);
+            }
+            int index = fromIndex;
+            while (index < toIndex) {
+                OperationLog[] entries = chunks[index >>> CHUNK_SHIFT];
+                int end = Math.min(toIndex, (index | CHUNK_MASK) + 1); // 当前块的末尾
+                for (int i = index & CHUNK_MASK, last = ((end - 1) & CHUNK_MASK); i <= last; i++) {
+                    action.accept(entries[i]);
+                }
+                index = end;
+            }
+        }
+    }
+}
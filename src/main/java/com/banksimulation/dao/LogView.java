@@ -0,0 +1,43 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.OperationLog;
+
+import java.util.function.Consumer;
+
+/**
+ * 操作日志的一致只读视图
+ * A consistent, read-only view of the operation logs as returned by
+ * {@link DataAccessObject#getLogView()}: entries at indexes below {@link #size()} never change,
+ * so disjoint index ranges can be read in parallel without copying.
+ */
+public interface LogView {
+
+    /**
+     * @return The number of entries in the view.
+     */
+    int size();
+
+    /**
+     * @return The sequence number of the newest entry in this view; entry {@code i} has
+     *         {@code getLastSequence() - size() + 1 + i}.
+     */
+    long getLastSequence();
+
+    /**
+     * 按写入顺序遍历下标区间内的日志，用于分段并行读取
+     * Passes the entries with indexes in [fromIndex, toIndex) to the action in append order.
+     * @param fromIndex The first index, inclusive.
+     * @param toIndex The last index, exclusive; at most {@link #size()}.
+     * @param action Receives each entry.
+     */
+    void forEach(int fromIndex, int toIndex, Consumer<? super OperationLog> action);
+
+    /**
+     * 按写入顺序遍历视图中的全部日志
+     * Passes every entry of this view to the action in append order.
+     * @param action Receives each entry.
+     */
+    default void forEach(Consumer<? super OperationLog> action) {
+        forEach(0, size(), action);
+    }
+}
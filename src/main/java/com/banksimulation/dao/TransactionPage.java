@@ -0,0 +1,35 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+
+import java.util.List;
+
+/**
+ * 交易记录分页结果
+ * One page of results from {@link DataAccessObject#queryTransactions(TransactionQuery)}.
+ */
+public class TransactionPage {
+    private final List<TransactionRecord> records; // 本页记录
+    private final String nextCursor;               // 下一页游标，没有更多数据时为 null
+
+    public TransactionPage(List<TransactionRecord> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<TransactionRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return The cursor to pass to {@link TransactionQuery#setCursor(String)} for the next page, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
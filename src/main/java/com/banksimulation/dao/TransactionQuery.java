@@ -0,0 +1,234 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 交易记录分页查询条件
+ * Filter and paging criteria for {@link DataAccessObject#queryTransactions(TransactionQuery)}.
+ * All filters are optional; an empty query returns the first page of all transactions in time order.
+ * Setters return {@code this} so a query can be built in one expression.
+ * <p>
+ * A query can be pinned to a sequence number from {@link DataAccessObject#getTransactionSequence()}:
+ * records added after it are then ignored, so counts and offsets stay stable while new
+ * transactions arrive.
+ */
+public class TransactionQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private String userId;              // 按用户ID过滤
+    private String accountNumber;       // 按账号过滤
+    private LocalDateTime from;         // 起始时间（含）
+    private LocalDateTime to;           // 结束时间（不含）
+    private Set<TransactionType> types; // 交易类型过滤，null 表示全部类型
+    private Double minAmount;           // 最小金额（含）
+    private Double maxAmount;           // 最大金额（含）
+    private String cursor;              // 上一页返回的游标
+    private int offset;                 // 游标之后跳过的匹配记录数
+    private int limit = DEFAULT_PAGE_SIZE; // 每页条数
+    private boolean descending;         // 是否按时间倒序（最新的在前）
+    private long throughSequence = Long.MAX_VALUE; // 只包含序列号不大于此值的记录
+
+    public TransactionQuery() {
+    }
+
+    // Getters
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public Set<TransactionType> getTypes() {
+        return types;
+    }
+
+    public Double getMinAmount() {
+        return minAmount;
+    }
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public long getThroughSequence() {
+        return throughSequence;
+    }
+
+    // Setters
+    public TransactionQuery setUserId(String userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public TransactionQuery setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+        return this;
+    }
+
+    /**
+     * 设置时间范围 [from, to)，任一端为 null 表示不限
+     * Sets the time range [from, to); either bound may be null for an open range.
+     */
+    public TransactionQuery setTimeRange(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public TransactionQuery setTypes(Set<TransactionType> types) {
+        this.types = (types == null || types.isEmpty()) ? null : EnumSet.copyOf(types);
+        return this;
+    }
+
+    /**
+     * 设置金额范围 [minAmount, maxAmount]，任一端为 null 表示不限
+     * Sets the inclusive amount range; either bound may be null for an open range.
+     */
+    public TransactionQuery setAmountRange(Double minAmount, Double maxAmount) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    /**
+     * 设置游标，通常取自上一页的 {@link TransactionPage#getNextCursor()}
+     * Sets the cursor, normally taken from the previous page's {@link TransactionPage#getNextCursor()}.
+     */
+    public TransactionQuery setCursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    /**
+     * 设置在游标之后跳过的匹配记录数，用于直接定位到任意一页
+     * Sets how many matching records after the cursor to skip before the page starts. The store
+     * skips archived records by position, reading at most the type and amount columns, and walks
+     * only the records held in memory; combined with a nearby cursor this reaches any position cheaply.
+     */
+    public TransactionQuery setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Page offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    public TransactionQuery setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public TransactionQuery setDescending(boolean descending) {
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * 固定查询的快照：忽略序列号大于此值的记录
+     * Pins the query to the records with sequence numbers up to this one, as returned by
+     * {@link DataAccessObject#getTransactionSequence()} or {@link ChangeBatch#getLastSequence()}.
+     */
+    public TransactionQuery setThroughSequence(long throughSequence) {
+        this.throughSequence = throughSequence;
+        return this;
+    }
+
+    /**
+     * 复制查询条件（不含游标和偏移）
+     * Returns a copy of the filters, order, limit and pin, without the cursor and offset.
+     */
+    public TransactionQuery copy() {
+        return new TransactionQuery()
+                .setUserId(userId)
+                .setAccountNumber(accountNumber)
+                .setTimeRange(from, to)
+                .setTypes(types)
+                .setAmountRange(minAmount, maxAmount)
+                .setLimit(limit)
+                .setDescending(descending)
+                .setThroughSequence(throughSequence);
+    }
+
+    /**
+     * 判断一条记录是否满足全部过滤条件（不含快照序列号）
+     * Checks every filter against a record, e.g. one that arrived through
+     * {@link DataAccessObject#getTransactionChanges(long)}; the pin is not checked.
+     */
+    public boolean matches(TransactionRecord record) {
+        if (userId != null && !userId.equals(record.getUserId())) {
+            return false;
+        }
+        if (accountNumber != null && !accountNumber.equals(record.getAccountNumber())) {
+            return false;
+        }
+        if (from != null && record.getTimestamp().isBefore(from)) {
+            return false;
+        }
+        if (to != null && !record.getTimestamp().isBefore(to)) {
+            return false;
+        }
+        return matchesValueFilters(record);
+    }
+
+    /**
+     * 判断一条记录是否满足类型与金额过滤条件（不含时间、用户与账号条件）
+     * Checks the type and amount filters against a record. Time, user and account
+     * criteria are expected to be applied through the index that is scanned.
+     */
+    public boolean matchesValueFilters(TransactionRecord record) {
+        return matchesValues(record.getType(), record.getAmount());
+    }
+
+    /**
+     * @return true if a type or amount filter is set, i.e. records have to be read to apply them.
+     */
+    public boolean hasValueFilters() {
+        return types != null || minAmount != null || maxAmount != null;
+    }
+
+    // 类型与金额过滤，归档段直接用列值判断，无需解码记录
+    boolean matchesValues(TransactionType type, double amount) {
+        if (types != null && !types.contains(type)) {
+            return false;
+        }
+        if (minAmount != null && amount < minAmount) {
+            return false;
+        }
+        return maxAmount == null || amount <= maxAmount;
+    }
+}
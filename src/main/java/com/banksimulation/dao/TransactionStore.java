@@ -0,0 +1,721 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.util.TimeUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 线程安全的交易记录存储
+ * Thread-safe, indexed store for transaction records.
+ * Every record receives a monotonically increasing sequence number on insert and is keyed by
+ * (timestamp, sequence). Records are kept in a global timestamp-ordered map plus per-user and
+ * per-account indexes with the same ordering, so a user's history is read in time proportional
+ * to that user's own history, and time-range pages are served by seeking into the index.
+ * <p>
+ * Records older than the archive cutoff can be moved to memory-mapped {@link ArchiveSegment}s.
+ * Reads merge the in-memory indexes with the matching slices of the archive in key order, so callers
+ * see one store. The archive and its cutoff are published together, and in-memory records below
+ * the cutoff are ignored from that moment on, so readers never see a record twice or miss one while
+ * it is being archived.
+ * <p>
+ * The most recent appends are also kept, by sequence number, in a fixed-size ring, from which
+ * {@link #changesSince(long)} serves readers that follow new records. Writers do not lock it:
+ * each publishes its slot after indexing the record, and readers stop at the first sequence
+ * number whose slot is not yet published. Writers also advance a watermark over the published
+ * prefix of sequence numbers, and never overwrite a slot the watermark has not yet passed.
+ */
+public class TransactionStore {
+
+    static final int FEED_CAPACITY = 1 << 14;
+    private static final int FEED_MASK = FEED_CAPACITY - 1;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentSkipListMap<Key, TransactionRecord> all = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<Key, TransactionRecord>> byUserId = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<Key, TransactionRecord>> byAccountNumber = new ConcurrentHashMap<>();
+    private volatile Archive archive = Archive.EMPTY;
+    private final AtomicReferenceArray<FeedEntry> feed = new AtomicReferenceArray<>(FEED_CAPACITY); // 最近追加的记录，按序列号取模定位
+    private final AtomicLong published = new AtomicLong(); // 不大于它的序列号均已发布
+
+    /**
+     * 追加一条交易记录
+     * Appends a record and indexes it by timestamp, user ID and account number.
+     * @param transaction The record to append.
+     * @throws IllegalArgumentException if its timestamp is outside the range of the index key.
+     */
+    public void add(TransactionRecord transaction) {
+        long nanos = TimeUtil.toEpochNanos(transaction.getTimestamp()); // 先换算：失败时不占用序列号
+        long seq = sequence.incrementAndGet();
+        Key key = new Key(nanos, seq);
+        all.put(key, transaction);
+        byUserId.computeIfAbsent(transaction.getUserId(), k -> new ConcurrentSkipListMap<>()).put(key, transaction);
+        byAccountNumber.computeIfAbsent(transaction.getAccountNumber(), k -> new ConcurrentSkipListMap<>()).put(key, transaction);
+        publish(new FeedEntry(seq, transaction)); // 索引完成后才对变更读取方可见
+    }
+
+    /**
+     * 追加外部来源的记录：跳过早于归档截止时间的记录、已存在的记录和时间超出范围的记录
+     * Appends records from an external source such as an import. Records older than the archive
+     * cutoff are skipped, since readers would never see them and archiving would never move them,
+     * and so are records whose ID is already stored, found through the account index within the
+     * second of their timestamp (text exports keep whole seconds only). Records whose timestamp the
+     * index key cannot hold ({@link TimeUtil#isRepresentable}) are rejected as well. Serialized with
+     * publishing the archive, so the cutoff cannot move during a call.
+     * @param transactions The records to append.
+     * @return The records appended, in the given order.
+     */
+    synchronized List<TransactionRecord> addAllNew(List<TransactionRecord> transactions) {
+        List<TransactionRecord> added = new ArrayList<>(transactions.size());
+        for (TransactionRecord transaction : transactions) {
+            if (TimeUtil.isRepresentable(transaction.getTimestamp()) && !isArchived(transaction) && !containsInMemory(transaction)) {
+                add(transaction);
+                added.add(transaction);
+            }
+        }
+        return added;
+    }
+
+    private boolean containsInMemory(TransactionRecord transaction) {
+        ConcurrentSkipListMap<Key, TransactionRecord> index = byAccountNumber.get(transaction.getAccountNumber());
+        if (index == null) {
+            return false;
+        }
+        // 按ID比较同一秒内的记录：CSV导出只保留到秒，重新导入的记录时间戳可能早于原记录不足一秒
+        long second = Math.floorDiv(TimeUtil.toEpochNanos(transaction.getTimestamp()), TimeUtil.NANOS_PER_SECOND) * TimeUtil.NANOS_PER_SECOND;
+        for (TransactionRecord existing : index.subMap(Key.lowest(second), Key.lowest(second + TimeUtil.NANOS_PER_SECOND)).values()) {
+            if (existing.getTransactionId().equals(transaction.getTransactionId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按用户ID获取交易记录（按时间顺序）
+     * Returns a user's records in time order.
+     * @param userId The user ID.
+     * @return A new list of the user's records.
+     */
+    public List<TransactionRecord> getByUserId(String userId) {
+        return toList(iterate(userId, null, null, null, false));
+    }
+
+    /**
+     * 按账号获取交易记录（按时间顺序，包含已归档记录）
+     * Returns an account's records in time order, including archived ones.
+     * @param accountNumber The account number.
+     * @return A new list of the account's records.
+     */
+    public List<TransactionRecord> getByAccountNumber(String accountNumber) {
+        return toList(iterate(null, accountNumber, null, null, false));
+    }
+
+    /**
+     * 获取全部交易记录（按时间顺序，包含已归档记录）
+     * Returns all records in time order, including archived ones.
+     * @return A new list of all records.
+     */
+    public List<TransactionRecord> getAll() {
+        return toList(iterate(null, null, null, null, false));
+    }
+
+    /**
+     * 按时间顺序遍历内存中的交易记录（不复制，不包含已归档记录）
+     * Visits the records held in memory in time order without copying them; archived records are
+     * not visited. The traversal is weakly consistent: records added concurrently may or may not be
+     * visited.
+     * @param action The visitor.
+     */
+    public void forEach(Consumer<TransactionRecord> action) {
+        inMemory(all, archive).values().forEach(action);
+    }
+
+    /**
+     * @return The number of stored records, including archived ones.
+     */
+    public int size() {
+        Archive current = archive;
+        return inMemory(all, current).size() + current.rowCount;
+    }
+
+    /**
+     * 分页查询交易记录
+     * Returns one page of records matching the query, seeking into the narrowest index
+     * (user, then account, then global) and walking it in timestamp order from the cursor.
+     * The query's offset is skipped before the walk starts: archive segments by their row counts
+     * and then by position, without decoding rows; only in-memory records (and a single user's
+     * history) are stepped through.
+     * @param query The query criteria.
+     * @return The page of matching records and the cursor for the next page.
+     */
+    public TransactionPage query(TransactionQuery query) {
+        Key low = query.getFrom() != null ? Key.lowest(TimeUtil.toEpochNanosClamped(query.getFrom())) : null;
+        Key high = query.getTo() != null ? Key.lowest(TimeUtil.toEpochNanosClamped(query.getTo())) : null;
+        Key cursor = Key.parse(query.getCursor());
+        if (cursor != null) {
+            if (query.isDescending()) {
+                high = high == null || cursor.compareTo(high) < 0 ? cursor : high;
+            } else {
+                Key next = cursor.successor();
+                low = low == null || next.compareTo(low) > 0 ? next : low;
+            }
+        }
+
+        int limit = query.getLimit();
+        List<TransactionRecord> records = new ArrayList<>(Math.min(limit, 256));
+        if (query.getOffset() > 0) {
+            // 先定位偏移之后的第一条记录，再从它开始取一页
+            Key first = seek(query, low, high, query.getOffset());
+            if (first == null) {
+                return new TransactionPage(records, null);
+            }
+            if (query.isDescending()) {
+                high = first.successor();
+            } else {
+                low = first;
+            }
+        }
+
+        String accountFilter = query.getUserId() != null ? query.getAccountNumber() : null;
+        Key lastKey = null;
+        Iterator<Map.Entry<Key, TransactionRecord>> it = iterate(query.getUserId(), query.getAccountNumber(),
+                low, high, query.isDescending());
+        while (it.hasNext()) {
+            Map.Entry<Key, TransactionRecord> entry = it.next();
+            if (!matches(query, accountFilter, entry)) {
+                continue;
+            }
+            if (records.size() == limit) {
+                // 还有至少一条满足条件的记录，返回下一页游标
+                return new TransactionPage(records, lastKey.format());
+            }
+            records.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new TransactionPage(records, null);
+    }
+
+    /**
+     * 统计满足条件的交易记录数
+     * Counts the records matching the query's filters and pin, ignoring its cursor, offset and
+     * limit. Archive segments answer from their binary-searched row ranges (reading only the type
+     * and amount columns when those filters are set), so only the in-memory part of the index is
+     * walked; a single user's history is walked whole, decoding archived rows only when needed.
+     * @param query The query criteria.
+     * @return The number of matching records.
+     */
+    public int count(TransactionQuery query) {
+        Key low = query.getFrom() != null ? Key.lowest(TimeUtil.toEpochNanosClamped(query.getFrom())) : null;
+        Key high = query.getTo() != null ? Key.lowest(TimeUtil.toEpochNanosClamped(query.getTo())) : null;
+        if (query.getUserId() != null) {
+            int count = 0;
+            Iterator<Map.Entry<Key, TransactionRecord>> it = iterate(query.getUserId(), null, low, high, false);
+            while (it.hasNext()) {
+                if (matches(query, query.getAccountNumber(), it.next())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        Archive current = archive;
+        long count = 0;
+        for (ArchiveSegment segment : current.segments) {
+            count += segment.count(query.getAccountNumber(), low, high, query);
+        }
+        for (Map.Entry<Key, TransactionRecord> entry : inMemoryRange(query, current, low, high).entrySet()) {
+            if (matches(query, null, entry)) {
+                count++;
+            }
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 定位跳过 n 条匹配记录之后的第一条记录
+     * Returns the key of the first matching record after skipping {@code n} of them in the query's
+     * order, or {@code null} if there are no more. Relies on archived records preceding in-memory
+     * ones and on segments being disjoint in time and in order; user queries, and an archive
+     * where that does not hold, are walked instead.
+     */
+    private Key seek(TransactionQuery query, Key low, Key high, long n) {
+        Archive current = archive;
+        boolean descending = query.isDescending();
+        if (query.getUserId() != null || !current.ordered) {
+            String accountFilter = query.getUserId() != null ? query.getAccountNumber() : null;
+            Iterator<Map.Entry<Key, TransactionRecord>> it = iterate(query.getUserId(), query.getAccountNumber(),
+                    low, high, descending);
+            long remaining = n;
+            while (it.hasNext()) {
+                Map.Entry<Key, TransactionRecord> entry = it.next();
+                if (matches(query, accountFilter, entry) && remaining-- == 0) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+        NavigableMap<Key, TransactionRecord> inMemory = inMemoryRange(query, current, low, high);
+        List<ArchiveSegment> segments = current.segments;
+        long remaining = n;
+        if (descending) {
+            // 内存记录都比归档记录新：先走内存部分，再从新到旧按行数跳过归档段
+            for (Map.Entry<Key, TransactionRecord> entry : inMemory.descendingMap().entrySet()) {
+                if (matches(query, null, entry) && remaining-- == 0) {
+                    return entry.getKey();
+                }
+            }
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            ArchiveSegment segment = segments.get(descending ? segments.size() - 1 - i : i);
+            int rows = segment.count(query.getAccountNumber(), low, high, query);
+            if (rows > remaining) {
+                return segment.keyAt(query.getAccountNumber(), low, high, descending, query, (int) remaining);
+            }
+            remaining -= rows;
+        }
+        if (!descending) {
+            for (Map.Entry<Key, TransactionRecord> entry : inMemory.entrySet()) {
+                if (matches(query, null, entry) && remaining-- == 0) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    // 账户或全局索引中位于归档截止点之后、键区间之内的内存记录
+    private NavigableMap<Key, TransactionRecord> inMemoryRange(TransactionQuery query, Archive current, Key low, Key high) {
+        NavigableMap<Key, TransactionRecord> index = query.getAccountNumber() != null
+                ? byAccountNumber.get(query.getAccountNumber()) : all;
+        return index == null ? Collections.emptyNavigableMap() : restrictToInMemory(index, current, low, high);
+    }
+
+    private static boolean matches(TransactionQuery query, String accountFilter, Map.Entry<Key, TransactionRecord> entry) {
+        if (entry.getKey().seq > query.getThroughSequence()) {
+            return false; // 固定快照之后新增的记录（归档记录的序列号为负，总在快照内）
+        }
+        if (accountFilter == null && !query.hasValueFilters()) {
+            return true; // 无需读取记录，归档行保持未解码
+        }
+        TransactionRecord record = entry.getValue();
+        if (accountFilter != null && !accountFilter.equals(record.getAccountNumber())) {
+            return false;
+        }
+        return query.matchesValueFilters(record);
+    }
+
+    // --- 变更流 ---
+
+    /**
+     * 获取指定序列号之后追加的交易记录
+     * Returns the records appended after the given sequence number, in sequence order, stopping
+     * before the first one still being added; every returned record is already visible to queries.
+     * If records were deleted since, or the reader fell further behind than the ring holds, the
+     * batch is an empty reset: the reader re-queries and continues from its last sequence number.
+     * @param afterSequence The last sequence number the reader has seen.
+     * @return The new records.
+     */
+    public ChangeBatch<TransactionRecord> changesSince(long afterSequence) {
+        List<TransactionRecord> records = new ArrayList<>();
+        long next = afterSequence + 1;
+        boolean reset = afterSequence < 0 || afterSequence > sequence.get();
+        while (!reset) {
+            FeedEntry entry = feed.get((int) (next & FEED_MASK));
+            if (entry == null || entry.sequence < next) {
+                break; // 该序列号的记录尚未写完
+            }
+            if (entry.sequence > next || entry.transaction == null) {
+                reset = true; // 已被更新的记录覆盖，或其间删除过记录
+            } else {
+                records.add(entry.transaction);
+                next++;
+            }
+        }
+        if (reset) {
+            return new ChangeBatch<>(List.of(), getPublishedSequence(), true);
+        }
+        return new ChangeBatch<>(records, next - 1, false);
+    }
+
+    /**
+     * 获取已全部可查询的最大序列号
+     * Returns the highest sequence number up to which every record is visible to queries. A reader
+     * takes it before querying and then follows {@link #changesSince(long)} from it; records added
+     * while the query runs may then arrive twice.
+     */
+    public long getPublishedSequence() {
+        return published.get();
+    }
+
+    /**
+     * 占用一个序列号作为删除标记，使跟随变更的读取方重新查询
+     * Takes a sequence number for a marker that resets readers following the changes.
+     */
+    private void markRemoval() {
+        publish(new FeedEntry(sequence.incrementAndGet(), null));
+    }
+
+    /**
+     * 发布变更环中的一个槽位，并推进已发布水位线
+     * Publishes a ring slot, then advances the watermark over every consecutive published slot.
+     * A writer a full ring ahead of the watermark waits for it, so a slot is only overwritten once
+     * its sequence number is counted and the watermark never has to guess.
+     */
+    private void publish(FeedEntry entry) {
+        while (entry.sequence - FEED_CAPACITY > published.get()) {
+            Thread.onSpinWait(); // 更早的写入方仍未发布，槽位尚不能覆盖
+        }
+        feed.set((int) (entry.sequence & FEED_MASK), entry);
+        long mark = published.get();
+        while (true) {
+            FeedEntry next = feed.get((int) ((mark + 1) & FEED_MASK));
+            if (next == null || next.sequence != mark + 1) {
+                return; // 下一个序列号尚未发布，由其写入方完成后继续推进
+            }
+            if (published.compareAndSet(mark, mark + 1)) {
+                mark++;
+            } else {
+                mark = published.get();
+            }
+        }
+    }
+
+    // --- 归档 ---
+
+    /**
+     * 获取早于截止时间的内存中交易记录（按时间顺序）
+     * Returns the in-memory records older than the cutoff, in time order; candidates for archiving.
+     */
+    List<TransactionRecord> getInMemoryBefore(LocalDateTime cutoff) {
+        return new ArrayList<>(restrictToRange(all, archive.inMemoryLow, Key.lowest(TimeUtil.toEpochNanosClamped(cutoff))).values());
+    }
+
+    /**
+     * 挂载启动时打开的归档段
+     * Attaches the archive segments found on startup; the cutoff is the newest segment's.
+     */
+    synchronized void attachArchive(List<ArchiveSegment> segments) {
+        publishArchive(segments);
+    }
+
+    /**
+     * 发布新的归档段并从内存中移除已归档的记录
+     * Publishes newly written archive segments, then drops the in-memory records they replace.
+     * @param segments The new segments; their cutoff must not be older than the current one.
+     */
+    synchronized void archive(List<ArchiveSegment> segments) {
+        List<ArchiveSegment> combined = new ArrayList<>(archive.segments);
+        combined.addAll(segments);
+        Archive published = publishArchive(combined);
+        // 截止时间之前的内存记录已对读取方不可见，可以从容地逐个移除
+        for (Map.Entry<Key, TransactionRecord> entry : all.headMap(published.inMemoryLow, false).entrySet()) {
+            removeFromIndexes(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 替换一个归档段（例如删除用户后重写的段）
+     * Replaces an archive segment by a rewritten one; {@code replacement} may be null to drop it.
+     */
+    synchronized void replaceArchiveSegment(ArchiveSegment segment, ArchiveSegment replacement) {
+        List<ArchiveSegment> segments = new ArrayList<>(archive.segments);
+        int i = segments.indexOf(segment);
+        if (i >= 0) {
+            if (replacement != null) {
+                segments.set(i, replacement);
+            } else {
+                segments.remove(i);
+            }
+            archive = new Archive(segments, archive.cutoffNanos);
+        }
+    }
+
+    List<ArchiveSegment> getArchiveSegments() {
+        return archive.segments;
+    }
+
+    /**
+     * @return true if the record falls before the archive cutoff, i.e. it belongs to the archive.
+     */
+    boolean isArchived(TransactionRecord transaction) {
+        return TimeUtil.toEpochNanos(transaction.getTimestamp()) < archive.cutoffNanos;
+    }
+
+    private Archive publishArchive(List<ArchiveSegment> segments) {
+        long cutoff = archive.cutoffNanos;
+        for (ArchiveSegment segment : segments) {
+            cutoff = Math.max(cutoff, segment.getCutoffNanos());
+        }
+        Archive published = new Archive(segments, cutoff);
+        archive = published;
+        return published;
+    }
+
+    /**
+     * 删除某用户的全部交易记录
+     * Removes all records of a user, in time proportional to that user's history.
+     * @param userId The user ID.
+     */
+    public void removeByUserId(String userId) {
+        ConcurrentSkipListMap<Key, TransactionRecord> userRecords = byUserId.remove(userId);
+        if (userRecords == null) {
+            return;
+        }
+        for (Map.Entry<Key, TransactionRecord> entry : userRecords.entrySet()) {
+            all.remove(entry.getKey());
+            ConcurrentNavigableMap<Key, TransactionRecord> accountRecords = byAccountNumber.get(entry.getValue().getAccountNumber());
+            if (accountRecords != null) {
+                accountRecords.remove(entry.getKey());
+            }
+        }
+        markRemoval();
+    }
+
+    private void removeFromIndexes(Key key, TransactionRecord transaction) {
+        all.remove(key);
+        ConcurrentNavigableMap<Key, TransactionRecord> userRecords = byUserId.get(transaction.getUserId());
+        if (userRecords != null) {
+            userRecords.remove(key);
+        }
+        ConcurrentNavigableMap<Key, TransactionRecord> accountRecords = byAccountNumber.get(transaction.getAccountNumber());
+        if (accountRecords != null) {
+            accountRecords.remove(key);
+        }
+    }
+
+    /**
+     * 按键顺序遍历满足条件的记录（合并内存索引与归档段）
+     * Iterates the records of a user, an account, or all records, within [low, high), merging the
+     * narrowest in-memory index with the matching archive scans in key order.
+     */
+    private Iterator<Map.Entry<Key, TransactionRecord>> iterate(String userId, String accountNumber,
+                                                                Key low, Key high, boolean descending) {
+        Archive current = archive;
+        NavigableMap<Key, TransactionRecord> index;
+        if (userId != null) {
+            index = byUserId.get(userId);
+        } else if (accountNumber != null) {
+            index = byAccountNumber.get(accountNumber);
+        } else {
+            index = all;
+        }
+        List<Iterator<Map.Entry<Key, TransactionRecord>>> sources = new ArrayList<>(1 + current.segments.size());
+        if (index != null) {
+            NavigableMap<Key, TransactionRecord> range = restrictToInMemory(index, current, low, high);
+            sources.add((descending ? range.descendingMap() : range).entrySet().iterator());
+        }
+        for (ArchiveSegment segment : current.segments) {
+            segment.scan(userId, userId != null ? null : accountNumber, low, high, descending, sources);
+        }
+        if (sources.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return sources.size() == 1 ? sources.get(0) : new MergingIterator(sources, descending);
+    }
+
+    private static NavigableMap<Key, TransactionRecord> inMemory(NavigableMap<Key, TransactionRecord> index, Archive archive) {
+        return archive.inMemoryLow == null ? index : index.tailMap(archive.inMemoryLow, true);
+    }
+
+    private static NavigableMap<Key, TransactionRecord> restrictToInMemory(NavigableMap<Key, TransactionRecord> index,
+                                                                           Archive archive, Key low, Key high) {
+        Key inMemoryLow = archive.inMemoryLow;
+        Key from = inMemoryLow != null && (low == null || inMemoryLow.compareTo(low) > 0) ? inMemoryLow : low;
+        return restrictToRange(index, from, high);
+    }
+
+    private static NavigableMap<Key, TransactionRecord> restrictToRange(NavigableMap<Key, TransactionRecord> index,
+                                                                        Key low, Key high) {
+        if (low != null && high != null) {
+            return low.compareTo(high) < 0 ? index.subMap(low, true, high, false) : Collections.emptyNavigableMap();
+        }
+        if (low != null) {
+            return index.tailMap(low, true);
+        }
+        if (high != null) {
+            return index.headMap(high, false);
+        }
+        return index;
+    }
+
+    private static List<TransactionRecord> toList(Iterator<Map.Entry<Key, TransactionRecord>> it) {
+        List<TransactionRecord> records = new ArrayList<>();
+        while (it.hasNext()) {
+            records.add(it.next().getValue());
+        }
+        return records;
+    }
+
+    /**
+     * 当前归档状态（不可变，整体发布）
+     * Immutable archive state: the segments and the cutoff below which records live only in them.
+     */
+    private static final class Archive {
+        static final Archive EMPTY = new Archive(Collections.emptyList(), Long.MIN_VALUE);
+
+        final List<ArchiveSegment> segments;
+        final long cutoffNanos;
+        final Key inMemoryLow; // 内存记录的下界（null 表示没有归档）
+        final int rowCount;
+        final boolean ordered; // 各段按时间互不重叠且依次递增，可按行数逐段跳过
+
+        Archive(List<ArchiveSegment> segments, long cutoffNanos) {
+            this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+            this.cutoffNanos = cutoffNanos;
+            this.inMemoryLow = cutoffNanos == Long.MIN_VALUE ? null : Key.lowest(cutoffNanos);
+            int rows = 0;
+            boolean inOrder = true;
+            Key previousLast = null;
+            for (ArchiveSegment segment : segments) {
+                rows += segment.getRowCount();
+                if (segment.getRowCount() > 0) {
+                    inOrder &= previousLast == null || previousLast.compareTo(segment.firstKey()) < 0;
+                    previousLast = segment.lastKey();
+                }
+            }
+            this.rowCount = rows;
+            this.ordered = inOrder;
+        }
+    }
+
+    /**
+     * 变更环中的一项（交易为 null 表示删除标记）
+     * A slot of the change ring: a record and its sequence number, or a removal marker.
+     */
+    private static final class FeedEntry {
+        final long sequence;
+        final TransactionRecord transaction;
+
+        FeedEntry(long sequence, TransactionRecord transaction) {
+            this.sequence = sequence;
+            this.transaction = transaction;
+        }
+    }
+
+    /**
+     * 多路归并多个按键有序的迭代器
+     * Merges iterators that are each ordered by key into one ordered iterator.
+     */
+    private static final class MergingIterator implements Iterator<Map.Entry<Key, TransactionRecord>> {
+        private final PriorityQueue<Source> heads;
+
+        MergingIterator(List<Iterator<Map.Entry<Key, TransactionRecord>>> sources, boolean descending) {
+            Comparator<Source> order = Comparator.comparing(source -> source.head.getKey());
+            heads = new PriorityQueue<>(sources.size(), descending ? order.reversed() : order);
+            for (Iterator<Map.Entry<Key, TransactionRecord>> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Source(source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<Key, TransactionRecord> next() {
+            Source source = heads.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Key, TransactionRecord> entry = source.head;
+            if (source.rest.hasNext()) {
+                source.head = source.rest.next();
+                heads.add(source);
+            }
+            return entry;
+        }
+
+        private static final class Source {
+            final Iterator<Map.Entry<Key, TransactionRecord>> rest;
+            Map.Entry<Key, TransactionRecord> head;
+
+            Source(Iterator<Map.Entry<Key, TransactionRecord>> rest) {
+                this.rest = rest;
+                this.head = rest.next();
+            }
+        }
+    }
+
+    /**
+     * 索引键：(时间戳纳秒, 序列号)
+     * Index key ordering records by timestamp, with the insert sequence as tie-breaker.
+     * Its string form is used as the opaque paging cursor.
+     */
+    static final class Key implements Comparable<Key> {
+        private final long epochNanos;
+        private final long seq;
+
+        Key(long epochNanos, long seq) {
+            this.epochNanos = epochNanos;
+            this.seq = seq;
+        }
+
+        static Key lowest(long epochNanos) {
+            return new Key(epochNanos, Long.MIN_VALUE);
+        }
+
+        Key successor() {
+            return new Key(epochNanos, seq + 1);
+        }
+
+        static Key parse(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            int sep = cursor.indexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Malformed transaction cursor: " + cursor);
+            }
+            try {
+                return new Key(Long.parseLong(cursor.substring(0, sep)), Long.parseLong(cursor.substring(sep + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed transaction cursor: " + cursor, e);
+            }
+        }
+
+        String format() {
+            return epochNanos + ":" + seq;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int c = Long.compare(epochNanos, other.epochNanos);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return epochNanos == other.epochNanos && seq == other.seq;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(epochNanos) * 31 + Long.hashCode(seq);
+        }
+    }
+}
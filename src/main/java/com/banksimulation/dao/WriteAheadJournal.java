@@ -0,0 +1,333 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.util.DiagnosticLogger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 预写日志（WAL）
+ * Append-only write-ahead journal with group commit.
+ * Each record is framed as {@code [length][crc32][payload]}. {@link #append(RecordWriter)} only
+ * copies the encoded record into an in-memory buffer and returns its log sequence number (LSN);
+ * {@link #sync(long)} makes it durable. The first caller to sync becomes the leader: it writes
+ * every record buffered so far and issues one {@code fsync} for all of them, while callers that
+ * arrive meanwhile wait and usually find their LSN already covered. Many concurrent operations
+ * therefore share a single disk sync.
+ * <p>
+ * A failed write or sync leaves the journal failed: the file may end in a partial frame, and the
+ * records that were being written are neither durable nor safe to write again after newer ones,
+ * so every later append, sync or rotation throws instead of reporting them durable.
+ */
+public class WriteAheadJournal implements Closeable {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(WriteAheadJournal.class);
+
+    /**
+     * 记录编码器
+     * Encodes one record's payload.
+     */
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * 记录处理器，用于重放
+     * Consumes one record's payload during replay.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(DataInput in) throws IOException;
+    }
+
+    private static final int HEADER_BYTES = 8;
+    // 重放时更长的长度字段视为损坏，因此追加时拒绝超过此长度的记录
+    static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private volatile Path file;
+    private FileChannel channel; // 当前段的文件通道（受 syncLock 保护，轮转时在 appendLock 内切换）
+    private final Object appendLock = new Object();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final FrameBuffer record = new FrameBuffer(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private FrameBuffer pending = new FrameBuffer(64 * 1024); // 已追加但尚未写盘的记录
+    private FrameBuffer writing = new FrameBuffer(64 * 1024); // 由同步领导者写盘的记录
+    private long appendedLsn;           // 已追加的最大LSN（受 appendLock 保护）
+    private volatile long durableLsn;   // 已持久化的最大LSN
+    private volatile IOException failure; // 写盘失败的原因；之后日志不再可用
+
+    private WriteAheadJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * 打开日志文件：先重放已有记录，再截断末尾不完整的记录并定位到文件末尾
+     * Opens a journal file, replaying every intact record through the handler first. A torn or
+     * corrupt tail left by a crash is truncated so new records follow the last intact one.
+     * @param file The journal file; created if missing.
+     * @param handler Receives each intact record in append order.
+     * @return The open journal.
+     */
+    public static WriteAheadJournal open(Path file, RecordHandler handler) throws IOException {
+        long validLength = replay(file, handler);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            LOG.warn("Truncating torn tail of {} at byte {}", file, validLength);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        return new WriteAheadJournal(file, channel);
+    }
+
+    /**
+     * 重放日志文件中的所有完整记录
+     * Replays every intact record of a journal file.
+     * @param file The journal file; a missing file has no records.
+     * @param handler Receives each record in append order.
+     * @return The length in bytes of the intact prefix of the file.
+     */
+    public static long replay(Path file, RecordHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32 checksum = new CRC32();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                int length;
+                int expectedCrc;
+                byte[] payload;
+                try {
+                    length = data.readInt();
+                    expectedCrc = data.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        break; // 长度字段损坏
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    break; // 末尾记录不完整
+                }
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    break;
+                }
+                handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+                validLength += HEADER_BYTES + length;
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * 追加一条记录（尚未持久化）
+     * Encodes and buffers a record. The writer runs under the append lock, so anything it reads
+     * (such as a current balance) is ordered consistently with the record's position in the log.
+     * @param writer Encodes the record payload.
+     * @return The record's LSN; pass it to {@link #sync(long)} to wait for durability.
+     * @throws IllegalArgumentException If the encoded payload exceeds {@link #MAX_RECORD_BYTES};
+     *         nothing is buffered, since replay would stop at such a record.
+     */
+    public long append(RecordWriter writer) {
+        synchronized (appendLock) {
+            checkNotFailed();
+            record.reset();
+            try {
+                writer.write(recordOut);
+                recordOut.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to encode journal record", e);
+            }
+            if (record.size() > MAX_RECORD_BYTES) {
+                throw new IllegalArgumentException("Journal record of " + record.size()
+                        + " bytes exceeds the limit of " + MAX_RECORD_BYTES + " bytes");
+            }
+            crc.reset();
+            crc.update(record.array(), 0, record.size());
+            pending.writeInt(record.size());
+            pending.writeInt((int) crc.getValue());
+            pending.write(record.array(), 0, record.size());
+            return ++appendedLsn;
+        }
+    }
+
+    /**
+     * 等待指定LSN及之前的所有记录持久化（组提交）
+     * Blocks until the record with the given LSN, and every record before it, is on disk.
+     * @param lsn The LSN returned by {@link #append(RecordWriter)}.
+     */
+    public void sync(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableLsn >= lsn) {
+                return; // 已被前一个领导者的fsync覆盖
+            }
+            checkNotFailed();
+            long upTo;
+            FrameBuffer toWrite;
+            synchronized (appendLock) {
+                toWrite = pending;
+                pending = writing;
+                writing = toWrite;
+                upTo = appendedLsn;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(toWrite.array(), 0, toWrite.size());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            toWrite.reset();
+            durableLsn = upTo;
+        } catch (IOException e) {
+            failure = e; // 缓冲中的记录可能只写入了一部分，不能再推进 durableLsn
+            throw new UncheckedIOException("Failed to sync journal " + file, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * 轮转到新的日志段文件
+     * Switches appends to a new segment file. Records appended before this call are written and
+     * synced to the old segment, records appended afterwards go to the new one. Appenders are not
+     * blocked while the old segment is synced; concurrent {@link #sync(long)} callers wait for it.
+     * @param newFile The new segment file; replaced if it already exists.
+     */
+    public void rotate(Path newFile) throws IOException {
+        syncLock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("Journal " + file + " failed earlier", failure);
+            }
+            FileChannel newChannel = FileChannel.open(newFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            FileChannel oldChannel;
+            FrameBuffer toWrite;
+            long upTo;
+            synchronized (appendLock) {
+                oldChannel = channel;
+                toWrite = pending;
+                pending = writing;
+                writing = toWrite;
+                upTo = appendedLsn;
+                channel = newChannel;
+                file = newFile;
+            }
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(toWrite.array(), 0, toWrite.size());
+                while (bytes.hasRemaining()) {
+                    oldChannel.write(bytes);
+                }
+                oldChannel.force(false);
+            } catch (IOException e) {
+                failure = e; // 旧段的记录未能持久化，新段不能接在它们之后
+                oldChannel.close();
+                throw e;
+            }
+            oldChannel.close();
+            toWrite.reset();
+            durableLsn = upTo;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * 等待已追加的全部记录持久化
+     * Blocks until every record appended so far is on disk.
+     */
+    public void syncAll() {
+        long lsn;
+        synchronized (appendLock) {
+            lsn = appendedLsn;
+        }
+        sync(lsn);
+    }
+
+    /**
+     * 追加并等待持久化
+     * Appends a record and waits until it is durable.
+     */
+    public void appendAndSync(RecordWriter writer) {
+        sync(append(writer));
+    }
+
+    /**
+     * 持久化所有已追加的记录并关闭文件
+     * Syncs all appended records and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        long last;
+        synchronized (appendLock) {
+            last = appendedLsn;
+        }
+        try {
+            sync(last);
+        } finally {
+            syncLock.lock();
+            try {
+                channel.close();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void checkNotFailed() {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new UncheckedIOException("Journal " + file + " failed earlier", cause);
+        }
+    }
+
+    /**
+     * 可直接访问底层数组的字节缓冲，避免写盘前的复制
+     * Byte buffer exposing its backing array, so frames can be written without copying.
+     */
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+        FrameBuffer(int initialSize) {
+            super(initialSize);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+    }
+}
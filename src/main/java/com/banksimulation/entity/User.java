@@ -1,5 +1,9 @@
 package com.banksimulation.entity;
 
+import com.banksimulation.util.MoneyUtil;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -8,13 +12,34 @@ import java.util.UUID;
  * Represents a regular user in the bank simulation system.
  */
 public class User {
+    /** {@link #tryDebit(long)} 余额不足时的返回值 / Returned by {@link #tryDebit(long)} when funds are insufficient. */
+    public static final long INSUFFICIENT_FUNDS = -1L;
+    /** {@link #credit(long)} 余额将超过上限时的返回值 / Returned by {@link #credit(long)} when the balance would exceed the limit. */
+    public static final long BALANCE_OVERFLOW = -2L;
+    /**
+     * 余额上限（分）：其上保留的余量使撤销扣款等无条件调整不会溢出
+     * Balance limit in minor units enforced by {@link #credit(long)}. The headroom above it lets
+     * unconditional adjustments, such as refunding a debit, always fit in a long.
+     */
+    public static final long MAX_BALANCE_MINOR_UNITS = Long.MAX_VALUE / 4;
+
+    private static final VarHandle BALANCE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(User.class, "balanceMinorUnits", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String userId;        // 用户ID (UUID)
     private String username;      // 用户名
     private String passwordHash;  // 加密后的密码
     private String firstName;     // 名
     private String lastName;      // 姓
     private String accountNumber; // 银行账号
-    private double balance;       // 账户余额
+    private volatile long balanceMinorUnits; // 账户余额（以分为单位的定点数，通过CAS更新）
     private boolean isActive;     // 账户是否激活/允许登录
     private boolean canDeposit;   // 是否允许存款权限
     private boolean canWithdraw;  // 是否允许取款权限
@@ -29,7 +54,7 @@ public class User {
         this.firstName = firstName;
         this.lastName = lastName;
         this.accountNumber = accountNumber;
-        this.balance = 0.00; // 初始余额为0
+        this.balanceMinorUnits = 0L; // 初始余额为0
         this.isActive = true; // 默认激活
         this.canDeposit = true; // 默认允许存款
         this.canWithdraw = true; // 默认允许取款
@@ -47,7 +72,7 @@ public class User {
         this.firstName = firstName;
         this.lastName = lastName;
         this.accountNumber = accountNumber;
-        this.balance = balance;
+        this.balanceMinorUnits = MoneyUtil.toMinorUnits(balance);
         this.isActive = isActive;
         this.canDeposit = canDeposit;
         this.canWithdraw = canWithdraw;
@@ -81,7 +106,11 @@ public class User {
     }
 
     public double getBalance() {
-        return balance;
+        return MoneyUtil.toAmount(balanceMinorUnits);
+    }
+
+    public long getBalanceMinorUnits() {
+        return balanceMinorUnits;
     }
 
     public boolean isActive() {
@@ -111,8 +140,74 @@ public class User {
     }
 
     public void setBalance(double balance) {
-        this.balance = balance;
+        this.balanceMinorUnits = MoneyUtil.toMinorUnits(balance);
+        this.updatedAt = LocalDateTime.now(); // 更新时间戳
+    }
+
+    public void setBalanceMinorUnits(long balanceMinorUnits) {
+        this.balanceMinorUnits = balanceMinorUnits;
+        this.updatedAt = LocalDateTime.now(); // 更新时间戳
+    }
+
+    /**
+     * 原子地增加余额：余额将超过上限时不入账（CAS重试，无锁）
+     * Atomically adds to the balance unless the result would exceed {@link #MAX_BALANCE_MINOR_UNITS},
+     * retrying the CAS on contention.
+     * @param amountMinorUnits The amount to add, in minor units.
+     * @return The balance after the credit in minor units, or {@link #BALANCE_OVERFLOW} if it would exceed the limit.
+     */
+    public long credit(long amountMinorUnits) {
+        long current;
+        long updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            if (amountMinorUnits > MAX_BALANCE_MINOR_UNITS - current) {
+                return BALANCE_OVERFLOW;
+            }
+            updated = current + amountMinorUnits;
+        } while (!BALANCE.compareAndSet(this, current, updated));
+        this.updatedAt = LocalDateTime.now(); // 更新时间戳
+        return updated;
+    }
+
+    /**
+     * 有条件地原子扣减余额：仅当余额充足时扣款（CAS重试，无锁）
+     * Atomically debits the balance only if it covers the amount, retrying the CAS on contention.
+     * @param amountMinorUnits The amount to debit, in minor units.
+     * @return The balance after the debit in minor units, or {@link #INSUFFICIENT_FUNDS} if the balance is too low.
+     */
+    public long tryDebit(long amountMinorUnits) {
+        long current;
+        long updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            if (current < amountMinorUnits) {
+                return INSUFFICIENT_FUNDS;
+            }
+            updated = current - amountMinorUnits;
+        } while (!BALANCE.compareAndSet(this, current, updated));
+        this.updatedAt = LocalDateTime.now(); // 更新时间戳
+        return updated;
+    }
+
+    /**
+     * 无条件地原子调整余额（用于撤销已应用的变更，不检查余额是否充足或超过上限）
+     * Atomically adds a signed amount to the balance without checking funds or the balance limit,
+     * retrying the CAS on contention. Used to reverse a change that was already applied and to apply
+     * credits whose room below the limit was checked under the account locks.
+     * @param deltaMinorUnits The amount to add (negative to subtract), in minor units.
+     * @return The balance after the adjustment in minor units.
+     * @throws ArithmeticException If the result would overflow.
+     */
+    public long adjust(long deltaMinorUnits) {
+        long current;
+        long updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            updated = Math.addExact(current, deltaMinorUnits);
+        } while (!BALANCE.compareAndSet(this, current, updated));
         this.updatedAt = LocalDateTime.now(); // 更新时间戳
+        return updated;
     }
 
     public void setActive(boolean active) {
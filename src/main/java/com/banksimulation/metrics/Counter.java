@@ -0,0 +1,32 @@
+package com.banksimulation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发计数器
+ * Thread-safe counter for hot paths, backed by a {@link LongAdder}.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    /**
+     * 读取并清零
+     * Returns the count since the last reset and starts over.
+     */
+    public long getAndReset() {
+        return value.sumThenReset();
+    }
+}
@@ -0,0 +1,124 @@
+package com.banksimulation.metrics;
+
+/**
+ * 对数-线性延迟直方图
+ * Log-linear histogram of latencies in nanoseconds. Each power-of-two range is split into
+ * {@value #SUB_BUCKETS} equal buckets, so recorded values keep about 3% relative precision in
+ * constant memory. Not thread-safe: each worker records into its own instance and the results are
+ * merged with {@link #add(LatencyHistogram)}. {@link LatencyRecorder} is the concurrent counterpart
+ * and produces its snapshots as instances of this class.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long max;
+    private long sum;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * 合并按桶统计的原始计数（供 LatencyRecorder 生成快照）
+     * Adds raw per-bucket counts, as kept by {@link LatencyRecorder}.
+     */
+    void addCounts(long[] bucketCounts, long addedSum, long addedMax) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += bucketCounts[i];
+            count += bucketCounts[i];
+        }
+        sum += addedSum;
+        max = Math.max(max, addedMax);
+    }
+
+    /**
+     * 与较早快照的差值
+     * Returns what was recorded between {@code earlier} and this histogram, both snapshots of the
+     * same recorder. The maximum of the interval is not known exactly; it is taken as the upper
+     * bound of the highest non-empty bucket, capped at the overall maximum.
+     */
+    public LatencyHistogram since(LatencyHistogram earlier) {
+        LatencyHistogram interval = new LatencyHistogram();
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            long added = counts[i] - earlier.counts[i];
+            if (added > 0) { // 快照之间并非原子，差值偶尔为负时忽略
+                interval.counts[i] = added;
+                interval.count += added;
+                highest = i;
+            }
+        }
+        interval.sum = Math.max(0, sum - earlier.sum);
+        interval.max = highest < 0 ? 0 : Math.min(upperBoundOf(highest), max);
+        return interval;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * 百分位数（返回所在桶的上界）
+     * @param percentile A percentile in [0, 100].
+     * @return The upper bound of the bucket holding that percentile, capped at the maximum.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value; // 小于 SUB_BUCKETS 的值精确记录
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long upperBound = ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound; // 最高的桶会溢出
+    }
+}
@@ -0,0 +1,75 @@
+package com.banksimulation.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发延迟记录器
+ * Thread-safe latency recorder for hot paths. Uses the buckets of {@link LatencyHistogram}, kept
+ * in a few stripes of atomic counters chosen by thread id, so concurrent callers rarely touch the
+ * same cache line; recording is a handful of uncontended atomic additions and never allocates.
+ * {@link #snapshot()} folds the stripes into a {@link LatencyHistogram}.
+ */
+public final class LatencyRecorder {
+
+    private static final int STRIPES = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * LatencyHistogram.BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     * Records one latency.
+     * @param nanos The latency in nanoseconds; negative values count as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().threadId() & STRIPE_MASK;
+        counts.getAndIncrement(stripe * LatencyHistogram.BUCKETS + LatencyHistogram.bucketOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 记录从 startNanos（System.nanoTime() 的返回值）到现在的耗时
+     * Records the time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 当前所有记录的副本
+     * Returns a copy of everything recorded so far. Values recorded while the copy is taken may or
+     * may not be included.
+     */
+    public LatencyHistogram snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * 取出副本并清零
+     * Returns a copy of everything recorded since the last reset and starts over. Each value
+     * recorded concurrently ends up in exactly one snapshot's bucket counts, though the mean and
+     * maximum may attribute it to the neighbouring interval.
+     */
+    public LatencyHistogram snapshotAndReset() {
+        return collect(true);
+    }
+
+    private LatencyHistogram collect(boolean reset) {
+        long[] merged = new long[LatencyHistogram.BUCKETS];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * LatencyHistogram.BUCKETS;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                merged[i] += reset ? counts.getAndSet(base + i, 0) : counts.get(base + i);
+            }
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.addCounts(merged, reset ? sum.sumThenReset() : sum.sum(), reset ? max.getThenReset() : max.get());
+        return histogram;
+    }
+}
@@ -0,0 +1,82 @@
+package com.banksimulation.metrics;
+
+import com.banksimulation.util.DiagnosticLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期将指标写入文件
+ * Periodically appends a formatted {@link MetricsSnapshot} to a file on a daemon thread. With
+ * {@code perInterval} each entry covers only the interval since the previous one; otherwise entries
+ * are cumulative. Intervals are computed with {@link MetricsSnapshot#since}, so the registry itself
+ * is never reset and other readers of it are unaffected. Closing writes a final entry.
+ */
+public final class MetricsDumper implements AutoCloseable {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(MetricsDumper.class);
+
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final boolean perInterval;
+    private final ScheduledExecutorService scheduler;
+    private MetricsSnapshot previous; // 上一次写出时的累计值
+
+    /**
+     * @param registry The metrics to dump.
+     * @param file The file to append to; created if missing.
+     * @param interval The time between entries.
+     * @param perInterval Whether each entry covers only the time since the previous one.
+     */
+    public MetricsDumper(MetricsRegistry registry, Path file, Duration interval, boolean perInterval) {
+        this.registry = registry;
+        this.file = file;
+        this.perInterval = perInterval;
+        this.previous = registry.snapshot();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dumper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        scheduler.scheduleAtFixedRate(this::dump, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即写出一条记录
+     * Appends an entry now.
+     */
+    public synchronized void dump() {
+        MetricsSnapshot current = registry.snapshot();
+        MetricsSnapshot snapshot = perInterval ? current.since(previous) : current;
+        previous = current;
+        try {
+            Files.writeString(file, snapshot.format() + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOG.error("Error writing metrics to file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止定时任务并写出最后一条记录
+     * Stops the periodic dumps and appends a final entry.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+}
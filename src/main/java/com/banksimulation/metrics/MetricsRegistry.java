@@ -0,0 +1,58 @@
+package com.banksimulation.metrics;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标注册表
+ * Named latency recorders and counters. Callers on hot paths look their metrics up once and keep
+ * the reference; recording then involves no map access.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（必要时创建）延迟记录器
+     * Returns the latency recorder with the given name, creating it on first use.
+     */
+    public LatencyRecorder latency(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyRecorder());
+    }
+
+    /**
+     * 获取（必要时创建）计数器
+     * Returns the counter with the given name, creating it on first use.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * 所有指标的当前值
+     * Returns the current values of all metrics.
+     */
+    public MetricsSnapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * 读取所有指标并清零，用于按时间段统计
+     * Returns the values of all metrics since the last reset and starts over, for per-interval
+     * statistics.
+     */
+    public MetricsSnapshot snapshotAndReset() {
+        return collect(true);
+    }
+
+    private MetricsSnapshot collect(boolean reset) {
+        Map<String, LatencyHistogram> latencyValues = new TreeMap<>();
+        latencies.forEach((name, recorder) -> latencyValues.put(name, reset ? recorder.snapshotAndReset() : recorder.snapshot()));
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, reset ? counter.getAndReset() : counter.get()));
+        return new MetricsSnapshot(LocalDateTime.now(), latencyValues, counterValues);
+    }
+}
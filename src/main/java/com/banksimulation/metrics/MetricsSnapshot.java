@@ -0,0 +1,82 @@
+package com.banksimulation.metrics;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 指标快照
+ * The values of all metrics of a {@link MetricsRegistry} at one moment, sorted by name.
+ */
+public final class MetricsSnapshot {
+
+    private final LocalDateTime timestamp;
+    private final Map<String, LatencyHistogram> latencies;
+    private final Map<String, Long> counters;
+
+    MetricsSnapshot(LocalDateTime timestamp, Map<String, LatencyHistogram> latencies, Map<String, Long> counters) {
+        this.timestamp = timestamp;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.counters = Collections.unmodifiableMap(counters);
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 按名称排序的延迟直方图（调用方不应修改）
+     * Latency histograms by name. The histograms belong to this snapshot and must not be changed.
+     */
+    public Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * 与较早快照的差值
+     * Returns the values recorded between {@code earlier} and this snapshot, both taken from the
+     * same registry without a reset in between. Metrics created in the meantime count from zero.
+     */
+    public MetricsSnapshot since(MetricsSnapshot earlier) {
+        Map<String, LatencyHistogram> latencyValues = new TreeMap<>();
+        latencies.forEach((name, histogram) -> {
+            LatencyHistogram previous = earlier.latencies.get(name);
+            latencyValues.put(name, previous == null ? histogram : histogram.since(previous));
+        });
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, value) -> counterValues.put(name, value - earlier.counters.getOrDefault(name, 0L)));
+        return new MetricsSnapshot(timestamp, latencyValues, counterValues);
+    }
+
+    /**
+     * 格式化为文本：每个延迟指标一行（微秒），随后每个计数器一行
+     * Formats the snapshot as text: a timestamp line, one line per latency metric with the count,
+     * mean, p50, p90, p99, p99.9 and maximum in microseconds, then one line per counter. Metrics
+     * that recorded nothing are left out.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append("# ").append(timestamp).append('\n');
+        latencies.forEach((name, histogram) -> {
+            if (histogram.getCount() == 0) {
+                return;
+            }
+            text.append(String.format("%-40s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    name, histogram.getCount(), histogram.getMean() / 1_000.0,
+                    histogram.getPercentile(50) / 1_000.0, histogram.getPercentile(90) / 1_000.0,
+                    histogram.getPercentile(99) / 1_000.0, histogram.getPercentile(99.9) / 1_000.0,
+                    histogram.getMax() / 1_000.0));
+        });
+        counters.forEach((name, value) -> {
+            if (value != 0) {
+                text.append(String.format("%-40s %d%n", name, value));
+            }
+        });
+        return text.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.banksimulation.metrics;
+
+/**
+ * 单个服务操作的指标
+ * The metrics of one service operation: a latency recorder named after the operation, and a
+ * counter named {@code <operation>.failed} for calls that returned a failure or threw.
+ */
+public final class OperationMetrics {
+
+    private final LatencyRecorder latency;
+    private final Counter failures;
+
+    public OperationMetrics(MetricsRegistry registry, String name) {
+        this.latency = registry.latency(name);
+        this.failures = registry.counter(name + ".failed");
+    }
+
+    /**
+     * 记录一次调用
+     * Records a call that started at {@code startNanos}, a value of {@link System#nanoTime()}.
+     * @param succeeded false if the call failed.
+     */
+    public void record(long startNanos, boolean succeeded) {
+        latency.recordSince(startNanos);
+        if (!succeeded) {
+            failures.increment();
+        }
+    }
+}
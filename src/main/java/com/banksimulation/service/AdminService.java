@@ -1,16 +1,28 @@
 package com.banksimulation.service;
 
+import com.banksimulation.dao.ChangeBatch;
 import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
 import com.banksimulation.entity.ActorType;
 import com.banksimulation.entity.Admin; // 导入 Admin 类
 import com.banksimulation.entity.OperationLog;
 import com.banksimulation.entity.TransactionRecord; // 导入 TransactionRecord
 import com.banksimulation.entity.User;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.util.PasswordHasher;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * 管理员服务
@@ -18,12 +30,28 @@ import java.util.Optional;
  */
 public class AdminService {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(AdminService.class);
+
+    private static final int EXPORT_PAGE_SIZE = 4096; // 导出时每次查询的交易记录条数
+    private static final int IMPORT_BATCH_SIZE = 8192; // 导入时每批写入DAO的条数
+
     private final DataAccessObject dao;
     private final LoggingService loggingService; // 依赖日志服务
+    private final SessionManager sessionManager; // 删除或禁用用户时结束其会话
+    private final Object logImportLock = new Object(); // 日志导入逐个执行，去重集合不会漏掉并发导入的条目
 
     public AdminService(DataAccessObject dao, LoggingService loggingService) {
+        this(dao, loggingService, new SessionManager());
+    }
+
+    /**
+     * @param sessionManager The session manager shared with {@link AuthenticationService}, so that
+     *                       deleting or deactivating a user ends the user's sessions.
+     */
+    public AdminService(DataAccessObject dao, LoggingService loggingService, SessionManager sessionManager) {
         this.dao = dao;
         this.loggingService = loggingService;
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -56,7 +84,7 @@ public class AdminService {
      */
     public boolean createUser(String actingAdminUsername, User newUser) {
         if (dao.getUserByUsername(newUser.getUsername()).isPresent()) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to create user: Username '" + newUser.getUsername() + "' already exists.");
+            LOG.debug("Admin '{}' failed to create user: Username '{}' already exists.", actingAdminUsername, newUser.getUsername());
             loggingService.logAdminAction(actingAdminUsername, "Create user failed", "Username '" + newUser.getUsername() + "' already exists.");
             return false;
         }
@@ -64,7 +92,7 @@ public class AdminService {
         // 只有顶级管理员可以创建新管理员 (如果未来有创建管理员的功能)
         // 目前只创建普通用户，所以所有管理员都可以创建普通用户
         dao.saveUser(newUser);
-        System.out.println("Admin '" + actingAdminUsername + "' created new user: " + newUser.getUsername());
+        LOG.debug("Admin '{}' created new user: {}", actingAdminUsername, newUser.getUsername());
         loggingService.logAdminAction(actingAdminUsername, "User created", "Created user: " + newUser.getUsername());
         return true;
     }
@@ -80,7 +108,7 @@ public class AdminService {
     public boolean modifyUserInfo(String actingAdminUsername, String targetUsername, User updatedInfo) {
         Optional<User> userOptional = dao.getUserByUsername(targetUsername);
         if (userOptional.isEmpty()) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to modify user info: User '" + targetUsername + "' not found.");
+            LOG.debug("Admin '{}' failed to modify user info: User '{}' not found.", actingAdminUsername, targetUsername);
             loggingService.logAdminAction(actingAdminUsername, "Modify user info failed", "User '" + targetUsername + "' not found.");
             return false;
         }
@@ -99,7 +127,10 @@ public class AdminService {
         userToModify.setCanWithdraw(updatedInfo.canWithdraw());
 
         dao.updateUser(userToModify);
-        System.out.println("Admin '" + actingAdminUsername + "' modified info for user: " + targetUsername);
+        if (!userToModify.isActive()) {
+            sessionManager.closeSessionsOf(targetUsername, ActorType.USER);
+        }
+        LOG.debug("Admin '{}' modified info for user: {}", actingAdminUsername, targetUsername);
         loggingService.logAdminAction(actingAdminUsername, "Modify user info", "Modified info for user: " + targetUsername);
         return true;
     }
@@ -115,7 +146,7 @@ public class AdminService {
     public boolean toggleUserLoginStatus(String actingAdminUsername, String targetUsername, boolean isActive) {
         Optional<User> userOptional = dao.getUserByUsername(targetUsername);
         if (userOptional.isEmpty()) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to toggle login status: User '" + targetUsername + "' not found.");
+            LOG.debug("Admin '{}' failed to toggle login status: User '{}' not found.", actingAdminUsername, targetUsername);
             loggingService.logAdminAction(actingAdminUsername, "Toggle user login status failed", "User '" + targetUsername + "' not found.");
             return false;
         }
@@ -128,7 +159,10 @@ public class AdminService {
         User userToToggle = userOptional.get();
         userToToggle.setActive(isActive);
         dao.updateUser(userToToggle);
-        System.out.println("Admin '" + actingAdminUsername + "' toggled login status for user '" + targetUsername + "' to " + (isActive ? "active" : "inactive") + ".");
+        if (!isActive) {
+            sessionManager.closeSessionsOf(targetUsername, ActorType.USER); // 禁用后立即结束其会话
+        }
+        LOG.debug("Admin '{}' toggled login status for user '{}' to {}.", actingAdminUsername, targetUsername, isActive ? "active" : "inactive");
         loggingService.logAdminAction(actingAdminUsername, "Toggle user login status", "Set '" + targetUsername + "' to " + (isActive ? "active" : "inactive") + ".");
         return true;
     }
@@ -144,14 +178,14 @@ public class AdminService {
     public boolean modifyUserPermissions(String actingAdminUsername, String targetUsername, Map<String, Boolean> newPermissions) {
         // 只有顶级管理员有授权能力
         if (!isTopLevelAdmin(actingAdminUsername)) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to modify user permissions: Only top-level admins can grant permissions.");
+            LOG.debug("Admin '{}' failed to modify user permissions: Only top-level admins can grant permissions.", actingAdminUsername);
             loggingService.logAdminAction(actingAdminUsername, "Modify user permissions failed", "Attempted to grant permissions without top-level admin rights.");
             return false;
         }
 
         Optional<User> userOptional = dao.getUserByUsername(targetUsername);
         if (userOptional.isEmpty()) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to modify user permissions: User '" + targetUsername + "' not found.");
+            LOG.debug("Admin '{}' failed to modify user permissions: User '{}' not found.", actingAdminUsername, targetUsername);
             loggingService.logAdminAction(actingAdminUsername, "Modify user permissions failed", "User '" + targetUsername + "' not found.");
             return false;
         }
@@ -164,7 +198,7 @@ public class AdminService {
             userToModify.setCanWithdraw(newPermissions.get("canWithdraw"));
         }
         dao.updateUser(userToModify);
-        System.out.println("Admin '" + actingAdminUsername + "' modified permissions for user: " + targetUsername);
+        LOG.debug("Admin '{}' modified permissions for user: {}", actingAdminUsername, targetUsername);
         loggingService.logAdminAction(actingAdminUsername, "Modify user permissions", "Modified permissions for user: " + targetUsername + " -> " + newPermissions);
         return true;
     }
@@ -179,7 +213,7 @@ public class AdminService {
     public boolean deleteUser(String actingAdminUsername, String targetUsername) {
         Optional<User> userOptional = dao.getUserByUsername(targetUsername);
         if (userOptional.isEmpty()) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to delete user: User '" + targetUsername + "' not found.");
+            LOG.debug("Admin '{}' failed to delete user: User '{}' not found.", actingAdminUsername, targetUsername);
             loggingService.logAdminAction(actingAdminUsername, "Delete user failed", "User '" + targetUsername + "' not found.");
             return false;
         }
@@ -189,19 +223,20 @@ public class AdminService {
         // 非顶级管理员不能删除顶级管理员
         Optional<Admin> targetAdminOptional = dao.getAdminByUsername(targetUsername);
         if (targetAdminOptional.isPresent() && targetAdminOptional.get().isTopLevelAdmin() && !isTopLevelAdmin(actingAdminUsername)) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to delete user '" + targetUsername + "': Cannot delete a top-level admin.");
+            LOG.debug("Admin '{}' failed to delete user '{}': Cannot delete a top-level admin.", actingAdminUsername, targetUsername);
             loggingService.logAdminAction(actingAdminUsername, "Delete user failed", "Attempted to delete top-level admin '" + targetUsername + "'.");
             return false;
         }
         // 不能删除自己（防止误操作，或者如果UI允许删除自己，则需要特殊处理）
         if (actingAdminUsername.equals(targetUsername)) {
-            System.out.println("Admin '" + actingAdminUsername + "' failed to delete user: Cannot delete self.");
+            LOG.debug("Admin '{}' failed to delete user: Cannot delete self.", actingAdminUsername);
             loggingService.logAdminAction(actingAdminUsername, "Delete user failed", "Attempted to delete self.");
             return false;
         }
 
         dao.deleteUser(userToDelete.getUserId()); // DAO层根据userId删除
-        System.out.println("Admin '" + actingAdminUsername + "' deleted user: " + targetUsername);
+        sessionManager.closeSessionsOf(targetUsername, ActorType.USER); // 会话中缓存的用户对象已失效
+        LOG.debug("Admin '{}' deleted user: {}", actingAdminUsername, targetUsername);
         loggingService.logAdminAction(actingAdminUsername, "User deleted", "Deleted user: " + targetUsername);
         return true;
     }
@@ -214,7 +249,7 @@ public class AdminService {
      */
     public List<User> getAllUsers(String adminUsername) {
         List<User> users = dao.getAllUsers();
-        System.out.println("Admin '" + adminUsername + "' retrieved all users list.");
+        LOG.debug("Admin '{}' retrieved all users list.", adminUsername);
         loggingService.logAdminAction(adminUsername, "Get all users", "Retrieved " + users.size() + " users.");
         return users;
     }
@@ -227,8 +262,240 @@ public class AdminService {
      */
     public List<TransactionRecord> getAllTransactions(String adminUsername) {
         List<TransactionRecord> transactions = dao.getAllTransactions();
-        System.out.println("Admin '" + adminUsername + "' retrieved all transaction records.");
+        LOG.debug("Admin '{}' retrieved all transaction records.", adminUsername);
         loggingService.logAdminAction(adminUsername, "Get all transactions", "Retrieved " + transactions.size() + " transactions.");
         return transactions;
     }
+
+    /**
+     * 分页查询交易记录。
+     * Retrieves one page of transaction records matching the query.
+     * @param adminUsername The username of the admin performing the action.
+     * @param query The filter and paging criteria.
+     * @return The page of matching records.
+     */
+    public TransactionPage queryTransactions(String adminUsername, TransactionQuery query) {
+        TransactionPage page = dao.queryTransactions(query);
+        LOG.debug("Admin '{}' queried a page of transaction records.", adminUsername);
+        loggingService.logAdminAction(adminUsername, "Query transactions", "Retrieved page of " + page.getRecords().size() + " transactions.");
+        return page;
+    }
+
+    /**
+     * 统计满足条件的交易记录数。
+     * Counts the transaction records matching the query's filters, e.g. to size a table that
+     * loads its pages on demand.
+     * @param adminUsername The username of the admin performing the action.
+     * @param query The filter criteria; its cursor, offset and limit are ignored.
+     * @return The number of matching records.
+     */
+    public int countTransactions(String adminUsername, TransactionQuery query) {
+        int count = dao.countTransactions(query);
+        LOG.debug("Admin '{}' counted transaction records.", adminUsername);
+        return count;
+    }
+
+    /**
+     * 获取指定序列号之后新增的交易记录。
+     * Retrieves the transaction records appended after the given sequence number, for views that
+     * follow new transactions. Unlike queries, these frequent polls are not written to the
+     * operation log.
+     * @param adminUsername The username of the admin performing the action.
+     * @param afterSequence The last sequence number seen, from {@link #getTransactionSequence(String)}
+     *                      or the previous batch.
+     * @return The new records; after a reset the caller must query again.
+     */
+    public ChangeBatch<TransactionRecord> getTransactionChanges(String adminUsername, long afterSequence) {
+        ChangeBatch<TransactionRecord> changes = dao.getTransactionChanges(afterSequence);
+        LOG.debug("Admin '{}' fetched transaction changes.", adminUsername);
+        return changes;
+    }
+
+    /**
+     * 获取当前交易序列号，在查询之前调用。
+     * Returns the sequence number to follow changes from; take it before querying, since records
+     * added during the query may also arrive as changes.
+     * @param adminUsername The username of the admin performing the action.
+     */
+    public long getTransactionSequence(String adminUsername) {
+        return dao.getTransactionSequence();
+    }
+
+    /**
+     * 将所有交易记录导出到文件
+     * Exports all transaction records to a file.
+     * @see #exportTransactions(String, String, String, LocalDateTime, LocalDateTime)
+     */
+    public boolean exportTransactions(String adminUsername, String filePath, String format) {
+        return exportTransactions(adminUsername, filePath, format, null, null);
+    }
+
+    /**
+     * 将交易记录流式导出到文件
+     * Streams the transaction records in a time range, in time order and including archived ones,
+     * to a file. Records are fetched page by page, so memory use does not grow with the number of
+     * records. Supported formats are "CSV", gzip-compressed "CSV.GZ" and the compact columnar
+     * "BIN"; all can be read back with {@link #importTransactions(String, String)}.
+     * @param adminUsername The username of the admin performing the action.
+     * @param filePath The path to the output file; replaced if it exists.
+     * @param format The format of the export.
+     * @param from Inclusive lower bound on the timestamp, or null for no bound.
+     * @param to Exclusive upper bound on the timestamp, or null for no bound.
+     * @return true if export is successful, false otherwise.
+     */
+    public boolean exportTransactions(String adminUsername, String filePath, String format,
+                                      LocalDateTime from, LocalDateTime to) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        if (exportFormat == null || !(exportFormat.isCsv() || exportFormat.isColumnar())) {
+            LOG.warn("Unsupported transaction export format: {}", format);
+            return false;
+        }
+        Path file = Path.of(filePath);
+        try {
+            long count;
+            if (exportFormat.isColumnar()) {
+                try (ColumnarExportFile.Writer<TransactionRecord> writer =
+                             new ColumnarExportFile.Writer<>(file, ColumnarExportFile.TRANSACTIONS)) {
+                    forEachTransactionInRange(from, to, writer::write);
+                    count = writer.getCount();
+                }
+            } else {
+                try (TextExportWriter writer = TextExportWriter.forTransactions(exportFormat.openTextOutput(file))) {
+                    forEachTransactionInRange(from, to, writer::writeTransaction);
+                    count = writer.getCount();
+                }
+            }
+            LOG.info("Admin '{}' exported {} transactions to: {}", adminUsername, count, filePath);
+            loggingService.logAdminAction(adminUsername, "Export transactions", "Exported " + count + " transactions as " + exportFormat + ".");
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error exporting transactions to file: {}", e.getMessage());
+            loggingService.logAdminAction(adminUsername, "Export transactions failed", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 导入交易记录导出文件（仅顶级管理员）
+     * Appends the records of a transaction export (CSV, gzip-compressed CSV or BIN, detected from
+     * the file contents) to the transaction store in batches. Records are stored as they are, and
+     * balances are not changed. Records whose ID is already stored are skipped, so importing a file
+     * again adds nothing, and so are records older than the archive cutoff, which the store cannot
+     * take any more, and records dated outside the years the store can index (about 1678 to 2262).
+     * @param actingAdminUsername The username of the admin performing the action.
+     * @param filePath The export file.
+     * @return The number of records stored, or -1 on failure or missing permission.
+     */
+    public long importTransactions(String actingAdminUsername, String filePath) {
+        if (!isTopLevelAdmin(actingAdminUsername)) {
+            LOG.debug("Admin '{}' failed to import transactions: Only top-level admins can import.", actingAdminUsername);
+            loggingService.logAdminAction(actingAdminUsername, "Import transactions failed", "Attempted to import without top-level admin rights.");
+            return -1;
+        }
+        List<TransactionRecord> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long[] imported = new long[1]; // 实际写入的条数
+        Consumer<TransactionRecord> sink = transaction -> {
+            batch.add(transaction);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                imported[0] += dao.importTransactions(batch);
+                batch.clear();
+            }
+        };
+        try (InputStream in = ExportFormat.openForImport(Path.of(filePath))) {
+            long count = ColumnarExportFile.hasMagic(in, ColumnarExportFile.TRANSACTIONS)
+                    ? ColumnarExportFile.read(in, ColumnarExportFile.TRANSACTIONS, sink)
+                    : CsvExportReader.readTransactions(in, sink);
+            if (!batch.isEmpty()) {
+                imported[0] += dao.importTransactions(batch);
+            }
+            long skipped = count - imported[0];
+            LOG.info("Admin '{}' imported {} of {} transactions from: {}", actingAdminUsername, imported[0], count, filePath);
+            loggingService.logAdminAction(actingAdminUsername, "Import transactions", "Imported " + imported[0] + " of " + count
+                    + " transactions (" + skipped + " skipped as duplicates, out of range or older than the archive cutoff).");
+            return imported[0];
+        } catch (IOException e) {
+            LOG.error("Error importing transactions from file: {}", e.getMessage());
+            loggingService.logAdminAction(actingAdminUsername, "Import transactions failed", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 导入日志导出文件（仅顶级管理员）
+     * Appends the entries of a log export (CSV, gzip-compressed CSV or BIN, detected from the file
+     * contents) to the log store in batches. Entries keep their original IDs and timestamps; CSV
+     * timestamps have second precision. Entries whose ID is already stored, or appeared earlier in
+     * the file, are skipped, so importing a file again adds nothing. The stored IDs are collected in
+     * one pass over the log before reading the file; imports run one at a time.
+     * @param actingAdminUsername The username of the admin performing the action.
+     * @param filePath The export file.
+     * @return The number of entries stored, or -1 on failure or missing permission.
+     */
+    public long importLogs(String actingAdminUsername, String filePath) {
+        if (!isTopLevelAdmin(actingAdminUsername)) {
+            LOG.debug("Admin '{}' failed to import logs: Only top-level admins can import.", actingAdminUsername);
+            loggingService.logAdminAction(actingAdminUsername, "Import logs failed", "Attempted to import without top-level admin rights.");
+            return -1;
+        }
+        synchronized (logImportLock) {
+            loggingService.flush(); // 异步模式下先写出待写入的日志，使其参与去重
+            Set<String> knownIds = new HashSet<>();
+            dao.forEachLog(log -> knownIds.add(log.getLogId()));
+            List<OperationLog> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            long[] imported = new long[1]; // 实际写入的条数
+            Consumer<OperationLog> sink = log -> {
+                if (!knownIds.add(log.getLogId())) {
+                    return; // 已存在或文件中重复
+                }
+                batch.add(log);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    dao.saveLogs(batch);
+                    imported[0] += batch.size();
+                    batch.clear();
+                }
+            };
+            try (InputStream in = ExportFormat.openForImport(Path.of(filePath))) {
+                long count = ColumnarExportFile.hasMagic(in, ColumnarExportFile.LOGS)
+                        ? ColumnarExportFile.read(in, ColumnarExportFile.LOGS, sink)
+                        : CsvExportReader.readLogs(in, sink);
+                if (!batch.isEmpty()) {
+                    dao.saveLogs(batch);
+                    imported[0] += batch.size();
+                }
+                LOG.info("Admin '{}' imported {} of {} log entries from: {}", actingAdminUsername, imported[0], count, filePath);
+                loggingService.logAdminAction(actingAdminUsername, "Import logs", "Imported " + imported[0] + " of " + count
+                        + " log entries (" + (count - imported[0]) + " skipped as duplicates).");
+                return imported[0];
+            } catch (IOException e) {
+                // 已写入的批次保留，便于排查出错位置
+                LOG.error("Error importing logs from file: {}", e.getMessage());
+                loggingService.logAdminAction(actingAdminUsername, "Import logs failed", e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    // 按时间顺序逐页遍历交易记录（含已归档部分）
+    private void forEachTransactionInRange(LocalDateTime from, LocalDateTime to, TransactionSink sink) throws IOException {
+        TransactionQuery query = new TransactionQuery().setTimeRange(from, to).setLimit(EXPORT_PAGE_SIZE);
+        while (true) {
+            TransactionPage page = dao.queryTransactions(query);
+            for (TransactionRecord transaction : page.getRecords()) {
+                sink.accept(transaction);
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            query.setCursor(page.getNextCursor());
+        }
+    }
+
+    /**
+     * 可抛出IO异常的交易记录消费者
+     * Transaction consumer that may fail with an IOException.
+     */
+    @FunctionalInterface
+    private interface TransactionSink {
+        void accept(TransactionRecord transaction) throws IOException;
+    }
 }
@@ -0,0 +1,270 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.util.BoundedRingBuffer;
+import com.banksimulation.util.DiagnosticLogger;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步批量日志写入器
+ * Asynchronous, batching writer for operation logs.
+ * Callers only capture the timestamp and enqueue the event into a bounded ring buffer; a single
+ * background thread creates the {@link OperationLog} entries (including their UUIDs) and inserts
+ * them into the DAO in batches. When the buffer is full, the configured
+ * {@link BackpressurePolicy} decides whether the caller waits or an event is discarded.
+ */
+public final class AsyncLogWriter {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(AsyncLogWriter.class);
+
+    /**
+     * 缓冲区满时的处理策略
+     * What a caller does when the log buffer is full.
+     */
+    public enum BackpressurePolicy {
+        BLOCK,       // 等待写入线程腾出空间，不丢失日志
+        DROP_OLDEST, // 丢弃最早的待写日志，为新日志腾出空间
+        SAMPLE       // 只保留每 N 条溢出日志中的一条（等待写入），其余丢弃
+    }
+
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final int SAMPLE_RATE = 10;
+
+    private final DataAccessObject dao;
+    private final BoundedRingBuffer<PendingLog> buffer;
+    private final BackpressurePolicy policy;
+    private final Thread writerThread;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicInteger activeProducers = new AtomicInteger(); // 已读取运行标志、尚未完成入队的调用方数
+    private volatile long persistedPosition; // 已写入DAO的事件总数
+    private volatile boolean running = true;
+
+    public AsyncLogWriter(DataAccessObject dao, int capacity, BackpressurePolicy policy) {
+        this.dao = dao;
+        this.buffer = new BoundedRingBuffer<>(capacity);
+        this.policy = policy;
+        this.writerThread = new Thread(this::runWriter, "log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * 提交一条日志事件
+     * Enqueues a log event, applying the backpressure policy if the buffer is full.
+     * After {@link #shutdown()} the event is written synchronously instead.
+     */
+    public void submit(String actorUsername, ActorType actorType, String action, String details) {
+        enqueue(new PendingLog(System.currentTimeMillis(), actorUsername, actorType, action, details));
+    }
+
+    private void enqueue(PendingLog event) {
+        // 先登记再检查运行标志：shutdown 要么被本调用方看到，要么等待本次入队完成后再清空缓冲区
+        activeProducers.incrementAndGet();
+        try {
+            if (!running) {
+                dao.saveLog(event.toOperationLog());
+                return;
+            }
+            if (!buffer.offer(event)) {
+                applyBackpressure(event);
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    private void applyBackpressure(PendingLog event) {
+        switch (policy) {
+            case BLOCK:
+                offerBlocking(event);
+                break;
+            case DROP_OLDEST:
+                while (!buffer.offer(event)) {
+                    if (buffer.poll() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            case SAMPLE:
+                if (overflowCount.incrementAndGet() % SAMPLE_RATE == 0) {
+                    offerBlocking(event);
+                } else {
+                    droppedCount.incrementAndGet();
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown backpressure policy: " + policy);
+        }
+    }
+
+    /**
+     * 提交一批已创建的日志
+     * Enqueues already created log entries, keeping their IDs and timestamps, with the same
+     * backpressure handling as {@link #submit(String, ActorType, String, String)}.
+     */
+    public void submitAll(List<OperationLog> logs) {
+        for (OperationLog log : logs) {
+            enqueue(new PendingLog(log));
+        }
+    }
+
+    /**
+     * 等待当前已提交的日志全部写入DAO
+     * Blocks until every event submitted before this call has been written to the DAO.
+     */
+    public void flush() {
+        long target = buffer.headPosition();
+        while (persistedPosition < target && writerThread.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * 停止写入线程并写出剩余日志
+     * Stops accepting queued events, waits for the writer thread and for callers still enqueuing,
+     * then writes out whatever they left in the buffer.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 等待在停止前已看到运行标志的调用方完成入队；此后不会再有事件进入缓冲区
+        while (activeProducers.get() > 0) {
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+        // 写出在停止过程中与写入线程竞争而滞留在缓冲区的事件
+        PendingLog event;
+        while ((event = buffer.poll()) != null) {
+            dao.saveLog(event.toOperationLog());
+        }
+    }
+
+    /**
+     * @return The number of events waiting to be written.
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * @return The number of events discarded by the backpressure policy so far.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void offerBlocking(PendingLog event) {
+        int spins = 0;
+        while (!buffer.offer(event)) {
+            if (!running) {
+                dao.saveLog(event.toOperationLog());
+                return;
+            }
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.unpark(writerThread); // 缓冲区已满，唤醒可能处于空闲等待的写入线程
+                LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<PendingLog> drained = new ArrayList<>(MAX_BATCH_SIZE);
+        List<OperationLog> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = !running; // 先读取停止标志，确保停止前提交的事件都会被取出
+            long position = buffer.tailPosition();
+            int count = buffer.drainTo(drained, MAX_BATCH_SIZE);
+            if (count > 0) {
+                for (PendingLog event : drained) {
+                    batch.add(event.toOperationLog());
+                }
+                writeBatch(batch);
+                drained.clear();
+                batch.clear();
+                persistedPosition = position + count;
+                continue;
+            }
+            long drops = droppedCount.get();
+            if (drops != reportedDrops) {
+                // 汇总报告被丢弃的日志数量，而不是逐条记录
+                writeBatch(List.of(new OperationLog("SYSTEM", ActorType.SYSTEM, "Log events dropped",
+                        (drops - reportedDrops) + " log events dropped by backpressure policy " + policy + ".")));
+                reportedDrops = drops;
+            }
+            persistedPosition = Math.max(persistedPosition, position);
+            if (stopping && buffer.size() == 0) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void writeBatch(List<OperationLog> batch) {
+        try {
+            dao.saveLogs(batch);
+        } catch (RuntimeException e) {
+            LOG.error("Error writing log batch: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 待写入的日志事件（仅包含调用方线程上捕获的数据）
+     * A log event as captured on the caller's thread.
+     */
+    private static final class PendingLog {
+        private final long epochMillis;
+        private final String actorUsername;
+        private final ActorType actorType;
+        private final String action;
+        private final String details;
+        private final OperationLog created; // 调用方已创建的日志（批量提交时）
+
+        PendingLog(long epochMillis, String actorUsername, ActorType actorType, String action, String details) {
+            this.epochMillis = epochMillis;
+            this.actorUsername = actorUsername;
+            this.actorType = actorType;
+            this.action = action;
+            this.details = details;
+            this.created = null;
+        }
+
+        PendingLog(OperationLog created) {
+            this.epochMillis = 0;
+            this.actorUsername = null;
+            this.actorType = null;
+            this.action = null;
+            this.details = null;
+            this.created = created;
+        }
+
+        OperationLog toOperationLog() {
+            if (created != null) {
+                return created;
+            }
+            LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+            return new OperationLog(UUID.randomUUID().toString(), timestamp, actorUsername, actorType, action, details);
+        }
+    }
+}
@@ -5,22 +5,62 @@ import com.banksimulation.entity.Admin;
 import com.banksimulation.entity.ActorType;
 import com.banksimulation.entity.OperationLog;
 import com.banksimulation.entity.User;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.util.PasswordHasher;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 认证服务
  * Handles user and admin registration and login authentication.
+ * Passwords are verified on a dedicated {@link PasswordVerificationPool}; hashes made with an
+ * outdated scheme or weaker parameters are replaced after a successful login. The session variants
+ * of login issue a {@link SessionToken} that later service calls can use instead of credentials.
+ * Attempts over the limits of the {@link LoginRateLimiter} are rejected before any hashing, and
+ * repeated failures for a username are logged once per minute with a count.
  */
 public class AuthenticationService {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(AuthenticationService.class);
+
     private final DataAccessObject dao;
     private final LoggingService loggingService; // 依赖日志服务
+    private final PasswordVerificationPool verificationPool; // 密码验证专用线程池
+    private final SessionManager sessionManager; // 登录后签发的会话
+    private final LoginRateLimiter rateLimiter; // 在哈希密码之前拒绝超限的尝试
+    private final FailedLoginTracker failedLogins; // 聚合重复的登录失败日志
 
     public AuthenticationService(DataAccessObject dao, LoggingService loggingService) {
+        this(dao, loggingService, new PasswordVerificationPool(), new SessionManager());
+    }
+
+    public AuthenticationService(DataAccessObject dao, LoggingService loggingService, PasswordVerificationPool verificationPool) {
+        this(dao, loggingService, verificationPool, new SessionManager());
+    }
+
+    /**
+     * @param sessionManager Shared with the services that accept session tokens.
+     */
+    public AuthenticationService(DataAccessObject dao, LoggingService loggingService,
+                                 PasswordVerificationPool verificationPool, SessionManager sessionManager) {
+        this(dao, loggingService, verificationPool, sessionManager, new LoginRateLimiter());
+    }
+
+    public AuthenticationService(DataAccessObject dao, LoggingService loggingService,
+                                 PasswordVerificationPool verificationPool, SessionManager sessionManager,
+                                 LoginRateLimiter rateLimiter) {
         this.dao = dao;
         this.loggingService = loggingService;
+        this.verificationPool = verificationPool;
+        this.sessionManager = sessionManager;
+        this.rateLimiter = rateLimiter;
+        this.failedLogins = new FailedLoginTracker(loggingService);
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
     }
 
     /**
@@ -32,7 +72,7 @@ public class AuthenticationService {
     public boolean registerUser(User user) {
         // 检查用户名是否已存在
         if (dao.getUserByUsername(user.getUsername()).isPresent()) {
-            System.out.println("Registration failed: Username '" + user.getUsername() + "' already exists.");
+            LOG.debug("Registration failed: Username '{}' already exists.", user.getUsername());
             loggingService.logSystemAction("User registration failed: Username '" + user.getUsername() + "' already exists.");
             return false;
         }
@@ -42,7 +82,7 @@ public class AuthenticationService {
         // 例如: user.setPasswordHash(PasswordHasher.hashPassword(user.getPasswordHash()));
 
         dao.saveUser(user);
-        System.out.println("User registered: " + user.getUsername());
+        LOG.debug("User registered: {}", user.getUsername());
         loggingService.logSystemAction("New user registered: " + user.getUsername());
         return true;
     }
@@ -55,24 +95,43 @@ public class AuthenticationService {
      * @return An Optional containing the User object if login is successful, empty otherwise.
      */
     public Optional<User> loginUser(String username, String password) {
+        if (!admitLoginAttempt(ActorType.USER, username)) {
+            return Optional.empty();
+        }
         Optional<User> userOptional = dao.getUserByUsername(username);
+        // 用户名不存在时也校验一次（对固定哈希），耗时不暴露用户名是否存在
+        String storedHash = userOptional.map(User::getPasswordHash).orElseGet(MissingAccountHash::get);
+        PasswordVerificationPool.Result result;
+        try {
+            result = verificationPool.verify(password, storedHash);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Login failed for '{}': Too many concurrent logins.", username);
+            failedLogins.recordFailure(ActorType.USER, username, "Login failed: Server busy", "Password verification queue is full.");
+            return Optional.empty();
+        }
         if (userOptional.isPresent()) {
             User user = userOptional.get();
-            // 验证密码 (实际应用中，这里需要比较哈希值)
-            if (PasswordHasher.verifyPassword(password, user.getPasswordHash())) {
+            if (result.isMatched()) {
+                if (result.getUpgradedHash() != null && storedHash.equals(user.getPasswordHash())) {
+                    // 用首选方案替换旧哈希（期间密码未被修改时）
+                    user.setPasswordHash(result.getUpgradedHash());
+                    dao.updateUser(user);
+                    loggingService.logSystemAction("Password hash of user '" + username + "' upgraded.");
+                }
                 if (user.isActive()) {
-                    System.out.println("User '" + username + "' logged in successfully.");
+                    failedLogins.recordSuccess(ActorType.USER, username); // 先写出此前失败的汇总
+                    LOG.debug("User '{}' logged in successfully.", username);
                     loggingService.logUserAction(username, "Login successful", "User '" + username + "' logged in.");
                     return Optional.of(user);
                 } else {
-                    System.out.println("Login failed for '" + username + "': Account is inactive.");
+                    LOG.debug("Login failed for '{}': Account is inactive.", username);
                     loggingService.logUserAction(username, "Login failed: Inactive account", "User '" + username + "' account is inactive.");
                     return Optional.empty();
                 }
             }
         }
-        System.out.println("Login failed for '" + username + "': Invalid username or password.");
-        loggingService.logUserAction(username, "Login failed: Invalid credentials", "Attempted login with username '" + username + "'.");
+        LOG.debug("Login failed for '{}': Invalid username or password.", username);
+        failedLogins.recordFailure(ActorType.USER, username, "Login failed: Invalid credentials", "Attempted login with username '" + username + "'.");
         return Optional.empty();
     }
 
@@ -84,18 +143,119 @@ public class AuthenticationService {
      * @return An Optional containing the Admin object if login is successful, empty otherwise.
      */
     public Optional<Admin> loginAdmin(String username, String password) {
+        if (!admitLoginAttempt(ActorType.ADMIN, username)) {
+            return Optional.empty();
+        }
         Optional<Admin> adminOptional = dao.getAdminByUsername(username);
+        // 用户名不存在时也校验一次（对固定哈希），耗时不暴露用户名是否存在
+        String storedHash = adminOptional.map(Admin::getPasswordHash).orElseGet(MissingAccountHash::get);
+        PasswordVerificationPool.Result result;
+        try {
+            result = verificationPool.verify(password, storedHash);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Login failed for '{}': Too many concurrent logins.", username);
+            failedLogins.recordFailure(ActorType.ADMIN, username, "Login failed: Server busy", "Password verification queue is full.");
+            return Optional.empty();
+        }
         if (adminOptional.isPresent()) {
             Admin admin = adminOptional.get();
-            // 验证密码 (实际应用中，这里需要比较哈希值)
-            if (PasswordHasher.verifyPassword(password, admin.getPasswordHash())) {
-                System.out.println("Admin '" + username + "' logged in successfully.");
+            if (result.isMatched()) {
+                if (result.getUpgradedHash() != null && storedHash.equals(admin.getPasswordHash())) {
+                    // 用首选方案替换旧哈希（期间密码未被修改时）
+                    admin.setPasswordHash(result.getUpgradedHash());
+                    dao.updateAdmin(admin);
+                    loggingService.logSystemAction("Password hash of admin '" + username + "' upgraded.");
+                }
+                failedLogins.recordSuccess(ActorType.ADMIN, username); // 先写出此前失败的汇总
+                LOG.debug("Admin '{}' logged in successfully.", username);
                 loggingService.logAdminAction(username, "Login successful", "Admin '" + username + "' logged in.");
                 return Optional.of(admin);
             }
         }
-        System.out.println("Login failed for '" + username + "': Invalid admin username or password.");
-        loggingService.logAdminAction(username, "Login failed: Invalid credentials", "Attempted admin login with username '" + username + "'.");
+        LOG.debug("Login failed for '{}': Invalid admin username or password.", username);
+        failedLogins.recordFailure(ActorType.ADMIN, username, "Login failed: Invalid credentials", "Attempted admin login with username '" + username + "'.");
         return Optional.empty();
     }
+
+    /**
+     * 限流检查：超限的尝试在哈希密码之前被拒绝，其日志按用户名或全局聚合
+     * Checks the rate limits before any password is hashed. Rejections are logged through the
+     * failure tracker, per username or, for the global limit, as one system entry.
+     * @return true if the attempt may proceed.
+     */
+    private boolean admitLoginAttempt(ActorType actorType, String username) {
+        LoginRateLimiter.Decision decision = rateLimiter.tryAcquire(actorType, username);
+        if (decision == LoginRateLimiter.Decision.ALLOWED) {
+            return true;
+        }
+        LOG.debug("Login rejected for '{}': Too many attempts.", username);
+        if (decision == LoginRateLimiter.Decision.USERNAME_LIMITED) {
+            failedLogins.recordFailure(actorType, username, "Login rejected: Too many attempts",
+                    "Login attempts for '" + username + "' exceed the rate limit.");
+        } else {
+            failedLogins.recordFailure(ActorType.SYSTEM, "*", "Login rejected: Global rate limit",
+                    "Login attempts over all usernames exceed the global rate limit (first rejected: '" + username + "').");
+        }
+        return false;
+    }
+
+    /**
+     * 用户登录并开启会话
+     * Authenticates a user login and opens a session for the user.
+     * @param username The username.
+     * @param password The plain text password.
+     * @return The session token if login is successful, empty otherwise.
+     */
+    public Optional<SessionToken> loginUserSession(String username, String password) {
+        return loginUser(username, password).map(sessionManager::openUserSession);
+    }
+
+    /**
+     * 管理员登录并开启会话
+     * Authenticates an admin login and opens a session for the admin.
+     * @param username The admin username.
+     * @param password The plain text password.
+     * @return The session token if login is successful, empty otherwise.
+     */
+    public Optional<SessionToken> loginAdminSession(String username, String password) {
+        return loginAdmin(username, password).map(sessionManager::openAdminSession);
+    }
+
+    /**
+     * 退出登录，结束会话
+     * Ends a session opened by {@link #loginUserSession} or {@link #loginAdminSession}.
+     * @param token The session token.
+     */
+    public void logout(SessionToken token) {
+        Optional<User> user = sessionManager.resolveUser(token);
+        Optional<Admin> admin = user.isPresent() ? Optional.empty() : sessionManager.resolveAdmin(token);
+        if (sessionManager.close(token)) {
+            user.ifPresent(u -> loggingService.logUserAction(u.getUsername(), "Logout", "User logged out."));
+            admin.ifPresent(a -> loggingService.logAdminAction(a.getUsername(), "Logout", "Admin logged out."));
+        }
+    }
+
+    /**
+     * 关闭密码验证线程池并写出尚未写出的登录失败汇总
+     * Shuts down the password verification pool, so later logins fail as busy, and writes the
+     * pending login failure summaries. Call before the logging service shuts down.
+     */
+    public void shutdown() {
+        verificationPool.shutdown();
+        failedLogins.flush();
+    }
+
+    /**
+     * 用户名不存在时用于校验的固定哈希
+     * A hash of a random password made with the preferred scheme, verified against when the
+     * username does not exist, so a failed login takes as long whether or not the account exists.
+     * Created on first use.
+     */
+    private static final class MissingAccountHash {
+        private static final String HASH = PasswordHasher.hashPassword(UUID.randomUUID().toString());
+
+        static String get() {
+            return HASH;
+        }
+    }
 }
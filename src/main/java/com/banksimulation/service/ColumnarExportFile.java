@@ -0,0 +1,618 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.util.MoneyUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 列式二进制导出文件
+ * Compact binary columnar export of operation logs and transaction records.
+ * <p>
+ * Layout: {@code [magic][version]}, then blocks of up to {@link #BLOCK_ROWS} rows framed as
+ * {@code [rowCount][rawLength][compressedLength][crc32 of raw][deflated payload]}, then a zero
+ * row count. Inside a block each field is stored as its own column: UUIDs as two longs, timestamps
+ * as delta-encoded epoch seconds plus nanos, amounts as cents, and strings through a per-block
+ * dictionary, all as variable-length integers. Similar values sit next to each other, so deflate
+ * compresses a block far better than text rows. Every block is self-contained.
+ */
+final class ColumnarExportFile {
+
+    /**
+     * 单一实体类型的列编码
+     * Column encoding for one entity type.
+     */
+    interface Codec<T> {
+        int magic();
+
+        void encode(List<T> rows, BlockBuffer out);
+
+        void decode(BlockReader in, int rowCount, Consumer<? super T> sink) throws IOException;
+    }
+
+    static final Codec<OperationLog> LOGS = new LogCodec();
+    static final Codec<TransactionRecord> TRANSACTIONS = new TransactionCodec();
+
+    static final int BLOCK_ROWS = 16 * 1024;
+
+    private static final int VERSION = 1;
+    private static final int MAX_BLOCK_BYTES = 256 * 1024 * 1024;
+    private static final int STREAM_BUFFER_BYTES = 256 * 1024;
+
+    private ColumnarExportFile() {
+    }
+
+    /**
+     * 检查输入流是否以指定编码的文件头开始（不消费输入）
+     * Checks, without consuming input, whether the stream starts with the codec's magic number.
+     * @param in A stream supporting mark/reset.
+     */
+    static boolean hasMagic(InputStream in, Codec<?> codec) throws IOException {
+        in.mark(4);
+        int magic = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b < 0) {
+                in.reset();
+                return false;
+            }
+            magic = (magic << 8) | b;
+        }
+        in.reset();
+        return magic == codec.magic();
+    }
+
+    /**
+     * 读取列式导出文件
+     * Decodes every row of a columnar export, block by block.
+     * @param in The file contents, positioned at the magic number.
+     * @param codec The entity codec; its magic number must match the file's.
+     * @param sink Receives each row in file order.
+     * @return The number of rows read.
+     */
+    static <T> long read(InputStream in, Codec<T> codec, Consumer<? super T> sink) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != codec.magic()) {
+            throw new IOException("Not a columnar export of the expected kind");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar export version: " + version);
+        }
+        Inflater inflater = new Inflater();
+        CRC32 crc = new CRC32();
+        long total = 0;
+        try {
+            while (true) {
+                int rowCount = data.readInt();
+                if (rowCount == 0) {
+                    return total; // 结束标记
+                }
+                int rawLength = data.readInt();
+                int compressedLength = data.readInt();
+                int expectedCrc = data.readInt();
+                if (rowCount < 0 || rawLength < 0 || rawLength > MAX_BLOCK_BYTES
+                        || compressedLength < 0 || compressedLength > MAX_BLOCK_BYTES) {
+                    throw new IOException("Corrupt columnar export block header");
+                }
+                byte[] compressed = new byte[compressedLength];
+                data.readFully(compressed);
+                byte[] raw = new byte[rawLength];
+                inflater.reset();
+                inflater.setInput(compressed);
+                try {
+                    if (inflater.inflate(raw) != rawLength) {
+                        throw new IOException("Truncated columnar export block");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt columnar export block", e);
+                }
+                crc.reset();
+                crc.update(raw);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Columnar export block checksum mismatch");
+                }
+                codec.decode(new BlockReader(raw), rowCount, sink);
+                total += rowCount;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Columnar export ends without an end marker", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 写出文件头（魔数与版本）
+     * Writes the file header: magic number and version.
+     */
+    static void writeHeader(DataOutput out, Codec<?> codec) throws IOException {
+        out.writeInt(codec.magic());
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * 写出结束标记（行数为 0 的块）
+     * Writes the end marker, a block with zero rows.
+     */
+    static void writeEndMarker(DataOutput out) throws IOException {
+        out.writeInt(0);
+    }
+
+    /**
+     * 列式导出写入器：按块缓存行，写满一块后编码、压缩并写出
+     * Buffers rows into blocks; each full block is encoded column by column, deflated and written.
+     */
+    static final class Writer<T> implements Closeable {
+        private final Codec<T> codec;
+        private final DataOutputStream out;
+        private final boolean framed; // 是否写出文件头与结束标记
+        private final List<T> block = new ArrayList<>(BLOCK_ROWS);
+        private final BlockBuffer raw = new BlockBuffer(1024 * 1024);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private byte[] compressed = new byte[64 * 1024];
+        private long count;
+
+        /**
+         * @param file The export file; replaced if it exists.
+         * @param codec The entity codec.
+         */
+        Writer(Path file, Codec<T> codec) throws IOException {
+            this(Files.newOutputStream(file), codec);
+        }
+
+        Writer(OutputStream out, Codec<T> codec) throws IOException {
+            this(out, codec, true);
+        }
+
+        /**
+         * @param out The destination; closed by {@link #close()}.
+         * @param codec The entity codec.
+         * @param framed Whether to write the file header and end marker. Unframed output is a bare
+         *               run of blocks, used for chunks that are concatenated between
+         *               {@link #writeHeader} and {@link #writeEndMarker}.
+         */
+        Writer(OutputStream out, Codec<T> codec, boolean framed) throws IOException {
+            this.codec = codec;
+            this.out = new DataOutputStream(new BufferedOutputStream(out, STREAM_BUFFER_BYTES));
+            this.framed = framed;
+            if (framed) {
+                writeHeader(this.out, codec);
+            }
+        }
+
+        void write(T row) throws IOException {
+            block.add(row);
+            count++;
+            if (block.size() == BLOCK_ROWS) {
+                writeBlock();
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        private void writeBlock() throws IOException {
+            raw.reset();
+            codec.encode(block, raw);
+            crc.reset();
+            crc.update(raw.array(), 0, raw.size());
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, raw.size());
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            out.writeInt(block.size());
+            out.writeInt(raw.size());
+            out.writeInt(compressedLength);
+            out.writeInt((int) crc.getValue());
+            out.write(compressed, 0, compressedLength);
+            block.clear();
+        }
+
+        /**
+         * 写出最后一个不满的块和结束标记并关闭文件
+         * Writes the last partial block and the end marker, then closes the file.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!block.isEmpty()) {
+                    writeBlock();
+                }
+                if (framed) {
+                    writeEndMarker(out);
+                }
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 日志列：ID、时间戳、操作者、操作者类型、操作、详情
+     * Log columns: ID, timestamp, actor username, actor type, action, details.
+     */
+    private static final class LogCodec implements Codec<OperationLog> {
+        @Override
+        public int magic() {
+            return 0x424C4F47; // "BLOG"
+        }
+
+        @Override
+        public void encode(List<OperationLog> rows, BlockBuffer out) {
+            writeIds(rows, OperationLog::getLogId, out);
+            writeTimestamps(rows, OperationLog::getTimestamp, out);
+            writeStrings(rows, OperationLog::getActorUsername, out);
+            writeStrings(rows, log -> log.getActorType().name(), out);
+            writeStrings(rows, OperationLog::getAction, out);
+            writeStrings(rows, OperationLog::getDetails, out);
+        }
+
+        @Override
+        public void decode(BlockReader in, int rowCount, Consumer<? super OperationLog> sink) throws IOException {
+            String[] ids = readIds(in, rowCount);
+            LocalDateTime[] timestamps = readTimestamps(in, rowCount);
+            String[] usernames = readStrings(in, rowCount);
+            String[] actorTypes = readStrings(in, rowCount);
+            String[] actions = readStrings(in, rowCount);
+            String[] details = readStrings(in, rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                sink.accept(new OperationLog(ids[i], timestamps[i], usernames[i], ActorType.valueOf(actorTypes[i]),
+                        actions[i], details[i]));
+            }
+        }
+    }
+
+    /**
+     * 交易记录列：ID、用户ID、账号、类型、金额、余额、时间戳、描述、关联账号
+     * Transaction columns: ID, user ID, account, type, amount, balance, timestamp, description,
+     * related account.
+     */
+    private static final class TransactionCodec implements Codec<TransactionRecord> {
+        @Override
+        public int magic() {
+            return 0x4254584E; // "BTXN"
+        }
+
+        @Override
+        public void encode(List<TransactionRecord> rows, BlockBuffer out) {
+            writeIds(rows, TransactionRecord::getTransactionId, out);
+            writeStrings(rows, TransactionRecord::getUserId, out);
+            writeStrings(rows, TransactionRecord::getAccountNumber, out);
+            writeStrings(rows, transaction -> transaction.getType().name(), out);
+            writeAmounts(rows, TransactionRecord::getAmount, out);
+            writeAmounts(rows, TransactionRecord::getBalanceAfterTransaction, out);
+            writeTimestamps(rows, TransactionRecord::getTimestamp, out);
+            writeStrings(rows, TransactionRecord::getDescription, out);
+            writeStrings(rows, TransactionRecord::getRelatedAccountNumber, out);
+        }
+
+        @Override
+        public void decode(BlockReader in, int rowCount, Consumer<? super TransactionRecord> sink) throws IOException {
+            String[] ids = readIds(in, rowCount);
+            String[] userIds = readStrings(in, rowCount);
+            String[] accounts = readStrings(in, rowCount);
+            String[] types = readStrings(in, rowCount);
+            double[] amounts = readAmounts(in, rowCount);
+            double[] balances = readAmounts(in, rowCount);
+            LocalDateTime[] timestamps = readTimestamps(in, rowCount);
+            String[] descriptions = readStrings(in, rowCount);
+            String[] related = readStrings(in, rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                sink.accept(new TransactionRecord(ids[i], userIds[i], accounts[i], TransactionType.valueOf(types[i]),
+                        amounts[i], balances[i], timestamps[i], descriptions[i], related[i]));
+            }
+        }
+    }
+
+    // --- 列编码 ---
+
+    // ID 列：规范格式的 UUID 存为两个 long，其他 ID 存为字符串
+    private static <T> void writeIds(List<T> rows, Function<T, String> getter, BlockBuffer out) {
+        for (T row : rows) {
+            String id = getter.apply(row);
+            UUID uuid = parseCanonicalUuid(id);
+            if (uuid != null) {
+                out.write(1);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else {
+                out.write(0);
+                out.writeString(id);
+            }
+        }
+    }
+
+    private static String[] readIds(BlockReader in, int rowCount) throws IOException {
+        String[] ids = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            ids[i] = in.readByte() == 1 ? new UUID(in.readLong(), in.readLong()).toString() : in.readString();
+        }
+        return ids;
+    }
+
+    // 时间戳列：与上一行的秒数差（zigzag 变长整数）加纳秒
+    private static <T> void writeTimestamps(List<T> rows, Function<T, LocalDateTime> getter, BlockBuffer out) {
+        long previous = 0;
+        for (T row : rows) {
+            LocalDateTime timestamp = getter.apply(row);
+            long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+            out.writeVarLong(zigzag(seconds - previous));
+            out.writeVarLong(timestamp.getNano());
+            previous = seconds;
+        }
+    }
+
+    private static LocalDateTime[] readTimestamps(BlockReader in, int rowCount) throws IOException {
+        LocalDateTime[] timestamps = new LocalDateTime[rowCount];
+        long seconds = 0;
+        for (int i = 0; i < rowCount; i++) {
+            seconds += unzigzag(in.readVarLong());
+            timestamps[i] = LocalDateTime.ofEpochSecond(seconds, (int) in.readVarLong(), ZoneOffset.UTC);
+        }
+        return timestamps;
+    }
+
+    // 字符串列：块内字典 + 每行的字典下标（0 表示 null）
+    private static <T> void writeStrings(List<T> rows, Function<T, String> getter, BlockBuffer out) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] indexes = new int[rows.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            String value = getter.apply(rows.get(i));
+            if (value != null) {
+                Integer index = dictionary.get(value);
+                if (index == null) {
+                    index = entries.size() + 1;
+                    dictionary.put(value, index);
+                    entries.add(value);
+                }
+                indexes[i] = index;
+            }
+        }
+        out.writeVarLong(entries.size());
+        for (String entry : entries) {
+            out.writeString(entry);
+        }
+        for (int index : indexes) {
+            out.writeVarLong(index);
+        }
+    }
+
+    private static String[] readStrings(BlockReader in, int rowCount) throws IOException {
+        int size = (int) in.readVarLong();
+        String[] entries = new String[size + 1];
+        for (int i = 1; i <= size; i++) {
+            entries[i] = in.readString();
+        }
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            long index = in.readVarLong();
+            if (index > size) {
+                throw new IOException("Dictionary index out of range: " + index);
+            }
+            values[i] = entries[(int) index];
+        }
+        return values;
+    }
+
+    // 金额列：全部是整分时存为以分为单位的变长整数，否则存原始 double
+    private static <T> void writeAmounts(List<T> rows, ToDoubleFunction<T> getter, BlockBuffer out) {
+        boolean wholeCents = true;
+        for (int i = 0; i < rows.size() && wholeCents; i++) {
+            double amount = getter.applyAsDouble(rows.get(i));
+            wholeCents = MoneyUtil.isValidAmount(amount) && MoneyUtil.toAmount(MoneyUtil.toMinorUnits(amount)) == amount;
+        }
+        out.write(wholeCents ? 1 : 0);
+        for (T row : rows) {
+            double amount = getter.applyAsDouble(row);
+            if (wholeCents) {
+                out.writeVarLong(zigzag(MoneyUtil.toMinorUnits(amount)));
+            } else {
+                out.writeLong(Double.doubleToRawLongBits(amount));
+            }
+        }
+    }
+
+    private static double[] readAmounts(BlockReader in, int rowCount) throws IOException {
+        boolean wholeCents = in.readByte() == 1;
+        double[] amounts = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            amounts[i] = wholeCents
+                    ? MoneyUtil.toAmount(unzigzag(in.readVarLong()))
+                    : Double.longBitsToDouble(in.readLong());
+        }
+        return amounts;
+    }
+
+    /**
+     * 解析小写规范格式的 UUID（8-4-4-4-12），其他格式返回 null 以便按字符串原样保存
+     * Parses a UUID in lowercase canonical 8-4-4-4-12 form; anything else returns null so the ID
+     * is stored verbatim as a string.
+     */
+    private static UUID parseCanonicalUuid(String id) {
+        if (id == null || id.length() != 36
+                || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        long high = 0;
+        long low = 0;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            char c = id.charAt(i);
+            int nibble;
+            if (c >= '0' && c <= '9') {
+                nibble = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                nibble = c - 'a' + 10;
+            } else {
+                return null;
+            }
+            if (digits++ < 16) {
+                high = (high << 4) | nibble;
+            } else {
+                low = (low << 4) | nibble;
+            }
+        }
+        return new UUID(high, low);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 块编码缓冲（非同步，按需扩容）
+     * Growable, unsynchronized buffer for one block's raw column data.
+     */
+    static final class BlockBuffer {
+        private byte[] buf;
+        private int size;
+
+        BlockBuffer(int initialSize) {
+            buf = new byte[initialSize];
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void write(int b) {
+            ensureCapacity(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeLong(long v) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeVarLong(long v) {
+            ensureCapacity(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+
+    /**
+     * 块解码读取器
+     * Reads one block's raw column data.
+     */
+    static final class BlockReader {
+        private final byte[] data;
+        private int position;
+
+        BlockReader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Columnar export block is truncated");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readLong() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | readByte();
+            }
+            return v;
+        }
+
+        long readVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IOException("Malformed variable-length integer");
+        }
+
+        String readString() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IOException("String length out of range: " + length);
+            }
+            String s = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return s;
+        }
+    }
+}
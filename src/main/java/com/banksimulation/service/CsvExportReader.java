@@ -0,0 +1,177 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * CSV 导出文件读取器
+ * Parses the CSV written by {@link TextExportWriter} back into entities. Quoted fields may contain
+ * commas, doubled quotes and line breaks. Timestamps in CSV have second precision, so rows read
+ * back carry whole seconds; the columnar format keeps the full timestamp.
+ */
+final class CsvExportReader {
+
+    private static final int BUFFER_CHARS = 256 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private final StringBuilder field = new StringBuilder(128);
+    private int position;
+    private int limit;
+    private long line = 1;
+
+    private CsvExportReader(InputStream in) {
+        this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取日志 CSV
+     * Reads a log CSV export.
+     * @return The number of rows read.
+     */
+    static long readLogs(InputStream in, Consumer<? super OperationLog> sink) throws IOException {
+        CsvExportReader csv = new CsvExportReader(in);
+        List<String> fields = new ArrayList<>(6);
+        csv.expectHeader(fields, TextExportWriter.LOG_CSV_HEADER);
+        long count = 0;
+        while (csv.next(fields)) {
+            csv.expectFieldCount(fields, 6);
+            try {
+                sink.accept(new OperationLog(fields.get(0), parseTimestamp(fields.get(1)), fields.get(2),
+                        ActorType.valueOf(fields.get(3)), fields.get(4), fields.get(5)));
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid log row near line " + csv.line + ": " + e.getMessage(), e);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 读取交易记录 CSV
+     * Reads a transaction CSV export. An empty related account is read as null.
+     * @return The number of rows read.
+     */
+    static long readTransactions(InputStream in, Consumer<? super TransactionRecord> sink) throws IOException {
+        CsvExportReader csv = new CsvExportReader(in);
+        List<String> fields = new ArrayList<>(9);
+        csv.expectHeader(fields, TextExportWriter.TRANSACTION_CSV_HEADER);
+        long count = 0;
+        while (csv.next(fields)) {
+            csv.expectFieldCount(fields, 9);
+            try {
+                String related = fields.get(7);
+                sink.accept(new TransactionRecord(fields.get(0), fields.get(1), fields.get(2),
+                        TransactionType.valueOf(fields.get(3)), Double.parseDouble(fields.get(4)),
+                        Double.parseDouble(fields.get(5)), parseTimestamp(fields.get(6)), fields.get(8),
+                        related.isEmpty() ? null : related));
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid transaction row near line " + csv.line + ": " + e.getMessage(), e);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void expectHeader(List<String> fields, String header) throws IOException {
+        if (!next(fields) || !String.join(",", fields).equals(header)) {
+            throw new IOException("Not a CSV export of the expected kind (header mismatch)");
+        }
+    }
+
+    private void expectFieldCount(List<String> fields, int expected) throws IOException {
+        if (fields.size() != expected) {
+            throw new IOException("Expected " + expected + " fields near line " + line + " but found " + fields.size());
+        }
+    }
+
+    /**
+     * 读取下一条记录
+     * Reads the next record into {@code fields}.
+     * @return false at end of input.
+     */
+    private boolean next(List<String> fields) throws IOException {
+        fields.clear();
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                // 带引号的字段：读到单独的引号为止，成对的引号表示一个引号字符
+                while (true) {
+                    c = read();
+                    if (c < 0) {
+                        throw new IOException("Unterminated quoted field near line " + line);
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    field.append((char) c);
+                }
+            } else {
+                while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n' && c >= 0) {
+                    position--; // 单独的 \r 也视为行结束，退回下一个字符
+                }
+            }
+            return true;
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /**
+     * 解析 yyyy-MM-dd HH:mm:ss 格式的时间戳
+     * Parses a {@code yyyy-MM-dd HH:mm:ss} timestamp without a formatter.
+     */
+    private static LocalDateTime parseTimestamp(String text) {
+        if (text.length() != 19) {
+            throw new IllegalArgumentException("Invalid timestamp: " + text);
+        }
+        return LocalDateTime.of(Integer.parseInt(text, 0, 4, 10), Integer.parseInt(text, 5, 7, 10),
+                Integer.parseInt(text, 8, 10, 10), Integer.parseInt(text, 11, 13, 10),
+                Integer.parseInt(text, 14, 16, 10), Integer.parseInt(text, 17, 19, 10));
+    }
+}
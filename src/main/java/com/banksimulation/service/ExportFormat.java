@@ -0,0 +1,99 @@
+package com.banksimulation.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出文件格式
+ * Formats for log and transaction exports. Text formats can be gzip-compressed; {@link #BIN} is
+ * the compact columnar format of {@link ColumnarExportFile}, which compresses its blocks itself.
+ */
+enum ExportFormat {
+    CSV(false), TXT(false), CSV_GZ(true), TXT_GZ(true), BIN(false);
+
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    private final boolean gzip;
+
+    ExportFormat(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * 解析格式名（不区分大小写，"CSV.GZ" 与 "CSV_GZ" 等价）
+     * Parses a format name, case-insensitively; {@code "CSV.GZ"} and {@code "CSV_GZ"} are equivalent.
+     * @return The format, or null if unsupported.
+     */
+    static ExportFormat parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = name.trim().replace('.', '_');
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(normalized)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    boolean isCsv() {
+        return this == CSV || this == CSV_GZ;
+    }
+
+    boolean isColumnar() {
+        return this == BIN;
+    }
+
+    /**
+     * 打开文本导出的输出通道（按需套上 gzip）
+     * Opens the output channel for a text export, replacing the file, gzip-compressed if the
+     * format asks for it. Closing the channel finishes the gzip stream and closes the file.
+     */
+    WritableByteChannel openTextOutput(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (!gzip) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_BYTES));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 包装文本输出流（按需套上 gzip）
+     * Wraps an output stream as the channel for text output, gzip-compressed if the format asks
+     * for it. Each wrapped stream is a complete gzip member, so compressed chunks can simply be
+     * concatenated.
+     */
+    WritableByteChannel textChannel(OutputStream out) throws IOException {
+        return Channels.newChannel(gzip ? new GZIPOutputStream(out, GZIP_BUFFER_BYTES) : out);
+    }
+
+    /**
+     * 打开待导入的文件：gzip 压缩的文件自动解压
+     * Opens an export file for import, transparently decompressing it if it is gzip-compressed.
+     */
+    static InputStream openForImport(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), GZIP_BUFFER_BYTES);
+        in.mark(2);
+        int magic = (in.read() << 8) | in.read();
+        in.reset();
+        return magic == GZIP_MAGIC ? new BufferedInputStream(new GZIPInputStream(in, GZIP_BUFFER_BYTES), GZIP_BUFFER_BYTES) : in;
+    }
+}
@@ -0,0 +1,142 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.util.BoundedLruMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录失败记录聚合器
+ * Aggregates repeated login failures into few log entries. The first failure of a kind for a
+ * username within a window is logged as before; further ones in the same window are only counted
+ * and written as one summary entry when the window has passed (on the next failure), when the
+ * username logs in successfully, when the entry is evicted from the bounded map, or on
+ * {@link #flush()}. Failures not tied to one username are recorded for {@link ActorType#SYSTEM}
+ * and logged as system actions.
+ */
+final class FailedLoginTracker {
+
+    static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_TRACKED_USERNAMES = 10_000;
+
+    private final LoggingService loggingService;
+    private final List<Window> evicted = new ArrayList<>(); // 因超出容量被移除、待写出汇总的窗口
+    private final BoundedLruMap<String, Map<String, Window>> windows; // 键为 角色:用户名，值按失败类型分组
+
+    FailedLoginTracker(LoggingService loggingService) {
+        this.loggingService = loggingService;
+        this.windows = new BoundedLruMap<>(MAX_TRACKED_USERNAMES, (key, byAction) -> evicted.addAll(byAction.values()));
+    }
+
+    /**
+     * 某个用户名的一种失败在当前窗口内的统计
+     * The failures of one kind for one username in the current window.
+     */
+    private static final class Window {
+        private final ActorType actorType;
+        private final String username;
+        private final String action;
+        private final long startNanos;
+        private int suppressed; // 窗口内未单独记录的失败次数
+
+        private Window(ActorType actorType, String username, String action, long startNanos) {
+            this.actorType = actorType;
+            this.username = username;
+            this.action = action;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * 记录一次登录失败
+     * Records a failed login, logging it unless the same failure was already logged for this
+     * username in the current window.
+     * @param action The log action, e.g. {@code "Login failed: Invalid credentials"}.
+     * @param details The log details used if this failure is logged on its own.
+     */
+    void recordFailure(ActorType actorType, String username, String action, String details) {
+        long now = System.nanoTime();
+        List<Window> summaries = new ArrayList<>();
+        boolean logThis;
+        synchronized (this) {
+            Map<String, Window> byAction = windows.computeIfAbsent(key(actorType, username), k -> new LinkedHashMap<>(4));
+            Window window = byAction.get(action);
+            if (window != null && now - window.startNanos < WINDOW_NANOS) {
+                window.suppressed++;
+                logThis = false;
+            } else {
+                if (window != null) {
+                    summaries.add(window);
+                }
+                byAction.put(action, new Window(actorType, username, action, now));
+                logThis = true;
+            }
+            takeEvicted(summaries);
+        }
+        writeSummaries(summaries, now);
+        if (logThis) {
+            log(actorType, username, action, details);
+        }
+    }
+
+    /**
+     * 登录成功：写出该用户名尚未写出的失败汇总并清除统计
+     * Writes the pending summaries of a username after it logged in and forgets its failures.
+     */
+    void recordSuccess(ActorType actorType, String username) {
+        List<Window> summaries = new ArrayList<>();
+        synchronized (this) {
+            Map<String, Window> byAction = windows.remove(key(actorType, username));
+            if (byAction != null) {
+                summaries.addAll(byAction.values());
+            }
+            takeEvicted(summaries);
+        }
+        writeSummaries(summaries, System.nanoTime());
+    }
+
+    /**
+     * 写出所有尚未写出的失败汇总（如关闭服务时）
+     * Writes every pending summary, e.g. on shutdown.
+     */
+    void flush() {
+        List<Window> summaries = new ArrayList<>();
+        synchronized (this) {
+            windows.values().forEach(byAction -> summaries.addAll(byAction.values()));
+            windows.clear();
+            takeEvicted(summaries);
+        }
+        writeSummaries(summaries, System.nanoTime());
+    }
+
+    private void takeEvicted(List<Window> summaries) {
+        summaries.addAll(evicted);
+        evicted.clear();
+    }
+
+    private void writeSummaries(List<Window> summaries, long now) {
+        for (Window window : summaries) {
+            if (window.suppressed > 0) {
+                long seconds = TimeUnit.NANOSECONDS.toSeconds(now - window.startNanos);
+                log(window.actorType, window.username, window.action, window.suppressed
+                        + " more attempt(s) in the " + seconds + "s after the first.");
+            }
+        }
+    }
+
+    private void log(ActorType actorType, String username, String action, String details) {
+        switch (actorType) {
+            case ADMIN -> loggingService.logAdminAction(username, action, details);
+            case SYSTEM -> loggingService.logSystemAction(action, details);
+            default -> loggingService.logUserAction(username, action, details);
+        }
+    }
+
+    private static String key(ActorType actorType, String username) {
+        return actorType.name() + ':' + username;
+    }
+}
@@ -0,0 +1,267 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.ChangeBatch;
+import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.User;
+import com.banksimulation.metrics.MetricsRegistry;
+import com.banksimulation.metrics.OperationMetrics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 带指标统计的管理员服务
+ * {@link AdminService} that records every public operation in a {@link MetricsRegistry}: latency
+ * under {@code admin.<method>} and failed calls under {@code admin.<method>.failed}. Permission
+ * checks such as {@link #isTopLevelAdmin(String)} never count as failed; the short export overload
+ * is recorded through the full one.
+ */
+public class InstrumentedAdminService extends AdminService {
+
+    private final OperationMetrics isTopLevelAdminMetrics;
+    private final OperationMetrics getAdminByUsernameMetrics;
+    private final OperationMetrics createUserMetrics;
+    private final OperationMetrics modifyUserInfoMetrics;
+    private final OperationMetrics toggleUserLoginStatusMetrics;
+    private final OperationMetrics modifyUserPermissionsMetrics;
+    private final OperationMetrics deleteUserMetrics;
+    private final OperationMetrics getAllUsersMetrics;
+    private final OperationMetrics getAllTransactionsMetrics;
+    private final OperationMetrics queryTransactionsMetrics;
+    private final OperationMetrics countTransactionsMetrics;
+    private final OperationMetrics getTransactionChangesMetrics;
+    private final OperationMetrics getTransactionSequenceMetrics;
+    private final OperationMetrics exportTransactionsMetrics;
+    private final OperationMetrics importTransactionsMetrics;
+    private final OperationMetrics importLogsMetrics;
+
+    public InstrumentedAdminService(DataAccessObject dao, LoggingService loggingService, SessionManager sessionManager,
+                                    MetricsRegistry registry) {
+        super(dao, loggingService, sessionManager);
+        this.isTopLevelAdminMetrics = new OperationMetrics(registry, "admin.isTopLevelAdmin");
+        this.getAdminByUsernameMetrics = new OperationMetrics(registry, "admin.getAdminByUsername");
+        this.createUserMetrics = new OperationMetrics(registry, "admin.createUser");
+        this.modifyUserInfoMetrics = new OperationMetrics(registry, "admin.modifyUserInfo");
+        this.toggleUserLoginStatusMetrics = new OperationMetrics(registry, "admin.toggleUserLoginStatus");
+        this.modifyUserPermissionsMetrics = new OperationMetrics(registry, "admin.modifyUserPermissions");
+        this.deleteUserMetrics = new OperationMetrics(registry, "admin.deleteUser");
+        this.getAllUsersMetrics = new OperationMetrics(registry, "admin.getAllUsers");
+        this.getAllTransactionsMetrics = new OperationMetrics(registry, "admin.getAllTransactions");
+        this.queryTransactionsMetrics = new OperationMetrics(registry, "admin.queryTransactions");
+        this.countTransactionsMetrics = new OperationMetrics(registry, "admin.countTransactions");
+        this.getTransactionChangesMetrics = new OperationMetrics(registry, "admin.getTransactionChanges");
+        this.getTransactionSequenceMetrics = new OperationMetrics(registry, "admin.getTransactionSequence");
+        this.exportTransactionsMetrics = new OperationMetrics(registry, "admin.exportTransactions");
+        this.importTransactionsMetrics = new OperationMetrics(registry, "admin.importTransactions");
+        this.importLogsMetrics = new OperationMetrics(registry, "admin.importLogs");
+    }
+
+    @Override
+    public boolean isTopLevelAdmin(String adminUsername) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            boolean result = super.isTopLevelAdmin(adminUsername);
+            ok = true;
+            return result;
+        } finally {
+            isTopLevelAdminMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<Admin> getAdminByUsername(String username) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<Admin> result = super.getAdminByUsername(username);
+            ok = true;
+            return result;
+        } finally {
+            getAdminByUsernameMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean createUser(String actingAdminUsername, User newUser) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.createUser(actingAdminUsername, newUser);
+            return ok;
+        } finally {
+            createUserMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean modifyUserInfo(String actingAdminUsername, String targetUsername, User updatedInfo) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.modifyUserInfo(actingAdminUsername, targetUsername, updatedInfo);
+            return ok;
+        } finally {
+            modifyUserInfoMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean toggleUserLoginStatus(String actingAdminUsername, String targetUsername, boolean isActive) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.toggleUserLoginStatus(actingAdminUsername, targetUsername, isActive);
+            return ok;
+        } finally {
+            toggleUserLoginStatusMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean modifyUserPermissions(String actingAdminUsername, String targetUsername, Map<String, Boolean> newPermissions) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.modifyUserPermissions(actingAdminUsername, targetUsername, newPermissions);
+            return ok;
+        } finally {
+            modifyUserPermissionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean deleteUser(String actingAdminUsername, String targetUsername) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.deleteUser(actingAdminUsername, targetUsername);
+            return ok;
+        } finally {
+            deleteUserMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers(String adminUsername) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            List<User> result = super.getAllUsers(adminUsername);
+            ok = true;
+            return result;
+        } finally {
+            getAllUsersMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions(String adminUsername) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            List<TransactionRecord> result = super.getAllTransactions(adminUsername);
+            ok = true;
+            return result;
+        } finally {
+            getAllTransactionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public TransactionPage queryTransactions(String adminUsername, TransactionQuery query) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            TransactionPage result = super.queryTransactions(adminUsername, query);
+            ok = true;
+            return result;
+        } finally {
+            queryTransactionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public int countTransactions(String adminUsername, TransactionQuery query) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            int result = super.countTransactions(adminUsername, query);
+            ok = true;
+            return result;
+        } finally {
+            countTransactionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public ChangeBatch<TransactionRecord> getTransactionChanges(String adminUsername, long afterSequence) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ChangeBatch<TransactionRecord> result = super.getTransactionChanges(adminUsername, afterSequence);
+            ok = true;
+            return result;
+        } finally {
+            getTransactionChangesMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public long getTransactionSequence(String adminUsername) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            long result = super.getTransactionSequence(adminUsername);
+            ok = true;
+            return result;
+        } finally {
+            getTransactionSequenceMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean exportTransactions(String adminUsername, String filePath, String format,
+                                      LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.exportTransactions(adminUsername, filePath, format, from, to);
+            return ok;
+        } finally {
+            exportTransactionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public long importTransactions(String actingAdminUsername, String filePath) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            long result = super.importTransactions(actingAdminUsername, filePath);
+            ok = result >= 0;
+            return result;
+        } finally {
+            importTransactionsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public long importLogs(String actingAdminUsername, String filePath) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            long result = super.importLogs(actingAdminUsername, filePath);
+            ok = result >= 0;
+            return result;
+        } finally {
+            importLogsMetrics.record(start, ok);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.User;
+import com.banksimulation.metrics.MetricsRegistry;
+import com.banksimulation.metrics.OperationMetrics;
+
+import java.util.Optional;
+
+/**
+ * 带指标统计的认证服务
+ * {@link AuthenticationService} that records every public operation in a {@link MetricsRegistry}:
+ * latency under {@code auth.<method>} and failed calls under {@code auth.<method>.failed}. A
+ * session login is recorded both as itself and as the plain login it performs.
+ */
+public class InstrumentedAuthenticationService extends AuthenticationService {
+
+    private final OperationMetrics registerUserMetrics;
+    private final OperationMetrics loginUserMetrics;
+    private final OperationMetrics loginAdminMetrics;
+    private final OperationMetrics loginUserSessionMetrics;
+    private final OperationMetrics loginAdminSessionMetrics;
+    private final OperationMetrics logoutMetrics;
+
+    public InstrumentedAuthenticationService(DataAccessObject dao, LoggingService loggingService,
+                                             PasswordVerificationPool verificationPool, SessionManager sessionManager,
+                                             LoginRateLimiter rateLimiter, MetricsRegistry registry) {
+        super(dao, loggingService, verificationPool, sessionManager, rateLimiter);
+        this.registerUserMetrics = new OperationMetrics(registry, "auth.registerUser");
+        this.loginUserMetrics = new OperationMetrics(registry, "auth.loginUser");
+        this.loginAdminMetrics = new OperationMetrics(registry, "auth.loginAdmin");
+        this.loginUserSessionMetrics = new OperationMetrics(registry, "auth.loginUserSession");
+        this.loginAdminSessionMetrics = new OperationMetrics(registry, "auth.loginAdminSession");
+        this.logoutMetrics = new OperationMetrics(registry, "auth.logout");
+    }
+
+    @Override
+    public boolean registerUser(User user) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.registerUser(user);
+            return ok;
+        } finally {
+            registerUserMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<User> loginUser(String username, String password) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<User> result = super.loginUser(username, password);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            loginUserMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<Admin> loginAdmin(String username, String password) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<Admin> result = super.loginAdmin(username, password);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            loginAdminMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<SessionToken> loginUserSession(String username, String password) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<SessionToken> result = super.loginUserSession(username, password);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            loginUserSessionMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<SessionToken> loginAdminSession(String username, String password) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<SessionToken> result = super.loginAdminSession(username, password);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            loginAdminSessionMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public void logout(SessionToken token) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            super.logout(token);
+            ok = true;
+        } finally {
+            logoutMetrics.record(start, ok);
+        }
+    }
+}
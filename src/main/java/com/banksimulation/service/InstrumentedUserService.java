@@ -0,0 +1,219 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
+import com.banksimulation.entity.User;
+import com.banksimulation.metrics.MetricsRegistry;
+import com.banksimulation.metrics.OperationMetrics;
+import com.banksimulation.util.AccountLockManager;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 带指标统计的用户服务
+ * {@link UserService} that records every public operation in a {@link MetricsRegistry}: latency
+ * under {@code user.<method>} and failed calls under {@code user.<method>.failed}. The username
+ * and session variants of an operation share its metrics; a batch transfer counts as failed if any
+ * of its items was rejected.
+ */
+public class InstrumentedUserService extends UserService {
+
+    private final OperationMetrics depositMetrics;
+    private final OperationMetrics withdrawMetrics;
+    private final OperationMetrics transferMetrics;
+    private final OperationMetrics transferBatchMetrics;
+    private final OperationMetrics checkBalanceMetrics;
+    private final OperationMetrics updatePasswordMetrics;
+    private final OperationMetrics getTransactionHistoryMetrics;
+    private final OperationMetrics getUserDetailsMetrics;
+
+    public InstrumentedUserService(DataAccessObject dao, LoggingService loggingService, AccountLockManager lockManager,
+                                   SessionManager sessionManager, MetricsRegistry registry) {
+        super(dao, loggingService, lockManager, sessionManager);
+        this.depositMetrics = new OperationMetrics(registry, "user.deposit");
+        this.withdrawMetrics = new OperationMetrics(registry, "user.withdraw");
+        this.transferMetrics = new OperationMetrics(registry, "user.transfer");
+        this.transferBatchMetrics = new OperationMetrics(registry, "user.transferBatch");
+        this.checkBalanceMetrics = new OperationMetrics(registry, "user.checkBalance");
+        this.updatePasswordMetrics = new OperationMetrics(registry, "user.updatePassword");
+        this.getTransactionHistoryMetrics = new OperationMetrics(registry, "user.getTransactionHistory");
+        this.getUserDetailsMetrics = new OperationMetrics(registry, "user.getUserDetails");
+    }
+
+    @Override
+    public boolean deposit(String username, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.deposit(username, amount);
+            return ok;
+        } finally {
+            depositMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean deposit(SessionToken session, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.deposit(session, amount);
+            return ok;
+        } finally {
+            depositMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean withdraw(String username, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.withdraw(username, amount);
+            return ok;
+        } finally {
+            withdrawMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean withdraw(SessionToken session, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.withdraw(session, amount);
+            return ok;
+        } finally {
+            withdrawMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean transfer(String senderUsername, String receiverAccountNumber, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.transfer(senderUsername, receiverAccountNumber, amount);
+            return ok;
+        } finally {
+            transferMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean transfer(SessionToken session, String receiverAccountNumber, double amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.transfer(session, receiverAccountNumber, amount);
+            return ok;
+        } finally {
+            transferMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public List<TransferResult> transferBatch(List<TransferRequest> requests) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            List<TransferResult> result = super.transferBatch(requests);
+            ok = result.stream().allMatch(TransferResult::isSuccess);
+            return result;
+        } finally {
+            transferBatchMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<Double> checkBalance(String username) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<Double> result = super.checkBalance(username);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            checkBalanceMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<Double> checkBalance(SessionToken session) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<Double> result = super.checkBalance(session);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            checkBalanceMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public boolean updatePassword(String username, String oldPassword, String newPassword) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = super.updatePassword(username, oldPassword, newPassword);
+            return ok;
+        } finally {
+            updatePasswordMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public TransactionPage getTransactionHistory(String username, TransactionQuery query) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            TransactionPage result = super.getTransactionHistory(username, query);
+            ok = true;
+            return result;
+        } finally {
+            getTransactionHistoryMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public TransactionPage getTransactionHistory(SessionToken session, TransactionQuery query) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            TransactionPage result = super.getTransactionHistory(session, query);
+            ok = true;
+            return result;
+        } finally {
+            getTransactionHistoryMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserDetails(String username) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<User> result = super.getUserDetails(username);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            getUserDetailsMetrics.record(start, ok);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserDetails(SessionToken session) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Optional<User> result = super.getUserDetails(session);
+            ok = result.isPresent();
+            return result;
+        } finally {
+            getUserDetailsMetrics.record(start, ok);
+        }
+    }
+}
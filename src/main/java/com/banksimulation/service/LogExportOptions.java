@@ -0,0 +1,94 @@
+package com.banksimulation.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 日志导出选项
+ * Options for {@link LoggingService#exportLogs(String, String, LogExportOptions)}. By default all
+ * logs are exported sequentially into one file. Setters return {@code this} so options can be
+ * built in one expression.
+ */
+public class LogExportOptions {
+
+    private LocalDateTime from;       // 起始时间（含）
+    private LocalDateTime to;         // 结束时间（不含）
+    private int parallelism = 1;      // 并行格式化的线程数，1 表示顺序导出
+    private boolean sharded;          // 是否每个分段写入单独的文件
+    private boolean manifest;         // 是否写出清单文件
+
+    public LogExportOptions() {
+    }
+
+    // Getters
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public boolean isManifest() {
+        return manifest;
+    }
+
+    // Setters
+    /**
+     * 设置时间范围 [from, to)，任一端为 null 表示不限
+     * Sets the time range [from, to); either bound may be null for an open range.
+     */
+    public LogExportOptions setTimeRange(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * 设置并行度：大于 1 时日志被切分成多段，在 ForkJoinPool 上并行格式化
+     * Sets how many threads format the export. Above 1 the logs are split into chunks formatted
+     * in parallel on a ForkJoinPool.
+     */
+    public LogExportOptions setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 以可用处理器数作为并行度
+     * Uses one thread per available processor.
+     */
+    public LogExportOptions setParallelismToAvailableProcessors() {
+        return setParallelism(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 设置是否分片输出：每个分片是一个可单独导入的完整文件（如 logs.part-00000.csv）
+     * Writes one complete, separately importable file per shard (e.g. {@code logs.part-00000.csv})
+     * instead of a single concatenated file.
+     */
+    public LogExportOptions setSharded(boolean sharded) {
+        this.sharded = sharded;
+        return this;
+    }
+
+    /**
+     * 设置是否写出清单文件（导出文件名加 .manifest）
+     * Also writes a manifest listing each output file with its row count, size and CRC-32, next to
+     * the export as {@code <file>.manifest}.
+     */
+    public LogExportOptions setManifest(boolean manifest) {
+        this.manifest = manifest;
+        return this;
+    }
+}
@@ -1,13 +1,17 @@
 package com.banksimulation.service;
 
+import com.banksimulation.dao.ChangeBatch;
 import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.LogPage;
+import com.banksimulation.dao.LogQuery;
 import com.banksimulation.entity.ActorType;
 import com.banksimulation.entity.OperationLog;
+import com.banksimulation.util.DiagnosticLogger;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.time.format.DateTimeFormatter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -16,8 +20,14 @@ import java.util.List;
  */
 public class LoggingService {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(LoggingService.class);
+
+    /** 异步模式下默认的缓冲区容量 / Default buffer capacity in asynchronous mode. */
+    public static final int DEFAULT_ASYNC_CAPACITY = 8192;
+
+
     private final DataAccessObject dao;
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private volatile AsyncLogWriter asyncWriter; // 为 null 时在调用方线程上同步写入日志
 
     public LoggingService(DataAccessObject dao) {
         this.dao = dao;
@@ -34,6 +44,87 @@ public class LoggingService {
         return dao;
     }
 
+    /**
+     * 启用异步批量日志模式
+     * Switches to asynchronous logging: log calls only enqueue the event, and a background
+     * writer inserts them into the DAO in batches.
+     * @param capacity The ring buffer capacity (rounded up to a power of two).
+     * @param policy What callers do when the buffer is full.
+     */
+    public synchronized void enableAsync(int capacity, AsyncLogWriter.BackpressurePolicy policy) {
+        if (asyncWriter != null) {
+            asyncWriter.shutdown();
+        }
+        asyncWriter = new AsyncLogWriter(dao, capacity, policy);
+    }
+
+    /**
+     * 等待所有已提交的异步日志写入完成
+     * Blocks until all asynchronously submitted logs are visible in the DAO. No-op in synchronous mode.
+     */
+    public void flush() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 关闭异步日志写入器并写出剩余日志，之后恢复同步写入
+     * Drains pending logs, stops the background writer and reverts to synchronous logging.
+     */
+    public synchronized void shutdown() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.shutdown();
+            asyncWriter = null;
+        }
+    }
+
+    /**
+     * @return The number of logs waiting to be written; always 0 in synchronous mode.
+     */
+    public int getPendingLogCount() {
+        AsyncLogWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.getPendingCount();
+    }
+
+    /**
+     * @return The number of logs dropped because the asynchronous buffer was full; always 0 in
+     *         synchronous mode.
+     */
+    public long getDroppedLogCount() {
+        AsyncLogWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.getDroppedCount();
+    }
+
+    private void record(String actorUsername, ActorType actorType, String action, String details) {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.submit(actorUsername, actorType, action, details);
+        } else {
+            dao.saveLog(new OperationLog(actorUsername, actorType, action, details));
+        }
+    }
+
+    /**
+     * 批量记录已创建的日志
+     * Records already created log entries as one batch: a single bulk insert in synchronous mode,
+     * or one enqueue pass in asynchronous mode.
+     * @param logs The log entries.
+     */
+    public void logAll(List<OperationLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.submitAll(logs);
+        } else {
+            dao.saveLogs(logs);
+        }
+    }
+
     /**
      * 记录普通用户操作日志
      * Logs an action performed by a regular user.
@@ -42,8 +133,7 @@ public class LoggingService {
      * @param details Detailed information about the action.
      */
     public void logUserAction(String username, String action, String details) {
-        OperationLog log = new OperationLog(username, ActorType.USER, action, details);
-        dao.saveLog(log);
+        record(username, ActorType.USER, action, details);
     }
 
     /**
@@ -54,8 +144,7 @@ public class LoggingService {
      * @param details Detailed information about the action.
      */
     public void logAdminAction(String adminUsername, String action, String details) {
-        OperationLog log = new OperationLog(adminUsername, ActorType.ADMIN, action, details);
-        dao.saveLog(log);
+        record(adminUsername, ActorType.ADMIN, action, details);
     }
 
     /**
@@ -65,8 +154,7 @@ public class LoggingService {
      * @param details Detailed information about the action.
      */
     public void logSystemAction(String action, String details) {
-        OperationLog log = new OperationLog("SYSTEM", ActorType.SYSTEM, action, details);
-        dao.saveLog(log);
+        record("SYSTEM", ActorType.SYSTEM, action, details);
     }
 
     /**
@@ -85,50 +173,155 @@ public class LoggingService {
      * @return A list of all OperationLog objects.
      */
     public List<OperationLog> getLogs() {
+        flush(); // 确保包含已提交但尚未写入的异步日志
         return dao.getAllLogs();
     }
 
+    /**
+     * 分页查询日志
+     * Retrieves one page of operation logs matching the query.
+     * @param query The filter and paging criteria.
+     * @return The page of matching logs.
+     */
+    public LogPage queryLogs(LogQuery query) {
+        return dao.queryLogs(query);
+    }
+
+    /**
+     * 统计满足条件的日志数
+     * Counts the operation logs matching the query's filters.
+     */
+    public int countLogs(LogQuery query) {
+        return dao.countLogs(query);
+    }
+
+    /**
+     * 获取最新日志的序列号
+     * Returns the sequence number of the newest stored log, after writing any pending ones; pin
+     * queries to it with {@link LogQuery#setThroughSequence(long)}.
+     */
+    public long getLogSequence() {
+        flush(); // 确保包含已提交但尚未写入的异步日志
+        return dao.getLogView().getLastSequence();
+    }
+
+    /**
+     * 获取指定序列号之后新增的日志
+     * Retrieves the operation logs appended after the given sequence number, for views that follow
+     * the log instead of reloading it.
+     * @param afterSequence The last sequence number seen; 0 for none.
+     * @return The new logs; after a reset the caller must reload.
+     */
+    public ChangeBatch<OperationLog> getLogChanges(long afterSequence) {
+        flush(); // 确保包含已提交但尚未写入的异步日志
+        return dao.getLogChanges(afterSequence);
+    }
+
     /**
      * 将日志导出到文件
      * Exports logs to a file in a specified format.
      * @param filePath The path to the output file.
-     * @param format The format of the export (e.g., "CSV", "TXT").
+     * @param format The format of the export (e.g., "CSV", "TXT", "CSV.GZ", "BIN").
      * @return true if export is successful, false otherwise.
      */
     public boolean exportLogs(String filePath, String format) {
-        List<OperationLog> logs = dao.getAllLogs();
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            if ("CSV".equalsIgnoreCase(format)) {
-                writer.println("Log ID,Timestamp,Actor Username,Actor Type,Action,Details"); // CSV header
-                for (OperationLog log : logs) {
-                    writer.printf("%s,%s,%s,%s,\"%s\",\"%s\"%n",
-                            log.getLogId(),
-                            log.getTimestamp().format(FORMATTER),
-                            log.getActorUsername(),
-                            log.getActorType(),
-                            log.getAction().replace("\"", "\"\""), // Escape quotes for CSV
-                            log.getDetails().replace("\"", "\"\"")
-                    );
-                }
-            } else if ("TXT".equalsIgnoreCase(format)) {
-                for (OperationLog log : logs) {
-                    writer.printf("[%s] [%s] [%s] %s: %s%n",
-                            log.getTimestamp().format(FORMATTER),
-                            log.getActorType(),
-                            log.getActorUsername(),
-                            log.getAction(),
-                            log.getDetails()
-                    );
-                }
+        return exportLogs(filePath, format, null, null);
+    }
+
+    /**
+     * 将指定时间范围内的日志流式导出到文件
+     * Streams the logs in a time range to a file. Entries are read straight from the log store
+     * without copying it and written through one large buffer, so memory use does not grow with
+     * the number of logs. Besides "CSV" and "TXT", the gzip-compressed "CSV.GZ" and "TXT.GZ" and
+     * the compact columnar "BIN" are supported; CSV and BIN exports can be read back with
+     * {@link AdminService#importLogs(String, String)}.
+     * @param filePath The path to the output file; replaced if it exists.
+     * @param format The format of the export.
+     * @param from Inclusive lower bound on the timestamp, or null for no bound.
+     * @param to Exclusive upper bound on the timestamp, or null for no bound.
+     * @return true if export is successful, false otherwise.
+     */
+    public boolean exportLogs(String filePath, String format, LocalDateTime from, LocalDateTime to) {
+        return exportLogs(filePath, format, new LogExportOptions().setTimeRange(from, to));
+    }
+
+    /**
+     * 按选项导出日志：可并行格式化、分片输出并写出清单
+     * Exports logs as configured by the options. With a parallelism above 1 the log view is split
+     * into chunks formatted on a ForkJoinPool and appended in order, producing the same file as a
+     * sequential export (gzip formats as a multi-member gzip stream). Sharded exports write one
+     * complete file per shard instead, e.g. {@code logs.part-00000.csv}, each importable with
+     * {@link AdminService#importLogs(String, String)}. A manifest, if requested, is written to {@code <file>.manifest}.
+     * @param filePath The path to the output file; replaced if it exists.
+     * @param format The format of the export.
+     * @param options Time range, parallelism, sharding and manifest settings.
+     * @return true if export is successful, false otherwise.
+     */
+    public boolean exportLogs(String filePath, String format, LogExportOptions options) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        if (exportFormat == null) {
+            LOG.warn("Unsupported log export format: {}", format);
+            return false;
+        }
+        flush(); // 确保包含已提交但尚未写入的异步日志
+        Path file = Path.of(filePath);
+        LocalDateTime from = options.getFrom();
+        LocalDateTime to = options.getTo();
+        try {
+            List<ParallelLogExporter.ExportedFile> files;
+            if (options.getParallelism() > 1 || options.isSharded()) {
+                ParallelLogExporter exporter = new ParallelLogExporter(dao.getLogView(), exportFormat, from, to,
+                        options.getParallelism());
+                files = options.isSharded() ? exporter.exportSharded(file) : List.of(exporter.exportConcatenated(file));
             } else {
-                System.out.println("Unsupported log export format: " + format);
-                return false;
+                files = List.of(new ParallelLogExporter.ExportedFile(file, exportSequentially(file, exportFormat, from, to)));
             }
-            System.out.println("Logs exported successfully to: " + filePath);
+            if (options.isManifest()) {
+                ParallelLogExporter.writeManifest(Path.of(filePath + ".manifest"), exportFormat, from, to, files);
+            }
+            long count = files.stream().mapToLong(ParallelLogExporter.ExportedFile::getRows).sum();
+            LOG.info("Logs exported successfully to: {} ({} entries in {} file(s))", filePath, count, files.size());
             return true;
-        } catch (IOException e) {
-            System.err.println("Error exporting logs to file: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("Error exporting logs to file: {}", e.getMessage());
             return false;
         }
     }
+
+    private long exportSequentially(Path file, ExportFormat exportFormat, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        if (exportFormat.isColumnar()) {
+            try (ColumnarExportFile.Writer<OperationLog> writer = new ColumnarExportFile.Writer<>(file, ColumnarExportFile.LOGS)) {
+                forEachLogInRange(from, to, writer::write);
+                return writer.getCount();
+            }
+        }
+        try (TextExportWriter writer = TextExportWriter.forLogs(exportFormat.openTextOutput(file), exportFormat)) {
+            forEachLogInRange(from, to, writer::writeLog);
+            return writer.getCount();
+        }
+    }
+
+    private void forEachLogInRange(LocalDateTime from, LocalDateTime to, LogSink sink) {
+        dao.forEachLog(log -> {
+            LocalDateTime timestamp = log.getTimestamp();
+            if ((from != null && timestamp.isBefore(from)) || (to != null && !timestamp.isBefore(to))) {
+                return;
+            }
+            try {
+                sink.accept(log);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 可抛出IO异常的日志消费者
+     * Log consumer that may fail with an IOException.
+     */
+    @FunctionalInterface
+    private interface LogSink {
+        void accept(OperationLog log) throws IOException;
+    }
 }
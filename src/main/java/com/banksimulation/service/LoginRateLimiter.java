@@ -0,0 +1,105 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.util.BoundedLruMap;
+import com.banksimulation.util.TokenBucket;
+
+/**
+ * 登录限流器
+ * Limits login attempts with token buckets, one per username and one global, checked before any
+ * password is hashed. Per-username buckets live in an LRU map of bounded size, so a flood of
+ * distinct (possibly nonexistent) usernames cannot grow memory; a username whose bucket has been
+ * evicted starts again with a full bucket, and the global bucket still caps the total rate.
+ */
+public class LoginRateLimiter {
+
+    /**
+     * 限流判定结果
+     * The outcome of {@link #tryAcquire}.
+     */
+    public enum Decision {
+        ALLOWED,          // 允许尝试
+        USERNAME_LIMITED, // 该用户名的尝试过于频繁
+        GLOBALLY_LIMITED  // 所有用户名合计的尝试过于频繁
+    }
+
+    public static final int DEFAULT_USER_BURST = 5;                  // 每个用户名允许的连续尝试次数
+    public static final double DEFAULT_USER_ATTEMPTS_PER_SECOND = 0.1; // 之后每 10 秒恢复一次
+    public static final int DEFAULT_GLOBAL_BURST = 200;
+    public static final double DEFAULT_GLOBAL_ATTEMPTS_PER_SECOND = 100;
+    public static final int DEFAULT_MAX_TRACKED_USERNAMES = 10_000;
+
+    private final int userBurst;
+    private final double userAttemptsPerSecond;
+    private final TokenBucket global;
+    private final BoundedLruMap<String, TokenBucket> perUsername;
+
+    public LoginRateLimiter() {
+        this(DEFAULT_USER_BURST, DEFAULT_USER_ATTEMPTS_PER_SECOND, DEFAULT_GLOBAL_BURST,
+                DEFAULT_GLOBAL_ATTEMPTS_PER_SECOND, DEFAULT_MAX_TRACKED_USERNAMES);
+    }
+
+    /**
+     * @param userBurst Attempts a username may make in a row.
+     * @param userAttemptsPerSecond Rate at which a username regains attempts.
+     * @param globalBurst Attempts all usernames together may make in a row.
+     * @param globalAttemptsPerSecond Sustained rate of attempts over all usernames.
+     * @param maxTrackedUsernames Bound on the number of per-username buckets kept.
+     */
+    public LoginRateLimiter(int userBurst, double userAttemptsPerSecond, int globalBurst,
+                            double globalAttemptsPerSecond, int maxTrackedUsernames) {
+        this(userBurst, userAttemptsPerSecond, globalBurst, globalAttemptsPerSecond, maxTrackedUsernames, System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos The current {@link System#nanoTime()}; the global bucket starts full at this time.
+     */
+    LoginRateLimiter(int userBurst, double userAttemptsPerSecond, int globalBurst,
+                     double globalAttemptsPerSecond, int maxTrackedUsernames, long nowNanos) {
+        this.userBurst = userBurst;
+        this.userAttemptsPerSecond = userAttemptsPerSecond;
+        this.global = new TokenBucket(globalBurst, globalAttemptsPerSecond, nowNanos);
+        this.perUsername = new BoundedLruMap<>(maxTrackedUsernames);
+    }
+
+    /**
+     * 尝试为一次登录取得许可
+     * Takes a permit for one login attempt.
+     * @param actorType Users and admins are limited separately.
+     * @param username The username being logged in to.
+     * @return Whether the attempt may proceed, or which limit it exceeds.
+     */
+    public Decision tryAcquire(ActorType actorType, String username) {
+        return tryAcquire(actorType, username, System.nanoTime());
+    }
+
+    /**
+     * @param now The current {@link System#nanoTime()}.
+     */
+    synchronized Decision tryAcquire(ActorType actorType, String username, long now) {
+        String key = actorType.name() + ':' + username;
+        TokenBucket bucket = perUsername.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket(userBurst, userAttemptsPerSecond, now);
+            perUsername.put(key, bucket);
+        }
+        // 先检查用户名限额：被限流的用户名不消耗全局令牌
+        if (!bucket.tryAcquire(now)) {
+            return Decision.USERNAME_LIMITED;
+        }
+        return global.tryAcquire(now) ? Decision.ALLOWED : Decision.GLOBALLY_LIMITED;
+    }
+
+    /**
+     * 不做任何限制的限流器（用于基准测试等场景）
+     * A limiter that admits every attempt, e.g. for benchmarks that measure hashing itself.
+     */
+    public static LoginRateLimiter unlimited() {
+        return new LoginRateLimiter() {
+            @Override
+            public Decision tryAcquire(ActorType actorType, String username) {
+                return Decision.ALLOWED;
+            }
+        };
+    }
+}
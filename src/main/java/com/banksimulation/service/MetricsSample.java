@@ -0,0 +1,136 @@
+package com.banksimulation.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 一次运行指标采样
+ * The system metrics of one sampling interval, taken by {@link MetricsSampler}. Immutable, so
+ * it can be handed to the JavaFX thread as is.
+ */
+public final class MetricsSample {
+
+    /**
+     * 单个服务操作在采样间隔内的统计
+     * The rate and latency of one service operation during the interval.
+     */
+    public static final class OperationStats {
+        private final String name;
+        private final double callsPerSecond;
+        private final double failuresPerSecond;
+        private final double p50Micros;
+        private final double p99Micros;
+
+        OperationStats(String name, double callsPerSecond, double failuresPerSecond, double p50Micros, double p99Micros) {
+            this.name = name;
+            this.callsPerSecond = callsPerSecond;
+            this.failuresPerSecond = failuresPerSecond;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getCallsPerSecond() {
+            return callsPerSecond;
+        }
+
+        public double getFailuresPerSecond() {
+            return failuresPerSecond;
+        }
+
+        public double getP50Micros() {
+            return p50Micros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+    }
+
+    private final LocalDateTime timestamp;
+    private final double transactionsPerSecond;
+    private final List<OperationStats> operations;
+    private final double lockContentionPerSecond;
+    private final double averageLockWaitMicros;
+    private final int pendingLogs;
+    private final long droppedLogs;
+    private final long heapUsedBytes;
+    private final long heapMaxBytes;
+
+    MetricsSample(LocalDateTime timestamp, double transactionsPerSecond, List<OperationStats> operations,
+                  double lockContentionPerSecond, double averageLockWaitMicros, int pendingLogs, long droppedLogs,
+                  long heapUsedBytes, long heapMaxBytes) {
+        this.timestamp = timestamp;
+        this.transactionsPerSecond = transactionsPerSecond;
+        this.operations = List.copyOf(operations);
+        this.lockContentionPerSecond = lockContentionPerSecond;
+        this.averageLockWaitMicros = averageLockWaitMicros;
+        this.pendingLogs = pendingLogs;
+        this.droppedLogs = droppedLogs;
+        this.heapUsedBytes = heapUsedBytes;
+        this.heapMaxBytes = heapMaxBytes;
+    }
+
+    /**
+     * @return The end of the sampling interval.
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return Deposits, withdrawals, transfers and batch transfers per second.
+     */
+    public double getTransactionsPerSecond() {
+        return transactionsPerSecond;
+    }
+
+    /**
+     * @return The service operations called during the interval, by name.
+     */
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return Account lock acquisitions per second that had to wait.
+     */
+    public double getLockContentionPerSecond() {
+        return lockContentionPerSecond;
+    }
+
+    /**
+     * @return The average wait of those acquisitions, in microseconds.
+     */
+    public double getAverageLockWaitMicros() {
+        return averageLockWaitMicros;
+    }
+
+    /**
+     * @return The number of operation logs waiting to be written at the end of the interval.
+     */
+    public int getPendingLogs() {
+        return pendingLogs;
+    }
+
+    /**
+     * @return The number of operation logs dropped since startup.
+     */
+    public long getDroppedLogs() {
+        return droppedLogs;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    /**
+     * @return The maximum heap size, or -1 if undefined.
+     */
+    public long getHeapMaxBytes() {
+        return heapMaxBytes;
+    }
+}
@@ -0,0 +1,159 @@
+package com.banksimulation.service;
+
+import com.banksimulation.metrics.LatencyHistogram;
+import com.banksimulation.metrics.MetricsRegistry;
+import com.banksimulation.metrics.MetricsSnapshot;
+import com.banksimulation.util.AccountLockManager;
+import com.banksimulation.util.DiagnosticLogger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行指标采样器
+ * Samples the service metrics, account lock contention, the operation log queue and heap usage
+ * on a daemon thread at a fixed period, and keeps the most recent samples. Readers such as the
+ * admin dashboard only ever see immutable {@link MetricsSample}s, so they never touch the services'
+ * data structures. The registry is read cumulatively and never reset.
+ */
+public class MetricsSampler implements AutoCloseable {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(MetricsSampler.class);
+
+    public static final Duration DEFAULT_PERIOD = Duration.ofSeconds(1);
+    public static final int DEFAULT_HISTORY = 120;
+
+    private static final Set<String> TRANSACTION_OPERATIONS = Set.of("user.deposit", "user.withdraw", "user.transfer", "user.transferBatch");
+    private static final List<String> SERVICE_PREFIXES = List.of("user.", "admin.", "auth.");
+
+    private final MetricsRegistry registry;
+    private final LoggingService loggingService;
+    private final AccountLockManager lockManager;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final int historySize;
+    private final ScheduledExecutorService scheduler;
+    private volatile List<MetricsSample> history = List.of(); // 不可变列表，每次采样整体替换
+
+    // 以下字段只在采样线程上访问
+    private MetricsSnapshot previous;
+    private long previousNanos;
+    private long previousContended;
+    private long previousWaitNanos;
+
+    public MetricsSampler(MetricsRegistry registry, LoggingService loggingService, AccountLockManager lockManager) {
+        this(registry, loggingService, lockManager, DEFAULT_PERIOD, DEFAULT_HISTORY);
+    }
+
+    /**
+     * @param registry The service and DAO metrics.
+     * @param loggingService Source of the log queue depth.
+     * @param lockManager The lock manager shared with the user service.
+     * @param period The time between samples.
+     * @param historySize The number of samples kept.
+     */
+    public MetricsSampler(MetricsRegistry registry, LoggingService loggingService, AccountLockManager lockManager,
+                          Duration period, int historySize) {
+        this.registry = registry;
+        this.loggingService = loggingService;
+        this.lockManager = lockManager;
+        this.historySize = historySize;
+        this.previous = registry.snapshot();
+        this.previousNanos = System.nanoTime();
+        this.previousContended = lockManager.getContendedAcquisitions();
+        this.previousWaitNanos = lockManager.getContendedWaitNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, period.toMillis());
+        scheduler.scheduleAtFixedRate(this::sample, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The most recent sample, or null before the first one.
+     */
+    public MetricsSample getLatest() {
+        List<MetricsSample> samples = history;
+        return samples.isEmpty() ? null : samples.get(samples.size() - 1);
+    }
+
+    /**
+     * @return The kept samples, oldest first; an immutable list.
+     */
+    public List<MetricsSample> getHistory() {
+        return history;
+    }
+
+    private void sample() {
+        try {
+            history = append(history, takeSample());
+        } catch (RuntimeException e) {
+            LOG.warn("Metrics sampling failed: {}", e.getMessage()); // 异常会取消定时任务，因此在此吞掉
+        }
+    }
+
+    private MetricsSample takeSample() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - previousNanos) / 1e9);
+        MetricsSnapshot current = registry.snapshot();
+        MetricsSnapshot interval = current.since(previous);
+        long contended = lockManager.getContendedAcquisitions();
+        long waitNanos = lockManager.getContendedWaitNanos();
+
+        List<MetricsSample.OperationStats> operations = new ArrayList<>();
+        long transactions = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : interval.getLatencies().entrySet()) {
+            String name = entry.getKey();
+            if (SERVICE_PREFIXES.stream().noneMatch(name::startsWith)
+                    || current.getLatencies().get(name).getCount() == 0) {
+                continue; // 只列出调用过的服务操作
+            }
+            LatencyHistogram latencies = entry.getValue();
+            long failures = interval.getCounters().getOrDefault(name + ".failed", 0L);
+            operations.add(new MetricsSample.OperationStats(name, latencies.getCount() / seconds, failures / seconds,
+                    latencies.getPercentile(50) / 1_000.0, latencies.getPercentile(99) / 1_000.0));
+            if (TRANSACTION_OPERATIONS.contains(name)) {
+                transactions += latencies.getCount();
+            }
+        }
+        long intervalContended = contended - previousContended;
+        long intervalWaitNanos = waitNanos - previousWaitNanos;
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+
+        previous = current;
+        previousNanos = now;
+        previousContended = contended;
+        previousWaitNanos = waitNanos;
+        return new MetricsSample(LocalDateTime.now(), transactions / seconds, operations,
+                intervalContended / seconds, intervalContended == 0 ? 0 : intervalWaitNanos / 1_000.0 / intervalContended,
+                loggingService.getPendingLogCount(), loggingService.getDroppedLogCount(),
+                heap.getUsed(), heap.getMax());
+    }
+
+    private List<MetricsSample> append(List<MetricsSample> samples, MetricsSample sample) {
+        int from = Math.max(0, samples.size() + 1 - historySize);
+        List<MetricsSample> updated = new ArrayList<>(samples.subList(from, samples.size()));
+        updated.add(sample);
+        return List.copyOf(updated);
+    }
+
+    /**
+     * 停止采样
+     * Stops sampling; the kept samples remain readable.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
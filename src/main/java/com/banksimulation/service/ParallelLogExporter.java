@@ -0,0 +1,316 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.LogView;
+import com.banksimulation.entity.OperationLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * 并行日志导出器
+ * Exports a log view with several threads. The view is split by index into chunks of
+ * {@link #CHUNK_ROWS} entries that are formatted in parallel on a dedicated {@link ForkJoinPool},
+ * then either concatenated in order into one file or written as one complete file per shard.
+ * <p>
+ * Concatenated output is identical to the sequential export for CSV and TXT. Gzip formats
+ * compress every chunk as its own gzip member, and an empty view still gets one empty member; the
+ * members together form a valid gzip stream that decompresses to the same text. BIN output is identical when no time range drops entries;
+ * otherwise its blocks are split at different rows but hold the same entries.
+ */
+final class ParallelLogExporter {
+
+    static final int CHUNK_ROWS = 2 * ColumnarExportFile.BLOCK_ROWS; // 取列式块大小的整数倍，未过滤时块划分与顺序导出一致
+    private static final int WINDOW_PER_THREAD = 2; // 每个线程最多领先写出位置的分段数
+    private static final int CRC_BUFFER_BYTES = 256 * 1024;
+
+    private final LogView view;
+    private final ExportFormat format;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int parallelism;
+
+    /**
+     * @param view The logs to export.
+     * @param format The export format.
+     * @param from Inclusive lower bound on the timestamp, or null for no bound.
+     * @param to Exclusive upper bound on the timestamp, or null for no bound.
+     * @param parallelism The number of formatting threads.
+     */
+    ParallelLogExporter(LogView view, ExportFormat format, LocalDateTime from, LocalDateTime to, int parallelism) {
+        this.view = view;
+        this.format = format;
+        this.from = from;
+        this.to = to;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 导出生成的文件及其行数
+     * An output file and the number of entries written to it.
+     */
+    static final class ExportedFile {
+        private final Path path;
+        private final long rows;
+
+        ExportedFile(Path path, long rows) {
+            this.path = path;
+            this.rows = rows;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getRows() {
+            return rows;
+        }
+    }
+
+    /**
+     * 并行格式化并按顺序拼接到一个文件
+     * Formats chunks in parallel and appends them to the file in index order. At most
+     * {@code 2 * parallelism} formatted chunks are held in memory at once.
+     * @param file The output file; replaced if it exists.
+     */
+    ExportedFile exportConcatenated(Path file) throws IOException {
+        int size = view.size();
+        long rows = 0;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            writePrefix(out);
+            Deque<ForkJoinTask<Chunk>> window = new ArrayDeque<>();
+            int next = 0;
+            try {
+                while (next < size || !window.isEmpty()) {
+                    // 补满窗口后按顺序写出最早提交的分段
+                    while (next < size && window.size() < parallelism * WINDOW_PER_THREAD) {
+                        int start = next;
+                        int end = (int) Math.min(size, (long) start + CHUNK_ROWS);
+                        window.addLast(pool.submit(() -> formatChunk(start, end)));
+                        next = end;
+                    }
+                    Chunk chunk = window.removeFirst().join();
+                    chunk.bytes.writeTo(out);
+                    rows += chunk.rows;
+                }
+            } finally {
+                window.forEach(task -> task.cancel(false)); // 出错时放弃尚未写出的分段
+            }
+            if (size == 0 && !format.isColumnar()) {
+                // 空视图没有分段：写出一个空分段，使 TXT.GZ 也是有效的（空）gzip 流
+                formatChunk(0, 0).bytes.writeTo(out);
+            }
+            writeSuffix(out);
+        }
+        return new ExportedFile(file, rows);
+    }
+
+    /**
+     * 并行写出分片文件
+     * Splits the logs into at most {@code parallelism} shards of whole chunks and writes each as
+     * a complete export file, named by inserting {@code .part-00000} etc. before the first dot of
+     * the file name.
+     * @param file The nominal output file; it is not created itself.
+     * @return The shard files in index order.
+     */
+    List<ExportedFile> exportSharded(Path file) throws IOException {
+        int size = view.size();
+        int shardCount = (int) Math.max(1, Math.min(parallelism, ((long) size + CHUNK_ROWS - 1) / CHUNK_ROWS));
+        List<Callable<ExportedFile>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int start = (int) ((long) size * i / shardCount);
+            int end = (int) ((long) size * (i + 1) / shardCount);
+            Path shard = shardPath(file, i);
+            shards.add(() -> new ExportedFile(shard, writeShard(shard, start, end)));
+        }
+        List<ExportedFile> files = new ArrayList<>(shardCount);
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            for (Future<ExportedFile> shard : pool.invokeAll(shards)) {
+                files.add(shard.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Shard export failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting shards", e);
+        }
+        return files;
+    }
+
+    /**
+     * 分片文件名：在文件名的第一个点之前插入分片序号
+     * Returns the name of a shard, e.g. {@code logs.part-00002.csv.gz} for shard 2 of
+     * {@code logs.csv.gz}.
+     */
+    static Path shardPath(Path file, int shard) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        String part = String.format(".part-%05d", shard);
+        String shardName = dot < 0 ? name + part : name.substring(0, dot) + part + name.substring(dot);
+        return file.resolveSibling(shardName);
+    }
+
+    /**
+     * 写出清单文件：格式、时间范围、总行数，以及每个文件的行数、大小和 CRC-32
+     * Writes a manifest describing an export: the format, time range and total row count, then one
+     * {@code file=<name>,<rows>,<bytes>,<crc32>} line per output file in order. CRCs are computed
+     * by reading each file back.
+     */
+    static void writeManifest(Path manifest, ExportFormat format, LocalDateTime from, LocalDateTime to,
+                              List<ExportedFile> files) throws IOException {
+        StringBuilder text = new StringBuilder();
+        long rows = 0;
+        for (ExportedFile file : files) {
+            rows += file.getRows();
+        }
+        text.append("format=").append(format.name()).append('\n');
+        text.append("from=").append(from == null ? "" : from).append('\n');
+        text.append("to=").append(to == null ? "" : to).append('\n');
+        text.append("rows=").append(rows).append('\n');
+        for (ExportedFile file : files) {
+            text.append("file=").append(file.getPath().getFileName()).append(',').append(file.getRows())
+                    .append(',').append(Files.size(file.getPath()))
+                    .append(',').append(String.format("%08x", crc32(file.getPath()))).append('\n');
+        }
+        Files.writeString(manifest, text, StandardCharsets.UTF_8);
+    }
+
+    private static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CRC_BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 格式化后的分段
+     * A chunk formatted in memory, ready to be appended.
+     */
+    private static final class Chunk {
+        private final ByteArrayOutputStream bytes;
+        private final long rows;
+
+        private Chunk(ByteArrayOutputStream bytes, long rows) {
+            this.bytes = bytes;
+            this.rows = rows;
+        }
+    }
+
+    private Chunk formatChunk(int start, int end) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try {
+            long rows;
+            if (format.isColumnar()) {
+                try (ColumnarExportFile.Writer<OperationLog> writer = new ColumnarExportFile.Writer<>(bytes, ColumnarExportFile.LOGS, false)) {
+                    forEachInRange(start, end, writer::write);
+                    rows = writer.getCount();
+                }
+            } else {
+                try (TextExportWriter writer = TextExportWriter.forLogChunk(format.textChannel(bytes), format)) {
+                    forEachInRange(start, end, writer::writeLog);
+                    rows = writer.getCount();
+                }
+            }
+            return new Chunk(bytes, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long writeShard(Path shard, int start, int end) throws IOException {
+        if (format.isColumnar()) {
+            try (ColumnarExportFile.Writer<OperationLog> writer = new ColumnarExportFile.Writer<>(shard, ColumnarExportFile.LOGS)) {
+                forEachInRange(start, end, writer::write);
+                return writer.getCount();
+            }
+        }
+        try (TextExportWriter writer = TextExportWriter.forLogs(format.openTextOutput(shard), format)) {
+            forEachInRange(start, end, writer::writeLog);
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * 文件头：CSV 表头（压缩格式下为单独的 gzip 成员）或列式文件的魔数与版本
+     * Writes what precedes the first chunk: the CSV header (as its own gzip member when
+     * compressed), or the columnar file header.
+     */
+    private void writePrefix(OutputStream out) throws IOException {
+        if (format.isColumnar()) {
+            DataOutputStream data = new DataOutputStream(out);
+            ColumnarExportFile.writeHeader(data, ColumnarExportFile.LOGS);
+            data.flush();
+        } else if (format.isCsv()) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            TextExportWriter.forLogs(format.textChannel(header), format).close(); // 不写任何行，只输出表头
+            header.writeTo(out);
+        }
+    }
+
+    private void writeSuffix(OutputStream out) throws IOException {
+        if (format.isColumnar()) {
+            DataOutputStream data = new DataOutputStream(out);
+            ColumnarExportFile.writeEndMarker(data);
+            data.flush();
+        }
+    }
+
+    private void forEachInRange(int start, int end, LogSink sink) {
+        view.forEach(start, end, log -> {
+            LocalDateTime timestamp = log.getTimestamp();
+            if ((from != null && timestamp.isBefore(from)) || (to != null && !timestamp.isBefore(to))) {
+                return;
+            }
+            try {
+                sink.accept(log);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 可抛出IO异常的日志消费者
+     * Log consumer that may fail with an IOException.
+     */
+    @FunctionalInterface
+    private interface LogSink {
+        void accept(OperationLog log) throws IOException;
+    }
+}
@@ -0,0 +1,106 @@
+package com.banksimulation.service;
+
+import com.banksimulation.util.PasswordHasher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码验证线程池
+ * Runs password verification, which is deliberately expensive with bcrypt and PBKDF2, on a small
+ * dedicated pool with a bounded queue. A login storm then occupies at most these threads instead
+ * of every thread that handles transfers; logins beyond the queue capacity are rejected at once.
+ */
+public class PasswordVerificationPool {
+
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final ThreadPoolExecutor executor;
+
+    public PasswordVerificationPool() {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param threads Number of verification threads.
+     * @param queueCapacity Number of verifications that may wait for a thread.
+     */
+    public PasswordVerificationPool(int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 验证结果
+     * The outcome of a verification.
+     */
+    public static final class Result {
+        static final Result MISMATCH = new Result(false, null);
+
+        private final boolean matched;
+        private final String upgradedHash;
+
+        private Result(boolean matched, String upgradedHash) {
+            this.matched = matched;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        /**
+         * 若存储的哈希需要升级，返回用首选方案重新生成的哈希，否则为 null
+         * A fresh hash of the password with the preferred scheme if the stored one needed
+         * rehashing, or null.
+         */
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+    }
+
+    /**
+     * 在线程池中验证密码并等待结果；匹配且需要升级时顺带重新哈希
+     * Verifies a password on the pool and waits for the outcome. If it matches and the stored hash
+     * needs rehashing, the new hash is computed on the pool as well.
+     * @param password The plain text password.
+     * @param storedHash The stored hash.
+     * @return The outcome; a mismatch if the waiting thread is interrupted.
+     * @throws RejectedExecutionException If the queue is full or the pool has been shut down.
+     */
+    public Result verify(String password, String storedHash) {
+        Future<Result> future = executor.submit(() -> {
+            if (!PasswordHasher.verifyPassword(password, storedHash)) {
+                return Result.MISMATCH;
+            }
+            return new Result(true, PasswordHasher.needsRehash(storedHash) ? PasswordHasher.hashPassword(password) : null);
+        });
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.MISMATCH;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed", e.getCause());
+        }
+    }
+
+    /**
+     * 停止接受新的验证请求
+     * Stops accepting verifications; queued ones still complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
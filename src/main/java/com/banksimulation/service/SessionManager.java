@@ -0,0 +1,208 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话管理器
+ * Issues session tokens and caches the authenticated principal of each session. A session ends
+ * when it has lived longer than the TTL, when it has not been used for the idle timeout, or when it
+ * is closed. Expired sessions are removed when they are next resolved and by a sweep that runs at
+ * most once per idle timeout while sessions are being opened, so no background thread is needed.
+ * <p>
+ * Cached principals are the DAO's live entity objects, so changes to balance, status and
+ * permissions are seen immediately. Deleting a user must close its sessions
+ * ({@link #closeSessionsOf}); {@link AdminService} does so.
+ * <p>
+ * The package-private overloads take the current {@link System#nanoTime()} from the caller.
+ */
+public class SessionManager {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(8);
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final long ttlNanos;
+    private final long idleTimeoutNanos;
+    private final Map<SessionToken, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong nextSweepNanos; // 下次清理过期会话的时间
+
+    public SessionManager() {
+        this(DEFAULT_TTL, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param ttl Maximum lifetime of a session.
+     * @param idleTimeout How long a session may go unused before it expires.
+     */
+    public SessionManager(Duration ttl, Duration idleTimeout) {
+        this(ttl, idleTimeout, System.nanoTime());
+    }
+
+    /**
+     * @param nowNanos The current {@link System#nanoTime()}; the first sweep is due one idle timeout later.
+     */
+    SessionManager(Duration ttl, Duration idleTimeout, long nowNanos) {
+        if (ttl.isNegative() || ttl.isZero() || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Session TTL and idle timeout must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nextSweepNanos = new AtomicLong(nowNanos + idleTimeoutNanos);
+    }
+
+    /**
+     * 会话条目：缓存的主体及其时间信息
+     * A session: the cached principal and its timestamps.
+     */
+    private static final class Session {
+        private final Object principal; // User 或 Admin
+        private final ActorType actorType;
+        private final String username;
+        private final long createdNanos;
+        private volatile long lastAccessNanos;
+
+        private Session(Object principal, ActorType actorType, String username, long now) {
+            this.principal = principal;
+            this.actorType = actorType;
+            this.username = username;
+            this.createdNanos = now;
+            this.lastAccessNanos = now;
+        }
+    }
+
+    /**
+     * 为登录成功的用户开启会话
+     * Opens a session for an authenticated user.
+     */
+    public SessionToken openUserSession(User user) {
+        return openUserSession(user, System.nanoTime());
+    }
+
+    SessionToken openUserSession(User user, long nowNanos) {
+        return open(user, ActorType.USER, user.getUsername(), nowNanos);
+    }
+
+    /**
+     * 为登录成功的管理员开启会话
+     * Opens a session for an authenticated admin.
+     */
+    public SessionToken openAdminSession(Admin admin) {
+        return openAdminSession(admin, System.nanoTime());
+    }
+
+    SessionToken openAdminSession(Admin admin, long nowNanos) {
+        return open(admin, ActorType.ADMIN, admin.getUsername(), nowNanos);
+    }
+
+    /**
+     * 解析用户会话并刷新其空闲时间
+     * Returns the user of a live user session and marks the session as used.
+     * @return The cached user; empty if the token is unknown, expired or not a user session.
+     */
+    public Optional<User> resolveUser(SessionToken token) {
+        return resolveUser(token, System.nanoTime());
+    }
+
+    Optional<User> resolveUser(SessionToken token, long nowNanos) {
+        Session session = resolve(token, ActorType.USER, nowNanos);
+        return session == null ? Optional.empty() : Optional.of((User) session.principal);
+    }
+
+    /**
+     * 解析管理员会话并刷新其空闲时间
+     * Returns the admin of a live admin session and marks the session as used.
+     * @return The cached admin; empty if the token is unknown, expired or not an admin session.
+     */
+    public Optional<Admin> resolveAdmin(SessionToken token) {
+        return resolveAdmin(token, System.nanoTime());
+    }
+
+    Optional<Admin> resolveAdmin(SessionToken token, long nowNanos) {
+        Session session = resolve(token, ActorType.ADMIN, nowNanos);
+        return session == null ? Optional.empty() : Optional.of((Admin) session.principal);
+    }
+
+    /**
+     * 结束会话（如退出登录）
+     * Ends a session, e.g. on logout.
+     * @return true if the session was live.
+     */
+    public boolean close(SessionToken token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    /**
+     * 结束某个用户或管理员的所有会话（如账户被删除或禁用）
+     * Ends every session of a user or admin, e.g. when the account is deleted or deactivated.
+     * @return The number of sessions closed.
+     */
+    public int closeSessionsOf(String username, ActorType actorType) {
+        int[] closed = {0};
+        sessions.values().removeIf(session -> {
+            boolean match = session.actorType == actorType && session.username.equals(username);
+            if (match) {
+                closed[0]++;
+            }
+            return match;
+        });
+        return closed[0];
+    }
+
+    /**
+     * 当前会话数（含尚未清理的过期会话）
+     * The number of sessions held, including expired ones not yet removed.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    private SessionToken open(Object principal, ActorType actorType, String username, long now) {
+        sweepIfDue(now);
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        SessionToken token = new SessionToken(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+        sessions.put(token, new Session(principal, actorType, username, now));
+        return token;
+    }
+
+    private Session resolve(SessionToken token, ActorType actorType, long now) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null || session.actorType != actorType) {
+            return null;
+        }
+        if (isExpired(session, now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccessNanos = now;
+        return session;
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.createdNanos >= ttlNanos || now - session.lastAccessNanos >= idleTimeoutNanos;
+    }
+
+    // 每个空闲超时周期最多清理一次，由一个开启会话的线程执行
+    private void sweepIfDue(long now) {
+        long due = nextSweepNanos.get();
+        if (now - due < 0 || !nextSweepNanos.compareAndSet(due, now + idleTimeoutNanos)) {
+            return;
+        }
+        sessions.values().removeIf(session -> isExpired(session, now));
+    }
+}
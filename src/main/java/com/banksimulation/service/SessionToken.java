@@ -0,0 +1,50 @@
+package com.banksimulation.service;
+
+/**
+ * 会话令牌
+ * Opaque token identifying a session opened by a successful login. Service methods that take a
+ * token act on the principal cached in the session, without looking it up or checking a password.
+ * The value is random and unguessable; {@link #toString()} does not reveal it.
+ */
+public final class SessionToken {
+
+    private final String value;
+
+    SessionToken(String value) {
+        this.value = value;
+    }
+
+    /**
+     * 令牌的字符串形式（用于在进程外保存或传递）
+     * The token as a string, e.g. to hand to a client.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 由字符串形式还原令牌
+     * Restores a token from {@link #getValue()}.
+     */
+    public static SessionToken of(String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Session token must not be empty");
+        }
+        return new SessionToken(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SessionToken && value.equals(((SessionToken) o).value));
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SessionToken[****]"; // 不在日志中暴露令牌
+    }
+}
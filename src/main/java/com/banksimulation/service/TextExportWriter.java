@@ -0,0 +1,251 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.util.MoneyUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * 流式文本导出写入器
+ * Streams operation logs or transaction records into a channel as CSV or plain-text lines. Rows
+ * are formatted by hand into a reusable character buffer and encoded to UTF-8 in bulk through one
+ * large byte buffer, so memory use stays constant however many rows are exported.
+ */
+final class TextExportWriter implements Closeable {
+
+    static final String LOG_CSV_HEADER = "Log ID,Timestamp,Actor Username,Actor Type,Action,Details";
+    static final String TRANSACTION_CSV_HEADER =
+            "Transaction ID,User ID,Account Number,Type,Amount,Balance After,Timestamp,Related Account,Description";
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int CHUNK_BUFFER_BYTES = 256 * 1024; // 内存中格式化分段时的缓冲大小
+    private static final int FLUSH_CHARS = 64 * 1024; // 累积到该字符数后编码写出
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final WritableByteChannel channel;
+    private final boolean csv;
+    private final StringBuilder chars = new StringBuilder(FLUSH_CHARS + 4096);
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private long count;
+
+    private TextExportWriter(WritableByteChannel channel, boolean csv, String header, ByteBuffer bytes) {
+        this.channel = channel;
+        this.csv = csv;
+        this.bytes = bytes;
+        if (csv && header != null) {
+            chars.append(header).append(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * 创建日志导出写入器
+     * Creates a writer for operation logs.
+     * @param channel The destination; closed by {@link #close()}.
+     * @param format A text format; CSV output starts with a header line.
+     */
+    static TextExportWriter forLogs(WritableByteChannel channel, ExportFormat format) {
+        return new TextExportWriter(channel, format.isCsv(), LOG_CSV_HEADER, ByteBuffer.allocateDirect(BUFFER_BYTES));
+    }
+
+    /**
+     * 创建日志分段写入器：不写表头，用于并行导出时在内存中格式化一段日志
+     * Creates a writer for one chunk of a parallel log export: no header, and a smaller heap
+     * buffer since the destination is in memory.
+     * @param channel The destination; closed by {@link #close()}.
+     * @param format A text format.
+     */
+    static TextExportWriter forLogChunk(WritableByteChannel channel, ExportFormat format) {
+        return new TextExportWriter(channel, format.isCsv(), null, ByteBuffer.allocate(CHUNK_BUFFER_BYTES));
+    }
+
+    /**
+     * 创建交易记录导出写入器（仅 CSV）
+     * Creates a CSV writer for transaction records.
+     * @param channel The destination; closed by {@link #close()}.
+     */
+    static TextExportWriter forTransactions(WritableByteChannel channel) {
+        return new TextExportWriter(channel, true, TRANSACTION_CSV_HEADER, ByteBuffer.allocateDirect(BUFFER_BYTES));
+    }
+
+    /**
+     * 写出一条日志
+     * Formats one log entry as a row, writing buffered rows out once the buffer fills.
+     */
+    void writeLog(OperationLog log) throws IOException {
+        if (csv) {
+            chars.append(log.getLogId()).append(',');
+            appendTimestamp(log.getTimestamp());
+            chars.append(',');
+            appendCsvField(log.getActorUsername(), false);
+            chars.append(',').append(log.getActorType()).append(',');
+            appendCsvField(log.getAction(), true);
+            chars.append(',');
+            appendCsvField(log.getDetails(), true);
+        } else {
+            chars.append('[');
+            appendTimestamp(log.getTimestamp());
+            chars.append("] [").append(log.getActorType()).append("] [").append(log.getActorUsername()).append("] ")
+                    .append(log.getAction()).append(": ").append(log.getDetails());
+        }
+        endRow();
+    }
+
+    /**
+     * 写出一条交易记录（CSV）
+     * Formats one transaction record as a CSV row. Amounts are written with exactly two decimals.
+     */
+    void writeTransaction(TransactionRecord transaction) throws IOException {
+        chars.append(transaction.getTransactionId()).append(',');
+        appendCsvField(transaction.getUserId(), false);
+        chars.append(',');
+        appendCsvField(transaction.getAccountNumber(), false);
+        chars.append(',').append(transaction.getType()).append(',');
+        appendAmount(transaction.getAmount());
+        chars.append(',');
+        appendAmount(transaction.getBalanceAfterTransaction());
+        chars.append(',');
+        appendTimestamp(transaction.getTimestamp());
+        chars.append(',');
+        appendCsvField(transaction.getRelatedAccountNumber(), false);
+        chars.append(',');
+        appendCsvField(transaction.getDescription(), true);
+        endRow();
+    }
+
+    private void endRow() throws IOException {
+        chars.append(LINE_SEPARATOR);
+        count++;
+        if (chars.length() >= FLUSH_CHARS) {
+            drainChars();
+        }
+    }
+
+    /**
+     * @return The number of log entries written so far.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * 写出剩余内容并关闭通道
+     * Writes out everything still buffered and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drainChars();
+            writeBytes();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * CSV 字段转义：含逗号、引号或换行的字段加引号，内部引号成对转义
+     * Appends a CSV field. It is quoted when {@code alwaysQuote} is set or when it contains a comma,
+     * quote or line break; quotes inside are doubled. A null field is written as empty.
+     */
+    private void appendCsvField(String value, boolean alwaysQuote) {
+        if (value == null) {
+            value = "";
+        }
+        boolean quote = alwaysQuote;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            chars.append(value);
+            return;
+        }
+        chars.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                chars.append(value, start, i + 1).append('"');
+                start = i + 1;
+            }
+        }
+        chars.append(value, start, value.length()).append('"');
+    }
+
+    /**
+     * 以 yyyy-MM-dd HH:mm:ss 格式追加时间戳，避免每行创建格式化字符串
+     * Appends the timestamp as {@code yyyy-MM-dd HH:mm:ss} without going through a formatter.
+     */
+    private void appendTimestamp(LocalDateTime time) {
+        appendPadded(time.getYear(), 4);
+        chars.append('-');
+        appendPadded(time.getMonthValue(), 2);
+        chars.append('-');
+        appendPadded(time.getDayOfMonth(), 2);
+        chars.append(' ');
+        appendPadded(time.getHour(), 2);
+        chars.append(':');
+        appendPadded(time.getMinute(), 2);
+        chars.append(':');
+        appendPadded(time.getSecond(), 2);
+    }
+
+    /**
+     * 以两位小数追加金额（按分取整后拼接，避免浮点格式化）
+     * Appends an amount with two decimals, via its value in minor units.
+     */
+    private void appendAmount(double amount) {
+        if (!MoneyUtil.isValidAmount(amount)) {
+            chars.append(amount); // 超出范围的金额（如旧数据）原样输出
+            return;
+        }
+        long minorUnits = MoneyUtil.toMinorUnits(amount);
+        if (minorUnits < 0) {
+            chars.append('-');
+            minorUnits = -minorUnits;
+        }
+        chars.append(minorUnits / MoneyUtil.MINOR_UNITS_PER_UNIT).append('.');
+        appendPadded((int) (minorUnits % MoneyUtil.MINOR_UNITS_PER_UNIT), 2);
+    }
+
+    private void appendPadded(int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                chars.append('0');
+            }
+        }
+        chars.append(value);
+    }
+
+    private void drainChars() throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, false);
+            if (result.isOverflow()) {
+                writeBytes(); // 字节缓冲已满，写出后继续编码
+            } else {
+                break; // 行总是完整追加的，编码器不会残留半个代理对
+            }
+        }
+        chars.setLength(0);
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
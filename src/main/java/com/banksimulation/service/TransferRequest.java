@@ -0,0 +1,29 @@
+package com.banksimulation.service;
+
+/**
+ * 批量转账中的单笔转账
+ * One transfer of a batch submitted to {@link UserService#transferBatch(java.util.List)}.
+ */
+public class TransferRequest {
+    private final String senderUsername;        // 付款方用户名
+    private final String receiverAccountNumber; // 收款方账号
+    private final double amount;                // 金额
+
+    public TransferRequest(String senderUsername, String receiverAccountNumber, double amount) {
+        this.senderUsername = senderUsername;
+        this.receiverAccountNumber = receiverAccountNumber;
+        this.amount = amount;
+    }
+
+    public String getSenderUsername() {
+        return senderUsername;
+    }
+
+    public String getReceiverAccountNumber() {
+        return receiverAccountNumber;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
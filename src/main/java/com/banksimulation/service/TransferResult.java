@@ -0,0 +1,48 @@
+package com.banksimulation.service;
+
+/**
+ * 批量转账中单笔转账的结果
+ * Outcome of one transfer of a batch.
+ */
+public class TransferResult {
+    private final int index;                  // 在批次中的位置
+    private final TransferRequest request;
+    private final boolean success;
+    private final String message;             // 成功或失败原因
+    private final double senderBalanceAfter;  // 成功时付款方在该笔转账后的余额
+
+    TransferResult(int index, TransferRequest request, boolean success, String message, double senderBalanceAfter) {
+        this.index = index;
+        this.request = request;
+        this.success = success;
+        this.message = message;
+        this.senderBalanceAfter = senderBalanceAfter;
+    }
+
+    static TransferResult failed(int index, TransferRequest request, String message) {
+        return new TransferResult(index, request, false, message, Double.NaN);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public TransferRequest getRequest() {
+        return request;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The sender's balance right after this transfer, or NaN if it failed.
+     */
+    public double getSenderBalanceAfter() {
+        return senderBalanceAfter;
+    }
+}
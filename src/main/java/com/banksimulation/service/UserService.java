@@ -1,28 +1,64 @@
 package com.banksimulation.service;
 
 import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
 import com.banksimulation.entity.ActorType;
 import com.banksimulation.entity.OperationLog;
 import com.banksimulation.entity.TransactionRecord;
 import com.banksimulation.entity.TransactionType;
 import com.banksimulation.entity.User;
+import com.banksimulation.util.AccountLockManager;
+import com.banksimulation.util.DiagnosticLogger;
+import com.banksimulation.util.MoneyUtil;
 import com.banksimulation.util.PasswordHasher;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * 用户服务
  * Handles user-specific business logic like deposit, withdrawal, balance check, and transfer.
+ * Operations can name the user by username, or by a {@link SessionToken} from
+ * {@link AuthenticationService#loginUserSession}, in which case the user cached in the session is
+ * used without a lookup.
  */
 public class UserService {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(UserService.class);
+
+    private static final int BATCH_APPLY_ATTEMPTS = 3; // 批量转账因并发取款而回滚后的最大尝试次数
+    private static final int MAX_BATCH_CHUNK = 10_000;  // 每块约 3 MB 的日志记录，远低于单条记录上限
+
     private final DataAccessObject dao;
     private final LoggingService loggingService; // 依赖日志服务
+    private final AccountLockManager lockManager; // 按账号分段的账户锁（用于涉及多个账户的操作）
+    private final SessionManager sessionManager; // 解析会话令牌
 
     public UserService(DataAccessObject dao, LoggingService loggingService) {
+        this(dao, loggingService, new AccountLockManager(), new SessionManager());
+    }
+
+    public UserService(DataAccessObject dao, LoggingService loggingService, AccountLockManager lockManager) {
+        this(dao, loggingService, lockManager, new SessionManager());
+    }
+
+    /**
+     * @param sessionManager The session manager of the {@link AuthenticationService} that issues
+     *                       the tokens this service accepts.
+     */
+    public UserService(DataAccessObject dao, LoggingService loggingService, AccountLockManager lockManager,
+                       SessionManager sessionManager) {
         this.dao = dao;
         this.loggingService = loggingService;
+        this.lockManager = lockManager;
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -33,42 +69,64 @@ public class UserService {
      * @return true if deposit is successful, false otherwise.
      */
     public boolean deposit(String username, double amount) {
-        if (amount <= 0) {
-            System.out.println("Deposit failed for '" + username + "': Amount must be positive.");
+        return deposit(username, dao.getUserByUsername(username), amount);
+    }
+
+    /**
+     * 通过会话处理存款
+     * Processes a deposit for the user of a session.
+     * @param session The user's session token.
+     * @param amount The amount to deposit.
+     * @return true if deposit is successful, false otherwise (including an invalid session).
+     */
+    public boolean deposit(SessionToken session, double amount) {
+        Optional<User> user = resolveSession(session, "Deposit");
+        return user.isPresent() && deposit(user.get().getUsername(), user, amount);
+    }
+
+    private boolean deposit(String username, Optional<User> userOptional, double amount) {
+        long amountMinorUnits = MoneyUtil.isValidAmount(amount) ? MoneyUtil.toMinorUnits(amount) : 0; // 非有限或超出范围的金额视为无效
+        if (amountMinorUnits <= 0) {
+            LOG.debug("Deposit failed for '{}': Amount must be positive.", username);
             loggingService.logUserAction(username, "Deposit failed", "Attempted deposit of " + amount + " (invalid amount).");
             return false;
         }
 
-        Optional<User> userOptional = dao.getUserByUsername(username);
         if (userOptional.isPresent()) {
             User user = userOptional.get(); // 获取User对象
             if (!user.isActive()) {
-                System.out.println("Deposit failed for '" + username + "': Account is inactive.");
+                LOG.debug("Deposit failed for '{}': Account is inactive.", username);
                 loggingService.logUserAction(username, "Deposit failed", "Account inactive.");
                 return false;
             }
             if (!user.canDeposit()) {
-                System.out.println("Deposit failed for '" + username + "': User does not have deposit permission.");
+                LOG.debug("Deposit failed for '{}': User does not have deposit permission.", username);
                 loggingService.logUserAction(username, "Deposit failed", "No deposit permission.");
                 return false;
             }
 
-            double newBalance = user.getBalance() + amount;
-            user.setBalance(newBalance);
-            dao.updateUser(user);
+            // 单账户操作通过CAS原子更新余额，无需加锁
+            long newBalanceMinorUnits = user.credit(amountMinorUnits);
+            if (newBalanceMinorUnits == User.BALANCE_OVERFLOW) {
+                LOG.debug("Deposit failed for '{}': Balance limit exceeded.", username);
+                loggingService.logUserAction(username, "Deposit failed", "Balance limit exceeded. Requested: " + amount);
+                return false;
+            }
+            double newBalance = MoneyUtil.toAmount(newBalanceMinorUnits);
+            double depositedAmount = MoneyUtil.toAmount(amountMinorUnits); // 按实际入账的分值记录
 
             // 记录交易
             TransactionRecord transaction = new TransactionRecord(
                     user.getUserId(), user.getAccountNumber(), TransactionType.DEPOSIT,
-                    amount, newBalance, "User deposit"
+                    depositedAmount, newBalance, "User deposit"
             );
-            dao.saveTransaction(transaction);
+            saveBalanceChanges(List.of(user), new long[] {amountMinorUnits}, List.of(transaction));
 
-            System.out.println("User '" + username + "' deposited " + amount + ". New balance: " + newBalance);
-            loggingService.logUserAction(username, "Deposit successful", "Deposited " + amount + ". New balance: " + newBalance);
+            LOG.debug("User '{}' deposited {}. New balance: {}", username, depositedAmount, newBalance);
+            loggingService.logUserAction(username, "Deposit successful", "Deposited " + depositedAmount + ". New balance: " + newBalance);
             return true;
         }
-        System.out.println("Deposit failed: User '" + username + "' not found.");
+        LOG.debug("Deposit failed: User '{}' not found.", username);
         loggingService.logUserAction(username, "Deposit failed", "User not found.");
         return false;
     }
@@ -81,47 +139,64 @@ public class UserService {
      * @return true if withdrawal is successful, false otherwise.
      */
     public boolean withdraw(String username, double amount) {
-        if (amount <= 0) {
-            System.out.println("Withdrawal failed for '" + username + "': Amount must be positive.");
+        return withdraw(username, dao.getUserByUsername(username), amount);
+    }
+
+    /**
+     * 通过会话处理取款
+     * Processes a withdrawal for the user of a session.
+     * @param session The user's session token.
+     * @param amount The amount to withdraw.
+     * @return true if withdrawal is successful, false otherwise (including an invalid session).
+     */
+    public boolean withdraw(SessionToken session, double amount) {
+        Optional<User> user = resolveSession(session, "Withdrawal");
+        return user.isPresent() && withdraw(user.get().getUsername(), user, amount);
+    }
+
+    private boolean withdraw(String username, Optional<User> userOptional, double amount) {
+        long amountMinorUnits = MoneyUtil.isValidAmount(amount) ? MoneyUtil.toMinorUnits(amount) : 0; // 非有限或超出范围的金额视为无效
+        if (amountMinorUnits <= 0) {
+            LOG.debug("Withdrawal failed for '{}': Amount must be positive.", username);
             loggingService.logUserAction(username, "Withdrawal failed", "Attempted withdrawal of " + amount + " (invalid amount).");
             return false;
         }
 
-        Optional<User> userOptional = dao.getUserByUsername(username);
         if (userOptional.isPresent()) {
             User user = userOptional.get(); // 获取User对象
             if (!user.isActive()) {
-                System.out.println("Withdrawal failed for '" + username + "': Account is inactive.");
+                LOG.debug("Withdrawal failed for '{}': Account is inactive.", username);
                 loggingService.logUserAction(username, "Withdrawal failed", "Account inactive.");
                 return false;
             }
             if (!user.canWithdraw()) {
-                System.out.println("Withdrawal failed for '" + username + "': User does not have withdrawal permission.");
+                LOG.debug("Withdrawal failed for '{}': User does not have withdrawal permission.", username);
                 loggingService.logUserAction(username, "Withdrawal failed", "No withdrawal permission.");
                 return false;
             }
-            if (user.getBalance() < amount) {
-                System.out.println("Withdrawal failed for '" + username + "': Insufficient balance. Current: " + user.getBalance() + ", Requested: " + amount);
+
+            // 余额检查与扣款在一次CAS中完成，无需加锁
+            long newBalanceMinorUnits = user.tryDebit(amountMinorUnits);
+            if (newBalanceMinorUnits == User.INSUFFICIENT_FUNDS) {
+                LOG.debug("Withdrawal failed for '{}': Insufficient balance. Current: {}, Requested: {}", username, user.getBalance(), amount);
                 loggingService.logUserAction(username, "Withdrawal failed", "Insufficient balance. Current: " + user.getBalance() + ", Requested: " + amount);
                 return false;
             }
-
-            double newBalance = user.getBalance() - amount;
-            user.setBalance(newBalance);
-            dao.updateUser(user);
+            double newBalance = MoneyUtil.toAmount(newBalanceMinorUnits);
+            double withdrawnAmount = MoneyUtil.toAmount(amountMinorUnits); // 按实际扣款的分值记录
 
             // 记录交易
             TransactionRecord transaction = new TransactionRecord(
                     user.getUserId(), user.getAccountNumber(), TransactionType.WITHDRAWAL,
-                    amount, newBalance, "User withdrawal"
+                    withdrawnAmount, newBalance, "User withdrawal"
             );
-            dao.saveTransaction(transaction);
+            saveBalanceChanges(List.of(user), new long[] {-amountMinorUnits}, List.of(transaction));
 
-            System.out.println("User '" + username + "' withdrew " + amount + ". New balance: " + newBalance);
-            loggingService.logUserAction(username, "Withdrawal successful", "Withdrew " + amount + ". New balance: " + newBalance);
+            LOG.debug("User '{}' withdrew {}. New balance: {}", username, withdrawnAmount, newBalance);
+            loggingService.logUserAction(username, "Withdrawal successful", "Withdrew " + withdrawnAmount + ". New balance: " + newBalance);
             return true;
         }
-        System.out.println("Withdrawal failed: User '" + username + "' not found.");
+        LOG.debug("Withdrawal failed: User '{}' not found.", username);
         loggingService.logUserAction(username, "Withdrawal failed", "User not found.");
         return false;
     }
@@ -136,23 +211,40 @@ public class UserService {
      * @return true if transfer is successful, false otherwise.
      */
     public boolean transfer(String senderUsername, String receiverAccountNumber, double amount) {
-        if (amount <= 0) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Amount must be positive.");
+        return transfer(senderUsername, dao.getUserByUsername(senderUsername), receiverAccountNumber, amount);
+    }
+
+    /**
+     * 通过会话处理转账
+     * Processes a transfer from the account of a session's user.
+     * @param session The sender's session token.
+     * @param receiverAccountNumber The account number of the receiver.
+     * @param amount The amount to transfer.
+     * @return true if transfer is successful, false otherwise (including an invalid session).
+     */
+    public boolean transfer(SessionToken session, String receiverAccountNumber, double amount) {
+        Optional<User> sender = resolveSession(session, "Transfer");
+        return sender.isPresent() && transfer(sender.get().getUsername(), sender, receiverAccountNumber, amount);
+    }
+
+    private boolean transfer(String senderUsername, Optional<User> senderOptional, String receiverAccountNumber, double amount) {
+        long amountMinorUnits = MoneyUtil.isValidAmount(amount) ? MoneyUtil.toMinorUnits(amount) : 0; // 非有限或超出范围的金额视为无效
+        if (amountMinorUnits <= 0) {
+            LOG.debug("Transfer failed for '{}': Amount must be positive.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Attempted transfer of " + amount + " (invalid amount).");
             return false;
         }
 
-        // 获取发送方和接收方用户对象
-        Optional<User> senderOptional = dao.getUserByUsername(senderUsername);
+        // 获取接收方用户对象
         Optional<User> receiverOptional = dao.getUserByAccountNumber(receiverAccountNumber);
 
         if (senderOptional.isEmpty()) {
-            System.out.println("Transfer failed: Sender '" + senderUsername + "' not found.");
+            LOG.debug("Transfer failed: Sender '{}' not found.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Sender not found.");
             return false;
         }
         if (receiverOptional.isEmpty()) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Receiver account '" + receiverAccountNumber + "' not found.");
+            LOG.debug("Transfer failed for '{}': Receiver account '{}' not found.", senderUsername, receiverAccountNumber);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Receiver account '" + receiverAccountNumber + "' not found.");
             return false;
         }
@@ -162,93 +254,396 @@ public class UserService {
 
         // 不允许自己转账给自己
         if (sender.getAccountNumber().equals(receiver.getAccountNumber())) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Cannot transfer to own account.");
+            LOG.debug("Transfer failed for '{}': Cannot transfer to own account.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Attempted to transfer to self.");
             return false;
         }
 
         // 检查发送方和接收方账户状态及权限
         if (!sender.isActive()) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Sender account is inactive.");
+            LOG.debug("Transfer failed for '{}': Sender account is inactive.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Sender account inactive.");
             return false;
         }
         if (!sender.canWithdraw()) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Sender does not have withdrawal permission.");
+            LOG.debug("Transfer failed for '{}': Sender does not have withdrawal permission.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Sender no withdrawal permission.");
             return false;
         }
-        if (sender.getBalance() < amount) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Insufficient balance. Current: " + sender.getBalance() + ", Requested: " + amount);
+        if (sender.getBalanceMinorUnits() < amountMinorUnits) {
+            LOG.debug("Transfer failed for '{}': Insufficient balance. Current: {}, Requested: {}", senderUsername, sender.getBalance(), amount);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Insufficient balance. Current: " + sender.getBalance() + ", Requested: " + amount);
             return false;
         }
 
         if (!receiver.isActive()) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Receiver account '" + receiverAccountNumber + "' is inactive.");
+            LOG.debug("Transfer failed for '{}': Receiver account '{}' is inactive.", senderUsername, receiverAccountNumber);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Receiver account inactive.");
             return false;
         }
         if (!receiver.canDeposit()) {
-            System.out.println("Transfer failed for '" + senderUsername + "': Receiver does not have deposit permission.");
+            LOG.debug("Transfer failed for '{}': Receiver does not have deposit permission.", senderUsername);
             loggingService.logUserAction(senderUsername, "Transfer failed", "Receiver no deposit permission.");
             return false;
         }
 
-        // 模拟事务：在内存DAO中，通过同步块确保操作的原子性
-        // 在实际数据库中，会使用数据库事务
-        synchronized (this) { // 简单地同步整个服务实例，确保并发安全
+        // 模拟事务：按固定顺序锁定转账双方账户，确保操作的原子性且不会死锁
+        // 不相交的账户对之间的转账可以并行执行；在实际数据库中，会使用数据库事务
+        lockManager.lockBoth(sender.getAccountNumber(), receiver.getAccountNumber());
+        try {
             // 重新获取最新余额，防止在检查后到更新前有其他操作影响余额
             Optional<User> currentSenderOptional = dao.getUserByUsername(senderUsername);
             Optional<User> currentReceiverOptional = dao.getUserByAccountNumber(receiverAccountNumber);
 
             if (currentSenderOptional.isEmpty() || currentReceiverOptional.isEmpty()) {
-                System.out.println("Transfer failed: Sender or receiver disappeared during transaction.");
+                LOG.debug("Transfer failed: Sender or receiver disappeared during transaction.");
                 loggingService.logUserAction(senderUsername, "Transfer failed", "Sender or receiver disappeared during transaction.");
                 return false;
             }
 
             User currentSender = currentSenderOptional.get();
             User currentReceiver = currentReceiverOptional.get();
+            if (!currentSender.getAccountNumber().equals(sender.getAccountNumber())
+                    || !currentReceiver.getAccountNumber().equals(receiver.getAccountNumber())) {
+                // 账户在加锁前被删除并重建，新对象不在已锁定的账户中
+                LOG.debug("Transfer failed for '{}': Account changed during transaction.", senderUsername);
+                loggingService.logUserAction(senderUsername, "Transfer failed", "Account changed during transaction.");
+                return false;
+            }
 
-            if (currentSender.getBalance() < amount) { // 再次检查余额
-                System.out.println("Transfer failed for '" + senderUsername + "': Insufficient balance after re-check.");
+            // 执行扣款：有条件CAS扣减，同时再次检查余额（存取款不持有账户锁，余额可能已变化）
+            long senderNewBalanceMinorUnits = currentSender.tryDebit(amountMinorUnits);
+            if (senderNewBalanceMinorUnits == User.INSUFFICIENT_FUNDS) {
+                LOG.debug("Transfer failed for '{}': Insufficient balance after re-check.", senderUsername);
                 loggingService.logUserAction(senderUsername, "Transfer failed", "Insufficient balance after re-check.");
                 return false;
             }
-
-            // 执行扣款
-            double senderNewBalance = currentSender.getBalance() - amount;
-            currentSender.setBalance(senderNewBalance);
-            dao.updateUser(currentSender);
-
-            // 执行收款
-            double receiverNewBalance = currentReceiver.getBalance() + amount;
-            currentReceiver.setBalance(receiverNewBalance);
-            dao.updateUser(currentReceiver);
+            // 执行收款：接收方余额将溢出时退回扣款
+            long receiverNewBalanceMinorUnits = currentReceiver.credit(amountMinorUnits);
+            if (receiverNewBalanceMinorUnits == User.BALANCE_OVERFLOW) {
+                currentSender.adjust(amountMinorUnits); // 退款不受余额上限限制，不会失败
+                LOG.debug("Transfer failed for '{}': Receiver balance limit exceeded.", senderUsername);
+                loggingService.logUserAction(senderUsername, "Transfer failed", "Receiver balance limit exceeded.");
+                return false;
+            }
+            double senderNewBalance = MoneyUtil.toAmount(senderNewBalanceMinorUnits);
+            double receiverNewBalance = MoneyUtil.toAmount(receiverNewBalanceMinorUnits);
+            double transferredAmount = MoneyUtil.toAmount(amountMinorUnits); // 按实际转出的分值记录
 
             // 记录发送方交易
             TransactionRecord senderTransaction = new TransactionRecord(
-                    sender.getUserId(), sender.getAccountNumber(), TransactionType.TRANSFER_OUT,
-                    amount, senderNewBalance, "Transfer to " + receiver.getAccountNumber(), receiver.getAccountNumber()
+                    currentSender.getUserId(), currentSender.getAccountNumber(), TransactionType.TRANSFER_OUT,
+                    transferredAmount, senderNewBalance, "Transfer to " + currentReceiver.getAccountNumber(), currentReceiver.getAccountNumber()
             );
-            dao.saveTransaction(senderTransaction);
 
             // 记录接收方交易
             TransactionRecord receiverTransaction = new TransactionRecord(
-                    receiver.getUserId(), receiver.getAccountNumber(), TransactionType.TRANSFER_IN,
-                    amount, receiverNewBalance, "Transfer from " + sender.getAccountNumber(), sender.getAccountNumber()
+                    currentReceiver.getUserId(), currentReceiver.getAccountNumber(), TransactionType.TRANSFER_IN,
+                    transferredAmount, receiverNewBalance, "Transfer from " + currentSender.getAccountNumber(), currentSender.getAccountNumber()
             );
-            dao.saveTransaction(receiverTransaction);
+            saveBalanceChanges(List.of(currentSender, currentReceiver), new long[] {-amountMinorUnits, amountMinorUnits},
+                    List.of(senderTransaction, receiverTransaction));
 
-            System.out.println("Transfer successful from '" + senderUsername + "' to '" + receiverAccountNumber + "' of " + amount + ".");
-            loggingService.logUserAction(senderUsername, "Transfer successful", "Transferred " + amount + " to " + receiver.getAccountNumber());
-            loggingService.logUserAction(receiver.getUsername(), "Received transfer", "Received " + amount + " from " + sender.getAccountNumber());
+            LOG.debug("Transfer successful from '{}' to '{}' of {}.", senderUsername, receiverAccountNumber, transferredAmount);
+            loggingService.logUserAction(senderUsername, "Transfer successful", "Transferred " + transferredAmount + " to " + currentReceiver.getAccountNumber());
+            loggingService.logUserAction(currentReceiver.getUsername(), "Received transfer", "Received " + transferredAmount + " from " + currentSender.getAccountNumber());
             return true;
+        } finally {
+            lockManager.unlockBoth(sender.getAccountNumber(), receiver.getAccountNumber());
         }
     }
 
 
+    /**
+     * 批量转账（工资发放等场景）
+     * Executes a batch of transfers. Every item is validated up front; items that fail validation
+     * are rejected individually. The remaining items are then simulated in order against the current
+     * balances (so an item is rejected exactly when a sequence of single transfers would have hit
+     * insufficient funds), netted into one balance change per account, and applied atomically while
+     * all involved accounts are locked in a single acquisition. Transaction records and logs are
+     * written in bulk. Batches of more than {@value #MAX_BATCH_CHUNK} items are applied in
+     * consecutive chunks of that size, each atomically, so the stored balance change of a chunk
+     * stays well below the journal's record size limit.
+     * @param requests The transfers, in the order they should be applied.
+     * @return One result per request, in request order.
+     */
+    public List<TransferResult> transferBatch(List<TransferRequest> requests) {
+        int count = requests.size();
+        TransferResult[] results = new TransferResult[count];
+        long[] amounts = new long[count];
+        List<OperationLog> logs = new ArrayList<>();
+        int applied = 0;
+        for (int from = 0; from < count; from += MAX_BATCH_CHUNK) {
+            applied += transferChunk(requests, from, Math.min(count, from + MAX_BATCH_CHUNK), amounts, results, logs);
+        }
+
+        loggingService.logAll(logs);
+        LOG.debug("Batch transfer: {} of {} transfers applied.", applied, count);
+        loggingService.logSystemAction("Batch transfer", applied + " of " + count + " transfers applied.");
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 校验并应用批量转账中的一块
+     * Validates the items {@code [from, to)} of a batch and applies the valid ones atomically.
+     * @return The number of transfers applied.
+     */
+    private int transferChunk(List<TransferRequest> requests, int from, int to, long[] amounts,
+                              TransferResult[] results, List<OperationLog> logs) {
+        // 预先校验：金额、账户存在性、状态与权限
+        Set<String> accounts = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            TransferRequest request = requests.get(i);
+            amounts[i] = MoneyUtil.isValidAmount(request.getAmount()) ? MoneyUtil.toMinorUnits(request.getAmount()) : 0;
+            User sender = dao.getUserByUsername(request.getSenderUsername()).orElse(null);
+            User receiver = dao.getUserByAccountNumber(request.getReceiverAccountNumber()).orElse(null);
+            String failure = validateBatchTransfer(request, amounts[i], sender, receiver);
+            if (failure != null) {
+                rejectBatchItem(results, logs, i, request, failure);
+                continue;
+            }
+            accounts.add(sender.getAccountNumber());
+            accounts.add(receiver.getAccountNumber());
+        }
+
+        if (accounts.isEmpty()) {
+            return 0;
+        }
+        int[] stripes = lockManager.lockAll(accounts); // 一次性按固定顺序锁定所有涉及的账户
+        try {
+            return applyBatch(requests, from, to, amounts, accounts, results, logs);
+        } finally {
+            lockManager.unlockAll(stripes);
+        }
+    }
+
+    /**
+     * 在账户锁内模拟、轧差并应用批量转账
+     * Simulates the pending items {@code [from, to)} in order, nets the accepted ones per account and
+     * applies the net changes. Deposits and withdrawals do not take account locks, so a net debit can
+     * still fail if a concurrent withdrawal drained the account after the simulation; the debits
+     * already made are then refunded and the batch is simulated again against the new balances. An
+     * item whose re-fetched sender or receiver is not among the locked accounts is rejected.
+     * @param accounts The account numbers locked for the batch.
+     * @return The number of transfers applied.
+     */
+    private int applyBatch(List<TransferRequest> requests, int from, int to, long[] amounts, Set<String> accounts,
+                           TransferResult[] results, List<OperationLog> logs) {
+        int count = to - from;
+        for (int attempt = 0; attempt < BATCH_APPLY_ATTEMPTS; attempt++) {
+            Map<String, User> users = new HashMap<>();          // 账号 -> 用户
+            Map<String, Long> projected = new HashMap<>();      // 账号 -> 模拟余额
+            User[] senders = new User[count];
+            User[] receivers = new User[count];
+            long[] senderBalances = new long[count];
+            long[] receiverBalances = new long[count];
+            String[] failures = new String[count];
+
+            for (int i = from; i < to; i++) {
+                if (results[i] != null) {
+                    continue; // 预先校验已失败
+                }
+                TransferRequest request = requests.get(i);
+                // 重新获取最新的用户对象，防止在校验后到加锁前有其他操作修改了账户
+                Optional<User> senderOptional = dao.getUserByUsername(request.getSenderUsername());
+                Optional<User> receiverOptional = dao.getUserByAccountNumber(request.getReceiverAccountNumber());
+                if (senderOptional.isEmpty() || receiverOptional.isEmpty()) {
+                    failures[i - from] = "Sender or receiver disappeared during transaction.";
+                    continue;
+                }
+                User sender = senderOptional.get();
+                User receiver = receiverOptional.get();
+                if (!accounts.contains(sender.getAccountNumber()) || !accounts.contains(receiver.getAccountNumber())) {
+                    failures[i - from] = "Account changed during transaction."; // 账号在加锁前被修改，不在已锁定的账户中
+                    continue;
+                }
+                if (!sender.isActive() || !receiver.isActive()) {
+                    failures[i - from] = "Sender or receiver account became inactive.";
+                    continue;
+                }
+                users.putIfAbsent(sender.getAccountNumber(), sender);
+                users.putIfAbsent(receiver.getAccountNumber(), receiver);
+                long senderBalance = projected.computeIfAbsent(sender.getAccountNumber(), a -> sender.getBalanceMinorUnits());
+                if (senderBalance < amounts[i]) {
+                    failures[i - from] = "Insufficient balance. Current: " + MoneyUtil.toAmount(senderBalance)
+                            + ", Requested: " + requests.get(i).getAmount();
+                    continue;
+                }
+                long receiverBalance = projected.computeIfAbsent(receiver.getAccountNumber(), a -> receiver.getBalanceMinorUnits());
+                if (receiverBalance > User.MAX_BALANCE_MINOR_UNITS - amounts[i]) {
+                    failures[i - from] = "Receiver balance limit exceeded.";
+                    continue;
+                }
+                senderBalances[i - from] = senderBalance - amounts[i];
+                receiverBalances[i - from] = receiverBalance + amounts[i];
+                projected.put(sender.getAccountNumber(), senderBalances[i - from]);
+                projected.put(receiver.getAccountNumber(), receiverBalances[i - from]);
+                senders[i - from] = sender;
+                receivers[i - from] = receiver;
+            }
+
+            // 轧差：每个账户只做一次余额变更
+            Map<String, Long> net = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                if (senders[i - from] != null) {
+                    net.merge(senders[i - from].getAccountNumber(), -amounts[i], Long::sum);
+                    net.merge(receivers[i - from].getAccountNumber(), amounts[i], Long::sum);
+                }
+            }
+            Map<String, Long> actual = applyNetChanges(users, net);
+            if (actual == null) {
+                continue; // 并发取款导致净扣款失败，已退回，重新模拟
+            }
+
+            // 交易记录中的余额：模拟余额加上并发存取款造成的偏差，使每个账户最后一条记录与实际余额一致
+            Map<String, Long> drift = new HashMap<>();
+            for (Map.Entry<String, Long> entry : actual.entrySet()) {
+                drift.put(entry.getKey(), entry.getValue() - projected.get(entry.getKey()));
+            }
+            List<TransactionRecord> records = new ArrayList<>();
+            int applied = 0;
+            for (int i = from; i < to; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                TransferRequest request = requests.get(i);
+                if (senders[i - from] == null) {
+                    rejectBatchItem(results, logs, i, request, failures[i - from]);
+                    continue;
+                }
+                User sender = senders[i - from];
+                User receiver = receivers[i - from];
+                double amount = MoneyUtil.toAmount(amounts[i]);
+                double senderBalanceAfter = MoneyUtil.toAmount(senderBalances[i - from] + drift.get(sender.getAccountNumber()));
+                double receiverBalanceAfter = MoneyUtil.toAmount(receiverBalances[i - from] + drift.get(receiver.getAccountNumber()));
+                records.add(new TransactionRecord(
+                        sender.getUserId(), sender.getAccountNumber(), TransactionType.TRANSFER_OUT,
+                        amount, senderBalanceAfter, "Transfer to " + receiver.getAccountNumber(), receiver.getAccountNumber()));
+                records.add(new TransactionRecord(
+                        receiver.getUserId(), receiver.getAccountNumber(), TransactionType.TRANSFER_IN,
+                        amount, receiverBalanceAfter, "Transfer from " + sender.getAccountNumber(), sender.getAccountNumber()));
+                logs.add(new OperationLog(sender.getUsername(), ActorType.USER, "Transfer successful",
+                        "Transferred " + amount + " to " + receiver.getAccountNumber() + " (batch)"));
+                logs.add(new OperationLog(receiver.getUsername(), ActorType.USER, "Received transfer",
+                        "Received " + amount + " from " + sender.getAccountNumber() + " (batch)"));
+                results[i] = new TransferResult(i, request, true, "Transfer successful.", senderBalanceAfter);
+                applied++;
+            }
+            List<User> changedUsers = new ArrayList<>(net.size());
+            long[] changes = new long[net.size()];
+            for (Map.Entry<String, Long> entry : net.entrySet()) {
+                changes[changedUsers.size()] = entry.getValue();
+                changedUsers.add(users.get(entry.getKey()));
+            }
+            saveBalanceChanges(changedUsers, changes, records);
+            return applied;
+        }
+
+        // 多次重试仍因并发取款失败，整批放弃（余额已全部回滚）
+        for (int i = from; i < to; i++) {
+            if (results[i] == null) {
+                rejectBatchItem(results, logs, i, requests.get(i), "Balances changed concurrently; batch not applied.");
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 应用每个账户的净变更：先扣款后入账，扣款失败时退回已扣的款项
+     * Applies the net change of every account, debits first. A debit fails if a concurrent
+     * withdrawal drained the account; the debits already made are then refunded. Neither the
+     * refunds nor the credits can fail: they are unconditional adjustments, the simulation kept
+     * every receiver the credited amount below {@link User#MAX_BALANCE_MINOR_UNITS}, and the
+     * headroom above that limit absorbs concurrent deposits.
+     * @return The resulting balance of every account, or null if a debit failed and was undone.
+     */
+    private Map<String, Long> applyNetChanges(Map<String, User> users, Map<String, Long> net) {
+        Map<String, Long> actual = new HashMap<>();
+        for (Map.Entry<String, Long> entry : net.entrySet()) {
+            if (entry.getValue() < 0) {
+                User user = users.get(entry.getKey());
+                long balance = user.tryDebit(-entry.getValue());
+                if (balance == User.INSUFFICIENT_FUNDS) {
+                    for (String accountNumber : actual.keySet()) {
+                        users.get(accountNumber).adjust(-net.get(accountNumber));
+                    }
+                    return null;
+                }
+                actual.put(entry.getKey(), balance);
+            }
+        }
+        for (Map.Entry<String, Long> entry : net.entrySet()) {
+            long change = entry.getValue();
+            if (change > 0) {
+                actual.put(entry.getKey(), users.get(entry.getKey()).adjust(change));
+            } else if (change == 0) {
+                actual.put(entry.getKey(), users.get(entry.getKey()).getBalanceMinorUnits());
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * 持久化已应用的余额变更及其交易记录，失败时撤销余额变更
+     * Persists balance changes already applied to the users together with their transaction
+     * records. If that fails, the changes are reversed before the exception is rethrown, so the
+     * in-memory balances do not run ahead of what was stored.
+     * @param changes The change applied to each user's balance, in minor units.
+     */
+    private void saveBalanceChanges(List<User> users, long[] changes, List<TransactionRecord> records) {
+        try {
+            dao.saveBalanceChanges(users, changes, records);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).adjust(-changes[i]);
+            }
+            LOG.error("Failed to store a balance change; reverted {} balance(s): {}", users.size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 批量转账的单笔预先校验（不检查余额，余额在账户锁内按顺序模拟）
+     * Checks one batch item like {@link #transfer(String, String, double)} does, except for the
+     * balance, which is checked in order under the account locks.
+     * @param sender The sender, or null if not found.
+     * @param receiver The receiver, or null if not found.
+     * @return The failure reason, or null if the item is valid.
+     */
+    private static String validateBatchTransfer(TransferRequest request, long amountMinorUnits, User sender, User receiver) {
+        if (amountMinorUnits <= 0) {
+            return "Amount must be positive.";
+        }
+        if (sender == null) {
+            return "Sender not found.";
+        }
+        if (receiver == null) {
+            return "Receiver account '" + request.getReceiverAccountNumber() + "' not found.";
+        }
+        if (sender.getAccountNumber().equals(receiver.getAccountNumber())) {
+            return "Cannot transfer to own account.";
+        }
+        if (!sender.isActive()) {
+            return "Sender account inactive.";
+        }
+        if (!sender.canWithdraw()) {
+            return "Sender no withdrawal permission.";
+        }
+        if (!receiver.isActive()) {
+            return "Receiver account inactive.";
+        }
+        if (!receiver.canDeposit()) {
+            return "Receiver no deposit permission.";
+        }
+        return null;
+    }
+
+    private static void rejectBatchItem(TransferResult[] results, List<OperationLog> logs, int index,
+                                        TransferRequest request, String reason) {
+        results[index] = TransferResult.failed(index, request, reason);
+        logs.add(new OperationLog(request.getSenderUsername(), ActorType.USER, "Transfer failed", reason + " (batch)"));
+    }
+
     /**
      * 查询用户余额
      * Checks the balance of a user's account.
@@ -256,14 +651,28 @@ public class UserService {
      * @return An Optional containing the balance if user is found, empty otherwise.
      */
     public Optional<Double> checkBalance(String username) {
-        Optional<User> userOptional = dao.getUserByUsername(username);
+        return checkBalance(username, dao.getUserByUsername(username));
+    }
+
+    /**
+     * 通过会话查询余额
+     * Checks the balance of a session's user.
+     * @param session The user's session token.
+     * @return An Optional containing the balance, empty if the session is invalid.
+     */
+    public Optional<Double> checkBalance(SessionToken session) {
+        Optional<User> user = resolveSession(session, "Check balance");
+        return user.isPresent() ? checkBalance(user.get().getUsername(), user) : Optional.empty();
+    }
+
+    private Optional<Double> checkBalance(String username, Optional<User> userOptional) {
         if (userOptional.isPresent()) {
             User user = userOptional.get(); // 获取User对象
-            System.out.println("User '" + username + "' balance: " + user.getBalance());
+            LOG.debug("User '{}' balance: {}", username, user.getBalance());
             loggingService.logUserAction(username, "Check balance", "Current balance: " + user.getBalance());
             return Optional.of(user.getBalance());
         }
-        System.out.println("Check balance failed: User '" + username + "' not found.");
+        LOG.debug("Check balance failed: User '{}' not found.", username);
         loggingService.logUserAction(username, "Check balance failed", "User not found.");
         return Optional.empty();
     }
@@ -283,20 +692,52 @@ public class UserService {
             if (PasswordHasher.verifyPassword(oldPassword, user.getPasswordHash())) {
                 user.setPasswordHash(PasswordHasher.hashPassword(newPassword)); // 哈希新密码
                 dao.updateUser(user);
-                System.out.println("User '" + username + "' password updated successfully.");
+                LOG.debug("User '{}' password updated successfully.", username);
                 loggingService.logUserAction(username, "Password updated", "User '" + username + "' changed password.");
                 return true;
             } else {
-                System.out.println("Password update failed for '" + username + "': Old password mismatch.");
+                LOG.debug("Password update failed for '{}': Old password mismatch.", username);
                 loggingService.logUserAction(username, "Password update failed", "Old password mismatch.");
                 return false;
             }
         }
-        System.out.println("Password update failed: User '" + username + "' not found.");
+        LOG.debug("Password update failed: User '{}' not found.", username);
         loggingService.logUserAction(username, "Password update failed", "User not found.");
         return false;
     }
 
+    /**
+     * 分页查询用户自己的交易记录
+     * Retrieves one page of the user's own transaction history.
+     * The query is always restricted to the user's ID, whatever the caller set.
+     * @param username The username.
+     * @param query The filter and paging criteria.
+     * @return The page of matching records; empty if the user is not found.
+     */
+    public TransactionPage getTransactionHistory(String username, TransactionQuery query) {
+        Optional<User> userOptional = dao.getUserByUsername(username);
+        if (userOptional.isEmpty()) {
+            LOG.debug("Get transaction history failed: User '{}' not found.", username);
+            return new TransactionPage(List.of(), null);
+        }
+        return dao.queryTransactions(query.setUserId(userOptional.get().getUserId()));
+    }
+
+    /**
+     * 通过会话分页查询交易记录
+     * Retrieves one page of the transaction history of a session's user.
+     * @param session The user's session token.
+     * @param query The filter and paging criteria.
+     * @return The page of matching records; empty if the session is invalid.
+     */
+    public TransactionPage getTransactionHistory(SessionToken session, TransactionQuery query) {
+        Optional<User> user = resolveSession(session, "Get transaction history");
+        if (user.isEmpty()) {
+            return new TransactionPage(List.of(), null);
+        }
+        return dao.queryTransactions(query.setUserId(user.get().getUserId()));
+    }
+
     /**
      * 获取用户详细信息
      * Retrieves a user's detailed information.
@@ -304,14 +745,40 @@ public class UserService {
      * @return An Optional containing the User object if found, empty otherwise.
      */
     public Optional<User> getUserDetails(String username) {
-        Optional<User> userOptional = dao.getUserByUsername(username);
+        return getUserDetails(username, dao.getUserByUsername(username));
+    }
+
+    /**
+     * 通过会话获取用户详细信息
+     * Retrieves the details of a session's user.
+     * @param session The user's session token.
+     * @return An Optional containing the User object, empty if the session is invalid.
+     */
+    public Optional<User> getUserDetails(SessionToken session) {
+        Optional<User> user = resolveSession(session, "Get user details");
+        return user.isPresent() ? getUserDetails(user.get().getUsername(), user) : Optional.empty();
+    }
+
+    private Optional<User> getUserDetails(String username, Optional<User> userOptional) {
         if (userOptional.isPresent()) {
             User user = userOptional.get(); // 获取User对象
             loggingService.logUserAction(username, "View personal info", "User '" + username + "' viewed their details.");
             return Optional.of(user); // 返回User对象而不是Optional<User>的Optional
         }
-        System.out.println("Get user details failed: User '" + username + "' not found.");
+        LOG.debug("Get user details failed: User '{}' not found.", username);
         loggingService.logUserAction(username, "View personal info failed", "User '" + username + "' not found.");
         return Optional.empty();
     }
+
+    /**
+     * 解析会话令牌，失败时记录原因
+     * Resolves a session token to its user, tracing the failure if the session is invalid.
+     */
+    private Optional<User> resolveSession(SessionToken session, String operation) {
+        Optional<User> user = sessionManager.resolveUser(session);
+        if (user.isEmpty()) {
+            LOG.debug("{} failed: Invalid or expired session.", operation);
+        }
+        return user;
+    }
 }
@@ -0,0 +1,497 @@
+package com.banksimulation.simulation;
+
+import com.banksimulation.dao.DataAccessObject;
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.dao.InstrumentedDAO;
+import com.banksimulation.dao.JournalingDAO;
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.User;
+import com.banksimulation.metrics.LatencyHistogram;
+import com.banksimulation.metrics.MetricsRegistry;
+import com.banksimulation.service.AsyncLogWriter;
+import com.banksimulation.service.AuthenticationService;
+import com.banksimulation.service.InstrumentedAuthenticationService;
+import com.banksimulation.service.InstrumentedUserService;
+import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.LoginRateLimiter;
+import com.banksimulation.service.PasswordVerificationPool;
+import com.banksimulation.service.SessionManager;
+import com.banksimulation.service.UserService;
+import com.banksimulation.util.AccountLockManager;
+import com.banksimulation.util.DiagnosticLogger;
+import com.banksimulation.util.PasswordHasher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无界面的负载模拟驱动程序
+ * Headless load generator for the bank engine. It wires the DAO and services the same way as
+ * {@code App.init} (honouring the same {@code bank.*} system properties), creates synthetic users,
+ * replays a weighted mix of logins, deposits, withdrawals and transfers from several threads with
+ * Zipf-skewed account selection, and reports throughput and latency percentiles per operation.
+ * <p>
+ * Usage, after {@code mvn compile} (the services need the runtime dependencies, e.g. bcrypt, on the
+ * class path):
+ * <pre>
+ *   java -cp "target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *       com.banksimulation.simulation.SimulationDriver [options]
+ * </pre>
+ * Options:
+ * <pre>
+ *   --users N        number of synthetic users (default 10000)
+ *   --threads M      number of worker threads (default: available processors)
+ *   --operations K   total number of operations (default 1000000)
+ *   --duration S     run for S seconds instead of a fixed number of operations
+ *   --mix SPEC       operation weights, e.g. login=10,deposit=40,withdraw=20,transfer=30 (default)
+ *   --zipf E         account skew exponent; 0 is uniform (default 1.0)
+ *   --seed X         random seed (default 42)
+ *   --verbose        log the services' per-operation DEBUG traces (off by default; they dominate latency)
+ *   --metrics        instrument the services and DAO and append their per-method breakdown
+ *   --rate-limit     apply the application's default login rate limits (off by default, since the
+ *                    simulated users log in far more often than the per-username limit allows);
+ *                    rejected logins are reported in their own column, not as failures
+ * </pre>
+ */
+public class SimulationDriver {
+
+    /**
+     * 模拟的操作类型
+     * The operations the simulation replays.
+     */
+    public enum Operation {
+        LOGIN, DEPOSIT, WITHDRAW, TRANSFER
+    }
+
+    private static final String USERNAME_PREFIX = "sim";
+    private static final String PASSWORD = "simpass";
+    private static final long FIRST_ACCOUNT_NUMBER = 300_000;
+    private static final double INITIAL_BALANCE = 10_000.0;
+
+    private final Options options;
+    private final PrintStream report;
+    private InMemoryDAO dao;
+    private LoggingService loggingService;
+    private AuthenticationService authenticationService;
+    private UserService userService;
+    private MetricsRegistry metricsRegistry; // 仅在 --metrics 时创建
+    private CountingRateLimiter rateLimiter; // 仅在 --rate-limit 时创建
+    private String[] usernames;
+    private String[] accountNumbers;
+
+    public SimulationDriver(Options options, PrintStream report) {
+        this.options = options;
+        this.report = report;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: SimulationDriver [--users N] [--threads M] [--operations K | --duration S]"
+                    + " [--mix login=10,deposit=40,withdraw=20,transfer=30] [--zipf E] [--seed X] [--verbose] [--metrics]"
+                    + " [--rate-limit]");
+            System.exit(2);
+            return;
+        }
+        // 默认只输出警告及以上的诊断信息，避免与报告混在一起
+        DiagnosticLogger.setLevel(options.verbose ? DiagnosticLogger.Level.DEBUG : DiagnosticLogger.Level.WARN);
+        new SimulationDriver(options, System.out).run();
+        DiagnosticLogger.flush();
+    }
+
+    /**
+     * 装配服务、创建用户、运行负载并输出报告
+     * Wires the services, creates the users, runs the load and prints the report.
+     */
+    public void run() throws IOException, InterruptedException {
+        initServices();
+        try {
+            createUsers();
+            report.printf(Locale.ROOT, "Simulating %s with %d users on %d threads, zipf exponent %.2f, mix %s%n",
+                    options.duration != null ? options.duration.toSeconds() + " s" : options.operations + " operations",
+                    options.users, options.threads, options.zipfExponent, options.mixDescription());
+            Map<Operation, Result> results = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                results.put(operation, new Result());
+            }
+            long elapsedNanos = runWorkers(results);
+            printReport(results, elapsedNanos);
+            if (metricsRegistry != null) {
+                report.println();
+                report.print(metricsRegistry.snapshot().format());
+            }
+        } finally {
+            shutdownServices();
+        }
+    }
+
+    /**
+     * 与 App.init 相同的服务装配
+     * Creates the DAO and services exactly as {@code App.init} does; the instrumented variants
+     * only with {@code --metrics}, so that by default the report measures the bare services. Logins
+     * are not rate-limited unless {@code --rate-limit} is given.
+     */
+    private void initServices() throws IOException {
+        String dataDir = System.getProperty("bank.data.dir");
+        dao = dataDir != null
+                ? new JournalingDAO(Path.of(dataDir),
+                        Duration.ofSeconds(Long.getLong("bank.snapshot.interval.seconds", 300)),
+                        Duration.ofDays(Long.getLong("bank.archive.age.days", 30)))
+                : new InMemoryDAO();
+        DataAccessObject serviceDao = dao;
+        if (options.metrics) {
+            metricsRegistry = new MetricsRegistry();
+            serviceDao = new InstrumentedDAO(dao, metricsRegistry);
+        }
+        loggingService = new LoggingService(serviceDao);
+        loggingService.enableAsync(
+                Integer.getInteger("bank.log.capacity", LoggingService.DEFAULT_ASYNC_CAPACITY),
+                AsyncLogWriter.BackpressurePolicy.valueOf(System.getProperty("bank.log.backpressure", "BLOCK"))
+        );
+        SessionManager sessionManager = new SessionManager();
+        LoginRateLimiter loginRateLimiter = LoginRateLimiter.unlimited();
+        if (options.rateLimit) {
+            rateLimiter = new CountingRateLimiter();
+            loginRateLimiter = rateLimiter;
+        }
+        if (metricsRegistry != null) {
+            authenticationService = new InstrumentedAuthenticationService(serviceDao, loggingService,
+                    new PasswordVerificationPool(), sessionManager, loginRateLimiter, metricsRegistry);
+            userService = new InstrumentedUserService(serviceDao, loggingService, new AccountLockManager(), sessionManager, metricsRegistry);
+        } else {
+            authenticationService = new AuthenticationService(serviceDao, loggingService, new PasswordVerificationPool(),
+                    sessionManager, loginRateLimiter);
+            userService = new UserService(serviceDao, loggingService, new AccountLockManager(), sessionManager);
+        }
+    }
+
+    private void shutdownServices() throws IOException {
+        authenticationService.shutdown();
+        loggingService.shutdown();
+        if (dao instanceof JournalingDAO) {
+            ((JournalingDAO) dao).close();
+        }
+    }
+
+    private void createUsers() {
+        String passwordHash = PasswordHasher.hashPassword(PASSWORD); // 所有模拟用户共用同一密码，只哈希一次
+        usernames = new String[options.users];
+        accountNumbers = new String[options.users];
+        for (int i = 0; i < options.users; i++) {
+            usernames[i] = USERNAME_PREFIX + i;
+            accountNumbers[i] = String.valueOf(FIRST_ACCOUNT_NUMBER + i);
+            if (dao.getUserByUsername(usernames[i]).isEmpty()) { // 持久化数据目录中可能已有上次运行创建的用户
+                User user = new User(usernames[i], passwordHash, "Sim", "User" + i, accountNumbers[i]);
+                user.setBalance(INITIAL_BALANCE);
+                dao.saveUser(user);
+            }
+        }
+    }
+
+    private long runWorkers(Map<Operation, Result> results) throws InterruptedException {
+        ZipfDistribution accounts = new ZipfDistribution(options.users, options.zipfExponent);
+        Worker[] workers = new Worker[options.threads];
+        Thread[] threads = new Thread[options.threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < options.threads; i++) {
+            long quota = options.operations / options.threads + (i < options.operations % options.threads ? 1 : 0);
+            workers[i] = new Worker(new SplittableRandom(options.seed + i), accounts, quota, start);
+            threads[i] = new Thread(workers[i], "simulation-" + i);
+            threads[i].start();
+        }
+        long startNanos = System.nanoTime();
+        if (options.duration != null) {
+            for (Worker worker : workers) {
+                worker.deadlineNanos = startNanos + options.duration.toNanos();
+            }
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        for (Worker worker : workers) {
+            for (Operation operation : Operation.values()) {
+                results.get(operation).add(worker.results.get(operation));
+            }
+        }
+        if (rateLimiter != null) {
+            // 被限流拒绝的登录也返回失败，单独列出
+            Result logins = results.get(Operation.LOGIN);
+            logins.limited = rateLimiter.rejected.sum();
+            logins.failed -= logins.limited;
+        }
+        return elapsedNanos;
+    }
+
+    private void printReport(Map<Operation, Result> results, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        for (Result result : results.values()) {
+            total += result.latencies.getCount();
+        }
+        report.printf(Locale.ROOT, "Elapsed %.2f s, %d operations, %.0f ops/s%n", seconds, total, total / seconds);
+        report.printf(Locale.ROOT, "%-9s %10s %8s %8s %10s %9s %9s %9s %9s %9s %9s%n",
+                "Operation", "Count", "Failed", "Limited", "Ops/s", "Mean(us)", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "Max(us)");
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            Result result = entry.getValue();
+            LatencyHistogram latencies = result.latencies;
+            if (latencies.getCount() == 0) {
+                continue;
+            }
+            report.printf(Locale.ROOT, "%-9s %10d %8d %8d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey(), latencies.getCount(), result.failed, result.limited, latencies.getCount() / seconds,
+                    latencies.getMean() / 1e3, latencies.getPercentile(50) / 1e3, latencies.getPercentile(90) / 1e3,
+                    latencies.getPercentile(99) / 1e3, latencies.getPercentile(99.9) / 1e3, latencies.getMax() / 1e3);
+        }
+    }
+
+    /**
+     * 单个工作线程：按权重选择操作，按 Zipf 分布选择账户
+     * One worker thread: draws operations by weight and accounts from the Zipf distribution,
+     * recording latencies into its own histograms.
+     */
+    private final class Worker implements Runnable {
+        private final SplittableRandom random;
+        private final ZipfDistribution accounts;
+        private final long quota;
+        private final CountDownLatch start;
+        private final Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        private volatile long deadlineNanos; // 0 表示按操作数运行
+
+        Worker(SplittableRandom random, ZipfDistribution accounts, long quota, CountDownLatch start) {
+            this.random = random;
+            this.accounts = accounts;
+            this.quota = quota;
+            this.start = start;
+            for (Operation operation : Operation.values()) {
+                results.put(operation, new Result());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long deadline = deadlineNanos;
+            for (long done = 0; deadline != 0 ? System.nanoTime() < deadline : done < quota; done++) {
+                Operation operation = options.pickOperation(random);
+                int account = accounts.sample(random);
+                long begin = System.nanoTime();
+                boolean ok = execute(operation, account);
+                long latency = System.nanoTime() - begin;
+                Result result = results.get(operation);
+                result.latencies.record(latency);
+                if (!ok) {
+                    result.failed++;
+                }
+            }
+        }
+
+        private boolean execute(Operation operation, int account) {
+            switch (operation) {
+                case LOGIN:
+                    return authenticationService.loginUser(usernames[account], PASSWORD).isPresent();
+                case DEPOSIT:
+                    return userService.deposit(usernames[account], amount(1, 100));
+                case WITHDRAW:
+                    return userService.withdraw(usernames[account], amount(1, 50));
+                case TRANSFER: {
+                    int receiver = accounts.sample(random);
+                    if (receiver == account) {
+                        receiver = (account + 1) % usernames.length;
+                    }
+                    return userService.transfer(usernames[account], accountNumbers[receiver], amount(1, 50));
+                }
+                default:
+                    throw new IllegalStateException("Unknown operation: " + operation);
+            }
+        }
+
+        private double amount(int min, int max) {
+            return random.nextInt(min * 100, max * 100 + 1) / 100.0;
+        }
+    }
+
+    /**
+     * 统计拒绝次数的登录限流器
+     * Login rate limiter that counts the attempts it rejects, so the report can tell them apart
+     * from failed logins.
+     */
+    private static final class CountingRateLimiter extends LoginRateLimiter {
+        private final LongAdder rejected = new LongAdder();
+
+        @Override
+        public Decision tryAcquire(ActorType actorType, String username) {
+            Decision decision = super.tryAcquire(actorType, username);
+            if (decision != Decision.ALLOWED) {
+                rejected.increment();
+            }
+            return decision;
+        }
+    }
+
+    /**
+     * 单类操作的统计结果
+     * Latencies, failure count and rate-limited count of one operation type.
+     */
+    private static final class Result {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long failed;  // 不含被限流拒绝的次数（汇总后扣除）
+        long limited; // 被限流拒绝的次数（仅登录）
+
+        void add(Result other) {
+            latencies.add(other.latencies);
+            failed += other.failed;
+        }
+    }
+
+    /**
+     * 命令行选项
+     * Command-line options of the simulation.
+     */
+    public static final class Options {
+        int users = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long operations = 1_000_000;
+        Duration duration;
+        double zipfExponent = 1.0;
+        long seed = 42;
+        boolean verbose;
+        boolean metrics;
+        boolean rateLimit;
+        private final int[] weights = {10, 40, 20, 30}; // 按 Operation 顺序
+        private int totalWeight = 100;
+
+        /**
+         * 解析命令行参数
+         * @throws IllegalArgumentException If an option is unknown or malformed.
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--verbose".equals(arg)) {
+                    options.verbose = true;
+                    continue;
+                }
+                if ("--metrics".equals(arg)) {
+                    options.metrics = true;
+                    continue;
+                }
+                if ("--rate-limit".equals(arg)) {
+                    options.rateLimit = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for option " + arg);
+                }
+                String value = args[++i];
+                try {
+                    switch (arg) {
+                        case "--users":
+                            options.users = positive(arg, Integer.parseInt(value));
+                            break;
+                        case "--threads":
+                            options.threads = positive(arg, Integer.parseInt(value));
+                            break;
+                        case "--operations":
+                            options.operations = positive(arg, Long.parseLong(value));
+                            break;
+                        case "--duration":
+                            options.duration = Duration.ofSeconds(positive(arg, Long.parseLong(value)));
+                            break;
+                        case "--mix":
+                            options.parseMix(value);
+                            break;
+                        case "--zipf":
+                            options.zipfExponent = Double.parseDouble(value);
+                            break;
+                        case "--seed":
+                            options.seed = Long.parseLong(value);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for option " + arg + ": " + value);
+                }
+            }
+            if (options.users < 2) {
+                throw new IllegalArgumentException("At least 2 users are needed for transfers.");
+            }
+            return options;
+        }
+
+        private void parseMix(String spec) {
+            int[] parsed = new int[Operation.values().length];
+            for (String part : spec.split(",")) {
+                String[] pair = part.split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid mix entry: " + part);
+                }
+                Operation operation = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Mix weights must not be negative: " + part);
+                }
+                parsed[operation.ordinal()] = weight;
+            }
+            int total = 0;
+            for (int weight : parsed) {
+                total += weight;
+            }
+            if (total == 0) {
+                throw new IllegalArgumentException("The operation mix must have a positive weight.");
+            }
+            System.arraycopy(parsed, 0, weights, 0, parsed.length);
+            totalWeight = total;
+        }
+
+        Operation pickOperation(SplittableRandom random) {
+            int r = random.nextInt(totalWeight);
+            Operation[] operations = Operation.values();
+            for (int i = 0; i < operations.length; i++) {
+                r -= weights[i];
+                if (r < 0) {
+                    return operations[i];
+                }
+            }
+            throw new IllegalStateException("Operation weights out of range");
+        }
+
+        String mixDescription() {
+            StringBuilder sb = new StringBuilder();
+            for (Operation operation : Operation.values()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(operation.name().toLowerCase(Locale.ROOT)).append('=').append(weights[operation.ordinal()]);
+            }
+            return sb.toString();
+        }
+
+        private static <T extends Number> T positive(String option, T value) {
+            if (value.longValue() <= 0) {
+                throw new IllegalArgumentException("Option " + option + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
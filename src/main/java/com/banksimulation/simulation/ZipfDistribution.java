@@ -0,0 +1,43 @@
+package com.banksimulation.simulation;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf 分布采样器
+ * Samples ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^exponent}.
+ * The cumulative distribution is precomputed once, so each sample is one binary search.
+ * An exponent of 0 gives a uniform distribution; around 1 a few accounts receive most operations.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("exponent must not be negative: " + exponent);
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    /**
+     * 采样一个排名（0 为最热门）
+     * @return A rank in {@code [0, n)}; rank 0 is the most frequent.
+     */
+    public int sample(RandomGenerator random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = i >= 0 ? i : -i - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.banksimulation.util;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import at.favre.lib.crypto.bcrypt.LongPasswordStrategies;
+import at.favre.lib.crypto.bcrypt.LongPasswordStrategy;
+
+/**
+ * bcrypt 哈希方案
+ * bcrypt ({@code $2a$}) with a configurable cost. Passwords longer than bcrypt's 72-byte limit
+ * are pre-hashed with SHA-512 instead of being truncated.
+ */
+public class BcryptPasswordHashScheme implements PasswordHashScheme {
+
+    public static final String ID = "bcrypt";
+    public static final int DEFAULT_COST = 10;
+
+    private static final LongPasswordStrategy LONG_PASSWORDS = LongPasswordStrategies.hashSha512(BCrypt.Version.VERSION_2A);
+
+    private final int cost;
+    private final BCrypt.Hasher hasher = BCrypt.with(BCrypt.Version.VERSION_2A, LONG_PASSWORDS);
+    private final BCrypt.Verifyer verifyer = BCrypt.verifyer(BCrypt.Version.VERSION_2A, LONG_PASSWORDS);
+
+    public BcryptPasswordHashScheme() {
+        this(DEFAULT_COST);
+    }
+
+    /**
+     * @param cost The log2 of the number of key expansion rounds, between 4 and 31.
+     */
+    public BcryptPasswordHashScheme(int cost) {
+        if (cost < BCrypt.MIN_COST || cost > BCrypt.MAX_COST) {
+            throw new IllegalArgumentException("bcrypt cost must be between " + BCrypt.MIN_COST + " and " + BCrypt.MAX_COST + ": " + cost);
+        }
+        this.cost = cost;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public String hash(String password) {
+        return hasher.hashToString(cost, password.toCharArray());
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        return verifyer.verify(password.toCharArray(), encodedHash).verified;
+    }
+
+    /**
+     * 代价低于当前配置的哈希需要重新计算
+     * A hash needs rehashing if its cost is below the configured one.
+     */
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        return parseCost(encodedHash) < cost;
+    }
+
+    // 格式为 $2a$10$...，代价位于第 4、5 个字符
+    private static int parseCost(String encodedHash) {
+        if (encodedHash.length() < 7 || encodedHash.charAt(3) != '$' || encodedHash.charAt(6) != '$') {
+            return -1;
+        }
+        char high = encodedHash.charAt(4);
+        char low = encodedHash.charAt(5);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+}
@@ -0,0 +1,49 @@
+package com.banksimulation.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 有界 LRU 映射
+ * Map that holds at most {@code maxEntries} entries, evicting the least recently accessed one
+ * when a new entry would exceed the bound. An optional listener sees each evicted entry. Not
+ * thread-safe; callers synchronize.
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class BoundedLruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxEntries;
+    private final transient BiConsumer<? super K, ? super V> evictionListener; // 反序列化后为 null，不再通知
+
+    public BoundedLruMap(int maxEntries) {
+        this(maxEntries, (key, value) -> { });
+    }
+
+    /**
+     * @param maxEntries The bound on the number of entries.
+     * @param evictionListener Called with each entry evicted to respect the bound.
+     */
+    public BoundedLruMap(int maxEntries, BiConsumer<? super K, ? super V> evictionListener) {
+        super(16, 0.75f, true); // 按访问顺序排列
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.evictionListener = evictionListener;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() <= maxEntries) {
+            return false;
+        }
+        if (evictionListener != null) {
+            evictionListener.accept(eldest.getKey(), eldest.getValue());
+        }
+        return true;
+    }
+}
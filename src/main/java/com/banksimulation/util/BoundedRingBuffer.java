@@ -0,0 +1,135 @@
+package com.banksimulation.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形缓冲区
+ * Bounded lock-free ring buffer for many producers and a draining consumer.
+ * Each slot carries a sequence number that tells producers and consumers whether the slot is
+ * free or filled, so {@link #offer(Object)} and {@link #poll()} need only a single CAS on the
+ * head or tail counter. Producers may also {@link #poll()} to evict the oldest element.
+ * @param <E> The element type.
+ */
+public class BoundedRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // 下一个写入位置
+    private final AtomicLong tail = new AtomicLong(); // 下一个读取位置
+
+    /**
+     * @param capacity The requested capacity; rounded up to a power of two.
+     */
+    public BoundedRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 尝试写入一个元素
+     * Attempts to append an element.
+     * @param element The element; must not be null.
+     * @return true if the element was added, false if the buffer is full.
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, pos + 1); // 发布：槽位已填充
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false; // 已满
+            }
+            // diff > 0：其他生产者抢先占用了该位置，重试
+        }
+    }
+
+    /**
+     * 取出最早写入的元素
+     * Removes the oldest element.
+     * @return The element, or null if the buffer is empty.
+     */
+    public E poll() {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1); // 释放：槽位可供下一轮写入
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null; // 为空
+            }
+        }
+    }
+
+    /**
+     * 批量取出元素
+     * Moves up to {@code maxElements} of the oldest elements into the given list.
+     * @param target The list to append to.
+     * @param maxElements The maximum number of elements to move.
+     * @return The number of elements moved.
+     */
+    public int drainTo(List<? super E> target, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return The approximate number of buffered elements.
+     */
+    public int size() {
+        long size = head.get() - tail.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return The total number of elements ever accepted; used to wait for a flush point.
+     */
+    public long headPosition() {
+        return head.get();
+    }
+
+    /**
+     * @return The total number of elements ever removed.
+     */
+    public long tailPosition() {
+        return tail.get();
+    }
+}
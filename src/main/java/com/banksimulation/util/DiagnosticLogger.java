@@ -0,0 +1,375 @@
+package com.banksimulation.util;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 诊断日志
+ * Level-gated diagnostic logger for tracing and error reports, as opposed to the audit trail of
+ * {@link com.banksimulation.service.LoggingService}. The level is checked before anything else,
+ * and messages are patterns with {@code {}} placeholders that are only filled in when the level is
+ * enabled. Overloads taking {@code double} and {@code long} arguments avoid boxing, so a disabled
+ * call costs a field read and a comparison. Enabled messages are formatted on the calling thread
+ * and written by a daemon thread; when its queue is full, messages are dropped and counted rather
+ * than blocking the caller.
+ * <p>
+ * The level comes from the {@code bank.diag.level} system property (default {@code INFO}); the
+ * per-operation traces of the DAO and services are at {@code DEBUG}. Setting
+ * {@code bank.diag.async=false} writes synchronously instead. WARN and ERROR go to standard error,
+ * the rest to standard output.
+ */
+public final class DiagnosticLogger {
+
+    /**
+     * 日志级别
+     * Diagnostic levels, from most to least verbose.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile int threshold = parseLevel(System.getProperty("bank.diag.level")).ordinal();
+    private static final Appender APPENDER = new Appender(Boolean.parseBoolean(System.getProperty("bank.diag.async", "true")));
+
+    private final String name;
+
+    private DiagnosticLogger(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取以类名命名的日志
+     * Returns a logger named after a class; keep it in a static final field.
+     */
+    public static DiagnosticLogger getLogger(Class<?> owner) {
+        return new DiagnosticLogger(owner.getSimpleName());
+    }
+
+    /**
+     * 设置全局级别
+     * Sets the level for all loggers; messages below it are discarded.
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    /**
+     * 解析级别名称（不区分大小写），无法识别时使用 INFO
+     * Parses a level name, ignoring case and surrounding blanks. An unknown name falls back to
+     * {@link Level#INFO} with a warning on stderr, since failing here would stop every class with a
+     * logger from loading.
+     * @param value The level name; {@code null} or blank means INFO.
+     */
+    static Level parseLevel(String value) {
+        if (value == null || value.isBlank()) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown diagnostic level '" + value + "' in bank.diag.level; using INFO. Valid levels: "
+                    + Arrays.toString(Level.values()));
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * 等待所有已记录的消息写出
+     * Writes all queued messages before returning.
+     */
+    public static void flush() {
+        APPENDER.drain();
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= threshold;
+    }
+
+    // DEBUG：按操作的跟踪信息，热路径调用，提供避免装箱的重载
+
+    public void debug(String message) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, message);
+        }
+    }
+
+    public void debug(String pattern, Object arg) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg).finish());
+        }
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).finish());
+        }
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2, Object arg3) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).arg(arg3).finish());
+        }
+    }
+
+    public void debug(String pattern, long arg) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg).finish());
+        }
+    }
+
+    public void debug(String pattern, long arg1, long arg2) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).finish());
+        }
+    }
+
+    public void debug(String pattern, Object arg1, double arg2) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).finish());
+        }
+    }
+
+    public void debug(String pattern, Object arg1, double arg2, double arg3) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).arg(arg3).finish());
+        }
+    }
+
+    public void debug(String pattern, Object arg1, Object arg2, double arg3) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, new Message(pattern).arg(arg1).arg(arg2).arg(arg3).finish());
+        }
+    }
+
+    // INFO / WARN / ERROR：生命周期和异常情况，不在热路径上
+
+    public void info(String message) {
+        if (Level.INFO.ordinal() >= threshold) {
+            log(Level.INFO, message);
+        }
+    }
+
+    public void info(String pattern, Object... args) {
+        if (Level.INFO.ordinal() >= threshold) {
+            log(Level.INFO, format(pattern, args));
+        }
+    }
+
+    public void warn(String message) {
+        if (Level.WARN.ordinal() >= threshold) {
+            log(Level.WARN, message);
+        }
+    }
+
+    public void warn(String pattern, Object... args) {
+        if (Level.WARN.ordinal() >= threshold) {
+            log(Level.WARN, format(pattern, args));
+        }
+    }
+
+    public void error(String message) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            log(Level.ERROR, message);
+        }
+    }
+
+    public void error(String pattern, Object... args) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            log(Level.ERROR, format(pattern, args));
+        }
+    }
+
+    /**
+     * 记录错误及其堆栈
+     * Logs an error with the stack trace of its cause.
+     */
+    public void error(String message, Throwable cause) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            StringWriter trace = new StringWriter();
+            cause.printStackTrace(new PrintWriter(trace));
+            log(Level.ERROR, message + System.lineSeparator() + trace.toString().stripTrailing());
+        }
+    }
+
+    private void log(Level level, String message) {
+        APPENDER.append(new Entry(level, System.currentTimeMillis(), Thread.currentThread().getName(), name, message));
+    }
+
+    private static String format(String pattern, Object[] args) {
+        Message message = new Message(pattern);
+        for (Object arg : args) {
+            message.arg(arg);
+        }
+        return message.finish();
+    }
+
+    /**
+     * 填充占位符
+     * Fills the {@code {}} placeholders of a pattern from left to right; surplus arguments are
+     * ignored and surplus placeholders kept.
+     */
+    private static final class Message {
+        private final String pattern;
+        private final StringBuilder text;
+        private int position;
+
+        private Message(String pattern) {
+            this.pattern = pattern;
+            this.text = new StringBuilder(pattern.length() + 32);
+        }
+
+        private boolean nextPlaceholder() {
+            int index = pattern.indexOf("{}", position);
+            if (index < 0) {
+                return false;
+            }
+            text.append(pattern, position, index);
+            position = index + 2;
+            return true;
+        }
+
+        Message arg(Object value) {
+            if (nextPlaceholder()) {
+                text.append(value);
+            }
+            return this;
+        }
+
+        Message arg(long value) {
+            if (nextPlaceholder()) {
+                text.append(value);
+            }
+            return this;
+        }
+
+        Message arg(double value) {
+            if (nextPlaceholder()) {
+                text.append(value);
+            }
+            return this;
+        }
+
+        String finish() {
+            return text.append(pattern, position, pattern.length()).toString();
+        }
+    }
+
+    /**
+     * 待写出的一条消息
+     * A formatted message waiting to be written.
+     */
+    private static final class Entry {
+        private final Level level;
+        private final long timeMillis;
+        private final String thread;
+        private final String logger;
+        private final String message;
+
+        private Entry(Level level, long timeMillis, String thread, String logger, String message) {
+            this.level = level;
+            this.timeMillis = timeMillis;
+            this.thread = thread;
+            this.logger = logger;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 异步写出器
+     * Writes entries from a bounded queue on a daemon thread, or directly when not asynchronous.
+     * A shutdown hook writes what is still queued when the JVM exits.
+     */
+    private static final class Appender {
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicLong dropped = new AtomicLong();
+        private final boolean async;
+
+        Appender(boolean async) {
+            this.async = async;
+            if (async) {
+                Thread writer = new Thread(this::run, "diagnostic-logger");
+                writer.setDaemon(true);
+                writer.start();
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "diagnostic-logger-flush"));
+        }
+
+        void append(Entry entry) {
+            if (!async) {
+                synchronized (this) {
+                    write(List.of(entry));
+                }
+            } else if (!queue.offer(entry)) {
+                dropped.incrementAndGet(); // 队列已满时丢弃，不阻塞业务线程
+            }
+        }
+
+        private void run() {
+            while (true) {
+                try {
+                    Entry first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first != null) {
+                        List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+                        batch.add(first);
+                        synchronized (this) {
+                            queue.drainTo(batch, DRAIN_BATCH - 1);
+                            write(batch);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        synchronized void drain() {
+            List<Entry> batch = new ArrayList<>(DRAIN_BATCH);
+            while (queue.drainTo(batch, DRAIN_BATCH) > 0) {
+                write(batch);
+                batch.clear();
+            }
+            write(batch); // 报告丢弃的条数
+        }
+
+        private void write(List<Entry> batch) {
+            PrintStream out = System.out;
+            PrintStream err = System.err;
+            for (Entry entry : batch) {
+                PrintStream stream = entry.level.ordinal() >= Level.WARN.ordinal() ? err : out;
+                stream.println(TIME_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis)) + " " + entry.level
+                        + " [" + entry.thread + "] " + entry.logger + ": " + entry.message);
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                err.println(TIME_FORMAT.format(Instant.now()) + " WARN [diagnostic-logger] DiagnosticLogger: "
+                        + lost + " messages dropped (queue full).");
+            }
+            out.flush();
+            err.flush();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.banksimulation.util;
+
+/**
+ * 金额换算工具类
+ * Utility class for converting between decimal amounts and fixed-point minor units (cents).
+ */
+public final class MoneyUtil {
+
+    /** 每个货币单位包含的最小单位数 / Minor units per major currency unit. */
+    public static final long MINOR_UNITS_PER_UNIT = 100L;
+
+    /** 金额绝对值的上限（不含），换算后不超出 long / Exclusive bound on absolute amounts, so minor units fit in a long. */
+    public static final double MAX_AMOUNT = Long.MAX_VALUE / MINOR_UNITS_PER_UNIT;
+
+    private MoneyUtil() {
+    }
+
+    /**
+     * 判断金额能否换算为最小单位（有限且不超出范围）
+     * Checks that an amount is finite and below {@link #MAX_AMOUNT}, so that
+     * {@link #toMinorUnits(double)} neither clamps nor wraps it.
+     */
+    public static boolean isValidAmount(double amount) {
+        return Double.isFinite(amount) && Math.abs(amount) < MAX_AMOUNT;
+    }
+
+    /**
+     * 将金额转换为最小单位（四舍五入到分）
+     * Converts a decimal amount to minor units, rounding half up to the nearest cent.
+     * @param amount The decimal amount.
+     * @return The amount in minor units.
+     * @throws IllegalArgumentException if the amount is not {@linkplain #isValidAmount(double) valid}.
+     */
+    public static long toMinorUnits(double amount) {
+        if (!isValidAmount(amount)) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        return Math.round(amount * MINOR_UNITS_PER_UNIT);
+    }
+
+    /**
+     * 将最小单位转换为金额
+     * Converts minor units back to a decimal amount.
+     * @param minorUnits The amount in minor units.
+     * @return The decimal amount.
+     */
+    public static double toAmount(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS_PER_UNIT;
+    }
+}
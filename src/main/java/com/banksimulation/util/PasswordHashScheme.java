@@ -0,0 +1,39 @@
+package com.banksimulation.util;
+
+/**
+ * 密码哈希方案
+ * A password hashing scheme that {@link PasswordHasher} can store hashes with. Stored hashes are
+ * prefixed with {@code {id}}; the scheme itself only sees the part after the prefix.
+ */
+public interface PasswordHashScheme {
+
+    /**
+     * 方案标识，用作存储哈希的前缀（如 "bcrypt"）
+     * The identifier written as the {@code {id}} prefix of stored hashes, e.g. {@code "bcrypt"}.
+     */
+    String id();
+
+    /**
+     * 对密码进行哈希处理（不含前缀）
+     * Hashes a plain text password, salting it if the scheme uses salts.
+     * @return The encoded hash, without the prefix.
+     */
+    String hash(String password);
+
+    /**
+     * 验证密码
+     * Verifies a plain text password against a hash produced by this scheme.
+     * @param encodedHash The encoded hash, without the prefix.
+     * @return true if the password matches; false if it does not or the hash is malformed.
+     */
+    boolean verify(String password, String encodedHash);
+
+    /**
+     * 哈希的参数是否弱于当前配置（如 bcrypt 代价更低），需要重新哈希
+     * Whether a hash of this scheme was made with weaker parameters than currently configured and
+     * should be replaced on the next successful login.
+     */
+    default boolean needsRehash(String encodedHash) {
+        return false;
+    }
+}
@@ -1,42 +1,106 @@
 package com.banksimulation.util;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 密码哈希工具类
  * Utility class for hashing and verifying passwords.
- * NOTE: For production, consider using stronger hashing libraries like BCrypt or Argon2.
+ * Stored hashes carry the scheme as a prefix, e.g. {@code {bcrypt}$2a$10$...} or
+ * {@code {pbkdf2}210000$...}. New hashes use the preferred scheme (bcrypt unless the
+ * {@code bank.password.scheme} system property names another); hashes without a prefix are the
+ * original unsalted SHA-256 hashes and still verify. {@link #needsRehash(String)} tells callers
+ * when a stored hash should be replaced after a successful login.
  */
 public class PasswordHasher {
 
+    private static final Map<String, PasswordHashScheme> SCHEMES = new ConcurrentHashMap<>();
+    private static volatile PasswordHashScheme preferred;
+
+    static {
+        register(new Sha256PasswordHashScheme());
+        register(new BcryptPasswordHashScheme(Integer.getInteger("bank.password.bcrypt.cost", BcryptPasswordHashScheme.DEFAULT_COST)));
+        register(new Pbkdf2PasswordHashScheme(Integer.getInteger("bank.password.pbkdf2.iterations", Pbkdf2PasswordHashScheme.DEFAULT_ITERATIONS)));
+        setPreferredScheme(System.getProperty("bank.password.scheme", BcryptPasswordHashScheme.ID));
+    }
+
+    /**
+     * 注册哈希方案（同名方案会被替换）
+     * Registers a scheme, replacing any registered under the same id.
+     */
+    public static void register(PasswordHashScheme scheme) {
+        SCHEMES.put(scheme.id(), scheme);
+        PasswordHashScheme current = preferred;
+        if (current != null && current.id().equals(scheme.id())) {
+            preferred = scheme;
+        }
+    }
+
+    /**
+     * 设置新哈希使用的方案
+     * Selects the registered scheme that new hashes are made with.
+     * @param id The scheme id, e.g. {@code "bcrypt"}.
+     */
+    public static void setPreferredScheme(String id) {
+        PasswordHashScheme scheme = SCHEMES.get(id);
+        if (scheme == null) {
+            throw new IllegalArgumentException("Unknown password hash scheme: " + id);
+        }
+        preferred = scheme;
+    }
+
     /**
      * 对密码进行哈希处理
-     * Hashes a plain text password using SHA-256.
+     * Hashes a plain text password with the preferred scheme.
      * @param password The plain text password.
-     * @return The Base64 encoded hash of the password.
+     * @return The hash, prefixed with the scheme id.
      */
     public static String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
-            // This should not happen with SHA-256
-            throw new RuntimeException("SHA-256 algorithm not found.", e);
-        }
+        PasswordHashScheme scheme = preferred;
+        return "{" + scheme.id() + "}" + scheme.hash(password);
     }
 
     /**
      * 验证密码
-     * Verifies a plain text password against a hashed password.
+     * Verifies a plain text password against a hashed password, using the scheme named by its
+     * prefix (unprefixed hashes are legacy SHA-256).
      * @param plainPassword The plain text password to verify.
      * @param hashedPassword The stored hashed password.
-     * @return true if the plain password matches the hashed password, false otherwise.
+     * @return true if the plain password matches the hashed password, false otherwise
+     *         (including when the hash is malformed or its scheme is unknown).
      */
     public static boolean verifyPassword(String plainPassword, String hashedPassword) {
-        String newHash = hashPassword(plainPassword);
-        return newHash.equals(hashedPassword);
+        if (hashedPassword == null) {
+            return false;
+        }
+        PasswordHashScheme scheme = schemeOf(hashedPassword);
+        return scheme != null && scheme.verify(plainPassword, encodedPart(hashedPassword));
+    }
+
+    /**
+     * 存储的哈希是否应在登录成功后用首选方案重新生成
+     * Whether a stored hash should be replaced by a fresh {@link #hashPassword(String)} after the
+     * password has been verified: it uses another scheme than the preferred one, or weaker
+     * parameters.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null) {
+            return false;
+        }
+        PasswordHashScheme scheme = schemeOf(hashedPassword);
+        PasswordHashScheme current = preferred;
+        return scheme == null || !scheme.id().equals(current.id()) || scheme.needsRehash(encodedPart(hashedPassword));
+    }
+
+    private static PasswordHashScheme schemeOf(String hashedPassword) {
+        if (!hashedPassword.startsWith("{")) {
+            return SCHEMES.get(Sha256PasswordHashScheme.ID); // 无前缀的旧哈希
+        }
+        int end = hashedPassword.indexOf('}');
+        return end < 0 ? null : SCHEMES.get(hashedPassword.substring(1, end));
+    }
+
+    private static String encodedPart(String hashedPassword) {
+        return hashedPassword.startsWith("{") ? hashedPassword.substring(hashedPassword.indexOf('}') + 1) : hashedPassword;
     }
 }
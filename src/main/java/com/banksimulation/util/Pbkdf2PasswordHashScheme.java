@@ -0,0 +1,96 @@
+package com.banksimulation.util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 哈希方案
+ * PBKDF2 with HMAC-SHA256, a random 16-byte salt and a configurable iteration count. Hashes are
+ * encoded as {@code <iterations>$<salt>$<hash>} with Base64 salt and hash, so verification uses
+ * the parameters the hash was made with.
+ */
+public class Pbkdf2PasswordHashScheme implements PasswordHashScheme {
+
+    public static final String ID = "pbkdf2";
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2PasswordHashScheme() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public Pbkdf2PasswordHashScheme(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("PBKDF2 iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        String[] parts = encodedHash.split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int hashIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            if (hashIterations <= 0 || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(derive(password, salt, hashIterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false; // 迭代次数或 Base64 格式错误
+        }
+    }
+
+    /**
+     * 迭代次数低于当前配置的哈希需要重新计算
+     * A hash needs rehashing if it was made with fewer iterations than configured.
+     */
+    @Override
+    public boolean needsRehash(String encodedHash) {
+        int end = encodedHash.indexOf('$');
+        try {
+            return end < 0 || Integer.parseInt(encodedHash, 0, end, 10) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // This should not happen: PBKDF2WithHmacSHA256 is available on every Java 8+ runtime
+            throw new RuntimeException(ALGORITHM + " not available.", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.banksimulation.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 旧版无盐 SHA-256 哈希方案
+ * The original unsalted SHA-256 scheme, Base64 encoded. Kept so that existing hashes, including
+ * ones stored without a prefix, still verify; they are replaced by the preferred scheme on login.
+ */
+public class Sha256PasswordHashScheme implements PasswordHashScheme {
+
+    public static final String ID = "sha256";
+
+    // 每个线程复用一个 MessageDigest 实例，避免每次调用都查找算法提供者
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // This should not happen with SHA-256
+            throw new RuntimeException("SHA-256 algorithm not found.", e);
+        }
+    });
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public String hash(String password) {
+        return Base64.getEncoder().encodeToString(digest(password));
+    }
+
+    /**
+     * 验证密码：解码存储的哈希后按字节做常数时间比较
+     * Decodes the stored hash and compares the digests in constant time.
+     */
+    @Override
+    public boolean verify(String password, String encodedHash) {
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(encodedHash);
+        } catch (IllegalArgumentException e) {
+            return false; // 存储的哈希不是合法的 Base64
+        }
+        return MessageDigest.isEqual(digest(password), expected);
+    }
+
+    private static byte[] digest(String password) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset(); // digest() 已重置状态，这里防止之前的调用异常中断后残留输入
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,73 @@
+package com.banksimulation.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 时间换算工具类
+ * Utility class for converting timestamps to and from nanoseconds since the epoch (UTC), the key
+ * used by the transaction indexes and archive segments. A long holds roughly the years 1678 to
+ * 2262; conversions outside that range fail or saturate instead of wrapping around.
+ */
+public final class TimeUtil {
+
+    /** 每秒的纳秒数 / Nanoseconds per second. */
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private TimeUtil() {
+    }
+
+    /**
+     * 判断时间能否换算为纪元纳秒
+     * Checks that a timestamp can be converted by {@link #toEpochNanos(LocalDateTime)}.
+     */
+    public static boolean isRepresentable(LocalDateTime timestamp) {
+        try {
+            exactEpochNanos(timestamp);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 将时间转换为纪元纳秒
+     * Converts a timestamp to nanoseconds since the epoch.
+     * @param timestamp The timestamp, taken as UTC.
+     * @return The nanoseconds since the epoch.
+     * @throws IllegalArgumentException if the timestamp is not {@linkplain #isRepresentable(LocalDateTime) representable}.
+     */
+    public static long toEpochNanos(LocalDateTime timestamp) {
+        try {
+            return exactEpochNanos(timestamp);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp out of range: " + timestamp);
+        }
+    }
+
+    /**
+     * 将时间转换为纪元纳秒，超出范围时取 long 的最小或最大值（用于查询边界）
+     * Converts a timestamp to nanoseconds since the epoch, clamping to {@link Long#MIN_VALUE} or
+     * {@link Long#MAX_VALUE} when out of range; for query bounds, which need not be record times.
+     */
+    public static long toEpochNanosClamped(LocalDateTime timestamp) {
+        try {
+            return exactEpochNanos(timestamp);
+        } catch (ArithmeticException e) {
+            return timestamp.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 将纪元纳秒转换为时间
+     * Converts nanoseconds since the epoch back to a UTC timestamp.
+     */
+    public static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private static long exactEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), timestamp.getNano());
+    }
+}
@@ -0,0 +1,49 @@
+package com.banksimulation.util;
+
+/**
+ * 令牌桶
+ * Token bucket rate limiter: holds up to {@code capacity} tokens and refills continuously at a
+ * fixed rate. Not thread-safe; callers synchronize. Time is passed in by the caller (from
+ * {@link System#nanoTime()}) so many buckets can be checked against one clock reading.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity Maximum burst size; the bucket starts full.
+     * @param tokensPerSecond Refill rate.
+     * @param nowNanos The current {@link System#nanoTime()}.
+     */
+    public TokenBucket(double capacity, double tokensPerSecond, long nowNanos) {
+        if (capacity < 1 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least 1 and the refill rate positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * 尝试取出一个令牌
+     * Takes one token if available.
+     * @param nowNanos The current {@link System#nanoTime()}.
+     * @return true if a token was taken, false if the bucket is empty.
+     */
+    public boolean tryAcquire(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
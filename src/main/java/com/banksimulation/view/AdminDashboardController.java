@@ -1,17 +1,28 @@
 package com.banksimulation.view;
 
 import com.banksimulation.App;
+import com.banksimulation.dao.LogPage;
+import com.banksimulation.dao.LogQuery;
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
 import com.banksimulation.entity.Admin;
 import com.banksimulation.entity.OperationLog;
 import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
 import com.banksimulation.entity.User;
 import com.banksimulation.service.AdminService;
 import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.MetricsSample;
+import com.banksimulation.service.MetricsSampler;
 import com.banksimulation.service.UserService;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.util.PasswordHasher;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -19,9 +30,12 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -33,16 +47,23 @@ import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 import javafx.scene.paint.Color;
 import javafx.scene.layout.VBox;
+import javafx.util.Callback;
+import javafx.util.Duration;
 // 移除 TabPane 和 Tab 的导入
 // import javafx.scene.control.TabPane;
 // import javafx.scene.control.Tab;
 
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 /**
  * 管理员仪表板控制器
@@ -50,6 +71,13 @@ import java.util.Optional;
  */
 public class AdminDashboardController {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(AdminDashboardController.class);
+
+    private static final Duration METRICS_REFRESH = Duration.seconds(1); // 监控图表的固定刷新间隔
+    private static final Duration FEED_REFRESH = Duration.seconds(1); // 日志和交易面板拉取新增记录的间隔，期间的新增合并为一次表格更新
+    private static final int METRICS_WINDOW_SECONDS = 60; // 图表显示最近 60 秒
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
     @FXML private Label welcomeLabel;
 
     @FXML private TableView<User> userTable;
@@ -71,6 +99,7 @@ public class AdminDashboardController {
     @FXML private TableColumn<OperationLog, String> colAction;
     @FXML private TableColumn<OperationLog, String> colDetails;
     @FXML private Label logMessageLabel;
+    @FXML private TextField logActorFilterField;
 
     // 新增的交易记录表格和列
     @FXML private TableView<TransactionRecord> allTransactionsTable;
@@ -83,7 +112,23 @@ public class AdminDashboardController {
     @FXML private TableColumn<TransactionRecord, String> colTransTimestamp;
     @FXML private TableColumn<TransactionRecord, String> colTransDescription;
     @FXML private Label allTransactionsMessageLabel;
-
+    @FXML private TextField transactionAccountFilterField;
+    @FXML private ComboBox<TransactionType> transactionTypeFilterBox;
+
+    // 运行监控面板
+    @FXML private Label tpsLabel;
+    @FXML private Label lockContentionLabel;
+    @FXML private Label logQueueLabel;
+    @FXML private Label heapLabel;
+    @FXML private LineChart<Number, Number> tpsChart;
+    @FXML private LineChart<Number, Number> heapChart;
+    @FXML private LineChart<Number, Number> latencyChart;
+    @FXML private TableView<MetricsSample.OperationStats> operationMetricsTable;
+    @FXML private TableColumn<MetricsSample.OperationStats, String> colMetricOperation;
+    @FXML private TableColumn<MetricsSample.OperationStats, String> colMetricRate;
+    @FXML private TableColumn<MetricsSample.OperationStats, String> colMetricFailures;
+    @FXML private TableColumn<MetricsSample.OperationStats, String> colMetricP50;
+    @FXML private TableColumn<MetricsSample.OperationStats, String> colMetricP99;
 
     // FXML 元素，用于权限控制
     @FXML private Button refreshUserListButton;
@@ -99,11 +144,13 @@ public class AdminDashboardController {
     @FXML private Button navUserManagementButton;
     @FXML private Button navLogViewButton;
     @FXML private Button navAllTransactionsButton; // 新增导航按钮
+    @FXML private Button navMetricsButton;
 
     // 新增的面板容器
     @FXML private VBox userManagementPanel;
     @FXML private VBox logViewPanel;
     @FXML private VBox allTransactionsPanel; // 新增面板
+    @FXML private VBox metricsPanel;
 
     // 移除 TabPane 引用
     // @FXML private TabPane adminTabPane;
@@ -112,15 +159,32 @@ public class AdminDashboardController {
     private final AdminService adminService;
     private final UserService userService;
     private final LoggingService loggingService;
+    private final UiTaskExecutor uiTaskExecutor; // 服务调用在虚拟线程上执行，结果回到界面线程
+    private final MetricsSampler metricsSampler; // 在后台线程采样，界面只读取其不可变的采样结果
     private final Stage primaryStage;
     private Admin loggedInAdmin; // 当前登录的管理员对象 (Admin 实例)
+    // 两张表只保存当前可见附近的几页，按固定在某个序列号的查询从数据访问层按需加载
+    private LazyPagedList<OperationLog> logRows;
+    private LazyPagedList<TransactionRecord> transactionRows;
+    private volatile LogQuery logQuery; // 后台加载页时读取
+    private volatile TransactionQuery transactionQuery;
+    private long logSequence = -1; // 日志表已跟随到的序列号，-1 表示需要重新统计
+    private long transactionSequence = -1; // 交易表已跟随到的序列号，-1 表示需要重新统计
+    private Timeline feedRefresh; // 仅在日志或交易面板可见时运行
+    private final XYChart.Series<Number, Number> tpsSeries = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> heapSeries = new XYChart.Series<>();
+    private final Map<String, XYChart.Series<Number, Number>> latencySeries = new LinkedHashMap<>(); // 按操作名
+    private Timeline metricsRefresh; // 仅在监控面板可见时运行
 
     // 构造函数，通过App类进行依赖注入
     public AdminDashboardController(AdminService adminService, UserService userService,
-                                    LoggingService loggingService, Stage primaryStage, Admin loggedInAdmin) {
+                                    LoggingService loggingService, UiTaskExecutor uiTaskExecutor,
+                                    MetricsSampler metricsSampler, Stage primaryStage, Admin loggedInAdmin) {
         this.adminService = adminService;
         this.userService = userService;
         this.loggingService = loggingService;
+        this.uiTaskExecutor = uiTaskExecutor;
+        this.metricsSampler = metricsSampler;
         this.primaryStage = primaryStage;
         this.loggedInAdmin = loggedInAdmin; // 接收 Admin 对象
     }
@@ -132,6 +196,9 @@ public class AdminDashboardController {
             setupUserTable();
             setupLogTable();
             setupAllTransactionsTable(); // 初始化所有交易表格
+            setupMetricsPanel();
+            feedRefresh = new Timeline(new KeyFrame(FEED_REFRESH, event -> followVisibleFeed()));
+            feedRefresh.setCycleCount(Timeline.INDEFINITE);
             applyPermissionsToUI(); // 根据管理员权限调整UI
             // 默认显示用户管理面板
             showUserManagement(null);
@@ -143,7 +210,7 @@ public class AdminDashboardController {
      */
     private void applyPermissionsToUI() {
         if (loggedInAdmin == null) {
-            System.err.println("Error: loggedInAdmin is null in applyPermissionsToUI.");
+            LOG.error("loggedInAdmin is null in applyPermissionsToUI.");
             return;
         }
 
@@ -174,6 +241,8 @@ public class AdminDashboardController {
         navLogViewButton.setVisible(true);
         navAllTransactionsButton.setManaged(true); // 所有管理员都可以查看所有交易
         navAllTransactionsButton.setVisible(true);
+        navMetricsButton.setManaged(true); // 所有管理员都可以查看运行监控
+        navMetricsButton.setVisible(true);
     }
 
 
@@ -190,32 +259,168 @@ public class AdminDashboardController {
     }
 
     private void setupLogTable() {
-        colLogTimestamp.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))));
-        colActorUsername.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getActorUsername()));
-        colActorType.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getActorType().name()));
-        colAction.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getAction()));
-        colDetails.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDetails()));
+        colLogTimestamp.setCellValueFactory(whenLoaded(cellData ->
+                new SimpleStringProperty(cellData.getValue().getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))));
+        colActorUsername.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getActorUsername())));
+        colActorType.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getActorType().name())));
+        colAction.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getAction())));
+        colDetails.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getDetails())));
+        // 只能按时间排序，由数据访问层按查询方向返回
+        colActorUsername.setSortable(false);
+        colActorType.setSortable(false);
+        colAction.setSortable(false);
+        colDetails.setSortable(false);
+        logTable.setSortPolicy(table -> {
+            boolean descending = isDescending(colLogTimestamp, table.getSortOrder(), false);
+            if (logRows != null && descending != logQuery.isDescending()) {
+                showLogs(logQuery.copy().setDescending(descending), logRows.size());
+            }
+            return true;
+        });
     }
 
     private void setupAllTransactionsTable() {
-        colTransId.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTransactionId()));
-        colTransUserId.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getUserId()));
-        colTransAccountNumber.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getAccountNumber()));
-        colTransType.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getType().name()));
-        colTransAmount.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getAmount()).asObject());
-        colTransBalanceAfter.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getBalanceAfterTransaction()).asObject());
-        colTransTimestamp.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))));
-        colTransDescription.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDescription()));
+        colTransId.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getTransactionId())));
+        colTransUserId.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getUserId())));
+        colTransAccountNumber.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getAccountNumber())));
+        colTransType.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getType().name())));
+        colTransAmount.setCellValueFactory(whenLoaded(cellData -> new SimpleDoubleProperty(cellData.getValue().getAmount()).asObject()));
+        colTransBalanceAfter.setCellValueFactory(whenLoaded(cellData -> new SimpleDoubleProperty(cellData.getValue().getBalanceAfterTransaction()).asObject()));
+        colTransTimestamp.setCellValueFactory(whenLoaded(cellData ->
+                new SimpleStringProperty(cellData.getValue().getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))));
+        colTransDescription.setCellValueFactory(whenLoaded(cellData -> new SimpleStringProperty(cellData.getValue().getDescription())));
+        transactionTypeFilterBox.getItems().setAll(TransactionType.values());
+        // 只能按时间排序，由数据访问层按查询方向返回；默认最新的在前
+        colTransId.setSortable(false);
+        colTransUserId.setSortable(false);
+        colTransAccountNumber.setSortable(false);
+        colTransType.setSortable(false);
+        colTransAmount.setSortable(false);
+        colTransBalanceAfter.setSortable(false);
+        colTransDescription.setSortable(false);
+        colTransTimestamp.setSortType(TableColumn.SortType.DESCENDING);
+        allTransactionsTable.getSortOrder().add(colTransTimestamp);
+        allTransactionsTable.setSortPolicy(table -> {
+            boolean descending = isDescending(colTransTimestamp, table.getSortOrder(), true);
+            if (transactionRows != null && descending != transactionQuery.isDescending()) {
+                showTransactions(transactionQuery.copy().setDescending(descending), transactionRows.size());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 尚未加载的行为 null，此时单元格留空
+     * Wraps a cell value factory for a {@link LazyPagedList}, whose rows read as null until loaded.
+     */
+    private static <S, T> Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> whenLoaded(
+            Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> factory) {
+        return cellData -> cellData.getValue() == null ? null : factory.call(cellData);
+    }
+
+    private static boolean isDescending(TableColumn<?, ?> column, List<? extends TableColumn<?, ?>> sortOrder, boolean unsorted) {
+        return sortOrder.contains(column) ? column.getSortType() == TableColumn.SortType.DESCENDING : unsorted;
+    }
+
+    private void setupMetricsPanel() {
+        colMetricOperation.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
+        colMetricRate.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.1f", cellData.getValue().getCallsPerSecond())));
+        colMetricFailures.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.1f", cellData.getValue().getFailuresPerSecond())));
+        colMetricP50.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.1f", cellData.getValue().getP50Micros())));
+        colMetricP99.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.1f", cellData.getValue().getP99Micros())));
+        tpsChart.getData().add(tpsSeries);
+        heapChart.getData().add(heapSeries);
+        // 延迟图只画资金操作；登录的哈希耗时高出几个数量级，会压扁其他曲线
+        addLatencySeries("user.deposit", "存款");
+        addLatencySeries("user.withdraw", "取款");
+        addLatencySeries("user.transfer", "转账");
+        metricsRefresh = new Timeline(new KeyFrame(METRICS_REFRESH, event -> renderMetrics()));
+        metricsRefresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    private void addLatencySeries(String operation, String label) {
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
+        series.setName(label);
+        latencySeries.put(operation, series);
+        latencyChart.getData().add(series);
+    }
+
+    /**
+     * 用采样器最近的采样结果重绘监控面板（界面线程上执行，只读取不可变的采样对象）
+     * Redraws the metrics panel from the sampler's recent samples. Runs on the JavaFX thread and
+     * reads only immutable {@link MetricsSample}s, never the services themselves.
+     */
+    private void renderMetrics() {
+        List<MetricsSample> history = metricsSampler.getHistory();
+        if (history.isEmpty()) {
+            return;
+        }
+        MetricsSample latest = history.get(history.size() - 1);
+        List<XYChart.Data<Number, Number>> tpsPoints = new ArrayList<>();
+        List<XYChart.Data<Number, Number>> heapPoints = new ArrayList<>();
+        Map<String, List<XYChart.Data<Number, Number>>> latencyPoints = new HashMap<>();
+        for (MetricsSample sample : history) {
+            // 横轴为相对最新采样的秒数，超出显示窗口的采样不画
+            double secondsAgo = ChronoUnit.MILLIS.between(latest.getTimestamp(), sample.getTimestamp()) / 1000.0;
+            if (secondsAgo < -METRICS_WINDOW_SECONDS) {
+                continue;
+            }
+            tpsPoints.add(new XYChart.Data<>(secondsAgo, sample.getTransactionsPerSecond()));
+            heapPoints.add(new XYChart.Data<>(secondsAgo, sample.getHeapUsedBytes() / BYTES_PER_MB));
+            for (MetricsSample.OperationStats operation : sample.getOperations()) {
+                if (latencySeries.containsKey(operation.getName()) && operation.getCallsPerSecond() > 0) {
+                    latencyPoints.computeIfAbsent(operation.getName(), name -> new ArrayList<>())
+                            .add(new XYChart.Data<>(secondsAgo, operation.getP99Micros()));
+                }
+            }
+        }
+        tpsSeries.getData().setAll(tpsPoints);
+        heapSeries.getData().setAll(heapPoints);
+        latencySeries.forEach((name, series) -> series.getData().setAll(latencyPoints.getOrDefault(name, List.of())));
+        operationMetricsTable.setItems(FXCollections.observableArrayList(latest.getOperations()));
+
+        tpsLabel.setText(String.format("TPS：%.1f", latest.getTransactionsPerSecond()));
+        lockContentionLabel.setText(String.format("锁竞争：%.1f 次/秒，平均等待 %.1f 微秒",
+                latest.getLockContentionPerSecond(), latest.getAverageLockWaitMicros()));
+        logQueueLabel.setText("日志队列：" + latest.getPendingLogs() + " 条待写入，已丢弃 " + latest.getDroppedLogs());
+        heapLabel.setText(latest.getHeapMaxBytes() > 0
+                ? String.format("堆内存：%.0f / %.0f MB", latest.getHeapUsedBytes() / BYTES_PER_MB, latest.getHeapMaxBytes() / BYTES_PER_MB)
+                : String.format("堆内存：%.0f MB", latest.getHeapUsedBytes() / BYTES_PER_MB));
     }
 
     @FXML
     private void refreshUserList(ActionEvent event) {
-        List<User> users = adminService.getAllUsers(loggedInAdmin.getUsername());
-        ObservableList<User> observableUsers = FXCollections.observableArrayList(users);
-        userTable.setItems(observableUsers);
+        String adminUsername = loggedInAdmin.getUsername();
         userManagementMessageLabel.setText("");
+        // 连续刷新时只有最后一次的结果会显示
+        uiTaskExecutor.submitLatest("userList", () -> adminService.getAllUsers(adminUsername), users -> {
+            ObservableList<User> observableUsers = FXCollections.observableArrayList(users);
+            userTable.setItems(observableUsers);
+        }, error -> showUserManagementMessage("加载用户列表失败：" + error.getMessage(), Color.RED));
+    }
+
+    /**
+     * 在后台执行用户管理操作，完成后显示结果并刷新用户列表
+     * Runs a user-management action in the background, then reports the outcome and, on success,
+     * refreshes the user list.
+     * @param action The service call; returns whether it succeeded.
+     * @param successMessage Shown when the action succeeds.
+     * @param failureMessage Shown when the action fails.
+     */
+    private void runUserManagementAction(Callable<Boolean> action, String successMessage, String failureMessage) {
+        uiTaskExecutor.submit(action, succeeded -> {
+            if (succeeded) {
+                refreshUserList(null); // 刷新用户列表
+                showUserManagementMessage(successMessage, Color.GREEN);
+            } else {
+                showUserManagementMessage(failureMessage, Color.RED);
+            }
+        }, error -> showUserManagementMessage(failureMessage + " " + error.getMessage(), Color.RED));
+    }
+
+    private void showUserManagementMessage(String message, Color color) {
+        userManagementMessageLabel.setText(message);
+        userManagementMessageLabel.setTextFill(color);
     }
 
     @FXML
@@ -271,17 +476,12 @@ public class AdminDashboardController {
                 return;
             }
 
-            String hashedPassword = PasswordHasher.hashPassword(password);
-            User newUser = new User(username, hashedPassword, firstName, lastName, accountNumber);
-
-            if (adminService.createUser(loggedInAdmin.getUsername(), newUser)) {
-                userManagementMessageLabel.setText("用户 '" + username + "' 创建成功！");
-                userManagementMessageLabel.setTextFill(Color.GREEN);
-                refreshUserList(null); // 刷新用户列表
-            } else {
-                userManagementMessageLabel.setText("创建用户失败：用户名或账号可能已存在。");
-                userManagementMessageLabel.setTextFill(Color.RED);
-            }
+            String adminUsername = loggedInAdmin.getUsername();
+            runUserManagementAction(() -> {
+                String hashedPassword = PasswordHasher.hashPassword(password);
+                User newUser = new User(username, hashedPassword, firstName, lastName, accountNumber);
+                return adminService.createUser(adminUsername, newUser);
+            }, "用户 '" + username + "' 创建成功！", "创建用户失败：用户名或账号可能已存在。");
         }
     }
 
@@ -303,14 +503,11 @@ public class AdminDashboardController {
         }
 
         boolean newStatus = !selectedUser.isActive();
-        if (adminService.toggleUserLoginStatus(loggedInAdmin.getUsername(), selectedUser.getUsername(), newStatus)) {
-            userManagementMessageLabel.setText("用户 '" + selectedUser.getUsername() + "' 登录状态已切换为 " + (newStatus ? "激活" : "禁用") + "。");
-            userManagementMessageLabel.setTextFill(Color.GREEN);
-            refreshUserList(null); // 刷新用户列表
-        } else {
-            userManagementMessageLabel.setText("切换登录状态失败。");
-            userManagementMessageLabel.setTextFill(Color.RED);
-        }
+        String adminUsername = loggedInAdmin.getUsername();
+        runUserManagementAction(
+                () -> adminService.toggleUserLoginStatus(adminUsername, selectedUser.getUsername(), newStatus),
+                "用户 '" + selectedUser.getUsername() + "' 登录状态已切换为 " + (newStatus ? "激活" : "禁用") + "。",
+                "切换登录状态失败。");
     }
 
     @FXML
@@ -353,14 +550,11 @@ public class AdminDashboardController {
             newPermissions.put("canDeposit", canDepositCheckbox.isSelected());
             newPermissions.put("canWithdraw", canWithdrawCheckbox.isSelected());
 
-            if (adminService.modifyUserPermissions(loggedInAdmin.getUsername(), selectedUser.getUsername(), newPermissions)) {
-                userManagementMessageLabel.setText("用户 '" + selectedUser.getUsername() + "' 权限修改成功！");
-                userManagementMessageLabel.setTextFill(Color.GREEN);
-                refreshUserList(null); // 刷新用户列表
-            } else {
-                userManagementMessageLabel.setText("修改权限失败。");
-                userManagementMessageLabel.setTextFill(Color.RED);
-            }
+            String adminUsername = loggedInAdmin.getUsername();
+            runUserManagementAction(
+                    () -> adminService.modifyUserPermissions(adminUsername, selectedUser.getUsername(), newPermissions),
+                    "用户 '" + selectedUser.getUsername() + "' 权限修改成功！",
+                    "修改权限失败。");
         }
     }
 
@@ -394,48 +588,256 @@ public class AdminDashboardController {
 
         Optional<ButtonType> result = confirmDelete.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (adminService.deleteUser(loggedInAdmin.getUsername(), selectedUser.getUsername())) {
-                userManagementMessageLabel.setText("用户 '" + selectedUser.getUsername() + "' 已删除。");
-                userManagementMessageLabel.setTextFill(Color.GREEN);
-                refreshUserList(null); // 刷新用户列表
+            // 持久化DAO删除用户时需要重写归档段，可能较慢
+            String adminUsername = loggedInAdmin.getUsername();
+            runUserManagementAction(
+                    () -> adminService.deleteUser(adminUsername, selectedUser.getUsername()),
+                    "用户 '" + selectedUser.getUsername() + "' 已删除。",
+                    "删除用户失败。");
+        }
+    }
+
+    /**
+     * 只拉取上次之后新增的日志，表格据此增加行数
+     * Follows the logs appended since the last refresh: only the matching ones are counted and
+     * added to the table's size, and their rows load when scrolled to. The logs are counted again
+     * the first time or after logs were removed.
+     */
+    @FXML
+    private void refreshLogs(ActionEvent event) {
+        if (logSequence < 0) {
+            reloadLogs();
+            return;
+        }
+        long after = logSequence;
+        uiTaskExecutor.submitLatest("logChanges", () -> loggingService.getLogChanges(after), changes -> {
+            if (after != logSequence) {
+                return; // 期间已重新统计或已应用过更新的批次
+            }
+            if (changes.isReset()) {
+                reloadLogs();
+                return;
+            }
+            LogQuery current = logQuery;
+            int added = 0;
+            for (OperationLog log : changes.getRecords()) {
+                if (current.matches(log)) {
+                    added++;
+                }
+            }
+            // 先放宽快照再增加行数，新增的行才能被加载到
+            logQuery = current.copy().setThroughSequence(changes.getLastSequence());
+            logSequence = changes.getLastSequence();
+            if (current.isDescending()) {
+                logRows.insertFirst(added);
             } else {
-                userManagementMessageLabel.setText("删除用户失败。");
-                userManagementMessageLabel.setTextFill(Color.RED);
+                logRows.append(added);
             }
+            showLogCount();
+        }, this::showLogError);
+    }
+
+    private void reloadLogs() {
+        LogQuery filter = newLogFilter();
+        logSequence = -1; // 统计结果到达前丢弃所有变更批次
+        uiTaskExecutor.submitLatest("logs", () -> {
+            // 固定在当前序列号统计，之后新增的日志作为变更到达
+            LogQuery pinned = filter.setThroughSequence(loggingService.getLogSequence());
+            return Map.entry(pinned, loggingService.countLogs(pinned));
+        }, counted -> {
+            showLogs(counted.getKey(), counted.getValue());
+            logSequence = counted.getKey().getThroughSequence();
+            showLogCount();
+        }, this::showLogError);
+    }
+
+    private void showLogs(LogQuery pinned, int count) {
+        logQuery = pinned;
+        // 换用新的列表而非清空旧列表，避免移除事件复制所有行
+        logRows = new LazyPagedList<>(uiTaskExecutor, count, (cursor, offset, limit) -> {
+            LogPage page = loggingService.queryLogs(logQuery.copy().setCursor(cursor).setOffset(offset).setLimit(limit));
+            return new LazyPagedList.Page<>(page.getRecords(), page.getNextCursor());
+        });
+        logTable.setItems(logRows);
+    }
+
+    private LogQuery newLogFilter() {
+        LogQuery query = new LogQuery().setDescending(isDescending(colLogTimestamp, logTable.getSortOrder(), false));
+        String actor = logActorFilterField.getText().trim();
+        if (!actor.isEmpty()) {
+            query.setActorUsername(actor);
         }
+        return query;
     }
 
     @FXML
-    private void refreshLogs(ActionEvent event) {
-        List<OperationLog> logs = loggingService.getLogs();
-        ObservableList<OperationLog> observableLogs = FXCollections.observableArrayList(logs);
-        logTable.setItems(observableLogs);
-        logMessageLabel.setText("");
+    private void applyLogFilter(ActionEvent event) {
+        reloadLogs();
+    }
+
+    @FXML
+    private void clearLogFilter(ActionEvent event) {
+        logActorFilterField.clear();
+        reloadLogs();
+    }
+
+    private void showLogCount() {
+        logMessageLabel.setText("共 " + logRows.size() + " 条日志");
+        logMessageLabel.setTextFill(Color.GRAY);
+    }
+
+    private void showLogError(Throwable error) {
+        LOG.error("Error loading logs: {}", error.getMessage());
+        logMessageLabel.setText("加载日志失败：" + error.getMessage());
+        logMessageLabel.setTextFill(Color.RED);
     }
 
     @FXML
     private void handleExportLogs(ActionEvent event) {
         // 简单导出到项目根目录下的 logs.csv 文件
         String filePath = "logs.csv";
-        if (loggingService.exportLogs(filePath, "CSV")) {
-            logMessageLabel.setText("日志已成功导出到 " + filePath);
-            logMessageLabel.setTextFill(Color.GREEN);
-        } else {
-            logMessageLabel.setText("日志导出失败。");
+        exportLogsButton.setDisable(true); // 导出完成前不能再次导出
+        logMessageLabel.setText("正在导出日志...");
+        logMessageLabel.setTextFill(Color.GRAY);
+        uiTaskExecutor.submit(() -> loggingService.exportLogs(filePath, "CSV"), exported -> {
+            exportLogsButton.setDisable(false);
+            if (exported) {
+                logMessageLabel.setText("日志已成功导出到 " + filePath);
+                logMessageLabel.setTextFill(Color.GREEN);
+            } else {
+                logMessageLabel.setText("日志导出失败。");
+                logMessageLabel.setTextFill(Color.RED);
+            }
+        }, error -> {
+            exportLogsButton.setDisable(false);
+            logMessageLabel.setText("日志导出失败：" + error.getMessage());
             logMessageLabel.setTextFill(Color.RED);
-        }
+        });
     }
 
     @FXML
     private void refreshAllTransactions(ActionEvent event) {
-        List<TransactionRecord> transactions = adminService.getAllTransactions(loggedInAdmin.getUsername());
-        ObservableList<TransactionRecord> observableTransactions = FXCollections.observableArrayList(transactions);
-        allTransactionsTable.setItems(observableTransactions);
-        allTransactionsMessageLabel.setText("");
+        if (transactionSequence < 0) {
+            reloadAllTransactions();
+        } else {
+            followAllTransactions();
+        }
+    }
+
+    private void reloadAllTransactions() {
+        String adminUsername = loggedInAdmin.getUsername();
+        TransactionQuery filter = newTransactionFilter();
+        transactionSequence = -1; // 统计结果到达前丢弃所有变更批次
+        uiTaskExecutor.submitLatest("allTransactions", () -> {
+            // 固定在当前序列号统计，之后新增的交易作为变更到达
+            TransactionQuery pinned = filter.setThroughSequence(adminService.getTransactionSequence(adminUsername));
+            return Map.entry(pinned, adminService.countTransactions(adminUsername, pinned));
+        }, counted -> {
+            showTransactions(counted.getKey(), counted.getValue());
+            transactionSequence = counted.getKey().getThroughSequence();
+            showTransactionCount();
+        }, this::showAllTransactionsError);
+    }
+
+    /**
+     * 只拉取上次之后新增的交易，表格据此增加行数
+     * Follows the transactions added since the last refresh: only the matching ones are counted
+     * and added to the table's size, at the top when newest first, and their rows load when
+     * scrolled to.
+     */
+    private void followAllTransactions() {
+        String adminUsername = loggedInAdmin.getUsername();
+        long after = transactionSequence;
+        uiTaskExecutor.submitLatest("transactionChanges",
+                () -> adminService.getTransactionChanges(adminUsername, after), changes -> {
+            if (after != transactionSequence) {
+                return; // 期间已重新统计或已应用过更新的批次
+            }
+            if (changes.isReset()) {
+                reloadAllTransactions(); // 有记录被删除，或落后太多
+                return;
+            }
+            TransactionQuery current = transactionQuery;
+            int added = 0;
+            for (TransactionRecord transaction : changes.getRecords()) {
+                if (current.matches(transaction)) {
+                    added++;
+                }
+            }
+            // 先放宽快照再增加行数，新增的行才能被加载到
+            transactionQuery = current.copy().setThroughSequence(changes.getLastSequence());
+            transactionSequence = changes.getLastSequence();
+            if (current.isDescending()) {
+                transactionRows.insertFirst(added);
+            } else {
+                transactionRows.append(added);
+            }
+            showTransactionCount();
+        }, this::showAllTransactionsError);
+    }
+
+    private void showTransactions(TransactionQuery pinned, int count) {
+        String adminUsername = loggedInAdmin.getUsername();
+        transactionQuery = pinned;
+        // 换用新的列表而非清空旧列表，避免移除事件复制所有行
+        transactionRows = new LazyPagedList<>(uiTaskExecutor, count, (cursor, offset, limit) -> {
+            TransactionPage page = adminService.queryTransactions(adminUsername,
+                    transactionQuery.copy().setCursor(cursor).setOffset(offset).setLimit(limit));
+            return new LazyPagedList.Page<>(page.getRecords(), page.getNextCursor());
+        });
+        allTransactionsTable.setItems(transactionRows);
+    }
+
+    private void followVisibleFeed() {
+        if (logViewPanel.isVisible() && logSequence >= 0) {
+            refreshLogs(null);
+        } else if (allTransactionsPanel.isVisible() && transactionSequence >= 0) {
+            followAllTransactions();
+        }
+    }
+
+    private TransactionQuery newTransactionFilter() {
+        TransactionQuery query = new TransactionQuery()
+                .setDescending(isDescending(colTransTimestamp, allTransactionsTable.getSortOrder(), true));
+        String account = transactionAccountFilterField.getText().trim();
+        if (!account.isEmpty()) {
+            query.setAccountNumber(account);
+        }
+        TransactionType type = transactionTypeFilterBox.getValue();
+        if (type != null) {
+            query.setTypes(EnumSet.of(type));
+        }
+        return query;
+    }
+
+    @FXML
+    private void applyTransactionFilter(ActionEvent event) {
+        reloadAllTransactions();
+    }
+
+    @FXML
+    private void clearTransactionFilter(ActionEvent event) {
+        transactionAccountFilterField.clear();
+        transactionTypeFilterBox.setValue(null);
+        reloadAllTransactions();
+    }
+
+    private void showTransactionCount() {
+        allTransactionsMessageLabel.setText("共 " + transactionRows.size() + " 条交易记录");
+        allTransactionsMessageLabel.setTextFill(Color.GRAY);
+    }
+
+    private void showAllTransactionsError(Throwable error) {
+        LOG.error("Error loading transactions: {}", error.getMessage());
+        allTransactionsMessageLabel.setText("加载交易记录失败：" + error.getMessage());
+        allTransactionsMessageLabel.setTextFill(Color.RED);
     }
 
     @FXML
     private void handleLogout(ActionEvent event) {
+        uiTaskExecutor.cancelPending(); // 丢弃尚未返回的刷新，避免回调更新已离开的界面
+        metricsRefresh.stop();
+        feedRefresh.stop();
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/com/banksimulation/view/LoginView.fxml"));
             App app = (App) primaryStage.getUserData(); // 获取App实例
@@ -447,6 +849,7 @@ public class AdminDashboardController {
                             app.getUserService(),
                             app.getAdminService(),
                             app.getLoggingService(),
+                            app.getUiTaskExecutor(),
                             primaryStage
                     );
                 }
@@ -464,7 +867,7 @@ public class AdminDashboardController {
             primaryStage.show();
             loggingService.logAdminAction(loggedInAdmin.getUsername(), "Logout", "Admin logged out.");
         } catch (IOException e) {
-            System.err.println("Error loading login view: " + e.getMessage());
+            LOG.error("Error loading login view: {}", e.getMessage());
             e.printStackTrace();
         }
     }
@@ -478,6 +881,8 @@ public class AdminDashboardController {
         userManagementPanel.toFront();
         logViewPanel.setVisible(false);
         allTransactionsPanel.setVisible(false);
+        hideMetrics();
+        feedRefresh.stop();
         refreshUserList(null);
         // 移除了 adminTabPane.getSelectionModel().select(0);
     }
@@ -491,7 +896,9 @@ public class AdminDashboardController {
         logViewPanel.toFront();
         userManagementPanel.setVisible(false);
         allTransactionsPanel.setVisible(false);
+        hideMetrics();
         refreshLogs(null);
+        feedRefresh.play();
         // 移除了 adminTabPane.getSelectionModel().select(1);
     }
 
@@ -504,7 +911,29 @@ public class AdminDashboardController {
         allTransactionsPanel.toFront();
         userManagementPanel.setVisible(false);
         logViewPanel.setVisible(false);
+        hideMetrics();
         refreshAllTransactions(null);
+        feedRefresh.play();
         // 移除了 adminTabPane.getSelectionModel().select(2);
     }
+
+    /**
+     * 显示运行监控面板并开始定时刷新
+     */
+    @FXML
+    private void showMetrics(ActionEvent event) {
+        metricsPanel.setVisible(true);
+        metricsPanel.toFront();
+        userManagementPanel.setVisible(false);
+        logViewPanel.setVisible(false);
+        allTransactionsPanel.setVisible(false);
+        feedRefresh.stop();
+        renderMetrics(); // 立即显示已有的采样历史
+        metricsRefresh.play();
+    }
+
+    private void hideMetrics() {
+        metricsPanel.setVisible(false);
+        metricsRefresh.stop();
+    }
 }
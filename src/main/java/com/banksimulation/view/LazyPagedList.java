@@ -0,0 +1,247 @@
+package com.banksimulation.view;
+
+import com.banksimulation.util.BoundedLruMap;
+import com.banksimulation.util.DiagnosticLogger;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 按需分页加载的表格数据源
+ * Read-only list of a known size that backs a {@code TableView} without holding its rows. A row
+ * that is not loaded reads as null; reading it requests its page in the background, and when the
+ * page arrives its rows are reported as replaced so the visible cells redraw. The page after a
+ * loaded one is prefetched, and only the most recently read pages are kept, so memory is bounded
+ * by the cache however large the list is.
+ * <p>
+ * Pages are fetched through a {@link PageLoader} as (cursor, offset, limit), where the cursor is a
+ * checkpoint remembered at the nearest page boundary loaded before, so the source only walks the
+ * rows between the checkpoint and the page. Checkpoints are thinned out when there are too many,
+ * which at worst doubles that distance. Filtering and ordering are the loader's business; to
+ * change them, build a new list. If the loader reaches the end of its rows before the list's size,
+ * e.g. after rows were deleted, the list shrinks to match. Use it from the JavaFX application
+ * thread only.
+ */
+public class LazyPagedList<T> extends ObservableListBase<T> {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(LazyPagedList.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_CACHED_PAGES = 8;
+    private static final int MAX_CHECKPOINTS = 4096; // 超出后隔一个删一个
+    private static final int PREFETCH_PAGES = 1;
+
+    /**
+     * 分页加载函数（在后台线程调用）
+     * Loads one page of rows; called on a background thread.
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        /**
+         * @param cursor A cursor returned with an earlier page, or null for the start of the list.
+         * @param offset The number of rows after the cursor to skip.
+         * @param limit The number of rows to return.
+         * @return The rows and the cursor after the last of them.
+         */
+        Page<T> load(String cursor, int offset, int limit) throws Exception;
+    }
+
+    /**
+     * 一页数据及其后的游标
+     * A loaded page and the cursor that continues after it, or null at the end.
+     */
+    public static final class Page<T> {
+        private final List<T> rows;
+        private final String nextCursor;
+
+        public Page(List<T> rows, String nextCursor) {
+            this.rows = rows;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    private final UiTaskExecutor uiTaskExecutor;
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final int cachedPages;
+    private final Map<Integer, List<T>> pages; // 按访问顺序排列，超出容量时淘汰最久未读的页
+    private final Set<Integer> loading = new HashSet<>();
+    private final NavigableMap<Integer, String> checkpoints = new TreeMap<>(); // 行号 -> 该行之前的游标
+    private int size;
+    private int generation; // 行号变化时递增，丢弃按旧行号加载的页
+    private volatile int focusPage; // 最近读取的页，后台任务据此跳过已滚出视图的请求
+
+    public LazyPagedList(UiTaskExecutor uiTaskExecutor, int size, PageLoader<T> loader) {
+        this(uiTaskExecutor, size, loader, DEFAULT_PAGE_SIZE, DEFAULT_CACHED_PAGES);
+    }
+
+    /**
+     * @param uiTaskExecutor Runs the loads.
+     * @param size The number of rows, e.g. from a count with the loader's filters.
+     * @param loader Fetches the pages.
+     * @param pageSize The number of rows per page.
+     * @param cachedPages The number of pages kept; should cover the visible rows plus the prefetch.
+     */
+    public LazyPagedList(UiTaskExecutor uiTaskExecutor, int size, PageLoader<T> loader, int pageSize, int cachedPages) {
+        this.uiTaskExecutor = uiTaskExecutor;
+        this.loader = loader;
+        this.size = size;
+        this.pageSize = pageSize;
+        this.cachedPages = cachedPages;
+        this.pages = new BoundedLruMap<>(cachedPages);
+        checkpoints.put(0, null);
+    }
+
+    /**
+     * @return The row, or null if its page is not loaded yet; reading it requests the page.
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int page = index / pageSize;
+        focusPage = page;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        int row = index - page * pageSize;
+        return row < rows.size() ? rows.get(row) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 在开头插入行（如倒序视图中新到的记录）
+     * Reports rows inserted at the start, e.g. new records in a newest-first view. The loader must
+     * already return them. Loaded pages are dropped, since every row has moved.
+     */
+    public void insertFirst(int count) {
+        if (count <= 0) {
+            return;
+        }
+        NavigableMap<Integer, String> shifted = new TreeMap<>();
+        checkpoints.forEach((row, cursor) -> shifted.put(row == 0 ? 0 : row + count, cursor)); // 游标仍指向同一条记录
+        checkpoints.clear();
+        checkpoints.putAll(shifted);
+        invalidate();
+        size += count;
+        beginChange();
+        nextAdd(0, count);
+        endChange();
+    }
+
+    /**
+     * 在末尾追加行（如正序视图中新到的记录）
+     * Reports rows appended at the end; the loader must already return them.
+     */
+    public void append(int count) {
+        if (count <= 0) {
+            return;
+        }
+        int oldSize = size;
+        pages.keySet().removeIf(page -> (page + 1) * pageSize > oldSize); // 末尾的不完整页需要重新加载
+        size += count;
+        beginChange();
+        nextAdd(oldSize, size);
+        endChange();
+    }
+
+    private void invalidate() {
+        generation++;
+        pages.clear();
+        loading.clear();
+    }
+
+    private void request(int page) {
+        if (page < 0 || page * pageSize >= size || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int firstRow = page * pageSize;
+        Map.Entry<Integer, String> checkpoint = checkpoints.floorEntry(firstRow);
+        String cursor = checkpoint.getValue();
+        int offset = firstRow - checkpoint.getKey();
+        int requestGeneration = generation;
+        int requestSize = size;
+        uiTaskExecutor.submit(() -> {
+            if (Math.abs(page - focusPage) > PREFETCH_PAGES + cachedPages / 2) {
+                return null; // 开始前已滚出视图
+            }
+            return loader.load(cursor, offset, pageSize);
+        }, loaded -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading.remove(page);
+            if (loaded != null) {
+                store(page, loaded, requestSize);
+            }
+        }, error -> {
+            if (requestGeneration == generation) {
+                loading.remove(page);
+            }
+            LOG.error("Error loading rows {}-{}: {}", firstRow, firstRow + pageSize - 1, error.getMessage());
+        });
+    }
+
+    private void shrink(int newSize) {
+        int oldSize = size;
+        size = newSize;
+        pages.keySet().removeIf(page -> page * pageSize >= newSize);
+        beginChange();
+        nextRemove(newSize, Collections.nCopies(oldSize - newSize, (T) null)); // 被移除的行不在内存中
+        endChange();
+    }
+
+    private void thinCheckpoints() {
+        boolean keep = true;
+        for (Iterator<Integer> it = checkpoints.keySet().iterator(); it.hasNext(); keep = !keep) {
+            int row = it.next();
+            if (!keep && row != 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private void store(int page, Page<T> loaded, int requestSize) {
+        int firstRow = page * pageSize;
+        int nextRow = firstRow + loaded.rows.size();
+        if (loaded.nextCursor == null && nextRow < size) {
+            if (requestSize != size) {
+                request(page); // 加载期间追加了行，末页已过期
+                return;
+            }
+            shrink(nextRow); // 数据源的行比列表少（如有记录被删除）：以其末尾为准，不再重新加载
+        }
+        if (loaded.nextCursor != null) {
+            checkpoints.put(nextRow, loaded.nextCursor);
+            if (checkpoints.size() > MAX_CHECKPOINTS) {
+                thinCheckpoints();
+            }
+        }
+        pages.put(page, loaded.rows);
+        int end = Math.min(size, firstRow + pageSize);
+        if (firstRow < end) {
+            beginChange();
+            for (int i = firstRow; i < end; i++) {
+                nextSet(i, null); // 占位行被加载的行替换
+            }
+            endChange();
+        }
+        if (loaded.nextCursor != null && page < focusPage + PREFETCH_PAGES) {
+            request(page + 1); // 预取下一页，但不超出最近读取的页之后的余量
+        }
+    }
+}
@@ -5,13 +5,16 @@ import com.banksimulation.entity.User;
 import com.banksimulation.service.AdminService;
 import com.banksimulation.service.AuthenticationService;
 import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.SessionToken;
 import com.banksimulation.service.UserService;
+import com.banksimulation.util.DiagnosticLogger;
 import com.banksimulation.util.PasswordHasher;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
@@ -26,26 +29,35 @@ import java.util.Optional;
  */
 public class LoginController {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(LoginController.class);
+
     @FXML
     private TextField usernameField;
     @FXML
     private PasswordField passwordField;
     @FXML
     private Label messageLabel;
+    @FXML
+    private Button loginButton;
+    @FXML
+    private Button registerButton;
 
     private final AuthenticationService authenticationService;
     private final UserService userService;
     private final AdminService adminService;
     private final LoggingService loggingService;
+    private final UiTaskExecutor uiTaskExecutor;
     private final Stage primaryStage;
 
     // 构造函数，通过App类进行依赖注入
     public LoginController(AuthenticationService authenticationService, UserService userService,
-                           AdminService adminService, LoggingService loggingService, Stage primaryStage) {
+                           AdminService adminService, LoggingService loggingService,
+                           UiTaskExecutor uiTaskExecutor, Stage primaryStage) {
         this.authenticationService = authenticationService;
         this.userService = userService;
         this.adminService = adminService;
         this.loggingService = loggingService;
+        this.uiTaskExecutor = uiTaskExecutor;
         this.primaryStage = primaryStage;
     }
 
@@ -54,27 +66,31 @@ public class LoginController {
         String username = usernameField.getText().trim(); // 添加 trim()
         String password = passwordField.getText().trim(); // 添加 trim()
 
+        // 密码校验在后台线程进行，期间禁用按钮防止重复提交
+        setBusy(true);
         // 尝试用户登录
-        Optional<User> userOptional = authenticationService.loginUser(username, password);
-        if (userOptional.isPresent()) {
-            messageLabel.setText("用户登录成功！");
-            messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-            navigateToUserDashboard(userOptional.get());
-            return;
-        }
-
-        // 如果用户登录失败，尝试管理员登录
-        Optional<com.banksimulation.entity.Admin> adminOptional = authenticationService.loginAdmin(username, password);
-        if (adminOptional.isPresent()) {
-            messageLabel.setText("管理员登录成功！");
-            messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-            navigateToAdminDashboard(adminOptional.get());
-            return;
-        }
-
-        // 登录失败
-        messageLabel.setText("登录失败：用户名或密码错误。");
-        messageLabel.setTextFill(javafx.scene.paint.Color.RED);
+        uiTaskExecutor.submit(() -> authenticationService.loginUserSession(username, password), session -> {
+            Optional<User> userOptional = session.flatMap(authenticationService.getSessionManager()::resolveUser);
+            if (userOptional.isPresent()) {
+                messageLabel.setText("用户登录成功！");
+                messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                navigateToUserDashboard(userOptional.get(), session.get());
+                return;
+            }
+            // 如果用户登录失败，尝试管理员登录
+            uiTaskExecutor.submit(() -> authenticationService.loginAdmin(username, password), adminOptional -> {
+                setBusy(false);
+                if (adminOptional.isPresent()) {
+                    messageLabel.setText("管理员登录成功！");
+                    messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                    navigateToAdminDashboard(adminOptional.get());
+                    return;
+                }
+                // 登录失败
+                messageLabel.setText("登录失败：用户名或密码错误。");
+                messageLabel.setTextFill(javafx.scene.paint.Color.RED);
+            }, this::showError);
+        }, this::showError);
     }
 
     @FXML
@@ -88,29 +104,47 @@ public class LoginController {
             return;
         }
 
-        String hashedPassword = PasswordHasher.hashPassword(password);
-        // 自动生成一个简单的账号，实际应用中需要更严谨的账号生成逻辑，例如确保唯一性
-        // 这里只是一个示例，实际生产环境需要更健壮的账号生成和校验机制
-        String accountNumber = String.valueOf(System.currentTimeMillis()).substring(0, 10);
-        User newUser = new User(username, hashedPassword, "", "", accountNumber); // 暂时留空first/last name
-
-        if (authenticationService.registerUser(newUser)) {
-            messageLabel.setText("注册成功！请登录。"); // Registration successful! Please log in.
-            messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-            usernameField.clear();
-            passwordField.clear();
-        } else {
-            messageLabel.setText("注册失败：用户名已存在或发生其他错误。"); // Registration failed: Username already exists or other error occurred.
-            messageLabel.setTextFill(javafx.scene.paint.Color.RED);
-        }
+        setBusy(true);
+        uiTaskExecutor.submit(() -> {
+            String hashedPassword = PasswordHasher.hashPassword(password);
+            // 自动生成一个简单的账号，实际应用中需要更严谨的账号生成逻辑，例如确保唯一性
+            // 这里只是一个示例，实际生产环境需要更健壮的账号生成和校验机制
+            String accountNumber = String.valueOf(System.currentTimeMillis()).substring(0, 10);
+            User newUser = new User(username, hashedPassword, "", "", accountNumber); // 暂时留空first/last name
+            return authenticationService.registerUser(newUser);
+        }, registered -> {
+            setBusy(false);
+            if (registered) {
+                messageLabel.setText("注册成功！请登录。"); // Registration successful! Please log in.
+                messageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                usernameField.clear();
+                passwordField.clear();
+            } else {
+                messageLabel.setText("注册失败：用户名已存在或发生其他错误。"); // Registration failed: Username already exists or other error occurred.
+                messageLabel.setTextFill(javafx.scene.paint.Color.RED);
+            }
+        }, this::showError);
+    }
+
+    private void setBusy(boolean busy) {
+        loginButton.setDisable(busy);
+        registerButton.setDisable(busy);
+    }
+
+    private void showError(Throwable error) {
+        setBusy(false);
+        LOG.error("Login view task failed: {}", error.getMessage());
+        messageLabel.setText("操作失败：" + error.getMessage());
+        messageLabel.setTextFill(javafx.scene.paint.Color.RED);
     }
 
     /**
      * 导航到用户仪表板
      * Navigates to the user dashboard.
      * @param user The logged-in user.
+     * @param session The user's session.
      */
-    private void navigateToUserDashboard(User user) {
+    private void navigateToUserDashboard(User user, SessionToken session) {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/com/banksimulation/view/UserDashboardView.fxml"));
             App app = (App) primaryStage.getUserData(); // 获取App实例
@@ -120,8 +154,10 @@ public class LoginController {
                     return new UserDashboardController(
                             app.getUserService(),
                             app.getLoggingService(),
+                            app.getUiTaskExecutor(),
                             primaryStage,
-                            user // 传递当前登录的用户对象
+                            user, // 传递当前登录的用户对象
+                            session
                     );
                 }
                 try {
@@ -137,7 +173,7 @@ public class LoginController {
             primaryStage.setScene(scene);
             primaryStage.show();
         } catch (IOException e) {
-            System.err.println("Error loading user dashboard view: " + e.getMessage());
+            LOG.error("Error loading user dashboard view: {}", e.getMessage());
             e.printStackTrace();
         }
     }
@@ -158,6 +194,8 @@ public class LoginController {
                             app.getAdminService(),
                             app.getUserService(), // AdminDashboard可能需要UserService来获取用户详情
                             app.getLoggingService(),
+                            app.getUiTaskExecutor(),
+                            app.getMetricsSampler(),
                             primaryStage,
                             admin // 传递当前登录的管理员对象
                     );
@@ -175,7 +213,7 @@ public class LoginController {
             primaryStage.setScene(scene);
             primaryStage.show();
         } catch (IOException e) {
-            System.err.println("Error loading admin dashboard view: " + e.getMessage());
+            LOG.error("Error loading admin dashboard view: {}", e.getMessage());
             e.printStackTrace();
         }
     }
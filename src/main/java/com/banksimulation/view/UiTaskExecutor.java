@@ -0,0 +1,131 @@
+package com.banksimulation.view;
+
+import com.banksimulation.util.DiagnosticLogger;
+import javafx.application.Platform;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 界面服务调用执行器
+ * Runs service calls for the controllers on virtual threads, off the JavaFX application thread,
+ * and hands results back to it via {@link Platform#runLater(Runnable)}. Submit from the JavaFX
+ * application thread; callbacks always run there.
+ * <p>
+ * Refreshes are submitted under a key with {@link #submitLatest}: a newer submission with the same
+ * key supersedes the older one, whose result is then dropped instead of overwriting fresher data.
+ * Superseded tasks are never interrupted, because an interrupt closes any {@code FileChannel} the
+ * thread is writing (for example the journal while it leads a group commit).
+ */
+public class UiTaskExecutor implements AutoCloseable {
+
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(UiTaskExecutor.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final ExecutorService executor;
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<String, Long> latest = new ConcurrentHashMap<>(); // 每个键最新一次提交的代数
+    private final Map<String, Future<?>> running = new ConcurrentHashMap<>();
+
+    public UiTaskExecutor() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ui-task-", 0).factory());
+    }
+
+    /**
+     * 在后台执行任务，完成后在界面线程回调
+     * Runs a task in the background and passes its outcome to the callbacks on the JavaFX thread.
+     * @param task The service call.
+     * @param onSuccess Receives the task's result.
+     * @param onFailure Receives the exception if the task throws.
+     */
+    public <T> void submit(Callable<T> task, Consumer<? super T> onSuccess, Consumer<? super Throwable> onFailure) {
+        execute(task, () -> true, onSuccess, onFailure);
+    }
+
+    /**
+     * 在后台执行可被取代的任务（如刷新）
+     * Runs a task in the background, superseding any earlier task submitted under the same key.
+     * A superseded task is skipped if it has not started yet, and its callbacks are never invoked.
+     * @param key Identifies what the task refreshes, e.g. {@code "userList"}.
+     * @param task The service call.
+     * @param onSuccess Receives the task's result, unless it was superseded.
+     * @param onFailure Receives the exception if the task throws, unless it was superseded.
+     */
+    public <T> void submitLatest(String key, Callable<T> task, Consumer<? super T> onSuccess,
+                                 Consumer<? super Throwable> onFailure) {
+        long generation = generations.incrementAndGet();
+        latest.put(key, generation);
+        BooleanSupplier current = () -> latest.getOrDefault(key, 0L) == generation;
+        Future<?> previous = running.put(key, execute(task, current, onSuccess, onFailure));
+        if (previous != null) {
+            previous.cancel(false); // 不中断，仅阻止尚未开始的任务运行
+        }
+    }
+
+    /**
+     * 作废所有可被取代的任务（如离开当前界面时）
+     * Supersedes every keyed task, so none of their callbacks run. Unkeyed tasks are unaffected.
+     */
+    public void cancelPending() {
+        latest.clear();
+        running.values().forEach(future -> future.cancel(false));
+        running.clear();
+    }
+
+    private <T> Future<?> execute(Callable<T> task, BooleanSupplier current, Consumer<? super T> onSuccess,
+                                  Consumer<? super Throwable> onFailure) {
+        try {
+            return executor.submit(() -> {
+                if (!current.getAsBoolean()) {
+                    return; // 已被更新的提交取代
+                }
+                try {
+                    T result = task.call();
+                    Platform.runLater(() -> {
+                        if (current.getAsBoolean()) {
+                            onSuccess.accept(result);
+                        }
+                    });
+                } catch (Throwable e) {
+                    Platform.runLater(() -> {
+                        if (current.getAsBoolean()) {
+                            onFailure.accept(e);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 应用正在退出，丢弃新任务
+            LOG.warn("Task rejected during shutdown.");
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 停止接受新任务并等待进行中的任务完成
+     * Stops accepting tasks and waits for running ones, so a deposit submitted just before exit
+     * still completes before the services shut down.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Tasks still running after {}s.", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.banksimulation.view;
 
 import com.banksimulation.App; // Import App class
+import com.banksimulation.dao.TransactionPage;
+import com.banksimulation.dao.TransactionQuery;
 import com.banksimulation.entity.TransactionRecord;
 import com.banksimulation.entity.User;
 import com.banksimulation.service.LoggingService;
+import com.banksimulation.service.SessionToken;
 import com.banksimulation.service.UserService;
+import com.banksimulation.util.DiagnosticLogger;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -24,8 +28,6 @@ import javafx.scene.layout.VBox; // Import VBox
 
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Optional;
 
 /**
  * 用户仪表板控制器
@@ -33,6 +35,8 @@ import java.util.Optional;
  */
 public class UserDashboardController {
 
+    private static final DiagnosticLogger LOG = DiagnosticLogger.getLogger(UserDashboardController.class);
+
     @FXML private Label welcomeLabel;
     @FXML private Label usernameLabel;
     @FXML private Label accountNumberLabel;
@@ -41,9 +45,11 @@ public class UserDashboardController {
 
     @FXML private TextField depositAmountField;
     @FXML private Label depositMessageLabel;
+    @FXML private javafx.scene.control.Button depositButton;
 
     @FXML private TextField withdrawAmountField;
     @FXML private Label withdrawMessageLabel;
+    @FXML private javafx.scene.control.Button withdrawButton;
 
     @FXML private TableView<TransactionRecord> transactionTable;
     @FXML private TableColumn<TransactionRecord, String> colTimestamp;
@@ -52,6 +58,7 @@ public class UserDashboardController {
     @FXML private TableColumn<TransactionRecord, Double> colBalanceAfter;
     @FXML private TableColumn<TransactionRecord, String> colDescription;
     @FXML private Label transactionMessageLabel;
+    @FXML private javafx.scene.control.Button loadMoreTransactionsButton;
 
     @FXML private PasswordField oldPasswordField;
     @FXML private PasswordField newPasswordField;
@@ -75,15 +82,21 @@ public class UserDashboardController {
 
     private final UserService userService;
     private final LoggingService loggingService;
+    private final UiTaskExecutor uiTaskExecutor; // 服务调用在虚拟线程上执行，结果回到界面线程
     private final Stage primaryStage;
+    private final SessionToken session; // 登录时签发的会话，服务调用凭它取得当前用户
     private User currentUser; // 当前登录的用户
+    private String transactionHistoryCursor; // 交易记录下一页的游标，没有更多时为 null
 
     // 构造函数，通过App类进行依赖注入
-    public UserDashboardController(UserService userService, LoggingService loggingService, Stage primaryStage, User currentUser) {
+    public UserDashboardController(UserService userService, LoggingService loggingService, UiTaskExecutor uiTaskExecutor,
+                                   Stage primaryStage, User currentUser, SessionToken session) {
         this.userService = userService;
         this.loggingService = loggingService;
+        this.uiTaskExecutor = uiTaskExecutor;
         this.primaryStage = primaryStage;
         this.currentUser = currentUser;
+        this.session = session;
     }
 
     @FXML
@@ -108,34 +121,46 @@ public class UserDashboardController {
 
     @FXML
     private void refreshAccountInfo() {
-        Optional<User> updatedUser = userService.getUserDetails(currentUser.getUsername());
-        if (updatedUser.isPresent()) {
-            currentUser = updatedUser.get(); // 更新当前用户对象
-            usernameLabel.setText(currentUser.getUsername());
-            accountNumberLabel.setText(currentUser.getAccountNumber());
-            balanceLabel.setText(String.format("%.2f", currentUser.getBalance()));
-            statusLabel.setText(currentUser.isActive() ? "激活" : "禁用");
-        } else {
-            // 如果用户不存在，可能表示账户被删除或出现严重错误，应该返回登录界面
-            System.err.println("Error: Current user not found after refresh. Logging out.");
-            handleLogout(null);
-        }
+        uiTaskExecutor.submitLatest("accountInfo", () -> userService.getUserDetails(session), updatedUser -> {
+            if (updatedUser.isPresent()) {
+                currentUser = updatedUser.get(); // 更新当前用户对象
+                usernameLabel.setText(currentUser.getUsername());
+                accountNumberLabel.setText(currentUser.getAccountNumber());
+                balanceLabel.setText(String.format("%.2f", currentUser.getBalance()));
+                statusLabel.setText(currentUser.isActive() ? "激活" : "禁用");
+            } else {
+                // 会话失效（过期、账户被删除或禁用），返回登录界面
+                LOG.warn("Session is no longer valid after refresh. Logging out.");
+                handleLogout(null);
+            }
+        }, error -> LOG.error("Error refreshing account info: {}", error.getMessage()));
     }
 
     @FXML
     private void handleDeposit(ActionEvent event) {
         try {
             double amount = Double.parseDouble(depositAmountField.getText());
-            if (userService.deposit(currentUser.getUsername(), amount)) {
-                depositMessageLabel.setText("存款成功！新余额：" + String.format("%.2f", currentUser.getBalance()));
-                depositMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-                depositAmountField.clear();
-                refreshAccountInfo(); // 刷新余额显示
-                refreshTransactionHistory(); // 刷新交易记录
-            } else {
-                depositMessageLabel.setText("存款失败。");
+            depositButton.setDisable(true); // 防止在存款完成前重复提交
+            // 存款后在同一后台任务中读取新余额，消息中显示的是本次存款之后的余额
+            uiTaskExecutor.submit(() -> userService.deposit(session, amount)
+                    ? userService.getUserDetails(session).map(User::getBalance).orElse(null)
+                    : null, newBalance -> {
+                depositButton.setDisable(false);
+                if (newBalance != null) {
+                    depositMessageLabel.setText("存款成功！新余额：" + String.format("%.2f", newBalance));
+                    depositMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                    depositAmountField.clear();
+                    refreshAccountInfo(); // 刷新余额显示
+                    refreshTransactionHistory(); // 刷新交易记录
+                } else {
+                    depositMessageLabel.setText("存款失败。");
+                    depositMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
+                }
+            }, error -> {
+                depositButton.setDisable(false);
+                depositMessageLabel.setText("存款失败：" + error.getMessage());
                 depositMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
-            }
+            });
         } catch (NumberFormatException e) {
             depositMessageLabel.setText("请输入有效的金额。");
             depositMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
@@ -146,16 +171,26 @@ public class UserDashboardController {
     private void handleWithdraw(ActionEvent event) {
         try {
             double amount = Double.parseDouble(withdrawAmountField.getText());
-            if (userService.withdraw(currentUser.getUsername(), amount)) {
-                withdrawMessageLabel.setText("取款成功！新余额：" + String.format("%.2f", currentUser.getBalance()));
-                withdrawMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-                withdrawAmountField.clear();
-                refreshAccountInfo(); // 刷新余额显示
-                refreshTransactionHistory(); // 刷新交易记录
-            } else {
-                withdrawMessageLabel.setText("取款失败。");
+            withdrawButton.setDisable(true); // 防止在取款完成前重复提交
+            uiTaskExecutor.submit(() -> userService.withdraw(session, amount)
+                    ? userService.getUserDetails(session).map(User::getBalance).orElse(null)
+                    : null, newBalance -> {
+                withdrawButton.setDisable(false);
+                if (newBalance != null) {
+                    withdrawMessageLabel.setText("取款成功！新余额：" + String.format("%.2f", newBalance));
+                    withdrawMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                    withdrawAmountField.clear();
+                    refreshAccountInfo(); // 刷新余额显示
+                    refreshTransactionHistory(); // 刷新交易记录
+                } else {
+                    withdrawMessageLabel.setText("取款失败。");
+                    withdrawMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
+                }
+            }, error -> {
+                withdrawButton.setDisable(false);
+                withdrawMessageLabel.setText("取款失败：" + error.getMessage());
                 withdrawMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
-            }
+            });
         } catch (NumberFormatException e) {
             withdrawMessageLabel.setText("请输入有效的金额。");
             withdrawMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
@@ -164,16 +199,51 @@ public class UserDashboardController {
 
     @FXML
     private void refreshTransactionHistory() {
-        // Access DAO directly through loggingService.getDao() to get transaction records
-        List<TransactionRecord> transactions = loggingService.getDao().getTransactionsByUserId(currentUser.getUserId());
-        ObservableList<TransactionRecord> observableTransactions = FXCollections.observableArrayList(transactions);
-        transactionTable.setItems(observableTransactions);
-        if (transactions.isEmpty()) {
-            transactionMessageLabel.setText("没有交易记录。");
-            transactionMessageLabel.setTextFill(javafx.scene.paint.Color.GRAY);
-        } else {
-            transactionMessageLabel.setText("");
+        // Only the newest page is loaded; older records are fetched on demand via loadMoreTransactions
+        loadMoreTransactionsButton.setDisable(true); // 新的第一页到达前不能继续翻页
+        // 与“加载更多”共用同一个键：刷新会取代尚未返回的翻页请求
+        uiTaskExecutor.submitLatest("transactions",
+                () -> userService.getTransactionHistory(session, newestFirstQuery()), page -> {
+            ObservableList<TransactionRecord> observableTransactions = FXCollections.observableArrayList(page.getRecords());
+            transactionTable.setItems(observableTransactions);
+            updateTransactionPaging(page);
+            if (page.getRecords().isEmpty()) {
+                transactionMessageLabel.setText("没有交易记录。");
+                transactionMessageLabel.setTextFill(javafx.scene.paint.Color.GRAY);
+            } else {
+                transactionMessageLabel.setText("");
+            }
+        }, this::showTransactionError);
+    }
+
+    @FXML
+    private void loadMoreTransactions(ActionEvent event) {
+        if (transactionHistoryCursor == null) {
+            return;
         }
+        TransactionQuery query = newestFirstQuery().setCursor(transactionHistoryCursor);
+        loadMoreTransactionsButton.setDisable(true); // 防止同一游标被重复加载
+        uiTaskExecutor.submitLatest("transactions",
+                () -> userService.getTransactionHistory(session, query), page -> {
+            transactionTable.getItems().addAll(page.getRecords());
+            updateTransactionPaging(page);
+        }, this::showTransactionError);
+    }
+
+    private void showTransactionError(Throwable error) {
+        LOG.error("Error loading transaction history: {}", error.getMessage());
+        transactionMessageLabel.setText("加载交易记录失败：" + error.getMessage());
+        transactionMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
+        loadMoreTransactionsButton.setDisable(transactionHistoryCursor == null);
+    }
+
+    private TransactionQuery newestFirstQuery() {
+        return new TransactionQuery().setDescending(true).setLimit(TransactionQuery.DEFAULT_PAGE_SIZE);
+    }
+
+    private void updateTransactionPaging(TransactionPage page) {
+        transactionHistoryCursor = page.getNextCursor();
+        loadMoreTransactionsButton.setDisable(!page.hasMore());
     }
 
     @FXML
@@ -198,20 +268,27 @@ public class UserDashboardController {
             return;
         }
 
-        if (userService.updatePassword(currentUser.getUsername(), oldPassword, newPassword)) {
-            passwordMessageLabel.setText("密码修改成功！");
-            passwordMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
-            oldPasswordField.clear();
-            newPasswordField.clear();
-            confirmNewPasswordField.clear();
-        } else {
-            passwordMessageLabel.setText("密码修改失败：旧密码错误或发生其他错误。");
+        String username = currentUser.getUsername();
+        uiTaskExecutor.submit(() -> userService.updatePassword(username, oldPassword, newPassword), updated -> {
+            if (updated) {
+                passwordMessageLabel.setText("密码修改成功！");
+                passwordMessageLabel.setTextFill(javafx.scene.paint.Color.GREEN);
+                oldPasswordField.clear();
+                newPasswordField.clear();
+                confirmNewPasswordField.clear();
+            } else {
+                passwordMessageLabel.setText("密码修改失败：旧密码错误或发生其他错误。");
+                passwordMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
+            }
+        }, error -> {
+            passwordMessageLabel.setText("密码修改失败：" + error.getMessage());
             passwordMessageLabel.setTextFill(javafx.scene.paint.Color.RED);
-        }
+        });
     }
 
     @FXML
     private void handleLogout(ActionEvent event) {
+        uiTaskExecutor.cancelPending(); // 丢弃尚未返回的刷新，避免回调更新已离开的界面
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/com/banksimulation/view/LoginView.fxml"));
             // Get App instance to inject services
@@ -224,6 +301,7 @@ public class UserDashboardController {
                             app.getUserService(),
                             app.getAdminService(),
                             app.getLoggingService(),
+                            app.getUiTaskExecutor(),
                             primaryStage
                     );
                 }
@@ -239,9 +317,9 @@ public class UserDashboardController {
             primaryStage.setTitle("银行模拟系统 - 登录");
             primaryStage.setScene(scene);
             primaryStage.show();
-            loggingService.logUserAction(currentUser.getUsername(), "Logout", "User logged out.");
+            app.getAuthenticationService().logout(session); // 结束会话并记录退出日志
         } catch (IOException e) {
-            System.err.println("Error loading login view: " + e.getMessage());
+            LOG.error("Error loading login view: {}", e.getMessage());
             e.printStackTrace();
         }
     }
@@ -0,0 +1,236 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 日志持久化 DAO 测试：未关闭时的恢复、快照与日志段、归档段的恢复与清理
+ * Tests for {@link JournalingDAO}: recovery without a clean shutdown, snapshots followed by
+ * journal segments, and archive segments across restarts and user deletion.
+ */
+class JournalingDAOTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversBalancesAndTransactionsWithoutClose() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory);
+        User alice = saveUser(dao, "alice", "300001");
+        User bob = saveUser(dao, "bob", "300002");
+        deposit(dao, alice, 10_000);
+        transfer(dao, alice, bob, 2_550);
+
+        // 不调用 close()：模拟进程崩溃，所有变更都已在日志中同步
+        JournalingDAO reopened = new JournalingDAO(directory);
+        try {
+            assertEquals(7_450, balanceOf(reopened, "alice"));
+            assertEquals(2_550, balanceOf(reopened, "bob"));
+            assertEquals(2, reopened.getTransactionsByUserId(alice.getUserId()).size());
+            assertEquals(1, reopened.getTransactionsByUserId(bob.getUserId()).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void balancesAboveDoublePrecisionSurviveSnapshotAndReplay() throws IOException {
+        long balance = User.MAX_BALANCE_MINOR_UNITS - 1; // 远大于 2^53，double 无法精确表示
+        JournalingDAO dao = new JournalingDAO(directory);
+        User alice = new User("alice", "hash", "First", "Last", "300001");
+        alice.setBalanceMinorUnits(balance);
+        dao.saveUser(alice);
+        dao.snapshot();
+        dao.updateUser(alice); // 快照之后的日志段中的用户记录
+
+        JournalingDAO reopened = new JournalingDAO(directory);
+        try {
+            assertEquals(balance, balanceOf(reopened, "alice"));
+            reopened.snapshot();
+        } finally {
+            reopened.close();
+        }
+        JournalingDAO again = new JournalingDAO(directory);
+        try {
+            assertEquals(balance, balanceOf(again, "alice"));
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void depositNotYetJournaledIsNotRecoveredThroughAnotherRecord() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory);
+        User alice = saveUser(dao, "alice", "300001");
+        // 两笔并发存款：第一笔已通过 CAS 入账，但在写入日志前进程崩溃；第二笔已写入并同步
+        alice.credit(1_000);
+        deposit(dao, alice, 250);
+        assertEquals(1_250, alice.getBalanceMinorUnits());
+        alice.setFirstName("Alicia");
+        dao.updateUser(alice); // 用户记录同样不能带上未写入日志的余额
+
+        JournalingDAO reopened = new JournalingDAO(directory);
+        try {
+            assertEquals(250, balanceOf(reopened, "alice"));
+            assertEquals("Alicia", reopened.getUserByUsername("alice").orElseThrow().getFirstName());
+            assertEquals(1, reopened.getTransactionsByUserId(alice.getUserId()).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void snapshotDoesNotCaptureBalanceChangesNotYetJournaled() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory);
+        User alice = saveUser(dao, "alice", "300001");
+        User bob = saveUser(dao, "bob", "300002");
+        deposit(dao, alice, 5_000);
+        alice.credit(700); // 已入账、尚未写入日志时生成快照，随后崩溃
+        dao.snapshot();
+        transfer(dao, alice, bob, 1_000); // 快照之后的日志段
+
+        JournalingDAO reopened = new JournalingDAO(directory);
+        try {
+            assertEquals(4_000, balanceOf(reopened, "alice"));
+            assertEquals(1_000, balanceOf(reopened, "bob"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void restoresSnapshotPlusLaterJournalSegment() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory);
+        User alice = saveUser(dao, "alice", "300001");
+        deposit(dao, alice, 5_000);
+        dao.snapshot();
+        deposit(dao, alice, 1_000); // 只在快照之后的日志段中
+        assertTrue(countFiles("snapshot-") >= 1);
+
+        JournalingDAO reopened = new JournalingDAO(directory);
+        try {
+            assertEquals(6_000, balanceOf(reopened, "alice"));
+            assertEquals(2, reopened.getTransactionsByUserId(alice.getUserId()).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void archivedTransactionsSurviveRestartAndAreQueryable() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory, null, Duration.ofDays(1));
+        User alice = saveUser(dao, "alice", "300001");
+        User bob = saveUser(dao, "bob", "300002");
+        List<TransactionRecord> old = oldTransactions(alice, bob, 6_000);
+        dao.saveTransactions(old);
+        deposit(dao, alice, 100); // 新记录留在内存中
+        dao.snapshot();
+        assertEquals(1, countFiles("archive-"));
+
+        TransactionQuery aliceQuery = new TransactionQuery().setAccountNumber(alice.getAccountNumber());
+        assertEquals(3_001, dao.countTransactions(aliceQuery));
+        dao.close();
+
+        JournalingDAO reopened = new JournalingDAO(directory, null, Duration.ofDays(1));
+        try {
+            assertEquals(6_001, reopened.countTransactions(new TransactionQuery()));
+            assertEquals(3_001, reopened.countTransactions(aliceQuery));
+            assertEquals(1_500, reopened.countTransactions(new TransactionQuery()
+                    .setAccountNumber(bob.getAccountNumber()).setTypes(EnumSet.of(TransactionType.DEPOSIT))));
+
+            // 偏移定位到归档记录：与逐页读取的结果一致
+            TransactionPage page = reopened.queryTransactions(new TransactionQuery().setOffset(4_000).setLimit(3));
+            assertEquals(old.get(4_000).getTransactionId(), page.getRecords().get(0).getTransactionId());
+            assertEquals(old.get(4_002).getTransactionId(), page.getRecords().get(2).getTransactionId());
+            TransactionPage newest = reopened.queryTransactions(new TransactionQuery().setDescending(true).setOffset(1).setLimit(1));
+            assertEquals(old.get(old.size() - 1).getTransactionId(), newest.getRecords().get(0).getTransactionId());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void deletingUserPurgesArchivedTransactions() throws IOException {
+        JournalingDAO dao = new JournalingDAO(directory, null, Duration.ofDays(1));
+        User alice = saveUser(dao, "alice", "300001");
+        User bob = saveUser(dao, "bob", "300002");
+        dao.saveTransactions(oldTransactions(alice, bob, 6_000));
+        dao.snapshot();
+
+        dao.deleteUser(bob.getUserId());
+        assertEquals(0, dao.getTransactionsByUserId(bob.getUserId()).size());
+        assertEquals(3_000, dao.countTransactions(new TransactionQuery()));
+        dao.close();
+
+        JournalingDAO reopened = new JournalingDAO(directory, null, Duration.ofDays(1));
+        try {
+            assertEquals(0, reopened.getTransactionsByUserId(bob.getUserId()).size());
+            assertEquals(3_000, reopened.getTransactionsByUserId(alice.getUserId()).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static User saveUser(JournalingDAO dao, String username, String accountNumber) {
+        User user = new User(username, "hash", "First", "Last", accountNumber);
+        dao.saveUser(user);
+        return user;
+    }
+
+    // 与 UserService 相同的方式：先原子更新余额，再与交易记录一起持久化
+    private static void deposit(JournalingDAO dao, User user, long minorUnits) {
+        long balance = user.credit(minorUnits);
+        dao.saveBalanceChanges(List.of(user), new long[] {minorUnits}, List.of(new TransactionRecord(user.getUserId(), user.getAccountNumber(),
+                TransactionType.DEPOSIT, minorUnits / 100.0, balance / 100.0, "Deposit")));
+    }
+
+    private static void transfer(JournalingDAO dao, User sender, User receiver, long minorUnits) {
+        long senderBalance = sender.tryDebit(minorUnits);
+        long receiverBalance = receiver.credit(minorUnits);
+        dao.saveBalanceChanges(List.of(sender, receiver), new long[] {-minorUnits, minorUnits}, List.of(
+                new TransactionRecord(sender.getUserId(), sender.getAccountNumber(), TransactionType.TRANSFER_OUT,
+                        minorUnits / 100.0, senderBalance / 100.0, "Transfer", receiver.getAccountNumber()),
+                new TransactionRecord(receiver.getUserId(), receiver.getAccountNumber(), TransactionType.TRANSFER_IN,
+                        minorUnits / 100.0, receiverBalance / 100.0, "Transfer", sender.getAccountNumber())));
+    }
+
+    // 按时间递增、交替属于两个用户的历史记录（早于归档年龄）
+    private static List<TransactionRecord> oldTransactions(User first, User second, int count) {
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<TransactionRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = i % 2 == 0 ? first : second;
+            TransactionType type = (i / 2) % 2 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL;
+            records.add(new TransactionRecord(UUID.randomUUID().toString(), user.getUserId(), user.getAccountNumber(),
+                    type, 1 + i % 50, 100, start.plusSeconds(i), "History " + i, null));
+        }
+        return records;
+    }
+
+    private static long balanceOf(JournalingDAO dao, String username) {
+        return dao.getUserByUsername(username).orElseThrow().getBalanceMinorUnits();
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 日志存储测试：变更流在删除日志后的重置
+ * Tests for {@link LogStore#changesSince(long)}, including the reset after removing entries.
+ */
+class LogStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 30, 0);
+
+    @Test
+    void changesSinceReturnsEntriesAfterTheSequence() {
+        LogStore store = new LogStore();
+        store.addAll(List.of(log(0, "alice"), log(1, "bob"), log(2, "alice")));
+        ChangeBatch<OperationLog> batch = store.changesSince(1);
+        assertFalse(batch.isReset());
+        assertEquals(List.of("log-1", "log-2"), ids(batch.getRecords()));
+        assertEquals(3, batch.getLastSequence());
+        assertTrue(store.changesSince(3).getRecords().isEmpty());
+        assertTrue(store.changesSince(4).isReset()); // 尚未分配的序列号
+    }
+
+    @Test
+    void removingEntriesResetsEveryReader() {
+        LogStore store = new LogStore();
+        store.addAll(List.of(log(0, "alice"), log(1, "bob"), log(2, "alice")));
+        store.removeIf(log -> log.getActorUsername().equals("bob"));
+
+        for (long seen = 0; seen <= 3; seen++) {
+            ChangeBatch<OperationLog> batch = store.changesSince(seen);
+            assertTrue(batch.isReset(), "reader at " + seen);
+            assertTrue(batch.getRecords().isEmpty());
+            assertEquals(6, batch.getLastSequence()); // 保留的两条日志获得跳过删除前序列号之后的新序列号
+        }
+
+        // 重新加载后从重置批次的序列号继续
+        store.add(log(3, "carol"));
+        ChangeBatch<OperationLog> batch = store.changesSince(6);
+        assertFalse(batch.isReset());
+        assertEquals(List.of("log-3"), ids(batch.getRecords()));
+        assertEquals(7, batch.getLastSequence());
+        assertEquals(List.of("log-0", "log-2", "log-3"), ids(store.snapshot()));
+    }
+
+    @Test
+    void removingNothingKeepsReadersInPlace() {
+        LogStore store = new LogStore();
+        store.add(log(0, "alice"));
+        store.removeIf(log -> false);
+        store.add(log(1, "bob"));
+        ChangeBatch<OperationLog> batch = store.changesSince(1);
+        assertFalse(batch.isReset());
+        assertEquals(List.of("log-1"), ids(batch.getRecords()));
+    }
+
+    private static OperationLog log(int i, String actor) {
+        return new OperationLog("log-" + i, BASE.plusSeconds(i), actor, ActorType.USER, "Action", "details " + i);
+    }
+
+    private static List<String> ids(List<OperationLog> logs) {
+        return logs.stream().map(OperationLog::getLogId).toList();
+    }
+}
@@ -0,0 +1,268 @@
+package com.banksimulation.dao;
+
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 交易记录存储测试：跨归档与内存的游标分页、计数与偏移定位，变更流的重置，导入去重
+ * Tests for {@link TransactionStore}: cursor paging, counts and offsets across archived and
+ * in-memory records, resets of the change feed, and de-duplicating imported records.
+ */
+class TransactionStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 30, 0);
+    private static final String FIRST_ACCOUNT = "500001";
+    private static final String SECOND_ACCOUNT = "500002";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void cursorPagesWalkArchivedThenInMemoryRecordsInOrder() throws IOException {
+        List<TransactionRecord> records = records(6_000);
+        TransactionStore store = archivedStore(records, 4_000);
+
+        assertEquals(ids(records), ids(pageThrough(store, new TransactionQuery().setLimit(700))));
+        List<TransactionRecord> reversed = new ArrayList<>(records);
+        Collections.reverse(reversed);
+        assertEquals(ids(reversed), ids(pageThrough(store, new TransactionQuery().setLimit(700).setDescending(true))));
+
+        List<TransactionRecord> first = new ArrayList<>();
+        for (int i = 0; i < records.size(); i += 2) {
+            first.add(records.get(i));
+        }
+        assertEquals(ids(first), ids(pageThrough(store, new TransactionQuery().setAccountNumber(FIRST_ACCOUNT).setLimit(333))));
+    }
+
+    @Test
+    void countAndOffsetSpanArchiveAndMemory() throws IOException {
+        List<TransactionRecord> records = records(6_000);
+        TransactionStore store = archivedStore(records, 4_000);
+
+        assertEquals(6_000, store.size());
+        assertEquals(6_000, store.count(new TransactionQuery()));
+        assertEquals(3_000, store.count(new TransactionQuery().setAccountNumber(SECOND_ACCOUNT)));
+        assertEquals(1_000, store.count(new TransactionQuery().setTimeRange(BASE.plusSeconds(3_500), BASE.plusSeconds(4_500))));
+
+        // 偏移落在第二个归档段的末尾，页跨到内存记录
+        TransactionPage page = store.query(new TransactionQuery().setOffset(3_999).setLimit(3));
+        assertEquals(ids(records.subList(3_999, 4_002)), ids(page.getRecords()));
+        assertTrue(page.hasMore());
+        // 倒序：先跳过内存记录，再按行数跳过归档段
+        page = store.query(new TransactionQuery().setDescending(true).setOffset(2_001).setLimit(1));
+        assertEquals(records.get(3_998).getTransactionId(), page.getRecords().get(0).getTransactionId());
+        // 账户过滤：第一个账户的第 1999、2000 条分别在归档段和内存中
+        page = store.query(new TransactionQuery().setAccountNumber(FIRST_ACCOUNT).setOffset(1_999).setLimit(2));
+        assertEquals(ids(List.of(records.get(3_998), records.get(4_000))), ids(page.getRecords()));
+        // 偏移超过记录数
+        page = store.query(new TransactionQuery().setOffset(6_000).setLimit(10));
+        assertTrue(page.getRecords().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void timestampsOutsideTheKeyRangeAreRejectedAndBoundsClamped() throws IOException {
+        List<TransactionRecord> records = records(6_000);
+        TransactionStore store = archivedStore(records, 4_000);
+        TransactionRecord early = record("early", LocalDateTime.of(1600, 1, 1, 0, 0));
+        TransactionRecord late = record("late", LocalDateTime.of(2300, 1, 1, 0, 0));
+        TransactionRecord recent = record(6_000);
+
+        // 导入时拒绝超出纪元纳秒范围的记录，而不是按回绕后的位置写入索引
+        assertEquals(List.of(recent), store.addAllNew(List.of(early, recent, late)));
+        assertThrows(IllegalArgumentException.class, () -> store.add(early));
+        assertEquals(6_001, store.size());
+        long last = store.getPublishedSequence();
+        store.add(record(6_001)); // 被拒绝的记录没有占用序列号
+        assertEquals(1, store.changesSince(last).getRecords().size());
+
+        // 超出范围的查询边界按最小、最大值处理
+        LocalDateTime longAgo = LocalDateTime.of(1000, 1, 1, 0, 0);
+        LocalDateTime farAhead = LocalDateTime.of(3000, 1, 1, 0, 0);
+        assertEquals(6_002, store.count(new TransactionQuery().setTimeRange(longAgo, farAhead)));
+        assertEquals(0, store.count(new TransactionQuery().setTimeRange(longAgo, LocalDateTime.of(1500, 1, 1, 0, 0))));
+        assertEquals(ids(records.subList(0, 5)),
+                ids(store.query(new TransactionQuery().setTimeRange(longAgo, null).setLimit(5)).getRecords()));
+        assertEquals(2, store.count(new TransactionQuery().setTimeRange(BASE.plusSeconds(6_000), farAhead)));
+    }
+
+    @Test
+    void changesSinceResetsWhenReaderFallsBehindTheRing() {
+        TransactionStore store = new TransactionStore();
+        List<TransactionRecord> records = records(TransactionStore.FEED_CAPACITY + 20);
+        for (int i = 0; i < 10; i++) {
+            store.add(records.get(i));
+        }
+        ChangeBatch<TransactionRecord> batch = store.changesSince(0);
+        assertFalse(batch.isReset());
+        assertEquals(ids(records.subList(0, 10)), ids(batch.getRecords()));
+        assertEquals(10, batch.getLastSequence());
+
+        for (int i = 10; i < records.size(); i++) {
+            store.add(records.get(i));
+        }
+        // 序列号 11 已被环中更新的记录覆盖
+        batch = store.changesSince(10);
+        assertTrue(batch.isReset());
+        assertTrue(batch.getRecords().isEmpty());
+        assertEquals(records.size(), batch.getLastSequence());
+
+        // 重新查询后从重置批次的序列号继续
+        store.add(record(records.size()));
+        batch = store.changesSince(batch.getLastSequence());
+        assertFalse(batch.isReset());
+        assertEquals(1, batch.getRecords().size());
+
+        // 读取方的序列号超过已分配的序列号
+        assertTrue(store.changesSince(batch.getLastSequence() + 5).isReset());
+    }
+
+    @Test
+    void publishedSequenceNeverMovesBackUnderConcurrentAppends() throws Exception {
+        TransactionStore store = new TransactionStore();
+        int writers = 4;
+        int perWriter = TransactionStore.FEED_CAPACITY * 2;
+        List<TransactionRecord> records = records(writers * perWriter);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                List<TransactionRecord> slice = records.subList(w * perWriter, (w + 1) * perWriter);
+                futures.add(pool.submit(() -> slice.forEach(store::add)));
+            }
+            // 水位线只增不减，且不超过已分配的序列号
+            long previous = 0;
+            while (!allDone(futures)) {
+                long current = store.getPublishedSequence();
+                assertTrue(current >= previous, current + " < " + previous);
+                previous = current;
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(records.size(), store.getPublishedSequence());
+        assertTrue(store.changesSince(store.getPublishedSequence()).getRecords().isEmpty());
+    }
+
+    @Test
+    void changesSinceResetsAfterRemoval() {
+        TransactionStore store = new TransactionStore();
+        for (TransactionRecord record : records(4)) {
+            store.add(record);
+        }
+        long last = store.changesSince(0).getLastSequence();
+        store.removeByUserId("user-" + SECOND_ACCOUNT);
+
+        ChangeBatch<TransactionRecord> batch = store.changesSince(last);
+        assertTrue(batch.isReset());
+        assertEquals(2, store.size());
+        assertFalse(store.changesSince(batch.getLastSequence()).isReset());
+    }
+
+    @Test
+    void addAllNewSkipsKnownAndArchivedRecords() throws IOException {
+        List<TransactionRecord> records = records(6_000);
+        TransactionStore store = archivedStore(records, 4_000);
+        TransactionRecord stored = records.get(5_000);
+        // CSV 导出只保留到秒：同一 ID、时间戳被截断的记录视为已存在
+        TransactionRecord truncated = new TransactionRecord(stored.getTransactionId(), stored.getUserId(),
+                stored.getAccountNumber(), stored.getType(), stored.getAmount(), stored.getBalanceAfterTransaction(),
+                stored.getTimestamp().withNano(0), stored.getDescription(), null);
+        TransactionRecord fresh = record(7_000);
+        TransactionRecord old = record(10); // 早于归档截止时间
+
+        List<TransactionRecord> added = store.addAllNew(List.of(stored, truncated, fresh, old, fresh));
+        assertEquals(ids(List.of(fresh)), ids(added));
+        assertEquals(6_001, store.size());
+    }
+
+    private TransactionStore archivedStore(List<TransactionRecord> records, int archivedRows) throws IOException {
+        TransactionStore store = new TransactionStore();
+        records.forEach(store::add);
+        LocalDateTime cutoff = records.get(archivedRows).getTimestamp();
+        long cutoffNanos = cutoff.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + cutoff.getNano();
+        List<ArchiveSegment> segments = new ArrayList<>();
+        int half = archivedRows / 2;
+        segments.add(writeSegment(1, cutoffNanos, records.subList(0, half)));
+        segments.add(writeSegment(2, cutoffNanos, records.subList(half, archivedRows)));
+        store.archive(segments);
+        return store;
+    }
+
+    private ArchiveSegment writeSegment(int id, long cutoffNanos, List<TransactionRecord> rows) throws IOException {
+        Path file = directory.resolve("archive-" + id + ".col");
+        ArchiveSegment.write(file, id, cutoffNanos, rows);
+        return ArchiveSegment.open(file);
+    }
+
+    private static List<TransactionRecord> pageThrough(TransactionStore store, TransactionQuery query) {
+        List<TransactionRecord> all = new ArrayList<>();
+        TransactionPage page = store.query(query);
+        all.addAll(page.getRecords());
+        while (page.hasMore()) {
+            page = store.query(query.copy().setCursor(page.getNextCursor()));
+            all.addAll(page.getRecords());
+        }
+        return all;
+    }
+
+    // 每秒一条、交替属于两个账户的记录（带毫秒，便于检查按秒去重）
+    private static List<TransactionRecord> records(int count) {
+        List<TransactionRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(record(i));
+        }
+        return records;
+    }
+
+    private static TransactionRecord record(int i) {
+        String account = i % 2 == 0 ? FIRST_ACCOUNT : SECOND_ACCOUNT;
+        return new TransactionRecord("tx-" + i, "user-" + account, account,
+                i % 3 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL, 1 + i % 50, 100,
+                BASE.plusSeconds(i).plusNanos(250_000_000L), "Record " + i, null);
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static TransactionRecord record(String id, LocalDateTime timestamp) {
+        return new TransactionRecord(id, "user-" + FIRST_ACCOUNT, FIRST_ACCOUNT, TransactionType.DEPOSIT, 1, 100,
+                timestamp, "Record " + id, null);
+    }
+
+    private static List<String> ids(List<TransactionRecord> records) {
+        List<String> ids = new ArrayList<>(records.size());
+        for (TransactionRecord record : records) {
+            ids.add(record.getTransactionId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,176 @@
+package com.banksimulation.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预写日志测试：重放、损坏尾部截断、组提交与轮转
+ * Tests for {@link WriteAheadJournal}: replay, torn-tail truncation, group commit and rotation.
+ */
+class WriteAheadJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysSyncedRecordsInAppendOrder() throws IOException {
+        Path file = directory.resolve("journal.log");
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> { })) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                journal.appendAndSync(out -> {
+                    out.writeInt(value);
+                    out.writeUTF("record " + value);
+                });
+            }
+        }
+
+        List<String> replayed = new ArrayList<>();
+        WriteAheadJournal.replay(file, in -> replayed.add(in.readInt() + ":" + in.readUTF()));
+        assertEquals(100, replayed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + ":record " + i, replayed.get(i));
+        }
+    }
+
+    @Test
+    void truncatesTornTailAndAppendsAfterLastIntactRecord() throws IOException {
+        Path file = directory.resolve("journal.log");
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> { })) {
+            journal.appendAndSync(out -> out.writeInt(1));
+            journal.appendAndSync(out -> out.writeInt(2));
+        }
+        long intactLength = Files.size(file);
+        // 模拟崩溃：只写入了下一条记录的一部分
+        Files.write(file, new byte[] {0, 0, 0, 4, 1, 2}, StandardOpenOption.APPEND);
+
+        List<Integer> replayed = new ArrayList<>();
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> replayed.add(in.readInt()))) {
+            assertEquals(List.of(1, 2), replayed);
+            assertEquals(intactLength, Files.size(file));
+            journal.appendAndSync(out -> out.writeInt(3));
+        }
+
+        replayed.clear();
+        assertEquals(Files.size(file), WriteAheadJournal.replay(file, in -> replayed.add(in.readInt())));
+        assertEquals(List.of(1, 2, 3), replayed);
+    }
+
+    @Test
+    void oversizeRecordIsRejectedWithoutBuffering() throws IOException {
+        Path file = directory.resolve("journal.log");
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> { })) {
+            journal.appendAndSync(out -> out.writeInt(1));
+            assertThrows(IllegalArgumentException.class,
+                    () -> journal.appendAndSync(out -> out.write(new byte[WriteAheadJournal.MAX_RECORD_BYTES + 1])));
+            journal.appendAndSync(out -> out.writeInt(3));
+        }
+
+        // 被拒绝的记录未写入，之后确认的记录在重新打开后仍然存在，且日志可以继续追加
+        List<Integer> replayed = new ArrayList<>();
+        long length = Files.size(file);
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> replayed.add(in.readInt()))) {
+            assertEquals(List.of(1, 3), replayed);
+            assertEquals(length, Files.size(file));
+            journal.appendAndSync(out -> out.writeInt(4));
+        }
+        replayed.clear();
+        WriteAheadJournal.replay(file, in -> replayed.add(in.readInt()));
+        assertEquals(List.of(1, 3, 4), replayed);
+    }
+
+    @Test
+    void replayStopsAtCorruptRecord() throws IOException {
+        Path file = directory.resolve("journal.log");
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> { })) {
+            journal.appendAndSync(out -> out.writeLong(11));
+            journal.appendAndSync(out -> out.writeLong(22));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x7F; // 破坏第二条记录的内容，校验和不再匹配
+        Files.write(file, bytes);
+
+        List<Long> replayed = new ArrayList<>();
+        long validLength = WriteAheadJournal.replay(file, in -> replayed.add(in.readLong()));
+        assertEquals(List.of(11L), replayed);
+        assertEquals(bytes.length / 2, validLength);
+    }
+
+    @Test
+    void concurrentAppendersAreAllDurable() throws Exception {
+        Path file = directory.resolve("journal.log");
+        int threads = 8;
+        int perThread = 300;
+        try (WriteAheadJournal journal = WriteAheadJournal.open(file, in -> { })) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int value = i;
+                        journal.appendAndSync(out -> {
+                            out.writeInt(thread);
+                            out.writeInt(value);
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // 每条记录恰好出现一次，且同一线程的记录保持追加顺序
+        int[] next = new int[threads];
+        WriteAheadJournal.replay(file, in -> {
+            int thread = in.readInt();
+            assertEquals(next[thread]++, in.readInt());
+        });
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread, next[t]);
+        }
+    }
+
+    @Test
+    void rotateSplitsRecordsBetweenSegments() throws IOException {
+        Path first = directory.resolve("journal-1.log");
+        Path second = directory.resolve("journal-2.log");
+        try (WriteAheadJournal journal = WriteAheadJournal.open(first, in -> { })) {
+            journal.append(out -> out.writeInt(1));
+            journal.append(out -> out.writeInt(2)); // 尚未同步，轮转时写入旧段
+            journal.rotate(second);
+            assertEquals(second, journal.getFile());
+            journal.appendAndSync(out -> out.writeInt(3));
+        }
+
+        List<Integer> firstRecords = new ArrayList<>();
+        List<Integer> secondRecords = new ArrayList<>();
+        WriteAheadJournal.replay(first, in -> firstRecords.add(in.readInt()));
+        WriteAheadJournal.replay(second, in -> secondRecords.add(in.readInt()));
+        assertEquals(List.of(1, 2), firstRecords);
+        assertEquals(List.of(3), secondRecords);
+    }
+}
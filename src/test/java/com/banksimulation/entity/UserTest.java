@@ -0,0 +1,96 @@
+package com.banksimulation.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户余额测试：CAS 入账、扣款与调整，余额上限和溢出
+ * Tests for the atomic balance of {@link User}: credits, conditional debits and unconditional
+ * adjustments, the balance limit, and concurrent updates.
+ */
+class UserTest {
+
+    @Test
+    void creditStopsAtTheBalanceLimit() {
+        User user = user(User.MAX_BALANCE_MINOR_UNITS - 10);
+        assertEquals(User.MAX_BALANCE_MINOR_UNITS, user.credit(10)); // 恰好达到上限
+        assertEquals(User.BALANCE_OVERFLOW, user.credit(1));
+        assertEquals(User.MAX_BALANCE_MINOR_UNITS, user.getBalanceMinorUnits());
+        assertEquals(User.BALANCE_OVERFLOW, user(0).credit(Long.MAX_VALUE)); // 比较不会溢出
+    }
+
+    @Test
+    void tryDebitRequiresSufficientFunds() {
+        User user = user(500);
+        assertEquals(User.INSUFFICIENT_FUNDS, user.tryDebit(501));
+        assertEquals(500, user.getBalanceMinorUnits());
+        assertEquals(0, user.tryDebit(500));
+        assertEquals(User.INSUFFICIENT_FUNDS, user.tryDebit(1));
+    }
+
+    @Test
+    void adjustIgnoresLimitsButNotLongOverflow() {
+        User user = user(100);
+        assertEquals(-50, user.adjust(-150)); // 撤销变更不检查余额
+        User full = user(User.MAX_BALANCE_MINOR_UNITS);
+        assertEquals(User.MAX_BALANCE_MINOR_UNITS + 1, full.adjust(1)); // 上限之上的余量
+        User huge = user(Long.MAX_VALUE - 1);
+        assertThrows(ArithmeticException.class, () -> huge.adjust(2));
+        assertEquals(Long.MAX_VALUE - 1, huge.getBalanceMinorUnits());
+    }
+
+    @Test
+    void concurrentCreditsAndDebitsAreNotLost() throws Exception {
+        int threads = 8;
+        int perThread = 10_000;
+        User user = user(threads * perThread / 2);
+        AtomicInteger debited = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean credits = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (credits) {
+                            assertTrue(user.credit(1) > 0);
+                        } else if (user.tryDebit(3) != User.INSUFFICIENT_FUNDS) {
+                            debited.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        long credited = (long) (threads / 2) * perThread;
+        assertEquals(threads * perThread / 2 + credited - 3L * debited.get(), user.getBalanceMinorUnits());
+        assertTrue(user.getBalanceMinorUnits() >= 0);
+    }
+
+    private static User user(long balanceMinorUnits) {
+        User user = new User("alice", "hash", "First", "Last", "600001");
+        user.setBalanceMinorUnits(balanceMinorUnits);
+        return user;
+    }
+}
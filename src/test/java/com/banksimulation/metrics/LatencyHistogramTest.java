@@ -0,0 +1,77 @@
+package com.banksimulation.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 延迟直方图测试
+ * Tests for {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(10, histogram.getMax());
+        assertEquals(5.5, histogram.getMean(), 1e-9);
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(100));
+    }
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        long[] expected = {50_000_000L, 90_000_000L, 99_000_000L};
+        double[] percentiles = {50, 90, 99};
+        for (int i = 0; i < percentiles.length; i++) {
+            long value = histogram.getPercentile(percentiles[i]);
+            assertTrue(value >= expected[i], "p" + percentiles[i] + " below exact value: " + value);
+            assertTrue(value <= expected[i] * 1.04, "p" + percentiles[i] + " beyond bucket precision: " + value);
+        }
+        assertEquals(100_000_000L, histogram.getPercentile(100));
+    }
+
+    @Test
+    void negativeAndHugeValuesAreRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test
+    void addMergesAndSinceSubtracts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            first.record(1_000);
+            second.record(1_000_000);
+        }
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(first);
+        LatencyHistogram earlier = new LatencyHistogram();
+        earlier.add(merged);
+        merged.add(second);
+
+        assertEquals(200, merged.getCount());
+        assertEquals(1_000_000, merged.getMax());
+        assertEquals(500_500, merged.getMean(), 1e-6);
+
+        LatencyHistogram interval = merged.since(earlier);
+        assertEquals(100, interval.getCount());
+        assertEquals(1_000_000, interval.getMean(), 1e-6);
+        assertEquals(1_000_000, interval.getMax()); // 桶上界，封顶于总体最大值
+        assertTrue(interval.getPercentile(1) >= 1_000_000);
+    }
+}
@@ -0,0 +1,71 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.service.AsyncLogWriter.BackpressurePolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 异步日志写入测试：与 shutdown 并发提交的日志不会丢失
+ * Tests for {@link AsyncLogWriter}: events submitted concurrently with {@link AsyncLogWriter#shutdown()}
+ * are all written, either by the writer, by the final drain or synchronously.
+ */
+class AsyncLogWriterTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+
+    @Test
+    void eventsSubmittedDuringShutdownAreWritten() throws Exception {
+        for (BackpressurePolicy policy : List.of(BackpressurePolicy.BLOCK, BackpressurePolicy.DROP_OLDEST)) {
+            InMemoryDAO dao = new InMemoryDAO(false) { };
+            AsyncLogWriter writer = new AsyncLogWriter(dao, 64, policy);
+            ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS);
+            CountDownLatch started = new CountDownLatch(PRODUCERS);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int p = 0; p < PRODUCERS; p++) {
+                    String username = "user" + p;
+                    futures.add(pool.submit(() -> {
+                        started.countDown();
+                        for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                            writer.submit(username, ActorType.USER, "Action", "#" + i);
+                        }
+                    }));
+                }
+                started.await();
+                writer.shutdown(); // 与仍在提交的调用方并发
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            int logged = dao.getAllLogs().size();
+            long dropped = writer.getDroppedCount();
+            // 丢弃汇总日志只在写入线程空闲时写出，可能没有写出
+            assertEquals(PRODUCERS * EVENTS_PER_PRODUCER, logged - countDropReports(dao) + dropped, policy.name());
+            assertEquals(0, writer.getPendingCount(), policy.name());
+        }
+    }
+
+    private static int countDropReports(InMemoryDAO dao) {
+        int[] count = {0};
+        dao.forEachLog(log -> {
+            if (log.getActorType() == ActorType.SYSTEM) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+}
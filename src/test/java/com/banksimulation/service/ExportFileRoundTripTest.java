@@ -0,0 +1,172 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 导出文件往返测试：CSV 与列式格式写出后读回应得到相同的记录
+ * Round-trip tests for the CSV ({@link TextExportWriter} / {@link CsvExportReader}) and columnar
+ * ({@link ColumnarExportFile}) export formats.
+ */
+class ExportFileRoundTripTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 30, 0);
+
+    @Test
+    void csvLogsRoundTripWithQuotingAndLineBreaks() throws IOException {
+        List<OperationLog> logs = List.of(
+                new OperationLog(UUID.randomUUID().toString(), BASE, "alice", ActorType.USER, "Login", "ok"),
+                new OperationLog(UUID.randomUUID().toString(), BASE.plusSeconds(1), "bob,jr", ActorType.ADMIN,
+                        "Edit \"user\"", "line one\nline two, with comma"),
+                new OperationLog(UUID.randomUUID().toString(), BASE.plusSeconds(2), "system", ActorType.SYSTEM,
+                        "", "中文详情"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TextExportWriter writer = TextExportWriter.forLogs(Channels.newChannel(bytes), ExportFormat.CSV)) {
+            for (OperationLog log : logs) {
+                writer.writeLog(log);
+            }
+        }
+
+        List<OperationLog> read = new ArrayList<>();
+        assertEquals(3, CsvExportReader.readLogs(new ByteArrayInputStream(bytes.toByteArray()), read::add));
+        for (int i = 0; i < logs.size(); i++) {
+            assertLogEquals(logs.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    void csvTransactionsRoundTripAtSecondPrecision() throws IOException {
+        List<TransactionRecord> transactions = List.of(
+                transaction(0, TransactionType.DEPOSIT, 100.5, 100.5, null, "User deposit"),
+                transaction(1, TransactionType.TRANSFER_OUT, 0.01, 100.49, "200002", "Transfer to 200002, \"rent\""),
+                transaction(2, TransactionType.WITHDRAWAL, 1234567.89, 0, null, null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (TextExportWriter writer = TextExportWriter.forTransactions(Channels.newChannel(bytes))) {
+            for (TransactionRecord transaction : transactions) {
+                writer.writeTransaction(transaction);
+            }
+        }
+
+        List<TransactionRecord> read = new ArrayList<>();
+        assertEquals(3, CsvExportReader.readTransactions(new ByteArrayInputStream(bytes.toByteArray()), read::add));
+        for (int i = 0; i < transactions.size(); i++) {
+            TransactionRecord expected = transactions.get(i);
+            TransactionRecord actual = read.get(i);
+            assertTransactionEquals(expected, actual, expected.getDescription() == null ? "" : expected.getDescription());
+        }
+    }
+
+    @Test
+    void csvReaderRejectsForeignHeader() {
+        InputStream in = new ByteArrayInputStream("a,b,c\n1,2,3\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> CsvExportReader.readLogs(in, log -> { }));
+    }
+
+    @Test
+    void columnarTransactionsRoundTripAcrossBlocks() throws IOException {
+        int rows = ColumnarExportFile.BLOCK_ROWS * 2 + 17; // 跨越多个块，最后一块不满
+        List<TransactionRecord> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            TransactionType type = TransactionType.values()[i % TransactionType.values().length];
+            TransactionRecord transaction = new TransactionRecord(
+                    i % 100 == 0 ? "legacy-" + i : UUID.randomUUID().toString(), // 非 UUID 的交易ID也应保留
+                    "user-" + (i % 7), "10000" + (i % 5), type, (i % 1000) / 4.0, i / 100.0,
+                    BASE.plusSeconds(i).plusNanos(i * 1_001L), i % 3 == 0 ? null : "desc " + (i % 11),
+                    i % 2 == 0 ? null : "20000" + (i % 3));
+            transactions.add(transaction);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarExportFile.Writer<TransactionRecord> writer =
+                     new ColumnarExportFile.Writer<>(bytes, ColumnarExportFile.TRANSACTIONS)) {
+            for (TransactionRecord transaction : transactions) {
+                writer.write(transaction);
+            }
+            assertEquals(rows, writer.getCount());
+        }
+
+        InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        assertTrue(ColumnarExportFile.hasMagic(in, ColumnarExportFile.TRANSACTIONS));
+        assertFalse(ColumnarExportFile.hasMagic(in, ColumnarExportFile.LOGS));
+        List<TransactionRecord> read = new ArrayList<>(rows);
+        assertEquals(rows, ColumnarExportFile.read(in, ColumnarExportFile.TRANSACTIONS, read::add));
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord expected = transactions.get(i);
+            assertTransactionEquals(expected, read.get(i), expected.getDescription());
+            assertEquals(expected.getTimestamp(), read.get(i).getTimestamp()); // 列式格式保留纳秒
+        }
+    }
+
+    @Test
+    void columnarLogsRoundTripAndDetectTruncation() throws IOException {
+        List<OperationLog> logs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            logs.add(new OperationLog(UUID.randomUUID().toString(), BASE.plusNanos(i * 999_999L), "actor" + (i % 4),
+                    ActorType.values()[i % ActorType.values().length], "Action " + (i % 9), "details, \"" + i + "\"\n"));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarExportFile.Writer<OperationLog> writer = new ColumnarExportFile.Writer<>(bytes, ColumnarExportFile.LOGS)) {
+            for (OperationLog log : logs) {
+                writer.write(log);
+            }
+        }
+        byte[] file = bytes.toByteArray();
+
+        List<OperationLog> read = new ArrayList<>();
+        assertEquals(logs.size(), ColumnarExportFile.read(new ByteArrayInputStream(file), ColumnarExportFile.LOGS, read::add));
+        for (int i = 0; i < logs.size(); i++) {
+            assertLogEquals(logs.get(i), read.get(i));
+        }
+
+        // 缺少结束标记（文件被截断）时报错，而不是静默返回部分数据
+        byte[] truncated = Arrays.copyOf(file, file.length - 4);
+        assertThrows(IOException.class, () ->
+                ColumnarExportFile.read(new ByteArrayInputStream(truncated), ColumnarExportFile.LOGS, log -> { }));
+    }
+
+    private static TransactionRecord transaction(int second, TransactionType type, double amount, double balance,
+                                                 String related, String description) {
+        return new TransactionRecord(UUID.randomUUID().toString(), "user-" + second, "100001", type, amount, balance,
+                BASE.plusSeconds(second), description, related);
+    }
+
+    private static void assertLogEquals(OperationLog expected, OperationLog actual) {
+        assertEquals(expected.getLogId(), actual.getLogId());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getActorUsername(), actual.getActorUsername());
+        assertEquals(expected.getActorType(), actual.getActorType());
+        assertEquals(expected.getAction(), actual.getAction());
+        assertEquals(expected.getDetails(), actual.getDetails());
+    }
+
+    private static void assertTransactionEquals(TransactionRecord expected, TransactionRecord actual, String description) {
+        assertEquals(expected.getTransactionId(), actual.getTransactionId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getAmount(), actual.getAmount(), 1e-9);
+        assertEquals(expected.getBalanceAfterTransaction(), actual.getBalanceAfterTransaction(), 1e-9);
+        assertEquals(expected.getTimestamp().withNano(0), actual.getTimestamp().withNano(0));
+        assertEquals(description, actual.getDescription());
+        assertEquals(expected.getRelatedAccountNumber(), actual.getRelatedAccountNumber());
+    }
+}
@@ -0,0 +1,79 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.service.LoginRateLimiter.Decision;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 登录限流测试：按用户名限流、全局限流、令牌补充与 LRU 淘汰，时间由测试显式传入
+ * Tests for {@link LoginRateLimiter}: per-username and global limits, refill over time and
+ * eviction of per-username buckets, driven by explicit {@code nowNanos} values.
+ */
+class LoginRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 7 * SECOND;
+
+    @Test
+    void usernameIsLimitedAfterItsBurstAndRecoversAtItsRate() {
+        LoginRateLimiter limiter = new LoginRateLimiter(2, 0.5, 100, 100, 10, T0); // 每 2 秒恢复一次
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "bob", T0));
+
+        assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "alice", T0 + 2 * SECOND - 1));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0 + 2 * SECOND));
+        assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "alice", T0 + 2 * SECOND));
+    }
+
+    @Test
+    void userAndAdminWithTheSameNameHaveSeparateBuckets() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 1, 100, 100, 10, T0);
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "root", T0));
+        assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "root", T0));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.ADMIN, "root", T0));
+    }
+
+    @Test
+    void globalLimitCapsDistinctUsernames() {
+        LoginRateLimiter limiter = new LoginRateLimiter(5, 1, 3, 1, 100, T0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "user" + i, T0));
+        }
+        assertEquals(Decision.GLOBALLY_LIMITED, limiter.tryAcquire(ActorType.USER, "user3", T0));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "user3", T0 + SECOND));
+    }
+
+    @Test
+    void usernameLimitIsCheckedBeforeTheGlobalBucket() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 1, 2, 1, 10, T0);
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        // 被用户名限流的尝试不消耗全局令牌
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        }
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "bob", T0));
+        assertEquals(Decision.GLOBALLY_LIMITED, limiter.tryAcquire(ActorType.USER, "carol", T0));
+    }
+
+    @Test
+    void evictedUsernameStartsWithAFullBucket() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 0.001, 100, 100, 2, T0);
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        assertEquals(Decision.USERNAME_LIMITED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+        limiter.tryAcquire(ActorType.USER, "bob", T0);
+        limiter.tryAcquire(ActorType.USER, "carol", T0); // 淘汰 alice 的桶
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice", T0));
+    }
+
+    @Test
+    void unlimitedAdmitsEveryAttempt() {
+        LoginRateLimiter limiter = LoginRateLimiter.unlimited();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Decision.ALLOWED, limiter.tryAcquire(ActorType.USER, "alice"));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.OperationLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并行日志导出测试：并行拼接的输出与顺序导出一致
+ * Tests for {@link ParallelLogExporter}: concatenated parallel output matches the sequential
+ * export byte for byte (gzip formats after decompression), including for an empty log.
+ */
+class ParallelLogExporterTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 3, 1, 9, 30, 0);
+    private static final int LOG_COUNT = 2 * ParallelLogExporter.CHUNK_ROWS + 1234; // 最后一个分段不满
+
+    @TempDir
+    Path directory;
+
+    private InMemoryDAO dao;
+    private LoggingService loggingService;
+
+    @BeforeEach
+    void setUp() {
+        dao = new InMemoryDAO(false) { };
+        loggingService = new LoggingService(dao);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loggingService.shutdown();
+    }
+
+    @Test
+    void parallelExportMatchesSequentialExport() throws IOException {
+        saveLogs(LOG_COUNT);
+        for (String format : List.of("CSV", "TXT", "BIN")) {
+            assertArrayEquals(export(format, 1, null), export(format, 4, null), format);
+        }
+        for (String format : List.of("CSV.GZ", "TXT.GZ")) {
+            assertArrayEquals(gunzip(export(format, 1, null)), gunzip(export(format, 4, null)), format);
+        }
+    }
+
+    @Test
+    void parallelTextExportMatchesSequentialExportForTimeRange() throws IOException {
+        saveLogs(LOG_COUNT);
+        LocalDateTime from = BASE.plusSeconds(ParallelLogExporter.CHUNK_ROWS / 2);
+        for (String format : List.of("CSV", "TXT")) {
+            assertArrayEquals(export(format, 1, from), export(format, 4, from), format);
+        }
+        assertEquals(0, gunzip(export("TXT.GZ", 4, BASE.plusYears(1))).length); // 范围内没有日志
+    }
+
+    @Test
+    void emptyLogExportsValidGzipStreams() throws IOException {
+        for (String format : List.of("CSV.GZ", "TXT.GZ")) {
+            byte[] sequential = gunzip(export(format, 1, null));
+            assertArrayEquals(sequential, gunzip(export(format, 4, null)), format);
+        }
+        assertEquals(0, gunzip(export("TXT.GZ", 4, null)).length);
+        assertArrayEquals(export("CSV", 1, null), export("CSV", 4, null));
+        assertArrayEquals(export("BIN", 1, null), export("BIN", 4, null));
+    }
+
+    private byte[] export(String format, int parallelism, LocalDateTime from) throws IOException {
+        Path file = directory.resolve("logs-" + parallelism + "." + format.toLowerCase());
+        LogExportOptions options = new LogExportOptions().setTimeRange(from, null).setParallelism(parallelism);
+        assertTrue(loggingService.exportLogs(file.toString(), format, options));
+        return Files.readAllBytes(file);
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void saveLogs(int count) {
+        List<OperationLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(new OperationLog("log-" + i, BASE.plusSeconds(i), "user" + (i % 7), ActorType.USER,
+                    "Action " + (i % 3), i % 5 == 0 ? "details, with \"quotes\"" : "details " + i));
+        }
+        dao.saveLogs(logs);
+    }
+}
@@ -0,0 +1,116 @@
+package com.banksimulation.service;
+
+import com.banksimulation.entity.ActorType;
+import com.banksimulation.entity.Admin;
+import com.banksimulation.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 会话管理测试：绝对有效期、空闲超时、按账户关闭会话与定期清理，时间由测试显式传入
+ * Tests for {@link SessionManager}: absolute TTL, idle expiry, closing sessions by account and the
+ * periodic sweep, driven by explicit {@code nowNanos} values.
+ */
+class SessionManagerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 42 * SECOND; // 任意起点，nanoTime 没有固定原点
+
+    private final SessionManager sessions = new SessionManager(Duration.ofSeconds(100), Duration.ofSeconds(10), T0);
+
+    @Test
+    void sessionExpiresAfterIdleTimeout() {
+        User user = user("alice");
+        SessionToken token = sessions.openUserSession(user, T0);
+        assertSame(user, sessions.resolveUser(token, T0 + 10 * SECOND - 1).orElseThrow());
+        // 上次访问刚刚刷新，下一次在空闲超时后失效
+        assertTrue(sessions.resolveUser(token, T0 + 20 * SECOND - 2).isPresent());
+        assertTrue(sessions.resolveUser(token, T0 + 30 * SECOND - 2).isEmpty());
+        assertEquals(0, sessions.size()); // 失效的会话在解析时移除
+    }
+
+    @Test
+    void resolvingRefreshesIdleTimeButNotTheTtl() {
+        SessionToken token = sessions.openUserSession(user("alice"), T0);
+        for (long t = T0 + 9 * SECOND; t < T0 + 100 * SECOND; t += 9 * SECOND) {
+            assertTrue(sessions.resolveUser(token, t).isPresent(), "still live at " + (t - T0));
+        }
+        assertTrue(sessions.resolveUser(token, T0 + 100 * SECOND).isEmpty());
+    }
+
+    @Test
+    void tokenOnlyResolvesForItsActorType() {
+        SessionToken userToken = sessions.openUserSession(user("alice"), T0);
+        Admin admin = new Admin("root", "hash", true);
+        SessionToken adminToken = sessions.openAdminSession(admin, T0);
+
+        assertTrue(sessions.resolveAdmin(userToken, T0).isEmpty());
+        assertTrue(sessions.resolveUser(adminToken, T0).isEmpty());
+        assertSame(admin, sessions.resolveAdmin(adminToken, T0).orElseThrow());
+        assertTrue(sessions.resolveUser(null, T0).isEmpty());
+        assertEquals(2, sessions.size()); // 类型不符不会移除会话
+    }
+
+    @Test
+    void closeEndsOneSession() {
+        SessionToken token = sessions.openUserSession(user("alice"), T0);
+        assertTrue(sessions.close(token));
+        assertFalse(sessions.close(token));
+        assertFalse(sessions.close(null));
+        assertTrue(sessions.resolveUser(token, T0).isEmpty());
+    }
+
+    @Test
+    void closeSessionsOfMatchesUsernameAndActorType() {
+        SessionToken first = sessions.openUserSession(user("alice"), T0);
+        SessionToken second = sessions.openUserSession(user("alice"), T0);
+        SessionToken other = sessions.openUserSession(user("bob"), T0);
+        SessionToken sameNameAdmin = sessions.openAdminSession(new Admin("alice", "hash", false), T0);
+
+        assertEquals(2, sessions.closeSessionsOf("alice", ActorType.USER));
+        assertEquals(0, sessions.closeSessionsOf("alice", ActorType.USER));
+        assertTrue(sessions.resolveUser(first, T0).isEmpty());
+        assertTrue(sessions.resolveUser(second, T0).isEmpty());
+        assertTrue(sessions.resolveUser(other, T0).isPresent());
+        assertTrue(sessions.resolveAdmin(sameNameAdmin, T0).isPresent());
+    }
+
+    @Test
+    void openingASessionSweepsExpiredOnesOncePerIdleTimeout() {
+        sessions.openUserSession(user("alice"), T0);
+        sessions.openUserSession(user("bob"), T0);
+        SessionToken live = sessions.openUserSession(user("carol"), T0 + 5 * SECOND);
+
+        // 未到清理时间：过期会话仍在表中
+        sessions.openUserSession(user("dave"), T0 + 10 * SECOND - 1);
+        assertEquals(4, sessions.size());
+
+        // 到期后的第一次打开会清理 alice 和 bob，carol 与 dave 仍然有效
+        sessions.openUserSession(user("erin"), T0 + 10 * SECOND);
+        assertEquals(3, sessions.size());
+        assertTrue(sessions.resolveUser(live, T0 + 14 * SECOND).isPresent());
+
+        // 下一次清理要再等一个空闲超时
+        sessions.openUserSession(user("frank"), T0 + 19 * SECOND);
+        assertEquals(4, sessions.size());
+        sessions.openUserSession(user("grace"), T0 + 20 * SECOND);
+        assertEquals(3, sessions.size()); // carol（已刷新）、frank、grace；dave 与 erin 已过期
+    }
+
+    @Test
+    void rejectsNonPositiveDurations() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(Duration.ZERO, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new SessionManager(Duration.ofSeconds(1), Duration.ofSeconds(-1)));
+    }
+
+    private static User user(String username) {
+        return new User(username, "hash", "First", "Last", "ACC-" + username);
+    }
+}
@@ -0,0 +1,176 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.TransactionType;
+import com.banksimulation.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量转账测试：按顺序模拟、逐账户轧差后一次持久化
+ * Tests for {@link UserService#transferBatch(List)}: items are simulated in order, and the
+ * accepted ones are netted into one balance change per account, stored together.
+ */
+class UserServiceBatchTest {
+
+    private RecordingDAO dao;
+    private LoggingService loggingService;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        dao = new RecordingDAO();
+        loggingService = new LoggingService(dao);
+        userService = new UserService(dao, loggingService);
+        saveUser("alice", "400001", 10_000);
+        saveUser("bob", "400002", 0);
+        saveUser("carol", "400003", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loggingService.shutdown();
+    }
+
+    @Test
+    void itemsAreSimulatedInOrderAndNettedPerAccount() {
+        List<TransferResult> results = userService.transferBatch(List.of(
+                new TransferRequest("alice", "400002", 80),  // 成功
+                new TransferRequest("bob", "400003", 50),    // 依赖上一笔入账
+                new TransferRequest("bob", "400003", 40),    // bob 只剩 30
+                new TransferRequest("alice", "400003", 30),  // alice 只剩 20
+                new TransferRequest("carol", "400001", 10)));
+
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertTrue(results.get(4).isSuccess());
+        assertEquals(30.0, results.get(1).getSenderBalanceAfter(), 1e-9);
+
+        assertEquals(3_000, balanceOf("alice"));
+        assertEquals(3_000, balanceOf("bob"));
+        assertEquals(4_000, balanceOf("carol"));
+
+        // 一次持久化：每个账户一个余额变更，六条交易记录
+        assertEquals(1, dao.balanceChangeCalls);
+        assertEquals(Set.of("400001", "400002", "400003"), dao.changedAccounts);
+        assertEquals(6, dao.savedTransactions.size());
+        assertLastRecordMatchesBalance("alice");
+        assertLastRecordMatchesBalance("bob");
+        assertLastRecordMatchesBalance("carol");
+    }
+
+    @Test
+    void invalidItemsAreRejectedWithoutTouchingOthers() {
+        List<TransferResult> results = userService.transferBatch(List.of(
+                new TransferRequest("alice", "999999", 10),  // 收款账户不存在
+                new TransferRequest("alice", "400001", 10),  // 转给自己
+                new TransferRequest("alice", "400002", -5),  // 金额无效
+                new TransferRequest("alice", "400002", 25)));
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(7_500, balanceOf("alice"));
+        assertEquals(2_500, balanceOf("bob"));
+        assertEquals(2, dao.savedTransactions.size());
+    }
+
+    @Test
+    void receiverAtBalanceLimitIsRejected() {
+        dao.getUserByUsername("bob").orElseThrow().setBalanceMinorUnits(User.MAX_BALANCE_MINOR_UNITS - 50);
+        List<TransferResult> results = userService.transferBatch(List.of(
+                new TransferRequest("alice", "400002", 1),   // 超过 bob 的余额上限
+                new TransferRequest("alice", "400003", 1)));
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Receiver balance limit exceeded.", results.get(0).getMessage());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(User.MAX_BALANCE_MINOR_UNITS - 50, balanceOf("bob"));
+        assertEquals(9_900, balanceOf("alice"));
+    }
+
+    @Test
+    void largeBatchIsAppliedInOrderedChunks() {
+        // alice 的 150 元每笔转出 1 分，余额用完后的转账被拒绝；前两块各持久化一次
+        dao.getUserByUsername("alice").orElseThrow().setBalanceMinorUnits(15_000);
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 25_000; i++) {
+            requests.add(new TransferRequest("alice", i % 2 == 0 ? "400002" : "400003", 0.01));
+        }
+        List<TransferResult> results = userService.transferBatch(requests);
+
+        assertEquals(25_000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(i < 15_000, results.get(i).isSuccess(), "item " + i);
+        }
+        assertEquals(0, balanceOf("alice"));
+        assertEquals(7_500, balanceOf("bob"));
+        assertEquals(7_500, balanceOf("carol"));
+        assertEquals(3, dao.balanceChangeCalls);
+        assertEquals(30_000, dao.savedTransactions.size());
+        assertLastRecordMatchesBalance("alice");
+    }
+
+    private void saveUser(String username, String accountNumber, long balanceMinorUnits) {
+        User user = new User(username, "hash", "First", "Last", accountNumber);
+        user.setBalanceMinorUnits(balanceMinorUnits);
+        dao.saveUser(user);
+    }
+
+    private long balanceOf(String username) {
+        return dao.getUserByUsername(username).orElseThrow().getBalanceMinorUnits();
+    }
+
+    private void assertLastRecordMatchesBalance(String username) {
+        User user = dao.getUserByUsername(username).orElseThrow();
+        TransactionRecord last = null;
+        for (TransactionRecord transaction : dao.savedTransactions) {
+            if (transaction.getAccountNumber().equals(user.getAccountNumber())) {
+                last = transaction;
+            }
+        }
+        assertTrue(last != null && (last.getType() == TransactionType.TRANSFER_IN || last.getType() == TransactionType.TRANSFER_OUT));
+        assertEquals(user.getBalance(), last.getBalanceAfterTransaction(), 1e-9);
+    }
+
+    /**
+     * 记录余额持久化调用的内存 DAO
+     * In-memory DAO that records what is passed to {@link #saveBalanceChanges(List, long[], List)}.
+     */
+    private static final class RecordingDAO extends InMemoryDAO {
+        int balanceChangeCalls;
+        final Set<String> changedAccounts = new HashSet<>();
+        final List<TransactionRecord> savedTransactions = new ArrayList<>();
+
+        RecordingDAO() {
+            super(false);
+        }
+
+        @Override
+        public void saveBalanceChanges(List<User> users, long[] changes, List<TransactionRecord> transactions) {
+            balanceChangeCalls++;
+            Set<String> accounts = new HashSet<>();
+            for (User user : users) {
+                assertTrue(accounts.add(user.getAccountNumber()), "account changed twice: " + user.getAccountNumber());
+            }
+            changedAccounts.addAll(accounts);
+            savedTransactions.addAll(transactions);
+            super.saveBalanceChanges(users, changes, transactions);
+        }
+    }
+}
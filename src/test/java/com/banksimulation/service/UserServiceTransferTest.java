@@ -0,0 +1,103 @@
+package com.banksimulation.service;
+
+import com.banksimulation.dao.InMemoryDAO;
+import com.banksimulation.entity.TransactionRecord;
+import com.banksimulation.entity.User;
+import com.banksimulation.util.AccountLockManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单笔转账测试：加锁后重新获取的账户必须仍是已锁定的账户
+ * Tests for {@link UserService#transfer(String, String, double)}: the accounts fetched again under
+ * the locks must be the ones that were locked.
+ */
+class UserServiceTransferTest {
+
+    private InMemoryDAO dao;
+    private LoggingService loggingService;
+    private Runnable beforeLock = () -> { };
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        dao = new InMemoryDAO(false) { }; // 不创建默认账户
+        loggingService = new LoggingService(dao);
+        AccountLockManager lockManager = new AccountLockManager() {
+            @Override
+            public void lockBoth(String firstAccount, String secondAccount) {
+                beforeLock.run(); // 模拟等待锁期间其他线程的操作
+                super.lockBoth(firstAccount, secondAccount);
+            }
+        };
+        userService = new UserService(dao, loggingService, lockManager);
+        saveUser("alice", "400001", 10_000);
+        saveUser("bob", "400002", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loggingService.shutdown();
+    }
+
+    @Test
+    void transferRecordsTheAccountsItChanges() {
+        assertTrue(userService.transfer("alice", "400002", 25));
+
+        assertEquals(7_500, balanceOf("alice"));
+        assertEquals(2_500, balanceOf("bob"));
+        List<TransactionRecord> transactions = dao.getAllTransactions();
+        assertEquals(2, transactions.size());
+        for (TransactionRecord transaction : transactions) {
+            User owner = dao.getUserByAccountNumber(transaction.getAccountNumber()).orElseThrow();
+            assertEquals(owner.getUserId(), transaction.getUserId());
+            assertEquals(owner.getBalance(), transaction.getBalanceAfterTransaction(), 1e-9);
+        }
+    }
+
+    @Test
+    void senderRecreatedWhileWaitingForLocksIsRejected() {
+        beforeLock = () -> {
+            dao.deleteUser(dao.getUserByUsername("alice").orElseThrow().getUserId());
+            saveUser("alice", "400009", 10_000); // 同名用户，新账号未被锁定
+        };
+
+        assertFalse(userService.transfer("alice", "400002", 25));
+
+        assertEquals(10_000, balanceOf("alice"));
+        assertEquals(0, balanceOf("bob"));
+        assertTrue(dao.getAllTransactions().isEmpty());
+    }
+
+    @Test
+    void senderRecreatedAsTheReceiverIsRejected() {
+        beforeLock = () -> {
+            dao.deleteUser(dao.getUserByUsername("alice").orElseThrow().getUserId());
+            User bob = dao.getUserByUsername("bob").orElseThrow();
+            dao.deleteUser(bob.getUserId());
+            saveUser("alice", "400002", 10_000); // 新的发送方恰好是收款账户
+        };
+
+        assertFalse(userService.transfer("alice", "400002", 25));
+
+        assertEquals(10_000, balanceOf("alice"));
+        assertTrue(dao.getAllTransactions().isEmpty());
+    }
+
+    private void saveUser(String username, String accountNumber, long balanceMinorUnits) {
+        User user = new User(username, "hash", "First", "Last", accountNumber);
+        user.setBalanceMinorUnits(balanceMinorUnits);
+        dao.saveUser(user);
+    }
+
+    private long balanceOf(String username) {
+        return dao.getUserByUsername(username).orElseThrow().getBalanceMinorUnits();
+    }
+}
@@ -0,0 +1,59 @@
+package com.banksimulation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 有界 LRU 映射测试：按访问顺序淘汰、淘汰回调与参数校验
+ * Tests for {@link BoundedLruMap}: eviction of the least recently accessed entry, the eviction
+ * listener, and argument validation.
+ */
+class BoundedLruMapTest {
+
+    @Test
+    void evictsTheLeastRecentlyAccessedEntry() {
+        List<String> evicted = new ArrayList<>();
+        BoundedLruMap<String, Integer> map = new BoundedLruMap<>(2, (key, value) -> evicted.add(key + "=" + value));
+        map.put("a", 1);
+        map.put("b", 2);
+        map.get("a"); // a 变为最近访问
+        map.put("c", 3);
+
+        assertEquals(List.of("b=2"), evicted);
+        assertEquals(List.of("a", "c"), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    void replacingAValueDoesNotEvict() {
+        List<String> evicted = new ArrayList<>();
+        BoundedLruMap<String, Integer> map = new BoundedLruMap<>(2, (key, value) -> evicted.add(key));
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("a", 10); // 替换也算访问
+        map.put("c", 3);
+
+        assertEquals(List.of("b"), evicted);
+        assertEquals(10, map.get("a"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void staysWithinTheBoundWithoutAListener() {
+        BoundedLruMap<Integer, Integer> map = new BoundedLruMap<>(3);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        assertEquals(List.of(97, 98, 99), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    void rejectsNonPositiveBound() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedLruMap<String, String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedLruMap<String, String>(-1, (key, value) -> { }));
+    }
+}
@@ -0,0 +1,26 @@
+package com.banksimulation.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 诊断日志测试：级别名称的解析
+ * Tests for {@link DiagnosticLogger}: parsing the configured level.
+ */
+class DiagnosticLoggerTest {
+
+    @Test
+    void levelNamesIgnoreCaseAndBlanks() {
+        assertEquals(DiagnosticLogger.Level.DEBUG, DiagnosticLogger.parseLevel("debug"));
+        assertEquals(DiagnosticLogger.Level.WARN, DiagnosticLogger.parseLevel(" Warn "));
+        assertEquals(DiagnosticLogger.Level.OFF, DiagnosticLogger.parseLevel("OFF"));
+    }
+
+    @Test
+    void missingOrUnknownLevelFallsBackToInfo() {
+        assertEquals(DiagnosticLogger.Level.INFO, DiagnosticLogger.parseLevel(null));
+        assertEquals(DiagnosticLogger.Level.INFO, DiagnosticLogger.parseLevel(""));
+        assertEquals(DiagnosticLogger.Level.INFO, DiagnosticLogger.parseLevel("verbose")); // 不能使类初始化失败
+    }
+}
@@ -0,0 +1,49 @@
+package com.banksimulation.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 金额换算测试：四舍五入到分与范围检查
+ * Tests for {@link MoneyUtil}: rounding to minor units and range checks.
+ */
+class MoneyUtilTest {
+
+    @Test
+    void toMinorUnitsRoundsToNearestCent() {
+        assertEquals(1050, MoneyUtil.toMinorUnits(10.5));
+        assertEquals(1999, MoneyUtil.toMinorUnits(19.99)); // 19.99 * 100 略小于 1999，不能截断
+        assertEquals(13, MoneyUtil.toMinorUnits(0.125));   // 恰好一半时向上取整
+        assertEquals(-12, MoneyUtil.toMinorUnits(-0.125));
+        assertEquals(0, MoneyUtil.toMinorUnits(0.004));
+        assertEquals(-250, MoneyUtil.toMinorUnits(-2.5));
+    }
+
+    @Test
+    void outOfRangeAmountsAreRejected() {
+        assertFalse(MoneyUtil.isValidAmount(Double.NaN));
+        assertFalse(MoneyUtil.isValidAmount(Double.POSITIVE_INFINITY));
+        assertFalse(MoneyUtil.isValidAmount(MoneyUtil.MAX_AMOUNT));
+        assertFalse(MoneyUtil.isValidAmount(-MoneyUtil.MAX_AMOUNT));
+        assertTrue(MoneyUtil.isValidAmount(Math.nextDown(MoneyUtil.MAX_AMOUNT)));
+        assertThrows(IllegalArgumentException.class, () -> MoneyUtil.toMinorUnits(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> MoneyUtil.toMinorUnits(1e300));
+    }
+
+    @Test
+    void largestValidAmountStaysInLongRange() {
+        long minorUnits = MoneyUtil.toMinorUnits(Math.nextDown(MoneyUtil.MAX_AMOUNT));
+        assertTrue(minorUnits > 0 && minorUnits < Long.MAX_VALUE);
+    }
+
+    @Test
+    void toAmountConvertsBack() {
+        assertEquals(12.34, MoneyUtil.toAmount(1234), 1e-12);
+        assertEquals(-0.01, MoneyUtil.toAmount(-1), 1e-12);
+        assertEquals(19.99, MoneyUtil.toAmount(MoneyUtil.toMinorUnits(19.99)), 1e-12);
+    }
+}
@@ -0,0 +1,47 @@
+package com.banksimulation.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间换算测试：纪元纳秒的往返换算、超出范围时报错或取边界值
+ * Tests for {@link TimeUtil}: round trips through epoch nanoseconds, and failing or clamping
+ * outside the range a long holds.
+ */
+class TimeUtilTest {
+
+    @Test
+    void roundTripsTimestampsInRange() {
+        for (LocalDateTime timestamp : new LocalDateTime[] {
+                LocalDateTime.of(1970, 1, 1, 0, 0),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(1700, 6, 1, 12, 0, 0, 1),
+                LocalDateTime.of(2024, 3, 1, 9, 30, 0, 250_000_000),
+                LocalDateTime.of(2262, 4, 11, 0, 0)}) {
+            assertTrue(TimeUtil.isRepresentable(timestamp));
+            assertEquals(timestamp, TimeUtil.fromEpochNanos(TimeUtil.toEpochNanos(timestamp)));
+            assertEquals(TimeUtil.toEpochNanos(timestamp), TimeUtil.toEpochNanosClamped(timestamp));
+        }
+        assertEquals(-1, TimeUtil.toEpochNanos(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999)));
+    }
+
+    @Test
+    void outOfRangeTimestampsFailOrClamp() {
+        LocalDateTime early = LocalDateTime.of(1600, 1, 1, 0, 0);
+        LocalDateTime late = LocalDateTime.of(2300, 1, 1, 0, 0);
+        assertFalse(TimeUtil.isRepresentable(early));
+        assertFalse(TimeUtil.isRepresentable(late));
+        assertThrows(IllegalArgumentException.class, () -> TimeUtil.toEpochNanos(early));
+        assertThrows(IllegalArgumentException.class, () -> TimeUtil.toEpochNanos(late));
+        assertEquals(Long.MIN_VALUE, TimeUtil.toEpochNanosClamped(early));
+        assertEquals(Long.MAX_VALUE, TimeUtil.toEpochNanosClamped(late));
+        assertEquals(Long.MIN_VALUE, TimeUtil.toEpochNanosClamped(LocalDateTime.MIN));
+        assertEquals(Long.MAX_VALUE, TimeUtil.toEpochNanosClamped(LocalDateTime.MAX));
+    }
+}
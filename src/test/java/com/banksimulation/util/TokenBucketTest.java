@@ -0,0 +1,62 @@
+package com.banksimulation.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 令牌桶测试：初始突发、按速率补充、容量上限与时钟回退
+ * Tests for {@link TokenBucket}: the initial burst, refill at the configured rate, the capacity
+ * cap, and a clock reading that goes backwards.
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = -5 * SECOND; // nanoTime 可以为负
+
+    @Test
+    void startsFullAndEmptiesAfterTheBurst() {
+        TokenBucket bucket = new TokenBucket(3, 1, T0);
+        assertTrue(bucket.tryAcquire(T0));
+        assertTrue(bucket.tryAcquire(T0));
+        assertTrue(bucket.tryAcquire(T0));
+        assertFalse(bucket.tryAcquire(T0));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(1, 2, T0); // 每 0.5 秒一个令牌
+        assertTrue(bucket.tryAcquire(T0));
+        assertFalse(bucket.tryAcquire(T0 + SECOND / 2 - 1));
+        assertTrue(bucket.tryAcquire(T0 + SECOND / 2)); // 之前的部分令牌没有丢失
+        assertFalse(bucket.tryAcquire(T0 + SECOND / 2));
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 10, T0);
+        assertTrue(bucket.tryAcquire(T0));
+        assertTrue(bucket.tryAcquire(T0));
+        long later = T0 + 3600 * SECOND;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    void earlierClockReadingDoesNotRefillOrRewind() {
+        TokenBucket bucket = new TokenBucket(1, 1, T0);
+        assertTrue(bucket.tryAcquire(T0));
+        assertFalse(bucket.tryAcquire(T0 - 10 * SECOND));
+        assertTrue(bucket.tryAcquire(T0 + SECOND)); // 补充仍从 T0 算起
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0.5, 1, T0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, T0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, -1, T0));
+    }
+}